@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend;
+
+import java.util.Arrays;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import com.artale.artaletool.backend.simulated.SimulatedBackendConfiguration;
+
+/**
+ * 依 {@code artaletool.backend} 選擇輸入與視窗後端。
+ *
+ * <p>win32 使用 user32 與 Robot；simulated 啟用同名設定檔改用虛擬桌面；auto (預設) 在非 Windows 主機上自動使用 simulated。
+ *
+ * <p>Spring AOT 在建置時就依當時的設定檔產生 bean 定義，執行時無法再切換後端；以 AOT 產物啟動時若建置時的後端與這台機器應使用的後端不同， 立即停止，避免在 Windows
+ * 上把輸入送到虛擬桌面。
+ */
+public class BackendProfileEnvironmentPostProcessor
+    implements EnvironmentPostProcessor, ApplicationListener<ApplicationPreparedEvent> {
+  public static final String SIMULATED_PROFILE = "simulated";
+
+  @Override
+  public void postProcessEnvironment(
+      ConfigurableEnvironment environment, SpringApplication application) {
+    if (Arrays.asList(environment.getActiveProfiles()).contains(SIMULATED_PROFILE)) {
+      return;
+    }
+    String backend = environment.getProperty("artaletool.backend", "auto");
+    if (useSimulated(backend, System.getProperty("os.name", ""))) {
+      environment.addActiveProfile(SIMULATED_PROFILE);
+    }
+  }
+
+  @Override
+  public void onApplicationEvent(ApplicationPreparedEvent event) {
+    if (!AotDetector.useGeneratedArtifacts()) {
+      return;
+    }
+    ConfigurableApplicationContext context = event.getApplicationContext();
+    boolean expected =
+        Arrays.asList(context.getEnvironment().getActiveProfiles()).contains(SIMULATED_PROFILE);
+    boolean built =
+        context
+                .getBeanFactory()
+                .getBeanNamesForType(SimulatedBackendConfiguration.class, false, false)
+                .length
+            > 0;
+    checkAotBackend(expected, built);
+  }
+
+  /** expected 為這台機器應使用 simulated，built 為 AOT 產物包含 simulated 的 bean 定義 */
+  static void checkAotBackend(boolean expected, boolean built) {
+    if (expected != built) {
+      throw new IllegalStateException(
+          "AOT 產物以 "
+              + backendName(built)
+              + " 後端建置，但這台機器應使用 "
+              + backendName(expected)
+              + " 後端；請以 -Daot.backend="
+              + backendName(expected)
+              + " 重新建置，或以 -Dartaletool.backend="
+              + backendName(built)
+              + " 啟動");
+    }
+  }
+
+  private static String backendName(boolean simulated) {
+    return simulated ? "simulated" : "win32";
+  }
+
+  static boolean useSimulated(String backend, String osName) {
+    return switch (backend.trim().toLowerCase()) {
+      case "simulated" -> true;
+      case "win32" -> false;
+      case "auto" -> !osName.startsWith("Windows");
+      default -> throw new IllegalArgumentException("未知的後端: " + backend);
+    };
+  }
+}
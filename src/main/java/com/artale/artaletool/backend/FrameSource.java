@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend;
+
+/** 擷取螢幕像素的來源；Windows 上為 GDI，模擬後端與測試則由圖片檔或合成畫面提供 */
+public interface FrameSource {
+
+  /** 來源是否可用 (必要時會在此時初始化) */
+  boolean isAvailable();
+
+  /**
+   * 擷取螢幕座標 (x, y) 起 width × height 的像素到 out，成功時回傳 true。
+   *
+   * <p>像素為 ARGB，逐列排列且列寬等於 width；out 的長度至少為 width × height。只由擷取執行緒呼叫。
+   */
+  boolean capture(int x, int y, int width, int height, int[] out);
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend;
+
+/** 將鍵盤與滑鼠輸入送入系統的注入器 */
+public interface InputInjector {
+
+  /** 注入器是否可用 (必要時會在此時初始化) */
+  boolean isAvailable();
+
+  /** keyCode 為 Win32 虛擬鍵碼，見 {@link KeyTable} */
+  void keyPress(int keyCode);
+
+  void keyRelease(int keyCode);
+
+  void mouseMove(int x, int y);
+
+  /** buttons 為 {@link java.awt.event.InputEvent} 的 BUTTONn_DOWN_MASK */
+  void mousePress(int buttons);
+
+  void mouseRelease(int buttons);
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend;
+
+/**
+ * 監控執行緒每個 tick 都會呼叫的輸入與視窗狀態查詢。
+ *
+ * <p>結果寫入呼叫端提供的陣列，實作不應在每次呼叫時配置物件。
+ */
+public interface InputProbe {
+
+  /** 對應 GetAsyncKeyState，最高位元表示按鍵目前按下 */
+  short getAsyncKeyState(int vKey);
+
+  /** 讀取游標位置到 out[0] (x)、out[1] (y) */
+  boolean getCursorPos(int[] out);
+
+  /** 目前前景視窗的 handle，沒有時為 0 */
+  long getForegroundWindow();
+
+  /** 視窗 handle 是否仍然有效 */
+  boolean isWindow(long hWnd);
+
+  /** 讀取視窗矩形到 out[0..3] (left, top, right, bottom) */
+  boolean getWindowRect(long hWnd, int[] out);
+}
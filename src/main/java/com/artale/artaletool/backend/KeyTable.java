@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend;
+
+import java.util.Arrays;
+
+/**
+ * 不可變的按鍵對照表。按鍵的標準代碼為 Win32 虛擬鍵碼 (0 ~ 255)，也就是 {@link InputProbe#getAsyncKeyState} 輪詢與 {@link
+ * InputInjector} 注入時使用的代碼。
+ *
+ * <p>鍵碼轉名稱為陣列索引；名稱轉鍵碼為不分大小寫的開放定址雜湊，查詢時不配置物件。每個鍵碼只有一個標準名稱，其餘名稱 (例如 NumPadEnter)
+ * 以別名登記，建表時若有名稱重複或同一鍵碼有兩個標準名稱會直接失敗。
+ */
+public final class KeyTable {
+  /** 鍵碼的上限 (不含) */
+  public static final int CODES = 256;
+
+  public static final int VK_ENTER = 0x0D;
+  public static final int VK_ESCAPE = 0x1B;
+
+  /** 內建的按鍵對照表，包含錄製時會輪詢的所有按鍵 */
+  public static final KeyTable STANDARD = standard();
+
+  private final String[] names;
+  private final int[] awtCodes;
+  private final int[] fromAwt;
+  private final int[] codes;
+  private final String[] slotNames;
+  private final int[] slotHashes;
+  private final int[] slotCodes;
+  private final int mask;
+
+  private KeyTable(Builder builder) {
+    this.names = builder.names.clone();
+    this.awtCodes = builder.awtCodes.clone();
+
+    int maxAwt = 0;
+    int count = 0;
+    for (int code = 0; code < CODES; code++) {
+      if (names[code] != null) {
+        count++;
+        maxAwt = Math.max(maxAwt, awtCodes[code]);
+      }
+    }
+    this.codes = new int[count];
+    this.fromAwt = new int[maxAwt + 1];
+    Arrays.fill(fromAwt, -1);
+    int next = 0;
+    for (int code = 0; code < CODES; code++) {
+      if (names[code] != null) {
+        codes[next++] = code;
+        fromAwt[awtCodes[code]] = code;
+      }
+    }
+
+    // 槽位數為名稱數的四倍以上，探測長度很短
+    int slots = Integer.highestOneBit(Math.max(builder.aliasCount, 1) * 4 - 1) << 1;
+    this.mask = slots - 1;
+    this.slotNames = new String[slots];
+    this.slotHashes = new int[slots];
+    this.slotCodes = new int[slots];
+    for (int i = 0; i < builder.aliasCount; i++) {
+      String name = builder.aliasNames[i];
+      int hash = foldedHash(name);
+      int slot = hash & mask;
+      while (slotNames[slot] != null) {
+        if (slotHashes[slot] == hash && equalsIgnoreCase(slotNames[slot], name)) {
+          throw new IllegalStateException("按鍵名稱重複: " + name + " 與 " + slotNames[slot] + " 不分大小寫相同");
+        }
+        slot = (slot + 1) & mask;
+      }
+      slotNames[slot] = name;
+      slotHashes[slot] = hash;
+      slotCodes[slot] = builder.aliasCodes[i];
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** 鍵碼的標準名稱，沒有定義時回傳 null */
+  public String name(int code) {
+    return code >= 0 && code < CODES ? names[code] : null;
+  }
+
+  /** 名稱 (不分大小寫，含別名) 對應的鍵碼，找不到時回傳 -1 */
+  public int code(String name) {
+    if (name == null || name.isEmpty()) {
+      return -1;
+    }
+    int hash = foldedHash(name);
+    int slot = hash & mask;
+    String candidate;
+    while ((candidate = slotNames[slot]) != null) {
+      if (slotHashes[slot] == hash && equalsIgnoreCase(candidate, name)) {
+        return slotCodes[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /** 把任意寫法的名稱轉成標準名稱，找不到時回傳 null */
+  public String canonicalName(String name) {
+    int code = code(name);
+    return code < 0 ? null : names[code];
+  }
+
+  /** 已定義的鍵碼，依數值排序 */
+  public int[] codes() {
+    return codes.clone();
+  }
+
+  /** 已定義的鍵碼數量 */
+  public int size() {
+    return codes.length;
+  }
+
+  /** 第 index 個已定義的鍵碼，監控迴圈以此逐一輪詢 */
+  public int codeAt(int index) {
+    return codes[index];
+  }
+
+  /** 鍵碼對應的 {@link java.awt.event.KeyEvent} VK 常數，沒有定義時回傳 -1 */
+  public int awtCode(int code) {
+    return code >= 0 && code < CODES && names[code] != null ? awtCodes[code] : -1;
+  }
+
+  /** AWT 鍵碼對應的標準鍵碼，沒有定義時回傳 -1 */
+  public int fromAwtCode(int awtCode) {
+    return awtCode >= 0 && awtCode < fromAwt.length ? fromAwt[awtCode] : -1;
+  }
+
+  /** 只折疊 ASCII 大小寫的雜湊，與 {@link #equalsIgnoreCase} 一致 */
+  private static int foldedHash(String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      hash = 31 * hash + fold(name.charAt(i));
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean equalsIgnoreCase(String a, String b) {
+    if (a.length() != b.length()) {
+      return false;
+    }
+    for (int i = 0; i < a.length(); i++) {
+      if (fold(a.charAt(i)) != fold(b.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static char fold(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  private static KeyTable standard() {
+    Builder builder = builder();
+    // 字母鍵與數字鍵的虛擬鍵碼等於其 ASCII 碼，AWT 也相同
+    for (char c = 'A'; c <= 'Z'; c++) {
+      builder.key(c, c, String.valueOf(c));
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      builder.key(c, c, String.valueOf(c));
+    }
+    // 功能鍵 F1 ~ F12 為連續的鍵碼
+    for (int i = 0; i < 12; i++) {
+      builder.key(0x70 + i, java.awt.event.KeyEvent.VK_F1 + i, "F" + (i + 1));
+    }
+    for (int i = 0; i <= 9; i++) {
+      builder.key(0x60 + i, java.awt.event.KeyEvent.VK_NUMPAD0 + i, "NumPad" + i);
+    }
+
+    // 特殊按鍵
+    builder
+        .key(0x08, java.awt.event.KeyEvent.VK_BACK_SPACE, "Backspace")
+        .key(0x09, java.awt.event.KeyEvent.VK_TAB, "Tab")
+        .key(VK_ENTER, java.awt.event.KeyEvent.VK_ENTER, "Enter")
+        .key(0x13, java.awt.event.KeyEvent.VK_PAUSE, "Pause")
+        .key(0x14, java.awt.event.KeyEvent.VK_CAPS_LOCK, "CapsLock")
+        .key(VK_ESCAPE, java.awt.event.KeyEvent.VK_ESCAPE, "Escape")
+        .key(0x20, java.awt.event.KeyEvent.VK_SPACE, "Space")
+        .key(0x21, java.awt.event.KeyEvent.VK_PAGE_UP, "PageUp")
+        .key(0x22, java.awt.event.KeyEvent.VK_PAGE_DOWN, "PageDown")
+        .key(0x23, java.awt.event.KeyEvent.VK_END, "End")
+        .key(0x24, java.awt.event.KeyEvent.VK_HOME, "Home")
+        .key(0x2C, java.awt.event.KeyEvent.VK_PRINTSCREEN, "PrintScreen")
+        .key(0x2D, java.awt.event.KeyEvent.VK_INSERT, "Insert")
+        .key(0x2E, java.awt.event.KeyEvent.VK_DELETE, "Delete")
+        .key(0x5D, java.awt.event.KeyEvent.VK_CONTEXT_MENU, "ContextMenu")
+        .key(0x90, java.awt.event.KeyEvent.VK_NUM_LOCK, "NumLock")
+        .key(0x91, java.awt.event.KeyEvent.VK_SCROLL_LOCK, "ScrollLock");
+
+    // 方向鍵
+    builder
+        .key(0x25, java.awt.event.KeyEvent.VK_LEFT, "Left")
+        .key(0x26, java.awt.event.KeyEvent.VK_UP, "Up")
+        .key(0x27, java.awt.event.KeyEvent.VK_RIGHT, "Right")
+        .key(0x28, java.awt.event.KeyEvent.VK_DOWN, "Down");
+
+    // 修飾鍵
+    builder
+        .key(0x10, java.awt.event.KeyEvent.VK_SHIFT, "Shift")
+        .key(0x11, java.awt.event.KeyEvent.VK_CONTROL, "Ctrl")
+        .key(0x12, java.awt.event.KeyEvent.VK_ALT, "Alt")
+        .key(0x5B, java.awt.event.KeyEvent.VK_WINDOWS, "Windows");
+
+    // 數字鍵盤運算鍵
+    builder
+        .key(0x6A, java.awt.event.KeyEvent.VK_MULTIPLY, "NumPadMultiply")
+        .key(0x6B, java.awt.event.KeyEvent.VK_ADD, "NumPadAdd")
+        .key(0x6D, java.awt.event.KeyEvent.VK_SUBTRACT, "NumPadSubtract")
+        .key(0x6E, java.awt.event.KeyEvent.VK_DECIMAL, "NumPadDecimal")
+        .key(0x6F, java.awt.event.KeyEvent.VK_DIVIDE, "NumPadDivide");
+
+    // 數字鍵盤的 Enter 與主鍵盤共用鍵碼，GetAsyncKeyState 無法區分，舊腳本中的名稱仍可播放
+    builder.alias("NumPadEnter", VK_ENTER).alias("Command", 0x5B).alias("Control", 0x11);
+    return builder.build();
+  }
+
+  /** 建立按鍵對照表 */
+  public static final class Builder {
+    private final String[] names = new String[CODES];
+    private final int[] awtCodes = new int[CODES];
+    private String[] aliasNames = new String[128];
+    private int[] aliasCodes = new int[128];
+    private int aliasCount;
+
+    private Builder() {}
+
+    /** 登記鍵碼的標準名稱與 AWT 鍵碼 */
+    public Builder key(int code, int awtCode, String name) {
+      if (code <= 0 || code >= CODES) {
+        throw new IllegalArgumentException("鍵碼超出範圍: " + code);
+      }
+      if (awtCode <= 0) {
+        throw new IllegalArgumentException("AWT 鍵碼無效: " + name);
+      }
+      if (names[code] != null) {
+        throw new IllegalStateException(
+            "鍵碼 " + code + " 已有標準名稱 " + names[code] + "，" + name + " 應登記為別名");
+      }
+      names[code] = name;
+      awtCodes[code] = awtCode;
+      return addName(name, code);
+    }
+
+    /** 登記額外的名稱，只用於名稱轉鍵碼 */
+    public Builder alias(String name, int code) {
+      if (code <= 0 || code >= CODES || names[code] == null) {
+        throw new IllegalStateException("別名 " + name + " 指向未定義的鍵碼: " + code);
+      }
+      return addName(name, code);
+    }
+
+    private Builder addName(String name, int code) {
+      if (name == null || name.isEmpty()) {
+        throw new IllegalArgumentException("按鍵名稱不可為空");
+      }
+      if (aliasCount == aliasNames.length) {
+        aliasNames = Arrays.copyOf(aliasNames, aliasCount * 2);
+        aliasCodes = Arrays.copyOf(aliasCodes, aliasCount * 2);
+      }
+      aliasNames[aliasCount] = name;
+      aliasCodes[aliasCount] = code;
+      aliasCount++;
+      return this;
+    }
+
+    /** 建表，名稱不分大小寫重複時拋出 {@link IllegalStateException} */
+    public KeyTable build() {
+      return new KeyTable(this);
+    }
+  }
+}
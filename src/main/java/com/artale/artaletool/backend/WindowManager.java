@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend;
+
+import java.util.List;
+
+/**
+ * 頂層視窗的列舉與操作。
+ *
+ * <p>視窗以 handle 識別，位置大小的查詢在 {@link InputProbe}；旗標沿用 SetWindowPos 的 SWP_* 定義。
+ */
+public interface WindowManager {
+  int SWP_NOSIZE = 0x0001;
+  int SWP_NOMOVE = 0x0002;
+  int SWP_NOZORDER = 0x0004;
+  int SWP_NOACTIVATE = 0x0010;
+
+  /** 依 Z 順序 (最上層在前) 列出所有頂層視窗 */
+  List<Long> listWindows();
+
+  boolean isWindowVisible(long hWnd);
+
+  String getWindowTitle(long hWnd);
+
+  String getClassName(long hWnd);
+
+  /** 將視窗移到最上層並設為前景視窗 */
+  boolean bringToFront(long hWnd);
+
+  /** 設定視窗位置與大小，flags 可帶 SWP_NOMOVE / SWP_NOSIZE 保留目前的值 */
+  boolean setWindowPos(long hWnd, int x, int y, int width, int height, int flags);
+
+  /** 一次套用多個視窗的位置與大小，全部成功時回傳 true */
+  boolean setWindowPositions(List<WindowPlacement> placements);
+}
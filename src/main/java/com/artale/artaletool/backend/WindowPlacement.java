@@ -0,0 +1,8 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend;
+
+/** 批次視窗定位的單一項目 */
+public record WindowPlacement(long hWnd, int x, int y, int width, int height, int flags) {}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.simulated;
+
+import java.awt.event.InputEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.playback.PlaybackClock;
+
+/**
+ * 記錄所有注入的輸入並同步更新虛擬桌面的按鍵與游標狀態。
+ *
+ * <p>每筆紀錄帶有播放時鐘的時間戳；只保留最近 capacity 筆，計數器則涵蓋全部注入。
+ */
+public class RecordingInjector implements InputInjector {
+  private static final int VK_LBUTTON = 0x01;
+  private static final int VK_RBUTTON = 0x02;
+  private static final int VK_MBUTTON = 0x04;
+
+  private final VirtualDesktop desktop;
+  private final PlaybackClock clock;
+  private final int capacity;
+  private final ArrayDeque<InjectedInput> recent = new ArrayDeque<>();
+  private final AtomicLong keyEvents = new AtomicLong();
+  private final AtomicLong mouseEvents = new AtomicLong();
+
+  /** 一筆注入紀錄；code 為鍵碼或滑鼠按鈕遮罩 */
+  public record InjectedInput(long nanoTime, String type, int code, int x, int y) {}
+
+  public RecordingInjector(VirtualDesktop desktop, PlaybackClock clock, int capacity) {
+    this.desktop = desktop;
+    this.clock = clock;
+    this.capacity = Math.max(1, capacity);
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return true;
+  }
+
+  @Override
+  public void keyPress(int keyCode) {
+    desktop.setKeyDown(keyCode, true);
+    keyEvents.incrementAndGet();
+    record("KEY_PRESS", keyCode, 0, 0);
+  }
+
+  @Override
+  public void keyRelease(int keyCode) {
+    desktop.setKeyDown(keyCode, false);
+    keyEvents.incrementAndGet();
+    record("KEY_RELEASE", keyCode, 0, 0);
+  }
+
+  @Override
+  public void mouseMove(int x, int y) {
+    desktop.setCursor(x, y);
+    mouseEvents.incrementAndGet();
+    record("MOUSE_MOVE", 0, x, y);
+  }
+
+  @Override
+  public void mousePress(int buttons) {
+    setButtons(buttons, true);
+    mouseEvents.incrementAndGet();
+    record("MOUSE_PRESS", buttons, 0, 0);
+  }
+
+  @Override
+  public void mouseRelease(int buttons) {
+    setButtons(buttons, false);
+    mouseEvents.incrementAndGet();
+    record("MOUSE_RELEASE", buttons, 0, 0);
+  }
+
+  /** 最近 limit 筆注入紀錄，由舊到新 */
+  public synchronized List<InjectedInput> recent(int limit) {
+    List<InjectedInput> all = new ArrayList<>(recent);
+    return all.subList(Math.max(0, all.size() - Math.max(0, limit)), all.size());
+  }
+
+  public long keyEventCount() {
+    return keyEvents.get();
+  }
+
+  public long mouseEventCount() {
+    return mouseEvents.get();
+  }
+
+  /** 清除紀錄與計數器，虛擬桌面的狀態不變 */
+  public synchronized void clear() {
+    recent.clear();
+    keyEvents.set(0);
+    mouseEvents.set(0);
+  }
+
+  private synchronized void record(String type, int code, int x, int y) {
+    if (recent.size() == capacity) {
+      recent.removeFirst();
+    }
+    recent.addLast(new InjectedInput(clock.nanoTime(), type, code, x, y));
+  }
+
+  private void setButtons(int buttons, boolean down) {
+    if ((buttons & InputEvent.BUTTON1_DOWN_MASK) != 0) {
+      desktop.setKeyDown(VK_LBUTTON, down);
+    }
+    if ((buttons & InputEvent.BUTTON3_DOWN_MASK) != 0) {
+      desktop.setKeyDown(VK_RBUTTON, down);
+    }
+    if ((buttons & InputEvent.BUTTON2_DOWN_MASK) != 0) {
+      desktop.setKeyDown(VK_MBUTTON, down);
+    }
+  }
+}
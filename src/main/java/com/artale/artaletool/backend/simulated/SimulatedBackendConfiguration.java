@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.simulated;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.playback.SystemPlaybackClock;
+import com.artale.artaletool.playback.VirtualPlaybackClock;
+
+/**
+ * simulated 設定檔：以虛擬桌面與虛擬螢幕取代 user32、GDI 與 Robot，不需要 Windows 或圖形環境。
+ *
+ * <p>預設使用虛擬時鐘，播放時不實際等待；{@code artaletool.simulated.clock=system} 時改用系統時鐘，以真實節奏執行。 {@code
+ * artaletool.simulated.clock-offset-ms} 讓系統時鐘加上固定的差，在同一台機器上模擬時鐘原點不同的多台機器。
+ */
+@Configuration
+@Profile("simulated")
+public class SimulatedBackendConfiguration {
+  private static final Logger logger = LoggerFactory.getLogger(SimulatedBackendConfiguration.class);
+
+  @Bean
+  public VirtualDesktop virtualDesktop(
+      @Value("${artaletool.simulated.window-title:MapleStory Worlds-Artale}") String title,
+      @Value("${artaletool.simulated.window-class:UnityWndClass}") String className) {
+    VirtualDesktop desktop = new VirtualDesktop();
+    if (!title.isEmpty()) {
+      desktop.openWindow(title, className, 100, 100, 1280, 720);
+    }
+    logger.info("使用模擬輸入與視窗後端");
+    return desktop;
+  }
+
+  @Bean
+  public PlaybackClock playbackClock(
+      @Value("${artaletool.simulated.clock:virtual}") String clock,
+      @Value("${artaletool.simulated.clock-offset-ms:0}") long offsetMs) {
+    if (!"system".equalsIgnoreCase(clock)) {
+      return new VirtualPlaybackClock(System.nanoTime());
+    }
+    if (offsetMs == 0) {
+      return SystemPlaybackClock.INSTANCE;
+    }
+    long offsetNanos = TimeUnit.MILLISECONDS.toNanos(offsetMs);
+    return new PlaybackClock() {
+      @Override
+      public long nanoTime() {
+        return System.nanoTime() + offsetNanos;
+      }
+
+      @Override
+      public void parkUntil(long deadlineNanos) {
+        SystemPlaybackClock.INSTANCE.parkUntil(deadlineNanos - offsetNanos);
+      }
+    };
+  }
+
+  @Bean
+  public SimulatedInputProbe inputProbe(VirtualDesktop desktop) {
+    return new SimulatedInputProbe(desktop);
+  }
+
+  @Bean
+  public RecordingInjector inputInjector(
+      VirtualDesktop desktop,
+      PlaybackClock playbackClock,
+      @Value("${artaletool.simulated.record-capacity:100000}") int capacity) {
+    return new RecordingInjector(desktop, playbackClock, capacity);
+  }
+
+  @Bean
+  public SimulatedWindowManager windowManager(VirtualDesktop desktop) {
+    return new SimulatedWindowManager(desktop);
+  }
+
+  @Bean
+  public SimulatedScreen frameSource(
+      @Value("${artaletool.simulated.screen-width:1920}") int width,
+      @Value("${artaletool.simulated.screen-height:1080}") int height) {
+    return new SimulatedScreen(width, height);
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.simulated;
+
+import com.artale.artaletool.backend.InputProbe;
+
+/** 從虛擬桌面讀取按鍵、游標與視窗狀態 */
+public class SimulatedInputProbe implements InputProbe {
+  private final VirtualDesktop desktop;
+
+  public SimulatedInputProbe(VirtualDesktop desktop) {
+    this.desktop = desktop;
+  }
+
+  @Override
+  public short getAsyncKeyState(int vKey) {
+    return desktop.keyState(vKey);
+  }
+
+  @Override
+  public boolean getCursorPos(int[] out) {
+    desktop.getCursor(out);
+    return true;
+  }
+
+  @Override
+  public long getForegroundWindow() {
+    return desktop.foregroundWindow();
+  }
+
+  @Override
+  public boolean isWindow(long hWnd) {
+    return desktop.isWindow(hWnd);
+  }
+
+  @Override
+  public boolean getWindowRect(long hWnd, int[] out) {
+    return desktop.getWindowRect(hWnd, out);
+  }
+}
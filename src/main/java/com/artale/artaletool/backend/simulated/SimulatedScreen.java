@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.simulated;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import com.artale.artaletool.backend.FrameSource;
+
+/**
+ * 模擬後端的螢幕：一塊以螢幕座標定址的 ARGB 影格緩衝區。
+ *
+ * <p>可以填色、畫上圖片或從圖片檔載入，擷取時複製對應範圍；超出螢幕的部分為不透明黑色。
+ */
+public class SimulatedScreen implements FrameSource {
+  private static final int BLACK = 0xFF000000;
+
+  private final int width;
+  private final int height;
+  private final int[] pixels;
+
+  public SimulatedScreen(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("螢幕大小無效: " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.pixels = new int[width * height];
+    Arrays.fill(pixels, BLACK);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return true;
+  }
+
+  @Override
+  public synchronized boolean capture(int x, int y, int width, int height, int[] out) {
+    for (int row = 0; row < height; row++) {
+      int sy = y + row;
+      int offset = row * width;
+      if (sy < 0 || sy >= this.height) {
+        Arrays.fill(out, offset, offset + width, BLACK);
+        continue;
+      }
+      int from = Math.max(0, -x);
+      int to = Math.min(width, this.width - x);
+      if (to <= from) {
+        Arrays.fill(out, offset, offset + width, BLACK);
+        continue;
+      }
+      Arrays.fill(out, offset, offset + from, BLACK);
+      System.arraycopy(pixels, sy * this.width + x + from, out, offset + from, to - from);
+      Arrays.fill(out, offset + to, offset + width, BLACK);
+    }
+    return true;
+  }
+
+  public synchronized int getPixel(int x, int y) {
+    return inside(x, y) ? pixels[y * width + x] : BLACK;
+  }
+
+  public synchronized void setPixel(int x, int y, int argb) {
+    if (inside(x, y)) {
+      pixels[y * width + x] = argb;
+    }
+  }
+
+  /** 以單一顏色填滿矩形，超出螢幕的部分忽略 */
+  public synchronized void fill(int x, int y, int width, int height, int argb) {
+    int x0 = Math.max(0, x);
+    int y0 = Math.max(0, y);
+    int x1 = Math.min(this.width, x + width);
+    int y1 = Math.min(this.height, y + height);
+    for (int row = y0; row < y1; row++) {
+      Arrays.fill(pixels, row * this.width + x0, row * this.width + Math.max(x0, x1), argb);
+    }
+  }
+
+  /** 把圖片畫在 (x, y)，超出螢幕的部分忽略 */
+  public synchronized void draw(BufferedImage image, int x, int y) {
+    int x0 = Math.max(0, x);
+    int y0 = Math.max(0, y);
+    int x1 = Math.min(width, x + image.getWidth());
+    int y1 = Math.min(height, y + image.getHeight());
+    if (x1 <= x0 || y1 <= y0) {
+      return;
+    }
+    for (int row = y0; row < y1; row++) {
+      image.getRGB(x0 - x, row - y, x1 - x0, 1, pixels, row * width + x0, width);
+    }
+  }
+
+  /** 從圖片檔載入並畫在 (x, y) */
+  public void load(Path file, int x, int y) throws IOException {
+    BufferedImage image = ImageIO.read(file.toFile());
+    if (image == null) {
+      throw new IllegalArgumentException("無法辨識的圖片格式: " + file);
+    }
+    draw(image, x, y);
+  }
+
+  private boolean inside(int x, int y) {
+    return x >= 0 && y >= 0 && x < width && y < height;
+  }
+}
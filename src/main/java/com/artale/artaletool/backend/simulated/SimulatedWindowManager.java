@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.simulated;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.artale.artaletool.backend.WindowManager;
+import com.artale.artaletool.backend.WindowPlacement;
+import com.artale.artaletool.backend.simulated.VirtualDesktop.VirtualWindow;
+
+/** 在虛擬桌面上列舉與操作視窗 */
+public class SimulatedWindowManager implements WindowManager {
+  private final VirtualDesktop desktop;
+
+  public SimulatedWindowManager(VirtualDesktop desktop) {
+    this.desktop = desktop;
+  }
+
+  @Override
+  public List<Long> listWindows() {
+    List<Long> handles = new ArrayList<>();
+    for (VirtualWindow window : desktop.windows()) {
+      handles.add(window.handle());
+    }
+    return handles;
+  }
+
+  @Override
+  public boolean isWindowVisible(long hWnd) {
+    VirtualWindow window = desktop.window(hWnd);
+    return window != null && window.visible();
+  }
+
+  @Override
+  public String getWindowTitle(long hWnd) {
+    VirtualWindow window = desktop.window(hWnd);
+    return window != null ? window.title() : "";
+  }
+
+  @Override
+  public String getClassName(long hWnd) {
+    VirtualWindow window = desktop.window(hWnd);
+    return window != null ? window.className() : "";
+  }
+
+  @Override
+  public boolean bringToFront(long hWnd) {
+    return desktop.activate(hWnd);
+  }
+
+  @Override
+  public boolean setWindowPos(long hWnd, int x, int y, int width, int height, int flags) {
+    VirtualWindow window = desktop.window(hWnd);
+    if (window == null) {
+      return false;
+    }
+    if ((flags & SWP_NOMOVE) != 0) {
+      x = window.left();
+      y = window.top();
+    }
+    if ((flags & SWP_NOSIZE) != 0) {
+      width = window.right() - window.left();
+      height = window.bottom() - window.top();
+    }
+    if (!desktop.moveWindow(hWnd, x, y, width, height)) {
+      return false;
+    }
+    if ((flags & SWP_NOACTIVATE) == 0) {
+      desktop.activate(hWnd);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean setWindowPositions(List<WindowPlacement> placements) {
+    boolean success = true;
+    for (WindowPlacement placement : placements) {
+      success &=
+          setWindowPos(
+              placement.hWnd(),
+              placement.x(),
+              placement.y(),
+              placement.width(),
+              placement.height(),
+              placement.flags());
+    }
+    return success;
+  }
+}
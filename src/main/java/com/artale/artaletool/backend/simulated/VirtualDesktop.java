@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.simulated;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 模擬後端的虛擬桌面：假視窗、Z 順序、前景視窗、游標位置與按鍵狀態。
+ *
+ * <p>所有方法以桌面本身同步；查詢方法以索引走訪視窗，不配置物件，可供監控迴圈每個 tick 呼叫。
+ */
+public class VirtualDesktop {
+  /** 按鍵狀態表大小，涵蓋 AWT 與 Win32 的虛擬鍵碼 */
+  public static final int KEY_STATES = 1024;
+
+  private static final short KEY_DOWN = (short) 0x8000;
+
+  /** 依 Z 順序排列，索引 0 為最上層 */
+  private final List<VirtualWindow> windows = new ArrayList<>();
+
+  private final short[] keyStates = new short[KEY_STATES];
+  private long nextHandle = 0x10000;
+  private long foreground = 0;
+  private int cursorX;
+  private int cursorY;
+
+  /** 虛擬桌面上的一個頂層視窗 */
+  public record VirtualWindow(
+      long handle,
+      String title,
+      String className,
+      boolean visible,
+      int left,
+      int top,
+      int right,
+      int bottom) {
+
+    VirtualWindow withRect(int left, int top, int right, int bottom) {
+      return new VirtualWindow(handle, title, className, visible, left, top, right, bottom);
+    }
+  }
+
+  /** 開啟一個新視窗，放在最上層並設為前景視窗，回傳其 handle */
+  public synchronized long openWindow(
+      String title, String className, int x, int y, int width, int height) {
+    long handle = nextHandle;
+    nextHandle += 0x10;
+    windows.add(0, new VirtualWindow(handle, title, className, true, x, y, x + width, y + height));
+    foreground = handle;
+    return handle;
+  }
+
+  /** 關閉視窗，前景視窗被關閉時改由下一個視窗取得焦點 */
+  public synchronized boolean closeWindow(long handle) {
+    int index = indexOf(handle);
+    if (index < 0) {
+      return false;
+    }
+    windows.remove(index);
+    if (foreground == handle) {
+      foreground = windows.isEmpty() ? 0 : windows.get(0).handle();
+    }
+    return true;
+  }
+
+  /** 依 Z 順序取得所有視窗的快照 */
+  public synchronized List<VirtualWindow> windows() {
+    return List.copyOf(windows);
+  }
+
+  public synchronized VirtualWindow window(long handle) {
+    int index = indexOf(handle);
+    return index < 0 ? null : windows.get(index);
+  }
+
+  public synchronized boolean isWindow(long handle) {
+    return indexOf(handle) >= 0;
+  }
+
+  public synchronized boolean getWindowRect(long handle, int[] out) {
+    int index = indexOf(handle);
+    if (index < 0) {
+      return false;
+    }
+    VirtualWindow window = windows.get(index);
+    out[0] = window.left();
+    out[1] = window.top();
+    out[2] = window.right();
+    out[3] = window.bottom();
+    return true;
+  }
+
+  /** 移動或縮放視窗，模擬使用者拖曳或 SetWindowPos */
+  public synchronized boolean moveWindow(long handle, int x, int y, int width, int height) {
+    int index = indexOf(handle);
+    if (index < 0) {
+      return false;
+    }
+    windows.set(index, windows.get(index).withRect(x, y, x + width, y + height));
+    return true;
+  }
+
+  /** 將視窗移到最上層並設為前景視窗 */
+  public synchronized boolean activate(long handle) {
+    int index = indexOf(handle);
+    if (index < 0) {
+      return false;
+    }
+    windows.add(0, windows.remove(index));
+    foreground = handle;
+    return true;
+  }
+
+  public synchronized long foregroundWindow() {
+    return foreground;
+  }
+
+  public synchronized void setCursor(int x, int y) {
+    cursorX = x;
+    cursorY = y;
+  }
+
+  public synchronized void getCursor(int[] out) {
+    out[0] = cursorX;
+    out[1] = cursorY;
+  }
+
+  public synchronized void setKeyDown(int keyCode, boolean down) {
+    if (keyCode >= 0 && keyCode < KEY_STATES) {
+      keyStates[keyCode] = down ? KEY_DOWN : 0;
+    }
+  }
+
+  /** 與 GetAsyncKeyState 相同，按下時最高位元為 1 */
+  public synchronized short keyState(int keyCode) {
+    return keyCode >= 0 && keyCode < KEY_STATES ? keyStates[keyCode] : 0;
+  }
+
+  /** 放開所有按鍵與滑鼠按鈕 */
+  public synchronized void releaseAll() {
+    Arrays.fill(keyStates, (short) 0);
+  }
+
+  /** 目前按下的鍵碼 */
+  public synchronized List<Integer> pressedKeys() {
+    List<Integer> pressed = new ArrayList<>();
+    for (int code = 0; code < KEY_STATES; code++) {
+      if (keyStates[code] != 0) {
+        pressed.add(code);
+      }
+    }
+    return pressed;
+  }
+
+  private int indexOf(long handle) {
+    for (int i = 0; i < windows.size(); i++) {
+      if (windows.get(i).handle() == handle) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
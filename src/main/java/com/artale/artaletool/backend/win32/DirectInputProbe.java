@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.artale.artaletool.backend.InputProbe;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+
+/**
+ * 以 direct mapping 查詢輸入與視窗狀態。
+ *
+ * <p>POINT 與 RECT 使用每個執行緒重複利用的原生緩衝區，監控迴圈的每次呼叫都不會配置物件。
+ *
+ * <p>32 位元 JVM 上改用介面代理 ({@link ProxyInputProbe})。
+ */
+@Component
+@Profile("!simulated")
+public class DirectInputProbe implements InputProbe {
+  private static final boolean DIRECT = Native.POINTER_SIZE == 8;
+  private final InputProbe fallback = DIRECT ? null : new ProxyInputProbe();
+  private final ThreadLocal<Memory> pointBuffer = ThreadLocal.withInitial(() -> new Memory(8));
+  private final ThreadLocal<Memory> rectBuffer = ThreadLocal.withInitial(() -> new Memory(16));
+
+  @Override
+  public short getAsyncKeyState(int vKey) {
+    if (!DIRECT) {
+      return fallback.getAsyncKeyState(vKey);
+    }
+    return User32Direct.GetAsyncKeyState(vKey);
+  }
+
+  @Override
+  public boolean getCursorPos(int[] out) {
+    if (!DIRECT) {
+      return fallback.getCursorPos(out);
+    }
+    Memory point = pointBuffer.get();
+    if (!User32Direct.GetCursorPos(point)) {
+      return false;
+    }
+    out[0] = point.getInt(0);
+    out[1] = point.getInt(4);
+    return true;
+  }
+
+  @Override
+  public long getForegroundWindow() {
+    if (!DIRECT) {
+      return fallback.getForegroundWindow();
+    }
+    return User32Direct.GetForegroundWindow();
+  }
+
+  @Override
+  public boolean isWindow(long hWnd) {
+    if (!DIRECT) {
+      return fallback.isWindow(hWnd);
+    }
+    return User32Direct.IsWindow(hWnd);
+  }
+
+  @Override
+  public boolean getWindowRect(long hWnd, int[] out) {
+    if (!DIRECT) {
+      return fallback.getWindowRect(hWnd, out);
+    }
+    Memory rect = rectBuffer.get();
+    if (!User32Direct.GetWindowRect(hWnd, rect)) {
+      return false;
+    }
+    out[0] = rect.getInt(0);
+    out[1] = rect.getInt(4);
+    out[2] = rect.getInt(8);
+    out[3] = rect.getInt(12);
+    return true;
+  }
+}
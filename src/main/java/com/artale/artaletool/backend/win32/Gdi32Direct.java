@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+/**
+ * 畫面擷取用到的 gdi32 函式的 JNA direct mapping。
+ *
+ * <p>與 {@link User32Direct} 相同，handle 以 long 傳遞，只適用於 64 位元 JVM，請透過 {@link GdiFrameSource} 使用。
+ */
+final class Gdi32Direct {
+
+  static {
+    Native.register("gdi32");
+  }
+
+  private Gdi32Direct() {}
+
+  static native long CreateCompatibleDC(long hdc);
+
+  static native long CreateCompatibleBitmap(long hdc, int cx, int cy);
+
+  static native long SelectObject(long hdc, long h);
+
+  static native boolean BitBlt(
+      long hdc, int x, int y, int cx, int cy, long hdcSrc, int x1, int y1, int rop);
+
+  static native int GetDIBits(
+      long hdc, long hbm, int start, int cLines, Pointer lpvBits, Pointer lpbmi, int usage);
+
+  static native boolean DeleteObject(long ho);
+
+  static native boolean DeleteDC(long hdc);
+}
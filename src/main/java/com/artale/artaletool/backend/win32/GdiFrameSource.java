@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.artale.artaletool.backend.FrameSource;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 以 GDI BitBlt 擷取螢幕像素。
+ *
+ * <p>螢幕 DC、記憶體 DC 與每種區域大小的點陣圖和原生緩衝區都在第一次使用時建立並重複使用，擷取時只有 BitBlt、GetDIBits 與一次整塊複製，不經過 {@code
+ * java.awt.Robot} 的 BufferedImage。
+ *
+ * <p>只支援 64 位元 JVM；其他環境 {@link #isAvailable()} 回傳 false。
+ */
+@Component
+@Profile("!simulated")
+public class GdiFrameSource implements FrameSource {
+  private static final Logger logger = LoggerFactory.getLogger(GdiFrameSource.class);
+  private static final int SRCCOPY = 0x00CC0020;
+  private static final int DIB_RGB_COLORS = 0;
+  private static final int MAX_SURFACES = 8;
+
+  private Boolean available;
+  private long screenDc;
+  private long memoryDc;
+  private final Surface[] surfaces = new Surface[MAX_SURFACES];
+  private int nextEvict;
+
+  /** 一種區域大小的點陣圖與 32 位元 top-down DIB 緩衝區 */
+  private static final class Surface {
+    private final int width;
+    private final int height;
+    private final long bitmap;
+    private final Memory bits;
+    private final Memory header = new Memory(44);
+
+    private Surface(long screenDc, int width, int height) {
+      this.width = width;
+      this.height = height;
+      this.bitmap = Gdi32Direct.CreateCompatibleBitmap(screenDc, width, height);
+      this.bits = new Memory((long) width * height * 4);
+      header.clear();
+      header.setInt(0, 40); // biSize
+      header.setInt(4, width);
+      header.setInt(8, -height); // 負值表示由上而下
+      header.setShort(12, (short) 1); // biPlanes
+      header.setShort(14, (short) 32); // biBitCount
+      header.setInt(16, 0); // BI_RGB
+    }
+
+    private void dispose() {
+      if (bitmap != 0) {
+        Gdi32Direct.DeleteObject(bitmap);
+      }
+    }
+  }
+
+  @Override
+  public synchronized boolean isAvailable() {
+    if (available == null) {
+      available = initialize();
+    }
+    return available;
+  }
+
+  private boolean initialize() {
+    if (!Platform.isWindows() || Native.POINTER_SIZE != 8) {
+      logger.info("GDI 畫面擷取只支援 64 位元 Windows");
+      return false;
+    }
+    try {
+      screenDc = User32Direct.GetDC(0);
+      memoryDc = screenDc != 0 ? Gdi32Direct.CreateCompatibleDC(screenDc) : 0;
+      if (memoryDc == 0) {
+        logger.error("無法建立 GDI 裝置內容");
+        return false;
+      }
+      return true;
+    } catch (UnsatisfiedLinkError e) {
+      logger.error("無法載入 GDI: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public synchronized boolean capture(int x, int y, int width, int height, int[] out) {
+    if (!isAvailable()) {
+      return false;
+    }
+    Surface surface = surface(width, height);
+    if (surface.bitmap == 0) {
+      return false;
+    }
+
+    long previous = Gdi32Direct.SelectObject(memoryDc, surface.bitmap);
+    boolean copied = Gdi32Direct.BitBlt(memoryDc, 0, 0, width, height, screenDc, x, y, SRCCOPY);
+    // GetDIBits 要求點陣圖沒有被選入任何 DC
+    Gdi32Direct.SelectObject(memoryDc, previous);
+    if (!copied) {
+      return false;
+    }
+    int lines =
+        Gdi32Direct.GetDIBits(
+            screenDc, surface.bitmap, 0, height, surface.bits, surface.header, DIB_RGB_COLORS);
+    if (lines != height) {
+      return false;
+    }
+
+    int count = width * height;
+    surface.bits.read(0, out, 0, count);
+    // GDI 的第四個位元組沒有定義，統一視為不透明
+    for (int i = 0; i < count; i++) {
+      out[i] |= 0xFF000000;
+    }
+    return true;
+  }
+
+  private Surface surface(int width, int height) {
+    for (Surface surface : surfaces) {
+      if (surface != null && surface.width == width && surface.height == height) {
+        return surface;
+      }
+    }
+    for (int i = 0; i < surfaces.length; i++) {
+      if (surfaces[i] == null) {
+        surfaces[i] = new Surface(screenDc, width, height);
+        return surfaces[i];
+      }
+    }
+    int slot = nextEvict++ % surfaces.length;
+    surfaces[slot].dispose();
+    surfaces[slot] = new Surface(screenDc, width, height);
+    return surfaces[slot];
+  }
+
+  @PreDestroy
+  public synchronized void close() {
+    if (available == null || !available) {
+      return;
+    }
+    for (int i = 0; i < surfaces.length; i++) {
+      if (surfaces[i] != null) {
+        surfaces[i].dispose();
+        surfaces[i] = null;
+      }
+    }
+    Gdi32Direct.DeleteDC(memoryDc);
+    User32Direct.ReleaseDC(0, screenDc);
+    available = false;
+  }
+}
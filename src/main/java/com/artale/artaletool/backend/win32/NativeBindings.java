@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import com.sun.jna.Native;
+import com.sun.jna.win32.W32APIOptions;
+
+/**
+ * 共用且延遲載入的原生函式庫綁定。
+ *
+ * <p>user32 只在第一次呼叫 {@link #user32()} 時載入一次，之後所有服務共用同一個代理物件；啟動時不需要任何原生呼叫的流程不會付出載入成本。
+ */
+public final class NativeBindings {
+  private static volatile boolean user32Loaded = false;
+
+  private NativeBindings() {}
+
+  private static final class User32Holder {
+    private static final User32Library INSTANCE = load();
+
+    private static User32Library load() {
+      User32Library library =
+          Native.load("user32", User32Library.class, W32APIOptions.DEFAULT_OPTIONS);
+      user32Loaded = true;
+      return library;
+    }
+  }
+
+  /** 取得 user32 綁定，第一次呼叫時才載入 */
+  public static User32Library user32() {
+    return User32Holder.INSTANCE;
+  }
+
+  /** user32 是否已經載入 */
+  public static boolean isUser32Loaded() {
+    return user32Loaded;
+  }
+}
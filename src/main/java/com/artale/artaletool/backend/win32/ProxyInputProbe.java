@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import com.artale.artaletool.backend.InputProbe;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.WinDef.HWND;
+import com.sun.jna.platform.win32.WinDef.RECT;
+
+/** 透過 {@link NativeBindings#user32()} 介面代理查詢，在無法使用 direct mapping 的 32 位元 JVM 上使用 */
+final class ProxyInputProbe implements InputProbe {
+
+  @Override
+  public short getAsyncKeyState(int vKey) {
+    return NativeBindings.user32().GetAsyncKeyState(vKey);
+  }
+
+  @Override
+  public boolean getCursorPos(int[] out) {
+    return NativeBindings.user32().GetCursorPos(out);
+  }
+
+  @Override
+  public long getForegroundWindow() {
+    HWND hWnd = NativeBindings.user32().GetForegroundWindow();
+    return hWnd == null ? 0 : Pointer.nativeValue(hWnd.getPointer());
+  }
+
+  @Override
+  public boolean isWindow(long hWnd) {
+    return NativeBindings.user32().IsWindow(new HWND(new Pointer(hWnd)));
+  }
+
+  @Override
+  public boolean getWindowRect(long hWnd, int[] out) {
+    RECT rect = new RECT();
+    if (!NativeBindings.user32().GetWindowRect(new HWND(new Pointer(hWnd)), rect)) {
+      return false;
+    }
+    out[0] = rect.left;
+    out[1] = rect.top;
+    out[2] = rect.right;
+    out[3] = rect.bottom;
+    return true;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import java.awt.AWTException;
+import java.awt.Robot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.backend.KeyTable;
+
+/** 以 java.awt.Robot 注入輸入；Robot 在第一次使用時才建立，並由鍵盤與滑鼠服務共用。虛擬鍵碼注入前轉成 AWT 鍵碼 */
+@Component
+@Profile("!simulated")
+public class RobotInputInjector implements InputInjector {
+  private static final Logger logger = LoggerFactory.getLogger(RobotInputInjector.class);
+  private volatile Robot robot;
+  private volatile boolean initFailed = false;
+
+  private Robot robot() {
+    Robot current = robot;
+    if (current == null && !initFailed) {
+      synchronized (this) {
+        current = robot;
+        if (current == null && !initFailed) {
+          // 設置系統屬性以允許在 headless 環境中創建 Robot
+          System.setProperty("java.awt.headless", "false");
+          try {
+            current = new Robot();
+            robot = current;
+            logger.info("Robot 初始化成功");
+          } catch (AWTException | RuntimeException e) {
+            initFailed = true;
+            logger.error("Robot 初始化失敗: {}", e.getMessage());
+          }
+        }
+      }
+    }
+    return current;
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return robot() != null;
+  }
+
+  @Override
+  public void keyPress(int keyCode) {
+    Robot r = robot();
+    int awtCode = KeyTable.STANDARD.awtCode(keyCode);
+    if (r != null && awtCode > 0) {
+      r.keyPress(awtCode);
+    }
+  }
+
+  @Override
+  public void keyRelease(int keyCode) {
+    Robot r = robot();
+    int awtCode = KeyTable.STANDARD.awtCode(keyCode);
+    if (r != null && awtCode > 0) {
+      r.keyRelease(awtCode);
+    }
+  }
+
+  @Override
+  public void mouseMove(int x, int y) {
+    Robot r = robot();
+    if (r != null) {
+      r.mouseMove(x, y);
+    }
+  }
+
+  @Override
+  public void mousePress(int buttons) {
+    Robot r = robot();
+    if (r != null) {
+      r.mousePress(buttons);
+    }
+  }
+
+  @Override
+  public void mouseRelease(int buttons) {
+    Robot r = robot();
+    if (r != null) {
+      r.mouseRelease(buttons);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+/**
+ * 熱路徑 user32 函式的 JNA direct mapping。
+ *
+ * <p>呼叫直接進入原生方法，不經過介面代理的反射分派與參數轉換；第一次呼叫時才註冊 user32。
+ *
+ * <p>視窗 handle 以 long 傳遞，只適用於 64 位元 JVM，請透過 {@link DirectInputProbe} 使用。
+ */
+final class User32Direct {
+
+  static {
+    Native.register("user32");
+  }
+
+  private User32Direct() {}
+
+  static native short GetAsyncKeyState(int vKey);
+
+  static native boolean GetCursorPos(Pointer lpPoint);
+
+  static native long GetForegroundWindow();
+
+  static native boolean IsWindow(long hWnd);
+
+  static native boolean GetWindowRect(long hWnd, Pointer lpRect);
+
+  static native long GetDC(long hWnd);
+
+  static native int ReleaseDC(long hWnd, long hDC);
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.WinDef.HWND;
+import com.sun.jna.platform.win32.WinDef.RECT;
+import com.sun.jna.platform.win32.WinNT.HANDLE;
+import com.sun.jna.platform.win32.WinUser.WNDENUMPROC;
+
+/** 鍵盤、滑鼠與視窗服務共用的 user32 綁定，透過 {@link NativeBindings#user32()} 取得 */
+public interface User32Library extends com.sun.jna.platform.win32.User32 {
+
+  boolean GetCursorPos(int[] lpPoint);
+
+  void mouse_event(int dwFlags, int dx, int dy, int dwData, int dwExtraInfo);
+
+  boolean EnumWindows(WNDENUMPROC lpEnumFunc, Pointer userData);
+
+  int GetWindowTextA(HWND hWnd, byte[] lpString, int nMaxCount);
+
+  int GetClassNameA(HWND hWnd, byte[] lpClassName, int nMaxCount);
+
+  boolean IsWindowVisible(HWND hWnd);
+
+  boolean IsWindow(HWND hWnd);
+
+  HWND GetForegroundWindow();
+
+  boolean SetForegroundWindow(HWND hWnd);
+
+  boolean GetWindowRect(HWND hWnd, RECT lpRect);
+
+  boolean SetWindowPos(HWND hWnd, HWND hWndInsertAfter, int X, int Y, int cx, int cy, int uFlags);
+
+  boolean BringWindowToTop(HWND hWnd);
+
+  HANDLE BeginDeferWindowPos(int nNumWindows);
+
+  HANDLE DeferWindowPos(
+      HANDLE hWinPosInfo,
+      HWND hWnd,
+      HWND hWndInsertAfter,
+      int x,
+      int y,
+      int cx,
+      int cy,
+      int uFlags);
+
+  boolean EndDeferWindowPos(HANDLE hWinPosInfo);
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.artale.artaletool.backend.WindowManager;
+import com.artale.artaletool.backend.WindowPlacement;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.WinDef.HWND;
+import com.sun.jna.platform.win32.WinNT.HANDLE;
+
+/** 以 user32 操作視窗；批次定位使用單一 DeferWindowPos 交易，失敗時退回逐一 SetWindowPos */
+@Component
+@Profile("!simulated")
+public class Win32WindowManager implements WindowManager {
+  private static final Logger logger = LoggerFactory.getLogger(Win32WindowManager.class);
+
+  private static HWND hwnd(long handle) {
+    return new HWND(new Pointer(handle));
+  }
+
+  @Override
+  public List<Long> listWindows() {
+    List<Long> handles = new ArrayList<>();
+    NativeBindings.user32()
+        .EnumWindows(
+            (hWnd, userData) -> {
+              handles.add(Pointer.nativeValue(hWnd.getPointer()));
+              return true;
+            },
+            null);
+    return handles;
+  }
+
+  @Override
+  public boolean isWindowVisible(long hWnd) {
+    return NativeBindings.user32().IsWindowVisible(hwnd(hWnd));
+  }
+
+  @Override
+  public String getWindowTitle(long hWnd) {
+    // 使用繁體中文編碼
+    byte[] titleBytes = new byte[512];
+    int length = NativeBindings.user32().GetWindowTextA(hwnd(hWnd), titleBytes, titleBytes.length);
+    return decode(titleBytes, length);
+  }
+
+  @Override
+  public String getClassName(long hWnd) {
+    byte[] classNameBytes = new byte[256];
+    int length =
+        NativeBindings.user32().GetClassNameA(hwnd(hWnd), classNameBytes, classNameBytes.length);
+    return decode(classNameBytes, length);
+  }
+
+  @Override
+  public boolean bringToFront(long hWnd) {
+    HWND window = hwnd(hWnd);
+    NativeBindings.user32().BringWindowToTop(window);
+    NativeBindings.user32().SetForegroundWindow(window);
+    return true;
+  }
+
+  @Override
+  public boolean setWindowPos(long hWnd, int x, int y, int width, int height, int flags) {
+    return NativeBindings.user32().SetWindowPos(hwnd(hWnd), null, x, y, width, height, flags);
+  }
+
+  @Override
+  public boolean setWindowPositions(List<WindowPlacement> placements) {
+    User32Library user32 = NativeBindings.user32();
+    HANDLE hdwp = user32.BeginDeferWindowPos(placements.size());
+    if (hdwp != null) {
+      for (int i = 0; i < placements.size() && hdwp != null; i++) {
+        WindowPlacement placement = placements.get(i);
+        hdwp =
+            user32.DeferWindowPos(
+                hdwp,
+                hwnd(placement.hWnd()),
+                null,
+                placement.x(),
+                placement.y(),
+                placement.width(),
+                placement.height(),
+                placement.flags());
+      }
+      // DeferWindowPos 失敗時系統會自行釋放 hdwp，此時不可再呼叫 EndDeferWindowPos
+      if (hdwp != null && user32.EndDeferWindowPos(hdwp)) {
+        return true;
+      }
+    }
+
+    logger.warn("DeferWindowPos 批次失敗，改為逐一設定視窗位置");
+    boolean success = true;
+    for (WindowPlacement placement : placements) {
+      success &=
+          setWindowPos(
+              placement.hWnd(),
+              placement.x(),
+              placement.y(),
+              placement.width(),
+              placement.height(),
+              placement.flags());
+    }
+    return success;
+  }
+
+  private static String decode(byte[] bytes, int length) {
+    try {
+      return new String(bytes, 0, Math.max(0, length), "Big5").trim();
+    } catch (UnsupportedEncodingException e) {
+      return new String(bytes, 0, Math.max(0, length)).trim();
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.capture;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一個區域的擷取結果，像素緩衝區與分塊雜湊都來自 {@link FramePool}，會重複使用。
+ *
+ * <p>畫面切成 {@link #TILE} × {@link #TILE} 的分塊，每塊都有雜湊，與同一區域上一個畫面不同的分塊標記為已變更；下游只需處理已變更的分塊，整個畫面沒有變化時
+ * {@link #isChanged()} 為 false。
+ *
+ * <p>以參考計數管理生命週期：需要在 {@link FrameListener#onFrame} 之後繼續使用的接收端先呼叫 {@link #retain()}，用完再 {@link
+ * #release()}。
+ */
+public final class Frame {
+  /** 分塊的邊長 (像素) */
+  public static final int TILE = 32;
+
+  private final FramePool pool;
+  private final int width;
+  private final int height;
+  private final int tilesX;
+  private final int tilesY;
+  private final int[] pixels;
+  private final long[] tileHashes;
+  private final long[] dirtyTiles;
+  private final AtomicInteger refs = new AtomicInteger();
+
+  private String region;
+  private long sequence;
+  private long captureNanos;
+  private long latencyNanos;
+  private int screenX;
+  private int screenY;
+  private int dirtyCount;
+  private long contentHash;
+
+  Frame(FramePool pool, int width, int height) {
+    this.pool = pool;
+    this.width = width;
+    this.height = height;
+    this.tilesX = (width + TILE - 1) / TILE;
+    this.tilesY = (height + TILE - 1) / TILE;
+    this.pixels = new int[width * height];
+    this.tileHashes = new long[tilesX * tilesY];
+    this.dirtyTiles = new long[(tilesX * tilesY + 63) / 64];
+  }
+
+  /**
+   * 計算每個分塊的雜湊，與 previous (同一區域上一個畫面的分塊雜湊) 比較後標記已變更的分塊，並把新的雜湊寫回 previous。
+   *
+   * <p>first 為 true (區域的第一個畫面) 時所有分塊都視為已變更。只由擷取端在填入像素後呼叫。
+   */
+  public void hashTiles(long[] previous, boolean first) {
+    Arrays.fill(dirtyTiles, 0);
+    int dirty = 0;
+    long combined = 0;
+    for (int ty = 0; ty < tilesY; ty++) {
+      int y0 = ty * TILE;
+      int y1 = Math.min(height, y0 + TILE);
+      for (int tx = 0; tx < tilesX; tx++) {
+        int x0 = tx * TILE;
+        int x1 = Math.min(width, x0 + TILE);
+        long hash = 0xcbf29ce484222325L;
+        for (int y = y0; y < y1; y++) {
+          int row = y * width;
+          for (int x = x0; x < x1; x++) {
+            hash = (hash ^ pixels[row + x]) * 0x100000001b3L;
+          }
+        }
+        int tile = ty * tilesX + tx;
+        tileHashes[tile] = hash;
+        combined = combined * 31 + hash;
+        if (first || previous[tile] != hash) {
+          dirtyTiles[tile >>> 6] |= 1L << tile;
+          previous[tile] = hash;
+          dirty++;
+        }
+      }
+    }
+    this.dirtyCount = dirty;
+    this.contentHash = combined;
+  }
+
+  /** 記錄畫面的來源區域與擷取資訊，只由擷取端呼叫 */
+  public void stamp(String region, long sequence, int screenX, int screenY, long captureNanos) {
+    this.region = region;
+    this.sequence = sequence;
+    this.screenX = screenX;
+    this.screenY = screenY;
+    this.captureNanos = captureNanos;
+  }
+
+  public void setLatencyNanos(long latencyNanos) {
+    this.latencyNanos = latencyNanos;
+  }
+
+  /** 由池取出時設定參考計數為 1 */
+  void open() {
+    refs.set(1);
+  }
+
+  /** 增加一個參考，接收端需要在回呼結束後繼續使用畫面時呼叫 */
+  public Frame retain() {
+    refs.incrementAndGet();
+    return this;
+  }
+
+  /** 釋放一個參考，最後一個參考釋放時畫面回到池中 */
+  public void release() {
+    int remaining = refs.decrementAndGet();
+    if (remaining == 0) {
+      pool.recycle(this);
+    } else if (remaining < 0) {
+      throw new IllegalStateException("畫面已釋放: " + region + " #" + sequence);
+    }
+  }
+
+  public String getRegion() {
+    return region;
+  }
+
+  /** 同一區域的畫面序號，從 1 開始 */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /** 擷取開始時間 (System.nanoTime) */
+  public long getCaptureNanos() {
+    return captureNanos;
+  }
+
+  /** 從開始擷取到計算完分塊雜湊的耗時 */
+  public long getLatencyNanos() {
+    return latencyNanos;
+  }
+
+  /** 區域左上角的螢幕座標 */
+  public int getScreenX() {
+    return screenX;
+  }
+
+  public int getScreenY() {
+    return screenY;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /** ARGB 像素，逐列排列；呼叫端不可修改 */
+  public int[] pixels() {
+    return pixels;
+  }
+
+  public int pixel(int x, int y) {
+    return pixels[y * width + x];
+  }
+
+  public int tilesX() {
+    return tilesX;
+  }
+
+  public int tilesY() {
+    return tilesY;
+  }
+
+  public long tileHash(int tx, int ty) {
+    return tileHashes[ty * tilesX + tx];
+  }
+
+  public boolean isTileDirty(int tx, int ty) {
+    int tile = ty * tilesX + tx;
+    return (dirtyTiles[tile >>> 6] & (1L << tile)) != 0;
+  }
+
+  /** 矩形 (區域座標) 覆蓋的分塊中是否有任何一塊已變更 */
+  public boolean isAreaDirty(int x, int y, int width, int height) {
+    int tx0 = Math.max(0, x / TILE);
+    int ty0 = Math.max(0, y / TILE);
+    int tx1 = Math.min(tilesX - 1, (x + width - 1) / TILE);
+    int ty1 = Math.min(tilesY - 1, (y + height - 1) / TILE);
+    for (int ty = ty0; ty <= ty1; ty++) {
+      for (int tx = tx0; tx <= tx1; tx++) {
+        if (isTileDirty(tx, ty)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** 與上一個畫面不同的分塊數 */
+  public int getDirtyTileCount() {
+    return dirtyCount;
+  }
+
+  /** 與上一個畫面相比是否有任何變化 */
+  public boolean isChanged() {
+    return dirtyCount > 0;
+  }
+
+  /** 整個畫面的內容雜湊，由分塊雜湊組合而成；內容相同的畫面雜湊相同 */
+  public long getContentHash() {
+    return contentHash;
+  }
+}
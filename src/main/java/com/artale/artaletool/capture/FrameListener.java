@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.capture;
+
+/** 接收擷取畫面的下游，例如監看規則與樣板比對 */
+public interface FrameListener {
+
+  /**
+   * 在擷取執行緒上收到一個畫面，畫面沒有變化時 {@link Frame#isChanged()} 為 false。
+   *
+   * <p>回呼結束後畫面會被回收；需要保留時先呼叫 {@link Frame#retain()}。不可阻塞。
+   */
+  void onFrame(Frame frame);
+}
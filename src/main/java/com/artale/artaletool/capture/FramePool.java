@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.capture;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 固定大小畫面的物件池。
+ *
+ * <p>最多建立 capacity 個畫面，之後只重複使用回收的畫面；全部都被接收端持有時 {@link #acquire()} 回傳 null，擷取端應略過這一次擷取而不是配置新的緩衝區。
+ */
+public final class FramePool {
+  private final int width;
+  private final int height;
+  private final int capacity;
+  private final ArrayBlockingQueue<Frame> free;
+  private final AtomicInteger created = new AtomicInteger();
+
+  public FramePool(int width, int height, int capacity) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("畫面大小無效: " + width + "x" + height);
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("池容量必須大於 0: " + capacity);
+    }
+    this.width = width;
+    this.height = height;
+    this.capacity = capacity;
+    this.free = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /** 取得一個參考計數為 1 的畫面，池已用盡時回傳 null */
+  public Frame acquire() {
+    Frame frame = free.poll();
+    if (frame == null) {
+      if (created.incrementAndGet() > capacity) {
+        created.decrementAndGet();
+        return null;
+      }
+      frame = new Frame(this, width, height);
+    }
+    frame.open();
+    return frame;
+  }
+
+  void recycle(Frame frame) {
+    free.offer(frame);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /** 已建立的畫面數 */
+  public int created() {
+    return created.get();
+  }
+
+  /** 目前在池中可取用的畫面數 */
+  public int available() {
+    return free.size();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.controller;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.artale.artaletool.model.CaptureRegion;
+import com.artale.artaletool.model.CaptureStatus;
+import com.artale.artaletool.service.CaptureService;
+
+@RestController
+@RequestMapping("/api/capture")
+@CrossOrigin(origins = "*")
+public class CaptureController {
+
+  @Autowired private CaptureService captureService;
+
+  @GetMapping("/status")
+  public ResponseEntity<CaptureStatus> getStatus() {
+    try {
+      return ResponseEntity.ok(captureService.getStatus());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @PostMapping("/start")
+  public ResponseEntity<String> start() {
+    try {
+      if (captureService.start()) {
+        return ResponseEntity.ok("開始擷取畫面");
+      }
+      return ResponseEntity.badRequest().body("畫面來源無法使用");
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("開始擷取時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/stop")
+  public ResponseEntity<String> stop() {
+    try {
+      captureService.stop();
+      return ResponseEntity.ok("停止擷取畫面");
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("停止擷取時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/regions")
+  public ResponseEntity<List<CaptureRegion>> getRegions() {
+    try {
+      return ResponseEntity.ok(captureService.getRegions());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @PutMapping("/regions")
+  public ResponseEntity<String> setRegions(@RequestBody List<CaptureRegion> regions) {
+    try {
+      captureService.setRegions(regions);
+      return ResponseEntity.ok("擷取區域已更新");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("更新擷取區域時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/fps")
+  public ResponseEntity<String> setFps(@RequestParam double fps) {
+    try {
+      captureService.setFps(fps);
+      return ResponseEntity.ok("擷取頻率已設為 " + fps + " fps");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("設定擷取頻率時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @GetMapping(value = "/regions/{name}/frame", produces = MediaType.IMAGE_PNG_VALUE)
+  public ResponseEntity<byte[]> getFrame(@PathVariable String name) {
+    try {
+      BufferedImage image = captureService.snapshot(name);
+      if (image == null) {
+        return ResponseEntity.notFound().build();
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ImageIO.write(image, "png", out);
+      return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(out.toByteArray());
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+}
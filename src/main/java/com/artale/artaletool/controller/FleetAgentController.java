@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.artale.artaletool.model.FleetAgentRun;
+import com.artale.artaletool.script.ProgramImage;
+import com.artale.artaletool.service.FleetAgentService;
+
+/** 多台同步的代理端介面，由協調端的 {@link com.artale.artaletool.fleet.HttpFleetAgentClient} 呼叫 */
+@RestController
+@RequestMapping("/api/fleet/agent")
+@CrossOrigin(origins = "*")
+public class FleetAgentController {
+
+  @Autowired private FleetAgentService agentService;
+
+  /** 播放時鐘的目前時間 (奈秒)，協調端以此估計時鐘差 */
+  @GetMapping("/clock")
+  public ResponseEntity<?> clock() {
+    try {
+      return ResponseEntity.ok(agentService.clock());
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("讀取時鐘失敗: " + e.getMessage());
+    }
+  }
+
+  /** 接收已編譯的程式，回傳雜湊 */
+  @PostMapping("/programs")
+  public ResponseEntity<String> stage(@RequestBody ProgramImage image) {
+    try {
+      return ResponseEntity.ok(agentService.stage(image));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("接收腳本程式失敗: " + e.getMessage());
+    }
+  }
+
+  /** 在播放時鐘的 at (奈秒) 開始執行雜湊為 hash 的程式 */
+  @PostMapping("/start")
+  public ResponseEntity<String> start(
+      @RequestParam String hash,
+      @RequestParam long at,
+      @RequestParam(required = false) Boolean jit) {
+    try {
+      agentService.start(hash, at, jit);
+      return ResponseEntity.ok("已排程腳本程式");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("排程腳本程式失敗: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/run")
+  public ResponseEntity<?> lastRun() {
+    try {
+      FleetAgentRun run = agentService.lastRun();
+      return run == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(run);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("讀取執行狀態失敗: " + e.getMessage());
+    }
+  }
+}
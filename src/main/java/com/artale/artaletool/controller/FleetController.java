@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.artale.artaletool.model.FleetAgentInfo;
+import com.artale.artaletool.model.FleetLaunch;
+import com.artale.artaletool.service.FleetService;
+
+/** 多台同步的協調端介面：登記代理、估計時鐘差、同步開始腳本程式與查詢各代理的開始偏差 */
+@RestController
+@RequestMapping("/api/fleet")
+@CrossOrigin(origins = "*")
+public class FleetController {
+
+  @Autowired private FleetService fleetService;
+
+  @GetMapping("/agents")
+  public ResponseEntity<List<FleetAgentInfo>> agents() {
+    try {
+      return ResponseEntity.ok(fleetService.getAgents());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  /** url 為代理的位址，例如 http://192.168.0.12:8080 */
+  @PostMapping("/agents")
+  public ResponseEntity<?> register(@RequestParam String id, @RequestParam String url) {
+    try {
+      return ResponseEntity.ok(fleetService.register(id, url));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("登記代理失敗: " + e.getMessage());
+    }
+  }
+
+  @DeleteMapping("/agents/{id}")
+  public ResponseEntity<String> unregister(@PathVariable String id) {
+    try {
+      if (fleetService.unregister(id)) {
+        return ResponseEntity.ok("代理已移除");
+      }
+      return ResponseEntity.notFound().build();
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("移除代理失敗: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/agents/{id}/sync")
+  public ResponseEntity<?> sync(@PathVariable String id) {
+    try {
+      return ResponseEntity.ok(fleetService.sync(id));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("同步時鐘失敗: " + e.getMessage());
+    }
+  }
+
+  /** 把腳本程式傳給所有代理，在 leadMs 毫秒後同時開始；省略時依設定 */
+  @PostMapping("/launch")
+  public ResponseEntity<?> launch(
+      @RequestParam String program,
+      @RequestParam(required = false) Boolean jit,
+      @RequestParam(required = false) Long leadMs) {
+    try {
+      return ResponseEntity.ok(fleetService.launch(program, jit, leadMs));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("同步開始失敗: " + e.getMessage());
+    }
+  }
+
+  /** 最近一次同步開始的結果與各代理的開始偏差 */
+  @GetMapping("/launch")
+  public ResponseEntity<FleetLaunch> lastLaunch() {
+    try {
+      FleetLaunch launch = fleetService.getLastLaunch();
+      return launch == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(launch);
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+}
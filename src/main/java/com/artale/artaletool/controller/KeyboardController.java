@@ -5,16 +5,21 @@
 package com.artale.artaletool.controller;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.artale.artaletool.model.FidelityReport;
 import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.PlaybackStatus;
+import com.artale.artaletool.model.RecordingStatus;
+import com.artale.artaletool.model.TimeWarpOptions;
+import com.artale.artaletool.model.TimeWarpReport;
 import com.artale.artaletool.service.KeyboardService;
 
 @RestController
@@ -44,6 +49,14 @@ public class KeyboardController {
     }
   }
 
+  /** 以 NDJSON 即時串流錄製中擷取到的每個事件；閒置時每秒送出一個空行保持連線 */
+  @GetMapping(value = "/record-stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> recordStream() {
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(keyboardService.openRecordStream());
+  }
+
   @PostMapping("/save-script")
   public ResponseEntity<String> saveScript(
       @RequestParam String name, @RequestBody List<KeyEvent> events) {
@@ -93,24 +106,58 @@ public class KeyboardController {
   public ResponseEntity<String> playScript(
       @RequestBody List<KeyEvent> events,
       @RequestParam(defaultValue = "false") boolean loop,
-      @RequestParam(defaultValue = "0") int count) {
+      @RequestParam(defaultValue = "0") long count,
+      @ModelAttribute TimeWarpOptions timeWarp,
+      @RequestParam(defaultValue = "false") boolean fidelity,
+      @RequestParam(required = false) String scriptName) {
     try {
-      keyboardService.playScript(events, loop, count);
+      keyboardService.playScript(events, loop, count, timeWarp, fidelity, scriptName);
       return ResponseEntity.ok("開始播放腳本");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body("播放參數錯誤: " + e.getMessage());
     } catch (Exception e) {
       return ResponseEntity.internalServerError().body("播放腳本失敗: " + e.getMessage());
     }
   }
 
+  /** 最近一次播放的忠實度報告，指定 name 時讀取該腳本保存的報告 */
+  @GetMapping("/fidelity-report")
+  public ResponseEntity<?> getFidelityReport(@RequestParam(required = false) String name) {
+    try {
+      FidelityReport report = keyboardService.getFidelityReport(name);
+      if (report == null) {
+        return ResponseEntity.notFound().build();
+      }
+      return ResponseEntity.ok(report);
+    } catch (IOException e) {
+      return ResponseEntity.internalServerError().body("讀取忠實度報告失敗: " + e.getMessage());
+    }
+  }
+
+  /** 以時間轉換選項改寫腳本並另存 */
+  @PostMapping("/rewrite-script")
+  public ResponseEntity<?> rewriteScript(
+      @RequestParam String name,
+      @RequestParam String saveAs,
+      @ModelAttribute TimeWarpOptions timeWarp) {
+    try {
+      TimeWarpReport report = keyboardService.rewriteScript(name, saveAs, timeWarp);
+      return ResponseEntity.ok(report);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body("改寫參數錯誤: " + e.getMessage());
+    } catch (IOException e) {
+      return ResponseEntity.internalServerError().body("改寫腳本失敗: " + e.getMessage());
+    }
+  }
+
   @GetMapping("/playback-status")
-  public ResponseEntity<Map<String, Object>> getPlaybackStatus() {
-    Map<String, Object> status = new HashMap<>();
-    status.put("isPlaying", keyboardService.isPlaying());
-    status.put("currentLoop", keyboardService.getCurrentLoop());
-    status.put("totalLoops", keyboardService.getTotalLoops());
-    status.put("currentEvent", keyboardService.getCurrentPlayingEvent());
-    status.put("currentIndex", keyboardService.getCurrentPlayingIndex());
-    return ResponseEntity.ok(status);
+  public ResponseEntity<PlaybackStatus<KeyEvent>> getPlaybackStatus() {
+    return ResponseEntity.ok(keyboardService.getPlaybackStatus());
+  }
+
+  @GetMapping("/recording-status")
+  public ResponseEntity<RecordingStatus> getRecordingStatus() {
+    return ResponseEntity.ok(keyboardService.getRecordingStatus());
   }
 
   @PostMapping("/stop-playback")
@@ -124,6 +171,43 @@ public class KeyboardController {
     }
   }
 
+  @PostMapping("/pause-playback")
+  public ResponseEntity<String> pausePlayback() {
+    try {
+      keyboardService.pausePlayback();
+      return ResponseEntity.ok("暫停播放成功");
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body("暫停播放失敗: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/resume-playback")
+  public ResponseEntity<String> resumePlayback() {
+    try {
+      keyboardService.resumePlayback();
+      return ResponseEntity.ok("繼續播放成功");
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body("繼續播放失敗: " + e.getMessage());
+    }
+  }
+
+  /** 跳轉到目前循環內的時間 (毫秒) 或事件索引，兩者擇一 */
+  @PostMapping("/seek-playback")
+  public ResponseEntity<String> seekPlayback(
+      @RequestParam(required = false) Long timeMs, @RequestParam(required = false) Integer index) {
+    try {
+      keyboardService.seekPlayback(timeMs, index);
+      return ResponseEntity.ok("跳轉播放成功");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body("跳轉參數錯誤: " + e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body("跳轉播放失敗: " + e.getMessage());
+    }
+  }
+
   @PostMapping("/scheduled-key/start")
   public ResponseEntity<String> startScheduledKeyPress(
       @RequestParam String taskId, @RequestParam String key, @RequestParam int intervalSeconds) {
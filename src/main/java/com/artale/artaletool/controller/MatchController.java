@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.controller;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.artale.artaletool.model.TemplateMatch;
+import com.artale.artaletool.service.TemplateMatchService;
+
+@RestController
+@RequestMapping("/api/match")
+@CrossOrigin(origins = "*")
+public class MatchController {
+
+  @Autowired private TemplateMatchService templateMatchService;
+
+  @GetMapping("/templates")
+  public ResponseEntity<List<String>> listTemplates() {
+    try {
+      return ResponseEntity.ok(templateMatchService.listTemplates());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @PostMapping("/templates")
+  public ResponseEntity<String> saveTemplate(
+      @RequestParam String name, @RequestParam("file") MultipartFile file) {
+    try {
+      BufferedImage image = ImageIO.read(file.getInputStream());
+      if (image == null) {
+        return ResponseEntity.badRequest().body("無法辨識的圖片格式");
+      }
+      templateMatchService.saveTemplate(name, image);
+      return ResponseEntity.ok("樣板儲存成功");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("儲存樣板失敗: " + e.getMessage());
+    }
+  }
+
+  @DeleteMapping("/templates/{name}")
+  public ResponseEntity<String> deleteTemplate(@PathVariable String name) {
+    try {
+      if (templateMatchService.deleteTemplate(name)) {
+        return ResponseEntity.ok("樣板刪除成功");
+      }
+      return ResponseEntity.badRequest().body("樣板不存在");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("刪除樣板失敗: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/find")
+  public ResponseEntity<?> find(
+      @RequestParam String template,
+      @RequestParam String region,
+      @RequestParam(required = false) Double threshold) {
+    try {
+      TemplateMatch match = templateMatchService.find(template, region, threshold);
+      return ResponseEntity.ok(match);
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("樣板比對失敗: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.artale.artaletool.mirror.MirrorRect;
+import com.artale.artaletool.model.MirrorStatus;
+import com.artale.artaletool.service.MirrorService;
+
+/** 即時鏡像：擔任領導端轉送錄製中的輸入，或跟隨其他實例並注入其輸入 */
+@RestController
+@RequestMapping("/api/mirror")
+@CrossOrigin(origins = "*")
+public class MirrorController {
+
+  @Autowired private MirrorService mirrorService;
+
+  /** 狀態與跟隨端的鏡像延遲 */
+  @GetMapping("/status")
+  public ResponseEntity<MirrorStatus> status() {
+    try {
+      return ResponseEntity.ok(mirrorService.getStatus());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @PostMapping("/leader")
+  public ResponseEntity<?> startLeader(@RequestParam(required = false) Integer port) {
+    try {
+      return ResponseEntity.ok(mirrorService.startLeader(port));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("啟動鏡像領導端失敗: " + e.getMessage());
+    }
+  }
+
+  @DeleteMapping("/leader")
+  public ResponseEntity<String> stopLeader() {
+    try {
+      if (mirrorService.stopLeader()) {
+        return ResponseEntity.ok("鏡像領導端已停止");
+      }
+      return ResponseEntity.badRequest().body("沒有擔任鏡像領導端");
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("停止鏡像領導端失敗: " + e.getMessage());
+    }
+  }
+
+  /** x / y / width / height 為本機對應領導端視窗的範圍，省略時使用鎖定視窗 */
+  @PostMapping("/follow")
+  public ResponseEntity<?> follow(
+      @RequestParam String host,
+      @RequestParam(required = false) Integer port,
+      @RequestParam(required = false) String token,
+      @RequestParam(required = false) Integer x,
+      @RequestParam(required = false) Integer y,
+      @RequestParam(required = false) Integer width,
+      @RequestParam(required = false) Integer height) {
+    try {
+      MirrorRect target = null;
+      if (width != null && height != null) {
+        target = new MirrorRect(x != null ? x : 0, y != null ? y : 0, width, height);
+      }
+      return ResponseEntity.ok(mirrorService.follow(host, port, token, target));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("連線到鏡像領導端失敗: " + e.getMessage());
+    }
+  }
+
+  @DeleteMapping("/follow")
+  public ResponseEntity<String> unfollow() {
+    try {
+      if (mirrorService.unfollow()) {
+        return ResponseEntity.ok("已停止跟隨");
+      }
+      return ResponseEntity.badRequest().body("沒有在跟隨鏡像領導端");
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("停止跟隨失敗: " + e.getMessage());
+    }
+  }
+}
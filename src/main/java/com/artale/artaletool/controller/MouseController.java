@@ -11,10 +11,17 @@ import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.artale.artaletool.model.FidelityReport;
 import com.artale.artaletool.model.MouseEvent;
+import com.artale.artaletool.model.PlaybackStatus;
+import com.artale.artaletool.model.RecordingStatus;
+import com.artale.artaletool.model.TimeWarpOptions;
+import com.artale.artaletool.model.TimeWarpReport;
 import com.artale.artaletool.service.MouseService;
 
 @RestController
@@ -45,10 +52,16 @@ public class MouseController {
     }
   }
 
+  /** 儲存腳本，沒有請求內容時儲存目前錄製的事件 */
   @PostMapping("/save-script")
-  public ResponseEntity<String> saveScript(@RequestParam String name) {
+  public ResponseEntity<String> saveScript(
+      @RequestParam String name, @RequestBody(required = false) List<MouseEvent> events) {
     try {
-      mouseService.saveScript(name);
+      if (events != null) {
+        mouseService.saveScript(name, events);
+      } else {
+        mouseService.saveScript(name);
+      }
       return ResponseEntity.ok("滑鼠腳本儲存成功");
     } catch (IOException e) {
       return ResponseEntity.internalServerError().body("儲存滑鼠腳本失敗: " + e.getMessage());
@@ -93,25 +106,54 @@ public class MouseController {
   public ResponseEntity<String> playScript(
       @RequestBody List<MouseEvent> events,
       @RequestParam(defaultValue = "false") boolean loop,
-      @RequestParam(defaultValue = "1") int count) {
+      @RequestParam(defaultValue = "1") long count,
+      @ModelAttribute TimeWarpOptions timeWarp,
+      @RequestParam(defaultValue = "false") boolean fidelity,
+      @RequestParam(required = false) String scriptName) {
     try {
-      mouseService.playScript(events, loop, count);
+      mouseService.playScript(events, loop, count, timeWarp, fidelity, scriptName);
       return ResponseEntity.ok("開始播放滑鼠腳本");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body("播放參數錯誤: " + e.getMessage());
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
           .body("播放滑鼠腳本失敗: " + e.getMessage());
     }
   }
 
+  /** 最近一次播放的忠實度報告，指定 name 時讀取該腳本保存的報告 */
+  @GetMapping("/fidelity-report")
+  public ResponseEntity<?> getFidelityReport(@RequestParam(required = false) String name) {
+    try {
+      FidelityReport report = mouseService.getFidelityReport(name);
+      if (report == null) {
+        return ResponseEntity.notFound().build();
+      }
+      return ResponseEntity.ok(report);
+    } catch (IOException e) {
+      return ResponseEntity.internalServerError().body("讀取忠實度報告失敗: " + e.getMessage());
+    }
+  }
+
+  /** 以時間轉換選項改寫滑鼠腳本並另存 */
+  @PostMapping("/rewrite-script")
+  public ResponseEntity<?> rewriteScript(
+      @RequestParam String name,
+      @RequestParam String saveAs,
+      @ModelAttribute TimeWarpOptions timeWarp) {
+    try {
+      TimeWarpReport report = mouseService.rewriteScript(name, saveAs, timeWarp);
+      return ResponseEntity.ok(report);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body("改寫參數錯誤: " + e.getMessage());
+    } catch (IOException e) {
+      return ResponseEntity.internalServerError().body("改寫滑鼠腳本失敗: " + e.getMessage());
+    }
+  }
+
   @GetMapping("/playback-status")
-  public ResponseEntity<Map<String, Object>> getPlaybackStatus() {
-    Map<String, Object> status = new HashMap<>();
-    status.put("isPlaying", mouseService.isPlaying());
-    status.put("currentLoop", mouseService.getCurrentLoop());
-    status.put("totalLoops", mouseService.getLoopCount());
-    status.put("currentEvent", mouseService.getCurrentPlayingEvent());
-    status.put("currentIndex", mouseService.getCurrentPlayingIndex());
-    return ResponseEntity.ok(status);
+  public ResponseEntity<PlaybackStatus<MouseEvent>> getPlaybackStatus() {
+    return ResponseEntity.ok(mouseService.getPlaybackStatus());
   }
 
   @PostMapping("/stop-playback")
@@ -125,11 +167,46 @@ public class MouseController {
     }
   }
 
+  @PostMapping("/pause-playback")
+  public ResponseEntity<String> pausePlayback() {
+    try {
+      mouseService.pausePlayback();
+      return ResponseEntity.ok("暫停滑鼠播放成功");
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body("暫停滑鼠播放失敗: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/resume-playback")
+  public ResponseEntity<String> resumePlayback() {
+    try {
+      mouseService.resumePlayback();
+      return ResponseEntity.ok("繼續滑鼠播放成功");
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body("繼續滑鼠播放失敗: " + e.getMessage());
+    }
+  }
+
+  /** 跳轉到目前循環內的時間 (毫秒) 或事件索引，兩者擇一 */
+  @PostMapping("/seek-playback")
+  public ResponseEntity<String> seekPlayback(
+      @RequestParam(required = false) Long timeMs, @RequestParam(required = false) Integer index) {
+    try {
+      mouseService.seekPlayback(timeMs, index);
+      return ResponseEntity.ok("跳轉滑鼠播放成功");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body("跳轉參數錯誤: " + e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body("跳轉滑鼠播放失敗: " + e.getMessage());
+    }
+  }
+
   @GetMapping("/recording-status")
-  public ResponseEntity<Map<String, Object>> getRecordingStatus() {
-    Map<String, Object> status = new HashMap<>();
-    status.put("isRecording", mouseService.isRecording());
-    return ResponseEntity.ok(status);
+  public ResponseEntity<RecordingStatus> getRecordingStatus() {
+    return ResponseEntity.ok(mouseService.getRecordingStatus());
   }
 
   @GetMapping("/recorded-events")
@@ -142,6 +219,14 @@ public class MouseController {
     }
   }
 
+  /** 以 NDJSON 即時串流錄製中擷取到的每個事件；閒置時每秒送出一個空行保持連線 */
+  @GetMapping(value = "/record-stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> recordStream() {
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(mouseService.openRecordStream());
+  }
+
   @PostMapping("/clear-events")
   public ResponseEntity<String> clearEvents() {
     try {
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.artale.artaletool.model.ProgramInfo;
+import com.artale.artaletool.service.ScriptProgramService;
+
+@RestController
+@RequestMapping("/api/program")
+@CrossOrigin(origins = "*")
+public class ProgramController {
+
+  @Autowired private ScriptProgramService programService;
+
+  @GetMapping("/list")
+  public ResponseEntity<List<String>> list() {
+    try {
+      return ResponseEntity.ok(programService.list());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @GetMapping(value = "/{name}", produces = MediaType.TEXT_PLAIN_VALUE)
+  public ResponseEntity<String> load(@PathVariable String name) {
+    try {
+      return ResponseEntity.ok(programService.load(name));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("讀取腳本程式失敗: " + e.getMessage());
+    }
+  }
+
+  /** 原始碼以純文字傳送，編譯錯誤時回傳 400 與錯誤行號 */
+  @PutMapping(value = "/{name}", consumes = MediaType.TEXT_PLAIN_VALUE)
+  public ResponseEntity<?> save(@PathVariable String name, @RequestBody String source) {
+    try {
+      return ResponseEntity.ok(programService.save(name, source));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("儲存腳本程式失敗: " + e.getMessage());
+    }
+  }
+
+  @DeleteMapping("/{name}")
+  public ResponseEntity<String> delete(@PathVariable String name) {
+    try {
+      if (programService.delete(name)) {
+        return ResponseEntity.ok("腳本程式刪除成功");
+      }
+      return ResponseEntity.badRequest().body("腳本程式不存在");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("刪除腳本程式失敗: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/{name}/info")
+  public ResponseEntity<?> info(@PathVariable String name) {
+    try {
+      ProgramInfo info = programService.info(name);
+      return ResponseEntity.ok(info);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("編譯腳本程式失敗: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/{name}/disassemble")
+  public ResponseEntity<?> disassemble(@PathVariable String name) {
+    try {
+      return ResponseEntity.ok(programService.disassemble(name));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("編譯腳本程式失敗: " + e.getMessage());
+    }
+  }
+
+  /** jit 指定是否編譯成 JVM 類別執行，省略時依設定 */
+  @PostMapping("/{name}/play")
+  public ResponseEntity<String> play(
+      @PathVariable String name, @RequestParam(required = false) Boolean jit) {
+    try {
+      programService.play(name, jit);
+      return ResponseEntity.ok("開始執行腳本程式");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("執行腳本程式失敗: " + e.getMessage());
+    }
+  }
+
+  /** 把錄製的腳本轉成沒有分支的程式，type 為 keyboard 或 mouse */
+  @PostMapping("/import")
+  public ResponseEntity<?> importRecording(
+      @RequestParam String script,
+      @RequestParam String saveAs,
+      @RequestParam(defaultValue = "keyboard") String type) {
+    try {
+      if (!type.equals("keyboard") && !type.equals("mouse")) {
+        return ResponseEntity.badRequest().body("type 必須為 keyboard 或 mouse");
+      }
+      return ResponseEntity.ok(
+          programService.importRecording(script, type.equals("mouse"), saveAs));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("轉換錄製腳本失敗: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/triggers/{trigger}")
+  public ResponseEntity<String> signal(@PathVariable String trigger) {
+    try {
+      programService.signal(trigger);
+      return ResponseEntity.ok("已送出觸發訊號");
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("送出觸發訊號失敗: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/triggers")
+  public ResponseEntity<Map<String, Long>> getTriggers() {
+    try {
+      return ResponseEntity.ok(programService.getTriggers());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.controller;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.artale.artaletool.backend.simulated.RecordingInjector;
+import com.artale.artaletool.backend.simulated.SimulatedScreen;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.playback.VirtualPlaybackClock;
+
+/** 模擬後端的控制介面：操作虛擬桌面與虛擬螢幕、讀取注入紀錄與推進虛擬時鐘 */
+@RestController
+@RequestMapping("/api/simulated")
+@CrossOrigin(origins = "*")
+@Profile("simulated")
+public class SimulatorController {
+
+  @Autowired private VirtualDesktop desktop;
+
+  @Autowired private RecordingInjector injector;
+
+  @Autowired private PlaybackClock playbackClock;
+
+  @Autowired private SimulatedScreen screen;
+
+  @GetMapping("/desktop")
+  public ResponseEntity<Map<String, Object>> getDesktop() {
+    try {
+      int[] cursor = new int[2];
+      desktop.getCursor(cursor);
+      Map<String, Object> state = new HashMap<>();
+      state.put("windows", desktop.windows());
+      state.put("foregroundWindow", desktop.foregroundWindow());
+      state.put("cursorX", cursor[0]);
+      state.put("cursorY", cursor[1]);
+      state.put("pressedKeys", desktop.pressedKeys());
+      return ResponseEntity.ok(state);
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @PostMapping("/windows")
+  public ResponseEntity<Long> openWindow(
+      @RequestParam String title,
+      @RequestParam(defaultValue = "") String className,
+      @RequestParam(defaultValue = "0") int x,
+      @RequestParam(defaultValue = "0") int y,
+      @RequestParam(defaultValue = "800") int width,
+      @RequestParam(defaultValue = "600") int height) {
+    try {
+      return ResponseEntity.ok(desktop.openWindow(title, className, x, y, width, height));
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @DeleteMapping("/windows/{handle}")
+  public ResponseEntity<String> closeWindow(@PathVariable long handle) {
+    try {
+      if (desktop.closeWindow(handle)) {
+        return ResponseEntity.ok("視窗已關閉");
+      }
+      return ResponseEntity.badRequest().body("找不到視窗: " + handle);
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("關閉視窗時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/windows/{handle}/activate")
+  public ResponseEntity<String> activateWindow(@PathVariable long handle) {
+    try {
+      if (desktop.activate(handle)) {
+        return ResponseEntity.ok("視窗已切換到前景");
+      }
+      return ResponseEntity.badRequest().body("找不到視窗: " + handle);
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("切換視窗時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/injected")
+  public ResponseEntity<Map<String, Object>> getInjected(
+      @RequestParam(defaultValue = "100") int limit) {
+    try {
+      Map<String, Object> result = new HashMap<>();
+      result.put("keyEvents", injector.keyEventCount());
+      result.put("mouseEvents", injector.mouseEventCount());
+      List<RecordingInjector.InjectedInput> recent = injector.recent(limit);
+      result.put("recent", recent);
+      return ResponseEntity.ok(result);
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @DeleteMapping("/injected")
+  public ResponseEntity<String> clearInjected() {
+    try {
+      injector.clear();
+      return ResponseEntity.ok("注入紀錄已清除");
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("清除注入紀錄時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/clock")
+  public ResponseEntity<Map<String, Object>> getClock() {
+    try {
+      Map<String, Object> result = new HashMap<>();
+      result.put("virtual", playbackClock instanceof VirtualPlaybackClock);
+      result.put("nanoTime", playbackClock.nanoTime());
+      return ResponseEntity.ok(result);
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @PostMapping("/clock/advance")
+  public ResponseEntity<String> advanceClock(@RequestParam long millis) {
+    try {
+      if (!(playbackClock instanceof VirtualPlaybackClock clock)) {
+        return ResponseEntity.badRequest().body("目前使用系統時鐘，無法手動推進");
+      }
+      if (millis < 0) {
+        return ResponseEntity.badRequest().body("時間只能往前推進");
+      }
+      clock.advance(TimeUnit.MILLISECONDS.toNanos(millis));
+      return ResponseEntity.ok("虛擬時鐘已推進 " + millis + " ms");
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("推進時鐘時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/screen/fill")
+  public ResponseEntity<String> fillScreen(
+      @RequestParam String color,
+      @RequestParam(defaultValue = "0") int x,
+      @RequestParam(defaultValue = "0") int y,
+      @RequestParam(defaultValue = "0") int width,
+      @RequestParam(defaultValue = "0") int height) {
+    try {
+      int w = width > 0 ? width : screen.getWidth();
+      int h = height > 0 ? height : screen.getHeight();
+      screen.fill(x, y, w, h, parseColor(color));
+      return ResponseEntity.ok("已填色");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("填色時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/screen/image")
+  public ResponseEntity<String> loadScreenImage(
+      @RequestParam String path,
+      @RequestParam(defaultValue = "0") int x,
+      @RequestParam(defaultValue = "0") int y) {
+    try {
+      screen.load(Path.of(path), x, y);
+      return ResponseEntity.ok("圖片已載入");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("載入圖片時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  /** 解析 RRGGBB 或 AARRGGBB 十六進位顏色，可帶 # 前綴 */
+  private static int parseColor(String color) {
+    String hex = color.startsWith("#") ? color.substring(1) : color;
+    if (hex.length() != 6 && hex.length() != 8) {
+      throw new IllegalArgumentException("顏色格式應為 RRGGBB 或 AARRGGBB: " + color);
+    }
+    int value = Integer.parseUnsignedInt(hex, 16);
+    return hex.length() == 6 ? 0xFF000000 | value : value;
+  }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.artale.artaletool.service.StatusPublisher;
+
+@RestController
+@RequestMapping("/api/status")
+@CrossOrigin(origins = "*")
+public class StatusController {
+
+  @Autowired private StatusPublisher statusPublisher;
+
+  /** 以 SSE 推送播放、錄製、視窗鎖定與定時按鍵狀態的變更 */
+  @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamStatus(@RequestParam(defaultValue = "50") long minIntervalMs) {
+    return statusPublisher.subscribe(Math.max(0, minIntervalMs));
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.artale.artaletool.model.WatchRule;
+import com.artale.artaletool.model.WatchRuleStatus;
+import com.artale.artaletool.service.WatchService;
+
+@RestController
+@RequestMapping("/api/watch")
+@CrossOrigin(origins = "*")
+public class WatchController {
+
+  @Autowired private WatchService watchService;
+
+  @GetMapping("/rules")
+  public ResponseEntity<List<WatchRule>> getRules() {
+    try {
+      return ResponseEntity.ok(watchService.getRules());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @PutMapping("/rules")
+  public ResponseEntity<String> setRules(@RequestBody List<WatchRule> rules) {
+    try {
+      watchService.setRules(rules);
+      return ResponseEntity.ok("監看規則已更新");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().body("更新監看規則時發生錯誤: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/status")
+  public ResponseEntity<List<WatchRuleStatus>> getStatus() {
+    try {
+      return ResponseEntity.ok(watchService.getStatus());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+}
@@ -4,6 +4,7 @@
  */
 package com.artale.artaletool.controller;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +14,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.artale.artaletool.model.WindowInfo;
+import com.artale.artaletool.model.WindowLayoutProfile;
+import com.artale.artaletool.model.WindowLayoutResult;
+import com.artale.artaletool.service.WindowLayoutService;
 import com.artale.artaletool.service.WindowService;
 
 @RestController
@@ -22,6 +26,8 @@ public class WindowController {
 
   @Autowired private WindowService windowService;
 
+  @Autowired private WindowLayoutService windowLayoutService;
+
   @GetMapping("/list")
   public ResponseEntity<List<WindowInfo>> listWindows() {
     try {
@@ -213,4 +219,59 @@ public class WindowController {
       return ResponseEntity.internalServerError().build();
     }
   }
+
+  @GetMapping("/layout/list")
+  public ResponseEntity<List<String>> listLayouts() {
+    try {
+      return ResponseEntity.ok(windowLayoutService.listLayouts());
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @GetMapping("/layout/load")
+  public ResponseEntity<WindowLayoutProfile> loadLayout(@RequestParam String name) {
+    try {
+      return ResponseEntity.ok(windowLayoutService.loadLayout(name));
+    } catch (IOException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  @PostMapping("/layout/save")
+  public ResponseEntity<String> saveLayout(
+      @RequestParam String name, @RequestBody WindowLayoutProfile profile) {
+    try {
+      windowLayoutService.saveLayout(name, profile);
+      return ResponseEntity.ok("版面配置儲存成功");
+    } catch (IOException e) {
+      return ResponseEntity.internalServerError().body("儲存版面配置失敗: " + e.getMessage());
+    }
+  }
+
+  @DeleteMapping("/layout/delete")
+  public ResponseEntity<String> deleteLayout(@RequestParam String name) {
+    try {
+      boolean deleted = windowLayoutService.deleteLayout(name);
+      if (deleted) {
+        return ResponseEntity.ok("版面配置刪除成功");
+      } else {
+        return ResponseEntity.notFound().build();
+      }
+    } catch (IOException e) {
+      return ResponseEntity.internalServerError().body("刪除版面配置失敗: " + e.getMessage());
+    }
+  }
+
+  @PostMapping("/layout/apply")
+  public ResponseEntity<WindowLayoutResult> applyLayout(@RequestParam String name) {
+    try {
+      WindowLayoutResult result = windowLayoutService.applyLayout(name);
+      return ResponseEntity.ok(result);
+    } catch (IOException e) {
+      return ResponseEntity.notFound().build();
+    } catch (Exception e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.fleet;
+
+import java.util.function.LongSupplier;
+
+import com.artale.artaletool.playback.PlaybackClock;
+
+/**
+ * 以多次時間戳交換估計遠端時鐘相對本地時鐘的差。
+ *
+ * <p>每次交換記錄送出前 t0、遠端回覆的時間 r 與收到回覆後 t1，假設去程與回程時間相同，差為 {@code r - (t0 + t1) / 2}，誤差不超過來回時間的一半。 排程、GC
+ * 與網路延遲只會讓來回時間變長，因此取來回時間最短的一次。
+ */
+public final class ClockSync {
+  private ClockSync() {}
+
+  /** 估計結果：遠端時間 = 本地時間 + offsetNanos，誤差在 ±roundTripNanos / 2 以內 */
+  public record Estimate(long offsetNanos, long roundTripNanos, int samples) {
+    public long toRemote(long localNanos) {
+      return localNanos + offsetNanos;
+    }
+
+    public long toLocal(long remoteNanos) {
+      return remoteNanos - offsetNanos;
+    }
+
+    public long uncertaintyNanos() {
+      return roundTripNanos / 2;
+    }
+  }
+
+  /** 交換 samples 次 (至少一次)，remote 回傳遠端時鐘的目前時間 */
+  public static Estimate estimate(PlaybackClock local, LongSupplier remote, int samples) {
+    long bestOffset = 0;
+    long bestRoundTrip = Long.MAX_VALUE;
+    int count = Math.max(1, samples);
+    for (int i = 0; i < count; i++) {
+      long sent = local.nanoTime();
+      long remoteNanos = remote.getAsLong();
+      long received = local.nanoTime();
+      long roundTrip = received - sent;
+      if (roundTrip < bestRoundTrip) {
+        bestRoundTrip = roundTrip;
+        bestOffset = remoteNanos - (sent + roundTrip / 2);
+      }
+    }
+    return new Estimate(bestOffset, bestRoundTrip, count);
+  }
+}
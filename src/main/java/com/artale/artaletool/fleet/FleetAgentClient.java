@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.fleet;
+
+import com.artale.artaletool.model.FleetAgentRun;
+import com.artale.artaletool.script.ProgramImage;
+
+/** 協調端對代理的操作；無法連線或代理拒絕要求時丟出 IllegalStateException */
+public interface FleetAgentClient {
+  /** 代理播放時鐘的目前時間 */
+  long clock();
+
+  /** 傳送已編譯的程式，代理驗證後保留，回傳程式雜湊 */
+  String stage(ProgramImage image);
+
+  /** 在代理時鐘的 startNanos 開始執行先前傳送的程式；jit 為 null 時依代理的設定 */
+  void start(String hash, long startNanos, Boolean jit);
+
+  /** 最近一次排程的執行狀態 */
+  FleetAgentRun lastRun();
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.fleet;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import com.artale.artaletool.model.FleetAgentRun;
+import com.artale.artaletool.script.ProgramImage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 以 HTTP 呼叫另一台 ArtaleTool 的 {@code /api/fleet/agent} 介面。
+ *
+ * <p>使用 HTTP/1.1 與持續連線，時鐘交換不需要每次重新建立連線，來回時間較短也較穩定。
+ */
+public final class HttpFleetAgentClient implements FleetAgentClient {
+  private final String baseUrl;
+  private final HttpClient http;
+  private final Duration timeout;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  /** baseUrl 為代理的位址，例如 http://192.168.0.12:8080 */
+  public HttpFleetAgentClient(String baseUrl, Duration timeout) {
+    this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    this.timeout = timeout;
+    this.http =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .build();
+  }
+
+  @Override
+  public long clock() {
+    return Long.parseLong(send(request("/clock").GET()).trim());
+  }
+
+  @Override
+  public String stage(ProgramImage image) {
+    return send(
+        request("/programs")
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(image))));
+  }
+
+  @Override
+  public void start(String hash, long startNanos, Boolean jit) {
+    String query = "?hash=" + hash + "&at=" + startNanos + (jit == null ? "" : "&jit=" + jit);
+    send(request("/start" + query).POST(HttpRequest.BodyPublishers.noBody()));
+  }
+
+  @Override
+  public FleetAgentRun lastRun() {
+    try {
+      return objectMapper.readValue(send(request("/run").GET()), FleetAgentRun.class);
+    } catch (IOException e) {
+      throw new IllegalStateException("代理 " + baseUrl + " 回傳的執行狀態無法解析", e);
+    }
+  }
+
+  private HttpRequest.Builder request(String path) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + "/api/fleet/agent" + path)).timeout(timeout);
+  }
+
+  private String send(HttpRequest.Builder request) {
+    HttpResponse<String> response;
+    try {
+      response =
+          http.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("無法連線到代理 " + baseUrl + ": " + e.getMessage(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("連線到代理 " + baseUrl + " 時被中斷", e);
+    }
+    if (response.statusCode() / 100 != 2) {
+      throw new IllegalStateException(
+          "代理 " + baseUrl + " 拒絕要求 (" + response.statusCode() + "): " + response.body());
+    }
+    return response.body();
+  }
+
+  private byte[] toJson(Object value) {
+    try {
+      return objectMapper.writeValueAsBytes(value);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.match;
+
+/** 相關係數分子的內積核心，樣板每一列呼叫一次 */
+interface DotKernel {
+
+  float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+  /** 加入了 jdk.incubator.vector 模組時使用 SIMD 核心，否則使用純量核心 */
+  static DotKernel select(boolean allowVector) {
+    if (allowVector && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+      try {
+        return (DotKernel)
+            Class.forName("com.artale.artaletool.match.VectorDotKernel")
+                .getDeclaredConstructor()
+                .newInstance();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        return ScalarDotKernel.INSTANCE;
+      }
+    }
+    return ScalarDotKernel.INSTANCE;
+  }
+}
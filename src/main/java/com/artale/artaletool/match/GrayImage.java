@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.match;
+
+/** 灰階影像 (亮度 0-255)，樣板比對的每一層金字塔都以此表示 */
+final class GrayImage {
+  final int width;
+  final int height;
+  final float[] data;
+
+  GrayImage(int width, int height, float[] data) {
+    this.width = width;
+    this.height = height;
+    this.data = data;
+  }
+
+  /** 由逐列排列的 ARGB 像素轉換，列寬為 stride */
+  static GrayImage fromArgb(int[] argb, int offset, int stride, int width, int height) {
+    float[] data = new float[width * height];
+    for (int y = 0; y < height; y++) {
+      int src = offset + y * stride;
+      int dst = y * width;
+      for (int x = 0; x < width; x++) {
+        int p = argb[src + x];
+        data[dst + x] =
+            (299 * ((p >> 16) & 0xFF) + 587 * ((p >> 8) & 0xFF) + 114 * (p & 0xFF)) / 1000f;
+      }
+    }
+    return new GrayImage(width, height, data);
+  }
+
+  /** 以 2×2 平均縮小一半 */
+  GrayImage downsample() {
+    int w = width / 2;
+    int h = height / 2;
+    float[] out = new float[w * h];
+    for (int y = 0; y < h; y++) {
+      int row0 = 2 * y * width;
+      int row1 = row0 + width;
+      for (int x = 0; x < w; x++) {
+        int i = 2 * x;
+        out[y * w + x] =
+            (data[row0 + i] + data[row0 + i + 1] + data[row1 + i] + data[row1 + i + 1]) * 0.25f;
+      }
+    }
+    return new GrayImage(w, h, out);
+  }
+}
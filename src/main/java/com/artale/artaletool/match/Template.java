@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.match;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 比對用的樣板，建立時預先算好每一層金字塔的零均值灰階值與範數。
+ *
+ * <p>第 0 層為原始大小，之後每層縮小一半，直到短邊小於 {@link #MIN_SIDE} 或達到層數上限。
+ */
+public final class Template {
+  /** 金字塔中樣板短邊的最小長度，再小的樣板在粗略層無法可靠比對 */
+  static final int MIN_SIDE = 8;
+
+  private final String name;
+  private final Level[] levels;
+
+  /** 一層金字塔的樣板 */
+  static final class Level {
+    final int width;
+    final int height;
+    final float[] zeroMean;
+    final double norm;
+
+    private Level(GrayImage image) {
+      this.width = image.width;
+      this.height = image.height;
+      int n = width * height;
+      double mean = 0;
+      for (float v : image.data) {
+        mean += v;
+      }
+      mean /= n;
+      zeroMean = new float[n];
+      double sumSq = 0;
+      for (int i = 0; i < n; i++) {
+        float v = (float) (image.data[i] - mean);
+        zeroMean[i] = v;
+        sumSq += (double) v * v;
+      }
+      norm = Math.sqrt(sumSq);
+    }
+  }
+
+  private Template(String name, GrayImage image, int maxLevels) {
+    if (image.width <= 0 || image.height <= 0) {
+      throw new IllegalArgumentException("樣板大小無效: " + image.width + "x" + image.height);
+    }
+    int count = 1;
+    int w = image.width;
+    int h = image.height;
+    while (count <= maxLevels && Math.min(w / 2, h / 2) >= MIN_SIDE) {
+      w /= 2;
+      h /= 2;
+      count++;
+    }
+    levels = new Level[count];
+    GrayImage current = image;
+    for (int i = 0; i < count; i++) {
+      levels[i] = new Level(current);
+      if (i + 1 < count) {
+        current = current.downsample();
+      }
+    }
+    if (levels[0].norm < 1e-3) {
+      throw new IllegalArgumentException("樣板 " + name + " 沒有明暗變化，無法以相關係數比對");
+    }
+    this.name = name;
+  }
+
+  /** 由逐列排列的 ARGB 像素建立，maxLevels 為原始大小之外最多幾層縮小的金字塔 */
+  public static Template of(String name, int[] argb, int width, int height, int maxLevels) {
+    return new Template(name, GrayImage.fromArgb(argb, 0, width, width, height), maxLevels);
+  }
+
+  public static Template of(String name, BufferedImage image, int maxLevels) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+    return of(name, argb, width, height, maxLevels);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getWidth() {
+    return levels[0].width;
+  }
+
+  public int getHeight() {
+    return levels[0].height;
+  }
+
+  /** 金字塔層數，包含原始大小 */
+  public int levelCount() {
+    return levels.length;
+  }
+
+  Level level(int index) {
+    return levels[index];
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.match;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 以正規化互相關 (NCC) 在畫面中尋找樣板。
+ *
+ * <p>分母的視窗總和與平方和由積分影像以 O(1) 取得，分子是逐列的內積 ({@link DotKernel}，可用時為 SIMD)。
+ *
+ * <p>先在金字塔最粗的一層做完整搜尋，保留分數最高的幾個候選位置，再逐層放大、只在候選位置附近搜尋。完整搜尋的計算量超過門檻時以 fork/join 分列平行處理。
+ *
+ * <p>不保存狀態，可以在多個執行緒上共用。
+ */
+public final class TemplateMatcher {
+  private static final int CANDIDATES = 8;
+  private static final double COARSE_SLACK = 0.25;
+  private static final int REFINE_RADIUS = 2;
+  private static final int MIN_ROWS_PER_TASK = 4;
+
+  private final DotKernel kernel;
+  private final ForkJoinPool pool;
+  private final long parallelThreshold;
+
+  /**
+   * @param allowVector 是否允許使用 Vector API
+   * @param pool 平行搜尋使用的 fork/join 池
+   * @param parallelThreshold 完整搜尋的乘加次數達到此值時平行處理
+   */
+  public TemplateMatcher(boolean allowVector, ForkJoinPool pool, long parallelThreshold) {
+    this.kernel = DotKernel.select(allowVector);
+    this.pool = pool;
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  /** 比對結果，x, y 為樣板左上角在影像中的位置 */
+  public record Result(boolean found, int x, int y, double score) {}
+
+  /** 使用中的內積核心名稱 (scalar 或 vector-位元數) */
+  public String kernelName() {
+    return kernel.toString();
+  }
+
+  /**
+   * 在逐列排列的 ARGB 影像中尋找樣板，最高分達到 threshold 時 found 為 true。
+   *
+   * <p>影像比樣板小時回傳分數 0 的未找到結果。
+   */
+  public Result find(Template template, int[] argb, int width, int height, double threshold) {
+    if (template.getWidth() > width || template.getHeight() > height) {
+      return new Result(false, 0, 0, 0);
+    }
+    GrayImage image = GrayImage.fromArgb(argb, 0, width, width, height);
+
+    // 最粗的一層：樣板與影像縮小後都要放得下
+    int top = 0;
+    GrayImage[] images = new GrayImage[template.levelCount()];
+    images[0] = image;
+    for (int l = 1; l < template.levelCount(); l++) {
+      GrayImage next = images[l - 1].downsample();
+      Template.Level tpl = template.level(l);
+      if (next.width < tpl.width || next.height < tpl.height) {
+        break;
+      }
+      images[l] = next;
+      top = l;
+    }
+
+    SearchLevel coarse = new SearchLevel(images[top]);
+    Template.Level coarseTemplate = template.level(top);
+    double floor = top == 0 ? Double.NEGATIVE_INFINITY : threshold - COARSE_SLACK;
+    Candidates candidates = search(coarse, coarseTemplate, floor, top == 0 ? 1 : CANDIDATES);
+    if (candidates.size == 0) {
+      candidates.add(candidates.bestX, candidates.bestY, candidates.bestScore);
+    }
+    if (top == 0) {
+      return result(candidates.x[0], candidates.y[0], candidates.score[0], threshold);
+    }
+
+    SearchLevel[] levels = new SearchLevel[top];
+    for (int l = 0; l < top; l++) {
+      levels[l] = new SearchLevel(images[l]);
+    }
+    int bestX = 0;
+    int bestY = 0;
+    double bestScore = Double.NEGATIVE_INFINITY;
+    for (int c = 0; c < candidates.size; c++) {
+      int x = candidates.x[c];
+      int y = candidates.y[c];
+      double score = candidates.score[c];
+      for (int l = top - 1; l >= 0; l--) {
+        SearchLevel level = levels[l];
+        Template.Level tpl = template.level(l);
+        int maxX = level.image.width - tpl.width;
+        int maxY = level.image.height - tpl.height;
+        int cx = Math.min(2 * x, maxX);
+        int cy = Math.min(2 * y, maxY);
+        int x0 = Math.max(0, cx - REFINE_RADIUS);
+        int x1 = Math.min(maxX, cx + REFINE_RADIUS);
+        int y0 = Math.max(0, cy - REFINE_RADIUS);
+        int y1 = Math.min(maxY, cy + REFINE_RADIUS);
+        score = Double.NEGATIVE_INFINITY;
+        for (int v = y0; v <= y1; v++) {
+          for (int u = x0; u <= x1; u++) {
+            double s = score(level, tpl, u, v);
+            if (s > score) {
+              score = s;
+              x = u;
+              y = v;
+            }
+          }
+        }
+      }
+      if (score > bestScore) {
+        bestScore = score;
+        bestX = x;
+        bestY = y;
+      }
+    }
+    return result(bestX, bestY, bestScore, threshold);
+  }
+
+  private static Result result(int x, int y, double score, double threshold) {
+    return new Result(score >= threshold, x, y, score);
+  }
+
+  private Candidates search(SearchLevel level, Template.Level tpl, double floor, int capacity) {
+    int rows = level.image.height - tpl.height + 1;
+    int cols = level.image.width - tpl.width + 1;
+    long work = (long) rows * cols * tpl.width * tpl.height;
+    if (work < parallelThreshold || rows < 2 * MIN_ROWS_PER_TASK) {
+      return scan(level, tpl, 0, rows, floor, capacity);
+    }
+    int grain = Math.max(MIN_ROWS_PER_TASK, rows / (pool.getParallelism() * 4));
+    return pool.invoke(new ScanTask(level, tpl, 0, rows, floor, capacity, grain));
+  }
+
+  private Candidates scan(
+      SearchLevel level, Template.Level tpl, int v0, int v1, double floor, int capacity) {
+    Candidates candidates = new Candidates(capacity);
+    int cols = level.image.width - tpl.width + 1;
+    for (int v = v0; v < v1; v++) {
+      for (int u = 0; u < cols; u++) {
+        double s = score(level, tpl, u, v);
+        candidates.offerBest(u, v, s);
+        if (s >= floor) {
+          candidates.add(u, v, s);
+        }
+      }
+    }
+    return candidates;
+  }
+
+  /** 位置 (u, v) 的相關係數；視窗沒有明暗變化時為 0 */
+  private double score(SearchLevel level, Template.Level tpl, int u, int v) {
+    int width = level.image.width;
+    float[] data = level.image.data;
+    double numerator = 0;
+    for (int r = 0; r < tpl.height; r++) {
+      numerator += kernel.dot(data, (v + r) * width + u, tpl.zeroMean, r * tpl.width, tpl.width);
+    }
+    int n = tpl.width * tpl.height;
+    double sum = level.rectSum(level.sum, u, v, tpl.width, tpl.height);
+    double sumSq = level.rectSum(level.sumSq, u, v, tpl.width, tpl.height);
+    double variance = sumSq - sum * sum / n;
+    if (variance <= 1e-6 * n) {
+      return 0;
+    }
+    return numerator / (Math.sqrt(variance) * tpl.norm);
+  }
+
+  /** 一層影像與它的總和、平方和積分影像 */
+  private static final class SearchLevel {
+    private final GrayImage image;
+    private final double[] sum;
+    private final double[] sumSq;
+
+    private SearchLevel(GrayImage image) {
+      this.image = image;
+      int stride = image.width + 1;
+      sum = new double[stride * (image.height + 1)];
+      sumSq = new double[sum.length];
+      for (int y = 0; y < image.height; y++) {
+        double rowSum = 0;
+        double rowSumSq = 0;
+        for (int x = 0; x < image.width; x++) {
+          double p = image.data[y * image.width + x];
+          rowSum += p;
+          rowSumSq += p * p;
+          int i = (y + 1) * stride + x + 1;
+          sum[i] = sum[i - stride] + rowSum;
+          sumSq[i] = sumSq[i - stride] + rowSumSq;
+        }
+      }
+    }
+
+    private double rectSum(double[] table, int x, int y, int w, int h) {
+      int stride = image.width + 1;
+      int top = y * stride;
+      int bottom = (y + h) * stride;
+      return table[bottom + x + w] - table[bottom + x] - table[top + x + w] + table[top + x];
+    }
+  }
+
+  /** 分數最高的幾個候選位置，彼此相距不超過 REFINE_RADIUS 的只保留較高者 */
+  private static final class Candidates {
+    private final int[] x;
+    private final int[] y;
+    private final double[] score;
+    private int size;
+    private int bestX;
+    private int bestY;
+    private double bestScore = Double.NEGATIVE_INFINITY;
+
+    private Candidates(int capacity) {
+      x = new int[capacity];
+      y = new int[capacity];
+      score = new double[capacity];
+    }
+
+    private void offerBest(int u, int v, double s) {
+      if (s > bestScore) {
+        bestScore = s;
+        bestX = u;
+        bestY = v;
+      }
+    }
+
+    private void add(int u, int v, double s) {
+      int weakest = -1;
+      for (int i = 0; i < size; i++) {
+        if (Math.abs(x[i] - u) <= REFINE_RADIUS && Math.abs(y[i] - v) <= REFINE_RADIUS) {
+          if (s > score[i]) {
+            x[i] = u;
+            y[i] = v;
+            score[i] = s;
+          }
+          return;
+        }
+        if (weakest < 0 || score[i] < score[weakest]) {
+          weakest = i;
+        }
+      }
+      if (size < x.length) {
+        x[size] = u;
+        y[size] = v;
+        score[size] = s;
+        size++;
+      } else if (s > score[weakest]) {
+        x[weakest] = u;
+        y[weakest] = v;
+        score[weakest] = s;
+      }
+    }
+
+    private Candidates merge(Candidates other) {
+      offerBest(other.bestX, other.bestY, other.bestScore);
+      for (int i = 0; i < other.size; i++) {
+        add(other.x[i], other.y[i], other.score[i]);
+      }
+      return this;
+    }
+  }
+
+  /** 依列分割完整搜尋；只在 ForkJoinPool 中執行，不會序列化 */
+  @SuppressWarnings("serial")
+  private final class ScanTask extends RecursiveTask<Candidates> {
+    private final SearchLevel level;
+    private final Template.Level tpl;
+    private final int v0;
+    private final int v1;
+    private final double floor;
+    private final int capacity;
+    private final int grain;
+
+    private ScanTask(
+        SearchLevel level,
+        Template.Level tpl,
+        int v0,
+        int v1,
+        double floor,
+        int capacity,
+        int grain) {
+      this.level = level;
+      this.tpl = tpl;
+      this.v0 = v0;
+      this.v1 = v1;
+      this.floor = floor;
+      this.capacity = capacity;
+      this.grain = grain;
+    }
+
+    @Override
+    protected Candidates compute() {
+      if (v1 - v0 <= grain) {
+        return scan(level, tpl, v0, v1, floor, capacity);
+      }
+      int mid = (v0 + v1) >>> 1;
+      ScanTask upper = new ScanTask(level, tpl, v0, mid, floor, capacity, grain);
+      upper.fork();
+      Candidates lower = new ScanTask(level, tpl, mid, v1, floor, capacity, grain).compute();
+      return upper.join().merge(lower);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.match;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** 以 Vector API 計算內積，只能透過 {@link DotKernel#select} 以反射建立，避免沒有模組時載入失敗 */
+final class VectorDotKernel implements DotKernel {
+  private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+  @Override
+  public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+    FloatVector acc = FloatVector.zero(SPECIES);
+    int i = 0;
+    int bound = SPECIES.loopBound(length);
+    for (; i < bound; i += SPECIES.length()) {
+      FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+      FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+      acc = va.fma(vb, acc);
+    }
+    float sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      sum += a[aOffset + i] * b[bOffset + i];
+    }
+    return sum;
+  }
+
+  @Override
+  public String toString() {
+    return "vector-" + SPECIES.vectorBitSize();
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 錄製、播放與視窗子系統的 Micrometer 指標。
+ *
+ * <p>所有 meter 在建立時就向 registry 註冊並由呼叫端保存參考，輪詢與播放熱路徑上只做 record，不再做名稱或標籤查詢。
+ */
+@Component
+public class ToolMetrics {
+  private final MeterRegistry registry;
+
+  public ToolMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /** 建立監控執行緒的輪詢指標 */
+  public PollMonitor pollMonitor(String monitor, long intervalMillis) {
+    Timer tickTimer =
+        Timer.builder("artaletool.monitor.tick")
+            .description("監控執行緒每次輪詢的處理時間")
+            .tag("monitor", monitor)
+            .publishPercentileHistogram()
+            .maximumExpectedValue(Duration.ofMillis(intervalMillis * 10))
+            .register(registry);
+    Counter overrunCounter =
+        Counter.builder("artaletool.monitor.overrun")
+            .description("處理時間超過輪詢間隔的次數")
+            .tag("monitor", monitor)
+            .register(registry);
+    return new PollMonitor(
+        tickTimer, overrunCounter, TimeUnit.MILLISECONDS.toNanos(intervalMillis));
+  }
+
+  /** JNA 原生呼叫延遲 */
+  public Timer nativeCall(String function) {
+    return Timer.builder("artaletool.native.call")
+        .description("user32 原生呼叫延遲")
+        .tag("function", function)
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofMillis(10))
+        .register(registry);
+  }
+
+  /** 已錄製事件數 (以 rate() 取得每秒事件數) */
+  public Counter recordedEvents(String source) {
+    return Counter.builder("artaletool.recording.events")
+        .description("錄製的輸入事件數")
+        .tag("source", source)
+        .register(registry);
+  }
+
+  /** 播放事件相對預定時間的延遲 */
+  public Timer playbackLateness(String source) {
+    return Timer.builder("artaletool.playback.lateness")
+        .description("播放事件實際執行時間與預定時間的差")
+        .tag("source", source)
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofSeconds(1))
+        .register(registry);
+  }
+
+  /** 每次播放第一個事件的延遲，反映預熱是否足夠 */
+  public Timer firstEventLateness(String source) {
+    return Timer.builder("artaletool.playback.first.event.lateness")
+        .description("播放第一個事件實際執行時間與預定時間的差")
+        .tag("source", source)
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofSeconds(1))
+        .register(registry);
+  }
+
+  /** 播放前預熱的耗時 */
+  public Timer playbackWarmup(String source) {
+    return Timer.builder("artaletool.playback.warmup")
+        .description("播放前預熱注入路徑與時間軸的耗時")
+        .tag("source", source)
+        .maximumExpectedValue(Duration.ofSeconds(5))
+        .register(registry);
+  }
+
+  /** 注入單一輸入事件所花的時間 */
+  public Timer injectionLatency(String source) {
+    return Timer.builder("artaletool.playback.injection")
+        .description("注入單一輸入事件的耗時")
+        .tag("source", source)
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofMillis(100))
+        .register(registry);
+  }
+
+  /** 定時按鍵實際觸發時間與排程時間的誤差 */
+  public Timer scheduledKeyFireError() {
+    return Timer.builder("artaletool.scheduled.fire.error")
+        .description("定時按鍵觸發時間誤差")
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofSeconds(1))
+        .register(registry);
+  }
+
+  /** 列舉視窗的耗時 */
+  public Timer windowEnumeration() {
+    return Timer.builder("artaletool.window.enumeration")
+        .description("列舉所有視窗的耗時")
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofSeconds(1))
+        .register(registry);
+  }
+
+  /** 追蹤事件數，result 為 written (已寫入) 或 dropped (佇列已滿而丟棄) */
+  public Counter traceEvents(String result) {
+    return Counter.builder("artaletool.trace.events")
+        .description("逐筆事件追蹤的寫入與丟棄數")
+        .tag("result", result)
+        .register(registry);
+  }
+
+  /** 把鎖定視窗帶回前台的次數，result 為 restored、failed 或 throttled (間隔太短而略過) */
+  public Counter focusRestores(String result) {
+    return Counter.builder("artaletool.focus.restores")
+        .description("自動將鎖定視窗帶回前台的次數")
+        .tag("result", result)
+        .register(registry);
+  }
+
+  /** 焦點恢復期間暫存的按鍵事件，outcome 為 replayed (恢復後補錄) 或 dropped (依設定或逾時丟棄) */
+  public Counter focusBufferedKeys(String outcome) {
+    return Counter.builder("artaletool.focus.buffered.keys")
+        .description("焦點恢復期間暫存的按鍵事件數")
+        .tag("outcome", outcome)
+        .register(registry);
+  }
+
+  /** 擷取單一區域 (含分塊雜湊) 的耗時 */
+  public Timer captureLatency(String region) {
+    return Timer.builder("artaletool.capture.latency")
+        .description("擷取單一區域並計算分塊雜湊的耗時")
+        .tag("region", region)
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofMillis(500))
+        .register(registry);
+  }
+
+  /** 擷取的畫面數，result 為 changed、unchanged、failed 或 skipped (畫面池已用盡) */
+  public Counter captureFrames(String result) {
+    return Counter.builder("artaletool.capture.frames")
+        .description("擷取的畫面數")
+        .tag("result", result)
+        .register(registry);
+  }
+
+  /** 實際的擷取頻率 */
+  public void captureFps(Supplier<Number> fps) {
+    Gauge.builder("artaletool.capture.fps", fps).description("實際的畫面擷取頻率").register(registry);
+  }
+
+  /** 以一個畫面評估該區域所有監看規則的耗時 */
+  public Timer watchEvaluation() {
+    return Timer.builder("artaletool.watch.evaluation")
+        .description("以一個畫面評估監看規則的耗時")
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofMillis(100))
+        .register(registry);
+  }
+
+  /** 監看規則的評估次數，result 為 evaluated 或 skipped (範圍內的分塊沒有變化) */
+  public Counter watchRules(String result) {
+    return Counter.builder("artaletool.watch.rules")
+        .description("監看規則的評估次數")
+        .tag("result", result)
+        .register(registry);
+  }
+
+  /** 從擷取觸發畫面到開始執行規則動作的延遲 */
+  public Timer watchTriggerLatency(String action) {
+    return Timer.builder("artaletool.watch.trigger.latency")
+        .description("從擷取觸發畫面到開始執行規則動作的延遲")
+        .tag("action", action)
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofSeconds(1))
+        .register(registry);
+  }
+
+  /** 樣板比對的耗時，cache 為 hit (區域內容沒有變化) 或 miss */
+  public Timer templateMatch(String cache) {
+    return Timer.builder("artaletool.match.duration")
+        .description("樣板比對的耗時")
+        .tag("cache", cache)
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofSeconds(1))
+        .register(registry);
+  }
+
+  /** 從領導端擷取到跟隨端注入完成的鏡像延遲 */
+  public Timer mirrorLatency() {
+    return Timer.builder("artaletool.mirror.latency")
+        .description("從領導端擷取輸入到跟隨端注入完成的延遲")
+        .publishPercentileHistogram()
+        .maximumExpectedValue(Duration.ofSeconds(1))
+        .register(registry);
+  }
+
+  /** 單一監控執行緒的輪詢耗時與逾時次數 */
+  public static final class PollMonitor {
+    private final Timer tickTimer;
+    private final Counter overrunCounter;
+    private final long intervalNanos;
+
+    private PollMonitor(Timer tickTimer, Counter overrunCounter, long intervalNanos) {
+      this.tickTimer = tickTimer;
+      this.overrunCounter = overrunCounter;
+      this.intervalNanos = intervalNanos;
+    }
+
+    /** 記錄一次輪詢的處理時間，超過輪詢間隔時計為逾時 */
+    public void recordTick(long tickNanos) {
+      tickTimer.record(tickNanos, TimeUnit.NANOSECONDS);
+      if (tickNanos > intervalNanos) {
+        overrunCounter.increment();
+      }
+    }
+  }
+}
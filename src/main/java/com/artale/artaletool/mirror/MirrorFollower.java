@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.mirror;
+
+import java.awt.event.InputEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.fleet.ClockSync;
+import com.artale.artaletool.model.MirrorStatus.FollowerStatus;
+import com.artale.artaletool.playback.PlaybackClock;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 即時鏡像的跟隨端：連到領導端，把收到的事件依序以本機的注入器重現。
+ *
+ * <p>連線時以 {@link ClockSync} 估計領導端的時鐘差，之後每個事件的延遲為本機注入完成的時間減去換算成本機時鐘的擷取時間，誤差在時鐘差的誤差上限以內。
+ * 事件序號不連續或連線中斷時放開所有仍按住的按鍵與按鈕，避免遺失的放開事件讓輸入卡住。
+ */
+public final class MirrorFollower implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(MirrorFollower.class);
+  private static final int CONNECT_TIMEOUT_MS = 3000;
+  // 領導端閒置時每秒送出心跳
+  private static final int READ_TIMEOUT_MS = 5000;
+  private static final int LATENCY_WINDOW = 4096;
+
+  private final InputInjector injector;
+  private final PlaybackClock clock;
+  private final MirrorRect target;
+  private final Timer latencyTimer;
+  private final String leader;
+  private final Socket socket;
+  private final DataInputStream in;
+  private final ClockSync.Estimate estimate;
+  private final MirrorRect source;
+  private final Thread readerThread;
+  // 只由讀取執行緒使用
+  private final boolean[] heldKeys = new boolean[256];
+  private final boolean[] heldButtons = new boolean[4];
+  private boolean sequenced;
+  private int expectedSequence;
+  // 最近的延遲樣本 (環狀)，以 latencies 為鎖
+  private final long[] latencies = new long[LATENCY_WINDOW];
+  private long latencySamples;
+  private long latencyTotal;
+  private long latencyMax;
+  private volatile long receivedBatches;
+  private volatile long injectedEvents;
+  private volatile long sequenceGaps;
+  private volatile boolean connected;
+  private volatile boolean closed;
+
+  /**
+   * 連線並完成握手與時鐘交換，呼叫 {@link #start()} 後開始注入。
+   *
+   * @param target 本機對應領導端視窗的範圍，{@link MirrorRect#NONE} 表示座標不換算
+   * @param latencyTimer 記錄每個事件的鏡像延遲
+   */
+  public MirrorFollower(
+      String host,
+      int port,
+      String token,
+      InputInjector injector,
+      PlaybackClock clock,
+      MirrorRect target,
+      int syncSamples,
+      Timer latencyTimer)
+      throws IOException {
+    this.injector = injector;
+    this.clock = clock;
+    this.target = target;
+    this.latencyTimer = latencyTimer;
+    this.leader = host + ":" + port;
+    this.socket = new Socket();
+    try {
+      socket.setTcpNoDelay(true);
+      socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+      socket.setSoTimeout(READ_TIMEOUT_MS);
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeInt(MirrorProtocol.MAGIC);
+      out.writeByte(MirrorProtocol.VERSION);
+      MirrorProtocol.writeString(out, token == null ? "" : token);
+      this.estimate =
+          ClockSync.estimate(
+              clock,
+              () -> exchange(out),
+              Math.min(Math.max(1, syncSamples), MirrorProtocol.MAX_SYNC_SAMPLES));
+      out.writeByte(MirrorProtocol.READY);
+      out.flush();
+      expect(MirrorProtocol.HELLO);
+      this.source = new MirrorRect(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    } catch (UncheckedIOException e) {
+      socket.close();
+      throw e.getCause();
+    } catch (IOException | RuntimeException e) {
+      socket.close();
+      throw e;
+    }
+    this.readerThread = new Thread(this::readLoop, "MirrorFollowerThread");
+    readerThread.setDaemon(true);
+    logger.info(
+        "已連線到鏡像領導端 {}，時鐘差 {} ms (±{} ms)",
+        leader,
+        String.format("%.3f", millis(estimate.offsetNanos())),
+        String.format("%.3f", millis(estimate.uncertaintyNanos())));
+  }
+
+  public void start() {
+    connected = true;
+    readerThread.start();
+  }
+
+  public boolean isConnected() {
+    return connected;
+  }
+
+  public String leader() {
+    return leader;
+  }
+
+  /** 領導端連線時回報的視窗範圍 */
+  public MirrorRect source() {
+    return source;
+  }
+
+  public FollowerStatus status() {
+    long[] window;
+    long samples;
+    long total;
+    long max;
+    synchronized (latencies) {
+      samples = latencySamples;
+      total = latencyTotal;
+      max = latencyMax;
+      window = Arrays.copyOf(latencies, (int) Math.min(samples, LATENCY_WINDOW));
+    }
+    Arrays.sort(window);
+    return new FollowerStatus(
+        leader,
+        connected,
+        millis(estimate.offsetNanos()),
+        millis(estimate.uncertaintyNanos()),
+        receivedBatches,
+        injectedEvents,
+        sequenceGaps,
+        samples,
+        samples == 0 ? 0 : millis(total / samples),
+        millis(percentile(window, 0.50)),
+        millis(percentile(window, 0.99)),
+        millis(max));
+  }
+
+  /** 中斷連線，讀取執行緒結束前會放開所有仍按住的輸入 */
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      socket.close();
+    } catch (IOException e) {
+      logger.debug("關閉鏡像連線失敗: {}", e.getMessage());
+    }
+    if (readerThread.isAlive() && Thread.currentThread() != readerThread) {
+      try {
+        readerThread.join(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    connected = false;
+  }
+
+  private long exchange(DataOutputStream out) {
+    try {
+      out.writeByte(MirrorProtocol.SYNC);
+      out.flush();
+      expect(MirrorProtocol.TIME);
+      return in.readLong();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void expect(int type) throws IOException {
+    int actual = in.readUnsignedByte();
+    if (actual == MirrorProtocol.REJECT) {
+      throw new IOException("鏡像領導端拒絕連線: " + MirrorProtocol.readString(in));
+    }
+    if (actual != type) {
+      throw new IOException("預期訊框類型 " + type + "，收到 " + actual);
+    }
+  }
+
+  private void readLoop() {
+    try {
+      while (!closed) {
+        int type = in.readUnsignedByte();
+        if (type != MirrorProtocol.BATCH) {
+          throw new IOException("未知的訊框類型: " + type);
+        }
+        readBatch();
+      }
+    } catch (IOException e) {
+      if (!closed) {
+        logger.warn("與鏡像領導端 {} 的連線中斷: {}", leader, e.getMessage());
+      }
+    } finally {
+      connected = false;
+      releaseAll();
+      try {
+        socket.close();
+      } catch (IOException e) {
+        logger.debug("關閉鏡像連線失敗: {}", e.getMessage());
+      }
+    }
+  }
+
+  private void readBatch() throws IOException {
+    int first = in.readInt();
+    long sendNanos = estimate.toLocal(in.readLong());
+    int count = in.readUnsignedShort();
+    if (sequenced && first != expectedSequence) {
+      long missing = (first - expectedSequence) & 0xFFFFFFFFL;
+      sequenceGaps += missing;
+      logger.warn("鏡像事件序號不連續，遺失 {} 個事件，放開所有按住的輸入", missing);
+      releaseAll();
+    }
+    sequenced = true;
+    expectedSequence = first + count;
+    for (int i = 0; i < count; i++) {
+      int kind = in.readUnsignedByte();
+      int code = in.readUnsignedByte();
+      long captureNanos = sendNanos - in.readUnsignedShort() * 1000L;
+      int x = 0;
+      int y = 0;
+      if (MirrorProtocol.isMouse(kind)) {
+        x = in.readInt();
+        y = in.readInt();
+      }
+      inject(kind, code, x, y);
+      recordLatency(clock.nanoTime() - captureNanos);
+    }
+    receivedBatches++;
+  }
+
+  private void inject(int kind, int code, int x, int y) throws IOException {
+    switch (kind) {
+      case MirrorProtocol.KEY_DOWN -> {
+        injector.keyPress(code);
+        heldKeys[code] = true;
+      }
+      case MirrorProtocol.KEY_UP -> {
+        injector.keyRelease(code);
+        heldKeys[code] = false;
+      }
+      case MirrorProtocol.MOUSE_DOWN, MirrorProtocol.MOUSE_UP -> {
+        if (code < 1 || code > 3) {
+          throw new IOException("無效的滑鼠按鈕: " + code);
+        }
+        int[] point = MirrorRect.map(source, target, x, y);
+        injector.mouseMove(point[0], point[1]);
+        boolean down = kind == MirrorProtocol.MOUSE_DOWN;
+        if (down) {
+          injector.mousePress(buttonMask(code));
+        } else {
+          injector.mouseRelease(buttonMask(code));
+        }
+        heldButtons[code] = down;
+      }
+      default -> throw new IOException("未知的事件類型: " + kind);
+    }
+    injectedEvents++;
+  }
+
+  private void releaseAll() {
+    for (int vk = 0; vk < heldKeys.length; vk++) {
+      if (heldKeys[vk]) {
+        injector.keyRelease(vk);
+        heldKeys[vk] = false;
+      }
+    }
+    for (int button = 1; button < heldButtons.length; button++) {
+      if (heldButtons[button]) {
+        injector.mouseRelease(buttonMask(button));
+        heldButtons[button] = false;
+      }
+    }
+  }
+
+  /** 時鐘差的誤差可能讓延遲略小於 0，視為 0 */
+  private void recordLatency(long nanos) {
+    long latency = Math.max(0, nanos);
+    latencyTimer.record(latency, TimeUnit.NANOSECONDS);
+    synchronized (latencies) {
+      latencies[(int) (latencySamples % LATENCY_WINDOW)] = latency;
+      latencySamples++;
+      latencyTotal += latency;
+      latencyMax = Math.max(latencyMax, latency);
+    }
+  }
+
+  private static long percentile(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static int buttonMask(int button) {
+    return switch (button) {
+      case 1 -> InputEvent.BUTTON1_DOWN_MASK;
+      case 2 -> InputEvent.BUTTON3_DOWN_MASK;
+      default -> InputEvent.BUTTON2_DOWN_MASK;
+    };
+  }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.mirror;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.artale.artaletool.model.MirrorStatus.LeaderStatus;
+import com.artale.artaletool.playback.PlaybackClock;
+
+/**
+ * 即時鏡像的領導端：把擷取到的按鍵與滑鼠按鈕變化以 {@link MirrorProtocol} 的 BATCH 送給所有跟隨端。
+ *
+ * <p>擷取執行緒只對有界佇列做非阻塞 offer。批次執行緒取出第一個事件後，最多再等批次時間窗收集後續事件，編碼一次後交給每個連線的寫出執行緒。
+ * 佇列已滿而沒有送出的事件仍佔用序號，跟隨端因此知道有事件遺失；跟不上的跟隨端直接中斷，不會拖慢其他跟隨端。
+ */
+public final class MirrorLeader implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(MirrorLeader.class);
+  private static final int CAPTURE_CAPACITY = 4096;
+  private static final int FRAME_CAPACITY = 256;
+  private static final long HEARTBEAT_MS = 1000;
+  private static final int HANDSHAKE_TIMEOUT_MS = 5000;
+
+  private final PlaybackClock clock;
+  private final byte[] token;
+  private final long batchWindowNanos;
+  private final Supplier<MirrorRect> sourceRect;
+  private final ServerSocket server;
+  private final BlockingQueue<Captured> captured = new ArrayBlockingQueue<>(CAPTURE_CAPACITY);
+  private final CopyOnWriteArrayList<Connection> connections = new CopyOnWriteArrayList<>();
+  private final AtomicLong lostPending = new AtomicLong();
+  private final AtomicLong lostEvents = new AtomicLong();
+  private final AtomicLong sentEvents = new AtomicLong();
+  private final AtomicLong sentBatches = new AtomicLong();
+  private final AtomicLong droppedFollowers = new AtomicLong();
+  private final Thread acceptThread;
+  private final Thread batchThread;
+  // 只由批次執行緒更新
+  private volatile int nextSequence;
+  private volatile boolean closed;
+
+  private record Captured(int kind, int code, int x, int y, long captureNanos) {}
+
+  /**
+   * 綁定監聽位址，呼叫 {@link #start()} 後開始接受跟隨端。
+   *
+   * @param token 跟隨端必須提供相同的 token，空字串表示不檢查
+   * @param batchWindowNanos 第一個事件之後最多再等多久收集同一批事件，0 表示只合併已在佇列中的事件
+   * @param sourceRect 跟隨端連線時回報的視窗範圍 (座標換算用)，可回傳 {@link MirrorRect#NONE}
+   */
+  public MirrorLeader(
+      PlaybackClock clock,
+      InetSocketAddress bindAddress,
+      String token,
+      long batchWindowNanos,
+      Supplier<MirrorRect> sourceRect)
+      throws IOException {
+    this.clock = clock;
+    this.token = token == null ? new byte[0] : token.getBytes(StandardCharsets.UTF_8);
+    this.batchWindowNanos = Math.max(0, batchWindowNanos);
+    this.sourceRect = sourceRect;
+    this.server = new ServerSocket();
+    server.setReuseAddress(true);
+    server.bind(bindAddress);
+    this.acceptThread = new Thread(this::acceptLoop, "MirrorAcceptThread");
+    acceptThread.setDaemon(true);
+    this.batchThread = new Thread(this::batchLoop, "MirrorBatchThread");
+    batchThread.setDaemon(true);
+  }
+
+  public void start() {
+    acceptThread.start();
+    batchThread.start();
+    logger.info("鏡像領導端已在 {} 等待跟隨端", address());
+  }
+
+  /** 實際監聽的位址 (port 為 0 時由系統指定) */
+  public InetSocketAddress address() {
+    return (InetSocketAddress) server.getLocalSocketAddress();
+  }
+
+  public void keyDown(int vk) {
+    capture(MirrorProtocol.KEY_DOWN, vk, 0, 0);
+  }
+
+  public void keyUp(int vk) {
+    capture(MirrorProtocol.KEY_UP, vk, 0, 0);
+  }
+
+  /** button 為 1=左鍵、2=右鍵、3=中鍵，x / y 為螢幕座標 */
+  public void mouseDown(int button, int x, int y) {
+    capture(MirrorProtocol.MOUSE_DOWN, button, x, y);
+  }
+
+  public void mouseUp(int button, int x, int y) {
+    capture(MirrorProtocol.MOUSE_UP, button, x, y);
+  }
+
+  public int followerCount() {
+    return connections.size();
+  }
+
+  public LeaderStatus status() {
+    InetSocketAddress address = address();
+    return new LeaderStatus(
+        address.getHostString() + ":" + address.getPort(),
+        connections.size(),
+        sentEvents.get(),
+        sentBatches.get(),
+        lostEvents.get(),
+        droppedFollowers.get());
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      server.close();
+    } catch (IOException e) {
+      logger.debug("關閉鏡像監聽失敗: {}", e.getMessage());
+    }
+    for (Connection connection : connections) {
+      connection.close();
+    }
+    acceptThread.interrupt();
+    batchThread.interrupt();
+    logger.info("鏡像領導端已停止");
+  }
+
+  /** 在擷取執行緒上呼叫，不會阻塞 */
+  private void capture(int kind, int code, int x, int y) {
+    if (closed || connections.isEmpty()) {
+      return;
+    }
+    if (code < 0 || code > 0xFF) {
+      logger.debug("略過無法鏡像的代碼: {}", code);
+      return;
+    }
+    if (!captured.offer(new Captured(kind, code, x, y, clock.nanoTime()))) {
+      lostPending.incrementAndGet();
+      lostEvents.incrementAndGet();
+    }
+  }
+
+  private void acceptLoop() {
+    while (!closed) {
+      Socket socket;
+      try {
+        socket = server.accept();
+      } catch (IOException e) {
+        if (!closed) {
+          logger.warn("接受跟隨端連線失敗: {}", e.getMessage());
+        }
+        continue;
+      }
+      Connection connection = new Connection(socket);
+      Thread thread = new Thread(connection::run, "MirrorConnection-" + connection.remote);
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  private void batchLoop() {
+    List<Captured> batch = new ArrayList<>();
+    while (!closed) {
+      try {
+        Captured first = captured.poll(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          if (!connections.isEmpty()) {
+            // 心跳，讓跟隨端能分辨領導端閒置與連線中斷
+            broadcast(encode(nextSequence, batch));
+          }
+          continue;
+        }
+        batch.add(first);
+        long deadline = first.captureNanos() + batchWindowNanos;
+        while (batch.size() < MirrorProtocol.MAX_BATCH_EVENTS) {
+          long remaining = deadline - clock.nanoTime();
+          Captured next =
+              remaining > 0 ? captured.poll(remaining, TimeUnit.NANOSECONDS) : captured.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        return;
+      }
+      // 遺失的事件仍佔用序號
+      int first = nextSequence + (int) lostPending.getAndSet(0);
+      nextSequence = first + batch.size();
+      broadcast(encode(first, batch));
+      sentBatches.incrementAndGet();
+      sentEvents.addAndGet(batch.size());
+      batch.clear();
+    }
+  }
+
+  private byte[] encode(int firstSequence, List<Captured> batch) {
+    int size = MirrorProtocol.BATCH_HEADER_BYTES;
+    for (Captured event : batch) {
+      size += MirrorProtocol.eventBytes(event.kind());
+    }
+    long sendNanos = clock.nanoTime();
+    ByteBuffer frame = ByteBuffer.allocate(size);
+    frame.put((byte) MirrorProtocol.BATCH);
+    frame.putInt(firstSequence);
+    frame.putLong(sendNanos);
+    frame.putShort((short) batch.size());
+    for (Captured event : batch) {
+      long ageMicros = (sendNanos - event.captureNanos()) / 1000;
+      frame.put((byte) event.kind());
+      frame.put((byte) event.code());
+      frame.putShort((short) Math.max(0, Math.min(0xFFFF, ageMicros)));
+      if (MirrorProtocol.isMouse(event.kind())) {
+        frame.putInt(event.x());
+        frame.putInt(event.y());
+      }
+    }
+    return frame.array();
+  }
+
+  private void broadcast(byte[] frame) {
+    for (Connection connection : connections) {
+      if (!connection.frames.offer(frame)) {
+        connections.remove(connection);
+        droppedFollowers.incrementAndGet();
+        logger.warn("跟隨端 {} 跟不上鏡像速度，已中斷", connection.remote);
+        connection.close();
+      }
+    }
+  }
+
+  private final class Connection {
+    private final Socket socket;
+    private final String remote;
+    private final BlockingQueue<byte[]> frames = new ArrayBlockingQueue<>(FRAME_CAPACITY);
+
+    private Connection(Socket socket) {
+      this.socket = socket;
+      this.remote = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+    }
+
+    private void run() {
+      try (socket) {
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!handshake(in, out)) {
+          return;
+        }
+        socket.setSoTimeout(0);
+        connections.add(this);
+        logger.info("跟隨端 {} 已連線，目前共 {} 個", remote, connections.size());
+        writeLoop(out);
+      } catch (IOException e) {
+        if (!closed) {
+          logger.info("跟隨端 {} 已離線: {}", remote, e.getMessage());
+        }
+      } finally {
+        connections.remove(this);
+      }
+    }
+
+    private boolean handshake(DataInputStream in, DataOutputStream out) throws IOException {
+      if (in.readInt() != MirrorProtocol.MAGIC || in.readUnsignedByte() != MirrorProtocol.VERSION) {
+        reject(out, "不支援的鏡像協定");
+        return false;
+      }
+      byte[] presented = MirrorProtocol.readString(in).getBytes(StandardCharsets.UTF_8);
+      if (token.length > 0 && !MessageDigest.isEqual(token, presented)) {
+        reject(out, "token 不符");
+        return false;
+      }
+      int type;
+      int samples = 0;
+      while ((type = in.readUnsignedByte()) == MirrorProtocol.SYNC
+          && samples++ < MirrorProtocol.MAX_SYNC_SAMPLES) {
+        out.writeByte(MirrorProtocol.TIME);
+        out.writeLong(clock.nanoTime());
+        out.flush();
+      }
+      if (type != MirrorProtocol.READY) {
+        reject(out, "時鐘交換次數過多或訊框錯誤");
+        return false;
+      }
+      MirrorRect rect = sourceRect.get();
+      out.writeByte(MirrorProtocol.HELLO);
+      out.writeInt(rect.x());
+      out.writeInt(rect.y());
+      out.writeInt(rect.width());
+      out.writeInt(rect.height());
+      out.flush();
+      return true;
+    }
+
+    private void reject(DataOutputStream out, String reason) throws IOException {
+      logger.warn("拒絕跟隨端 {}: {}", remote, reason);
+      out.writeByte(MirrorProtocol.REJECT);
+      MirrorProtocol.writeString(out, reason);
+      out.flush();
+    }
+
+    private void writeLoop(DataOutputStream out) throws IOException {
+      List<byte[]> pending = new ArrayList<>();
+      while (!closed && !socket.isClosed()) {
+        byte[] frame;
+        try {
+          frame = frames.poll(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        if (frame == null) {
+          continue;
+        }
+        pending.add(frame);
+        frames.drainTo(pending);
+        for (byte[] item : pending) {
+          out.write(item);
+        }
+        pending.clear();
+        out.flush();
+      }
+    }
+
+    private void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        logger.debug("關閉跟隨端 {} 的連線失敗: {}", remote, e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.mirror;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 即時鏡像連線的二進位格式，所有數值都是 big-endian。
+ *
+ * <p>跟隨端連線後送出 {@code MAGIC:int, VERSION:u8, token}，接著以任意次 SYNC / TIME 交換估計領導端的時鐘差，送出 READY 後領導端回覆
+ * {@code HELLO, x:int, y:int, width:int, height:int} (領導端鎖定視窗，沒有鎖定時為 0)，之後只有領導端送出 BATCH；
+ * 領導端拒絕連線時改送出 {@code REJECT} 與原因後關閉連線。
+ *
+ * <p>{@code BATCH, firstSequence:int, sendNanos:long, count:u16} 後接 count 個事件，每個事件為 {@code kind:u8,
+ * code:u8, ageMicros:u16}，滑鼠事件另有 {@code x:int, y:int}。事件序號依序為 firstSequence、firstSequence + 1 …；
+ * ageMicros 為擷取到送出的時間，超過 65535 µs 時截斷。count 為 0 的 BATCH 是心跳。
+ */
+final class MirrorProtocol {
+  static final int MAGIC = 0x4152544D; // "ARTM"
+  static final int VERSION = 1;
+
+  static final int SYNC = 1;
+  static final int TIME = 2;
+  static final int READY = 3;
+  static final int HELLO = 4;
+  static final int BATCH = 5;
+  static final int REJECT = 6;
+
+  static final int KEY_DOWN = 1;
+  static final int KEY_UP = 2;
+  static final int MOUSE_DOWN = 3;
+  static final int MOUSE_UP = 4;
+
+  /** BATCH 標頭：類型、序號、送出時間與事件數 */
+  static final int BATCH_HEADER_BYTES = 1 + 4 + 8 + 2;
+
+  static final int MAX_BATCH_EVENTS = 1024;
+  static final int MAX_SYNC_SAMPLES = 256;
+  static final int MAX_STRING_BYTES = 1024;
+
+  private MirrorProtocol() {}
+
+  static boolean isMouse(int kind) {
+    return kind == MOUSE_DOWN || kind == MOUSE_UP;
+  }
+
+  /** 單一事件在 BATCH 中的長度 */
+  static int eventBytes(int kind) {
+    return isMouse(kind) ? 12 : 4;
+  }
+
+  static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_STRING_BYTES) {
+      throw new IllegalArgumentException("字串過長: " + bytes.length + " 位元組");
+    }
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    int length = in.readUnsignedShort();
+    if (length > MAX_STRING_BYTES) {
+      throw new IOException("字串過長: " + length + " 位元組");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.mirror;
+
+/** 螢幕上的矩形範圍 (通常是鎖定視窗)，寬或高不是正數時視為未指定 */
+public record MirrorRect(int x, int y, int width, int height) {
+  public static final MirrorRect NONE = new MirrorRect(0, 0, 0, 0);
+
+  public boolean isEmpty() {
+    return width <= 0 || height <= 0;
+  }
+
+  /**
+   * 把 source 內的座標換算到 target 內的對應位置，兩者大小不同時依比例縮放。
+   *
+   * <p>任一方未指定時座標不變 (兩台機器的螢幕配置相同)。
+   */
+  public static int[] map(MirrorRect source, MirrorRect target, int x, int y) {
+    if (source.isEmpty() || target.isEmpty()) {
+      return new int[] {x, y};
+    }
+    return new int[] {
+      target.x + (int) Math.round((x - source.x) * (double) target.width / source.width),
+      target.y + (int) Math.round((y - source.y) * (double) target.height / source.height)
+    };
+  }
+}
@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import lombok.Data;
+
+/** 擷取區域，座標相對於視窗左上角 (與 {@link WindowInfo} 的 x, y 相同的原點) */
+@Data
+public class CaptureRegion {
+  private String name; // 區域名稱，監看規則與樣板比對以此引用
+  private long windowHandle; // 視窗句柄，0 表示鎖定的視窗；沒有鎖定視窗時座標視為螢幕座標
+  private int x, y; // 相對視窗的位置
+  private int width, height; // 區域大小
+}
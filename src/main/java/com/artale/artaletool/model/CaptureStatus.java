@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import java.util.List;
+
+/** 畫面擷取的狀態快照 */
+public record CaptureStatus(
+    boolean isRunning,
+    double targetFps,
+    double measuredFps, // 最近幾次擷取循環的實際頻率
+    long framesChanged,
+    long framesUnchanged, // 與上一個畫面完全相同，下游可略過
+    long framesFailed, // 來源擷取失敗或視窗已不存在
+    long framesSkipped, // 畫面池已用盡而略過
+    List<Region> regions) {
+
+  /** 單一區域最近一次擷取的結果 */
+  public record Region(
+      String name,
+      int screenX,
+      int screenY,
+      int width,
+      int height,
+      long lastSequence,
+      double lastLatencyMs,
+      int lastDirtyTiles,
+      int totalTiles) {}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+/** 播放忠實度報告：實際注入的時間軸與腳本預定時間軸的比較 */
+@Data
+public class FidelityReport {
+  private String scriptName;
+  private long generatedAt; // 產生時間 (epoch ms)
+  private long loopsPlayed; // 完整播放的循環次數
+  private int eventsPerLoop;
+  private long injectedEvents;
+  private long sampledEvents; // 保留逐筆延遲樣本的事件數，超過上限後只更新統計
+  private long droppedEvents; // 應注入但被跳過的事件
+  private long reorderedEvents; // 比前一個事件更早的事件
+  private long positionChanges; // 暫停、繼續與跳轉的次數，這些位置變動不算遺漏或亂序
+  private double warmupMs; // 播放前預熱的耗時，包含在預備時間內
+  private double firstEventLatenessMs; // 第一個事件的延遲，預熱不足時通常最大
+  private double latenessMeanMs;
+  private double latenessP50Ms;
+  private double latenessP90Ms;
+  private double latenessP99Ms;
+  private double latenessMaxMs;
+  private double maxDriftMs; // 相對第一個事件的延遲，最大的偏移量
+  private double scheduledDurationMs; // 第一個到最後一個注入事件的預定間隔
+  private double actualDurationMs; // 第一個到最後一個注入事件的實際間隔
+  private Map<String, Long> latenessHistogram = new LinkedHashMap<>();
+  private List<LateEvent> worstEvents = new ArrayList<>();
+  private List<String> heldAtEnd = new ArrayList<>(); // 播放結束時仍按住的輸入
+
+  /** 延遲最大的事件 */
+  public record LateEvent(long loop, int index, double latenessMs) {}
+}
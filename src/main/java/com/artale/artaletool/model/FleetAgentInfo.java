@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+/** 協調端登記的代理，時鐘差為最近一次同步的結果 */
+public record FleetAgentInfo(
+    String id,
+    String url,
+    boolean synced,
+    double offsetMs, // 代理時鐘 - 協調端時鐘
+    double uncertaintyMs, // 時鐘差的誤差上限 (最短來回時間的一半)
+    long syncedAt) {} // 同步時間 (epoch ms)
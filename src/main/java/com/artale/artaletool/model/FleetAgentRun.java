@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+/** 代理端最近一次排程的程式執行，時間皆為代理端的播放時鐘 */
+public record FleetAgentRun(
+    String program,
+    String hash,
+    long scheduledNanos, // 預定開始時間
+    boolean started,
+    boolean running,
+    long startLatenessNanos, // 實際開始時間減預定開始時間，尚未開始時為 -1
+    long injected) {}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import java.util.List;
+
+/** 一次同步開始：所有代理在協調端時鐘的 startAtNanos 開始執行同一個程式 */
+public record FleetLaunch(
+    String program,
+    String hash,
+    long createdAt, // epoch ms
+    long startAtNanos, // 協調端時鐘
+    List<AgentStart> agents,
+    Double spreadMs) { // 已開始的代理中，最晚與最早開始的差的上限 (加上時鐘差的誤差)
+
+  /**
+   * 單一代理的排程與結果。
+   *
+   * <p>startSkewMs 為代理回報的實際開始時間減預定時間，尚未開始或失敗時為 null；換算到協調端時鐘還有 ±uncertaintyMs 的誤差。
+   */
+  public record AgentStart(
+      String id,
+      double offsetMs,
+      double uncertaintyMs,
+      long scheduledNanos, // 代理端時鐘
+      Double startSkewMs,
+      String error) {}
+}
@@ -4,6 +4,8 @@
  */
 package com.artale.artaletool.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Data;
 
 @Data
@@ -11,4 +13,8 @@ public class KeyEvent {
   private long timestamp;
   private String key;
   private String action; // "PRESS" or "RELEASE"
+
+  /** 按鍵的標準代碼 (Win32 虛擬鍵碼)，舊腳本沒有此欄位時為 0，播放時改由 key 名稱解析 */
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private int vk;
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+/** 即時鏡像的狀態；沒有擔任領導端或跟隨端時對應欄位為 null */
+public record MirrorStatus(LeaderStatus leader, FollowerStatus follower) {
+
+  public record LeaderStatus(
+      String address, // 監聽位址
+      int followers, // 目前連線的跟隨端數
+      long sentEvents,
+      long sentBatches,
+      long lostEvents, // 擷取佇列已滿而沒有送出的事件 (跟隨端會看到序號跳號)
+      long droppedFollowers) {} // 跟不上而被中斷的跟隨端數
+
+  public record FollowerStatus(
+      String leader, // 領導端位址
+      boolean connected,
+      double clockOffsetMs, // 領導端時鐘 - 本機時鐘
+      double clockUncertaintyMs, // 時鐘差的誤差上限，延遲的誤差與此相同
+      long receivedBatches,
+      long injectedEvents,
+      long sequenceGaps, // 遺失的事件數
+      long latencySamples,
+      double latencyMeanMs, // 從領導端擷取到本機注入完成的延遲
+      double latencyP50Ms,
+      double latencyP99Ms,
+      double latencyMaxMs) {}
+}
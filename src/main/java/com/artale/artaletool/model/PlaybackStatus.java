@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+/**
+ * 播放狀態的不可變快照。
+ *
+ * <p>播放執行緒每處理一個事件最多替換一次，讀取端拿到的永遠是同一時間點的完整狀態。
+ */
+public record PlaybackStatus<E>(
+    boolean isPlaying,
+    boolean isPaused,
+    boolean isLooping,
+    long currentLoop,
+    long totalLoops,
+    E currentEvent,
+    int currentIndex) {
+
+  /** 未播放時的狀態 */
+  public static <E> PlaybackStatus<E> idle(long currentLoop, long totalLoops) {
+    return new PlaybackStatus<>(false, false, false, currentLoop, totalLoops, null, -1);
+  }
+
+  /** 開始播放第 loop 次循環 */
+  public static <E> PlaybackStatus<E> started(boolean isLooping, long loop, long totalLoops) {
+    return new PlaybackStatus<>(true, false, isLooping, loop, totalLoops, null, -1);
+  }
+
+  /** 播放到指定事件 */
+  public PlaybackStatus<E> at(long loop, E event, int index) {
+    return new PlaybackStatus<>(isPlaying, isPaused, isLooping, loop, totalLoops, event, index);
+  }
+
+  /** 暫停或繼續，位置不變 */
+  public PlaybackStatus<E> paused(boolean paused) {
+    return new PlaybackStatus<>(
+        isPlaying, paused, isLooping, currentLoop, totalLoops, currentEvent, currentIndex);
+  }
+
+  /** 播放結束，保留最後的循環次數 */
+  public PlaybackStatus<E> finished() {
+    return idle(currentLoop, totalLoops);
+  }
+}
@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import java.util.List;
+
+/** 腳本程式編譯後的大小與資源 */
+public record ProgramInfo(
+    String name,
+    long sourceBytes, // 原始碼大小
+    int instructions,
+    int codeBytes, // 位元組碼大小
+    int registers,
+    int callDepth,
+    List<String> triggers) {}
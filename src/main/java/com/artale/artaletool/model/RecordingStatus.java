@@ -0,0 +1,11 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+/** 錄製狀態的不可變快照 */
+public record RecordingStatus(boolean isRecording, int eventCount) {
+
+  public static final RecordingStatus IDLE = new RecordingStatus(false, 0);
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+/** 樣板在擷取區域中的比對結果 */
+public record TemplateMatch(
+    String template,
+    String region,
+    boolean found, // 最高分是否達到門檻
+    double score, // 正規化互相關係數 (-1 到 1)
+    int x, // 樣板左上角相對區域的位置
+    int y,
+    int width,
+    int height,
+    int screenX, // 樣板中心的螢幕座標，可直接用於滑鼠播放
+    int screenY,
+    long frameSequence, // 比對所用畫面的序號
+    boolean cached, // 區域內容沒有變化，沿用上一次的結果
+    double elapsedMs) {}
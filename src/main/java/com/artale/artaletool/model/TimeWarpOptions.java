@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import lombok.Data;
+
+/**
+ * 播放時間轉換選項，可由 play-script 與 rewrite-script 的查詢參數綁定。
+ *
+ * <p>未指定 preRollMs / loopGapMs 時使用各服務的預設值；指定 trimLeading / trimTrailing
+ * 時，未指定的預備時間與循環間隔視為頭尾的閒置時間一併移除。
+ */
+@Data
+public class TimeWarpOptions {
+  private double speed = 1.0; // 播放速度倍率
+  private Long maxIdleGapMs; // 事件間隔上限，超過時壓縮到此值
+  private boolean trimLeading; // 移除第一個事件前的閒置時間
+  private boolean trimTrailing; // 移除最後一個事件後的閒置時間
+  private Long preRollMs; // 開始播放前的預備時間
+  private Long loopGapMs; // 循環之間的間隔
+
+  /** 實際使用的預備時間 */
+  public long resolvePreRollMs(long defaultMs) {
+    if (preRollMs != null) {
+      return Math.max(0, preRollMs);
+    }
+    return trimLeading ? 0 : defaultMs;
+  }
+
+  /** 實際使用的循環間隔 */
+  public long resolveLoopGapMs(long defaultMs) {
+    if (loopGapMs != null) {
+      return Math.max(0, loopGapMs);
+    }
+    return trimTrailing ? 0 : defaultMs;
+  }
+}
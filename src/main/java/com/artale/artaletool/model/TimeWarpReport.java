@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import lombok.Data;
+
+/** 時間轉換前後的腳本長度與每小時循環次數 */
+@Data
+public class TimeWarpReport {
+  private String scriptName;
+  private String savedAs;
+  private int eventCount;
+  private long originalDurationMs;
+  private long warpedDurationMs;
+  private long originalLoopPeriodMs; // 腳本長度加上循環間隔
+  private long warpedLoopPeriodMs;
+  private double originalLoopsPerHour;
+  private double warpedLoopsPerHour;
+}
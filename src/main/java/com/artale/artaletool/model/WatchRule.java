@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import lombok.Data;
+
+/**
+ * 畫面監看規則：擷取區域中的條件由不成立變為成立時執行一個動作。
+ *
+ * <p>座標相對於擷取區域 ({@link CaptureRegion}) 的左上角；width 或 height 為 0 時延伸到區域邊界。
+ */
+@Data
+public class WatchRule {
+  private String id; // 規則名稱
+  private String region; // 擷取區域名稱
+  private boolean enabled = true;
+
+  private Condition condition;
+  private int x, y; // PIXEL_COLOR 的像素位置，或平均值與變化範圍的左上角
+  private int width, height; // 平均值與變化範圍的大小
+  private String color; // PIXEL_COLOR 的目標顏色，RRGGBB
+  private int tolerance; // 每個色版允許的差距 (0-255)
+  private Channel channel = Channel.LUMA; // 平均值使用的色版
+  private double threshold; // 平均值的門檻 (0-255)
+  private long cooldownMs = 1000; // 兩次觸發之間的最短間隔
+
+  private Action action;
+  private String script; // PLAY_SCRIPT 的鍵盤腳本名稱
+  private boolean loop;
+  private long count;
+  private String taskId; // 定時按鍵任務 ID
+  private String key; // START_SCHEDULED_KEY 的按鍵
+  private int intervalSeconds; // START_SCHEDULED_KEY 的間隔
+  private String trigger; // SIGNAL_TRIGGER 送出的觸發訊號名稱
+
+  /** 觸發條件 */
+  public enum Condition {
+    /** 像素顏色在容許差距內 */
+    PIXEL_COLOR,
+    /** 範圍平均值低於門檻 */
+    AVERAGE_BELOW,
+    /** 範圍平均值高於門檻 */
+    AVERAGE_ABOVE,
+    /** 範圍內有任何分塊與上一個畫面不同 */
+    CHANGED
+  }
+
+  /** 平均值使用的色版 */
+  public enum Channel {
+    RED,
+    GREEN,
+    BLUE,
+    LUMA
+  }
+
+  /** 條件成立時執行的動作 */
+  public enum Action {
+    PLAY_SCRIPT,
+    STOP_PLAYBACK,
+    START_SCHEDULED_KEY,
+    STOP_SCHEDULED_KEY,
+    /** 送出觸發訊號，喚醒腳本程式的 wait-trigger */
+    SIGNAL_TRIGGER
+  }
+}
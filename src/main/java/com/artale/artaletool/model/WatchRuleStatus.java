@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+/** 單一監看規則的執行狀態 */
+public record WatchRuleStatus(
+    String id,
+    String region,
+    boolean enabled,
+    boolean matched, // 最近一次評估時條件是否成立
+    long evaluations,
+    long skipped, // 範圍內的分塊沒有變化而略過評估的次數
+    long triggers) {}
@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import lombok.Data;
+
+@Data
+public class WindowLayoutEntry {
+  private Long handle; // 視窗句柄 (優先比對)
+  private String titlePattern; // 視窗標題正規表示式 (未指定句柄時使用)
+  private int x, y; // 目標位置
+  private int width, height; // 目標大小
+}
@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class WindowLayoutProfile {
+  private String name; // 版面配置名稱
+  private List<WindowLayoutEntry> windows = new ArrayList<>(); // 各視窗的目標位置大小
+}
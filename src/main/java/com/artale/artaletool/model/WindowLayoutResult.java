@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class WindowLayoutResult {
+  private String profileName; // 版面配置名稱
+  private boolean success; // 是否全部套用成功
+  private int requested; // 版面配置中的項目數
+  private int matched; // 找到對應視窗的項目數
+  private int applied; // 實際移動或調整大小的視窗數
+  private int skipped; // 位置大小未變更而跳過的視窗數
+  private List<String> unmatched = new ArrayList<>(); // 找不到視窗的項目
+  private List<String> failed = new ArrayList<>(); // 套用失敗的視窗
+  private double applyTimeMs; // 套用耗時 (毫秒)
+}
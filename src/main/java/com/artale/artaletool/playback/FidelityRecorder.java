@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import com.artale.artaletool.model.FidelityReport;
+
+/**
+ * 忠實度擷取：包裝播放目標，記錄每個注入動作的時間戳與延遲，播放結束後產生 {@link FidelityReport}。
+ *
+ * <p>只由播放執行緒呼叫。逐筆樣本最多保留 capacity 筆 (陣列隨需要成長)，之後的事件仍計入平均、最大值、分布與遺漏統計。
+ */
+public final class FidelityRecorder<E> implements PlaybackTarget<E> {
+  /** 預設保留的逐筆樣本數 */
+  public static final int DEFAULT_CAPACITY = 1 << 20;
+
+  private static final int WORST_EVENTS = 10;
+  private static final long[] BUCKET_BOUNDS = {
+    100_000, 1_000_000, 5_000_000, 16_000_000, 50_000_000
+  };
+  private static final String[] BUCKET_NAMES = {
+    "<0.1ms", "<1ms", "<5ms", "<16ms", "<50ms", ">=50ms"
+  };
+
+  private final PlaybackTimeline<E> timeline;
+  private final PlaybackClock clock;
+  private final PlaybackTarget<E> delegate;
+  private final int capacity;
+  private final boolean[] held = new boolean[PlaybackTimeline.MAX_INPUTS];
+  // 播放結束時的按住狀態，結束後播放器放開輸入不影響報告
+  private boolean[] heldAtEnd;
+  private final long[] buckets = new long[BUCKET_NAMES.length];
+
+  private long[] loops = new long[1024];
+  private int[] indexes = new int[1024];
+  private long[] lateness = new long[1024];
+  private int samples;
+
+  private long injected;
+  private long dropped;
+  private long reordered;
+  private long positionChanges;
+  private long latenessSum;
+  private long latenessMax = Long.MIN_VALUE;
+  private long firstLateness;
+  private long maxDrift;
+  private long firstInject;
+  private long lastInject;
+  private long lastLateness;
+  private long lastInjectStart;
+  private long currentLoop;
+  private int expectedIndex;
+
+  public FidelityRecorder(
+      PlaybackTimeline<E> timeline, PlaybackClock clock, PlaybackTarget<E> delegate) {
+    this(timeline, clock, delegate, DEFAULT_CAPACITY);
+  }
+
+  public FidelityRecorder(
+      PlaybackTimeline<E> timeline, PlaybackClock clock, PlaybackTarget<E> delegate, int capacity) {
+    this.timeline = timeline;
+    this.clock = clock;
+    this.delegate = delegate;
+    this.capacity = Math.max(1, capacity);
+  }
+
+  @Override
+  public void warmUp(PlaybackTimeline<E> timeline) {
+    delegate.warmUp(timeline);
+  }
+
+  @Override
+  public void inject(E event, int inputId, boolean press) {
+    lastInjectStart = clock.nanoTime();
+    delegate.inject(event, inputId, press);
+    if (inputId >= 0) {
+      held[inputId] = press;
+    }
+  }
+
+  @Override
+  public void press(int inputId) {
+    delegate.press(inputId);
+    held[inputId] = true;
+  }
+
+  @Override
+  public void release(int inputId) {
+    delegate.release(inputId);
+    held[inputId] = false;
+  }
+
+  @Override
+  public void onEvent(long loop, int index, E event, long latenessNanos, long injectNanos) {
+    if (loop != currentLoop) {
+      // 上一個循環結尾沒有注入的事件
+      if (currentLoop != 0) {
+        dropped += Math.max(0, timeline.size() - expectedIndex);
+      }
+      currentLoop = loop;
+      expectedIndex = 0;
+    }
+    if (index > expectedIndex) {
+      dropped += index - expectedIndex;
+    } else if (index < expectedIndex) {
+      reordered++;
+    }
+    expectedIndex = Math.max(expectedIndex, index + 1);
+
+    if (injected == 0) {
+      firstInject = lastInjectStart;
+      firstLateness = latenessNanos;
+    }
+    lastInject = lastInjectStart;
+    lastLateness = latenessNanos;
+    injected++;
+    latenessSum += latenessNanos;
+    latenessMax = Math.max(latenessMax, latenessNanos);
+    maxDrift = Math.max(maxDrift, Math.abs(latenessNanos - firstLateness));
+    buckets[bucket(latenessNanos)]++;
+    if (samples < capacity) {
+      record(loop, index, latenessNanos);
+    }
+    delegate.onEvent(loop, index, event, latenessNanos, injectNanos);
+  }
+
+  @Override
+  public void onPositionChanged(long loop, int nextIndex, E nextEvent, boolean paused) {
+    // 跳轉與暫停造成的位置變動是預期的，從新位置重新比對
+    positionChanges++;
+    currentLoop = loop;
+    expectedIndex = nextIndex;
+    delegate.onPositionChanged(loop, nextIndex, nextEvent, paused);
+  }
+
+  @Override
+  public void onFinished(boolean[] heldAtEnd) {
+    this.heldAtEnd = heldAtEnd.clone();
+    delegate.onFinished(heldAtEnd);
+  }
+
+  /** 產生報告，inputName 將輸入代碼轉為可讀的名稱；播放尚未結束時回報目前按住的輸入 */
+  public FidelityReport report(String scriptName, long loopsPlayed, IntFunction<String> inputName) {
+    FidelityReport report = new FidelityReport();
+    report.setScriptName(scriptName);
+    report.setGeneratedAt(System.currentTimeMillis());
+    report.setLoopsPlayed(loopsPlayed);
+    report.setEventsPerLoop(timeline.size());
+    report.setInjectedEvents(injected);
+    report.setSampledEvents(samples);
+    report.setDroppedEvents(dropped);
+    report.setReorderedEvents(reordered);
+    report.setPositionChanges(positionChanges);
+    for (int i = 0; i < buckets.length; i++) {
+      report.getLatenessHistogram().put(BUCKET_NAMES[i], buckets[i]);
+    }
+    boolean[] stillHeld = heldAtEnd != null ? heldAtEnd : held;
+    for (int inputId = 0; inputId < stillHeld.length; inputId++) {
+      if (stillHeld[inputId]) {
+        report.getHeldAtEnd().add(inputName.apply(inputId));
+      }
+    }
+    if (injected == 0) {
+      return report;
+    }
+
+    report.setFirstEventLatenessMs(millis(firstLateness));
+    report.setLatenessMeanMs(millis((double) latenessSum / injected));
+    report.setLatenessMaxMs(millis(latenessMax));
+    report.setMaxDriftMs(millis(maxDrift));
+    double actual = lastInject - firstInject;
+    report.setActualDurationMs(millis(actual));
+    report.setScheduledDurationMs(millis(actual - (lastLateness - firstLateness)));
+
+    long[] sorted = Arrays.copyOf(lateness, samples);
+    Arrays.sort(sorted);
+    report.setLatenessP50Ms(millis(percentile(sorted, 0.50)));
+    report.setLatenessP90Ms(millis(percentile(sorted, 0.90)));
+    report.setLatenessP99Ms(millis(percentile(sorted, 0.99)));
+    report.setWorstEvents(worstEvents(sorted));
+    return report;
+  }
+
+  private void record(long loop, int index, long latenessNanos) {
+    if (samples == lateness.length) {
+      int size = (int) Math.min((long) capacity, (long) samples * 2);
+      loops = Arrays.copyOf(loops, size);
+      indexes = Arrays.copyOf(indexes, size);
+      lateness = Arrays.copyOf(lateness, size);
+    }
+    loops[samples] = loop;
+    indexes[samples] = index;
+    lateness[samples] = latenessNanos;
+    samples++;
+  }
+
+  private List<FidelityReport.LateEvent> worstEvents(long[] sorted) {
+    List<FidelityReport.LateEvent> worst = new ArrayList<>();
+    if (sorted.length == 0) {
+      return worst;
+    }
+    long threshold = sorted[Math.max(0, sorted.length - WORST_EVENTS)];
+    for (int i = 0; i < samples && worst.size() < WORST_EVENTS; i++) {
+      if (lateness[i] >= threshold) {
+        worst.add(new FidelityReport.LateEvent(loops[i], indexes[i], millis(lateness[i])));
+      }
+    }
+    worst.sort((a, b) -> Double.compare(b.latenessMs(), a.latenessMs()));
+    return worst;
+  }
+
+  private static long percentile(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+  }
+
+  private static int bucket(long latenessNanos) {
+    for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+      if (latenessNanos < BUCKET_BOUNDS[i]) {
+        return i;
+      }
+    }
+    return BUCKET_BOUNDS.length;
+  }
+
+  private static double millis(double nanos) {
+    return nanos / 1_000_000.0;
+  }
+}
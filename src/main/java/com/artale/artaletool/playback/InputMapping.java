@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+/** 把事件對應到會被按住的輸入 (按鍵或滑鼠按鈕)，用來追蹤與復原按住狀態 */
+public interface InputMapping<E> {
+
+  /** 事件影響的輸入代碼 (0 ~ 1023)，不影響按住狀態時回傳 -1 */
+  int inputId(E event);
+
+  /** 事件是否為按下 */
+  boolean isPress(E event);
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+/** 播放引擎使用的時鐘，測試時可替換成虛擬時鐘 */
+public interface PlaybackClock {
+
+  /** 單調遞增的目前時間 (奈秒) */
+  long nanoTime();
+
+  /**
+   * 等待到 deadlineNanos，可能提早返回 (例如被 {@link java.util.concurrent.locks.LockSupport#unpark} 喚醒)。
+   *
+   * <p>呼叫端必須重新檢查時間與停止條件。
+   */
+  void parkUntil(long deadlineNanos);
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+/** 播放引擎的輸出端：注入事件、按下或放開輸入並接收進度通知 */
+public interface PlaybackTarget<E> {
+
+  /**
+   * 播放開始前在播放執行緒上呼叫一次，用於載入注入路徑的類別與原生函式、解析名稱等冷路徑。
+   *
+   * <p>不可注入任何輸入；耗時計入預備時間。
+   */
+  default void warmUp(PlaybackTimeline<E> timeline) {}
+
+  /** 注入一個事件，inputId 與 press 來自時間軸預先計算的 {@link InputMapping} */
+  void inject(E event, int inputId, boolean press);
+
+  /** 按下輸入，用於繼續播放或跳轉後重建按住狀態 */
+  void press(int inputId);
+
+  /** 放開仍被按住的輸入 */
+  void release(int inputId);
+
+  /** 事件注入完成，latenessNanos 為開始注入時間與預定時間的差 */
+  default void onEvent(long loop, int index, E event, long latenessNanos, long injectNanos) {}
+
+  /** 暫停、繼續或跳轉後的位置，nextEvent 為下一個要注入的事件 (循環結尾時為 null) */
+  default void onPositionChanged(long loop, int nextIndex, E nextEvent, boolean paused) {}
+
+  /** 播放結束 (完成或停止)，heldAtEnd 以 inputId 為索引標出結束時仍按住、隨後會被放開的輸入；陣列只在呼叫期間有效 */
+  default void onFinished(boolean[] heldAtEnd) {}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 預先計算的循環時間軸。
+ *
+ * <p>每個事件記錄相對於循環開始的絕對位移，第 N 次循環的事件預定時間為 開始時間 + N × 循環長度 + 位移，不會把前一次循環的誤差帶到下一次。
+ *
+ * <p>循環長度為最後一個事件的位移加上循環間隔，因此下一次循環的第一個事件與上一次循環的最後一個事件之間的間隔固定。
+ *
+ * <p>每 {@link #CHECKPOINT_INTERVAL} 個事件保存一次按住狀態的檢查點，跳轉時從最近的檢查點往後套用，不需從頭重播。
+ */
+public final class PlaybackTimeline<E> {
+  public static final int MAX_INPUTS = 1024;
+  static final int CHECKPOINT_INTERVAL = 256;
+  private static final int HELD_WORDS = MAX_INPUTS / Long.SIZE;
+  private final List<E> events;
+  private final long[] offsets;
+  private final int[] inputIds;
+  private final boolean[] presses;
+  private final long periodNanos;
+  // checkpoints[k] 為第 k × CHECKPOINT_INTERVAL 個事件之前的按住狀態 (位元集合)
+  private final long[][] checkpoints;
+  private final int[] heldAtLoopEnd;
+
+  private PlaybackTimeline(
+      List<E> events, long[] offsets, int[] inputIds, boolean[] presses, long periodNanos) {
+    this.events = events;
+    this.offsets = offsets;
+    this.inputIds = inputIds;
+    this.presses = presses;
+    this.periodNanos = periodNanos;
+    this.checkpoints = computeCheckpoints();
+    this.heldAtLoopEnd = toInputIds(heldBefore(events.size()));
+  }
+
+  /** 由 (可能經過時間轉換的) 事件串流建立時間軸 */
+  public static <E> PlaybackTimeline<E> build(
+      Iterator<TimedEvent<E>> source, InputMapping<E> mapping, long loopGapNanos) {
+    List<E> events = new ArrayList<>();
+    List<Long> offsetList = new ArrayList<>();
+    long offset = 0;
+    while (source.hasNext()) {
+      TimedEvent<E> timed = source.next();
+      offset += timed.gapNanos();
+      events.add(timed.event());
+      offsetList.add(offset);
+    }
+
+    int size = events.size();
+    long[] offsets = new long[size];
+    int[] inputIds = new int[size];
+    boolean[] presses = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      offsets[i] = offsetList.get(i);
+      int inputId = mapping.inputId(events.get(i));
+      inputIds[i] = inputId >= 0 && inputId < MAX_INPUTS ? inputId : -1;
+      presses[i] = mapping.isPress(events.get(i));
+    }
+    long lastOffset = size == 0 ? 0 : offsets[size - 1];
+    return new PlaybackTimeline<>(
+        events, offsets, inputIds, presses, lastOffset + Math.max(0, loopGapNanos));
+  }
+
+  private long[][] computeCheckpoints() {
+    long[][] result = new long[inputIds.length / CHECKPOINT_INTERVAL + 1][];
+    long[] held = new long[HELD_WORDS];
+    for (int i = 0; i <= inputIds.length; i++) {
+      if (i % CHECKPOINT_INTERVAL == 0) {
+        result[i / CHECKPOINT_INTERVAL] = held.clone();
+      }
+      if (i < inputIds.length) {
+        apply(held, i);
+      }
+    }
+    return result;
+  }
+
+  private void apply(long[] held, int index) {
+    int inputId = inputIds[index];
+    if (inputId < 0) {
+      return;
+    }
+    long bit = 1L << (inputId & 63);
+    if (presses[index]) {
+      held[inputId >>> 6] |= bit;
+    } else {
+      held[inputId >>> 6] &= ~bit;
+    }
+  }
+
+  /** 第 index 個事件之前 (尚未注入) 的按住狀態，index 等於 size 時為循環結束時的狀態 */
+  public boolean[] heldBefore(int index) {
+    if (index < 0 || index > size()) {
+      throw new IndexOutOfBoundsException("事件索引超出範圍: " + index);
+    }
+    int checkpoint = index / CHECKPOINT_INTERVAL;
+    long[] held = checkpoints[checkpoint].clone();
+    for (int i = checkpoint * CHECKPOINT_INTERVAL; i < index; i++) {
+      apply(held, i);
+    }
+    boolean[] result = new boolean[MAX_INPUTS];
+    for (int inputId = 0; inputId < MAX_INPUTS; inputId++) {
+      result[inputId] = (held[inputId >>> 6] & (1L << (inputId & 63))) != 0;
+    }
+    return result;
+  }
+
+  /** 位移不小於 offsetNanos 的第一個事件 (二分搜尋)，都小於時回傳 size */
+  public int indexAt(long offsetNanos) {
+    int low = 0;
+    int high = offsets.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (offsets[mid] < offsetNanos) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static int[] toInputIds(boolean[] held) {
+    int count = 0;
+    for (boolean h : held) {
+      if (h) {
+        count++;
+      }
+    }
+    int[] result = new int[count];
+    for (int id = 0, n = 0; id < held.length; id++) {
+      if (held[id]) {
+        result[n++] = id;
+      }
+    }
+    return result;
+  }
+
+  public int size() {
+    return events.size();
+  }
+
+  public E event(int index) {
+    return events.get(index);
+  }
+
+  /** 第 index 個事件相對於循環開始的位移 (奈秒) */
+  public long offset(int index) {
+    return offsets[index];
+  }
+
+  public int inputId(int index) {
+    return inputIds[index];
+  }
+
+  public boolean isPress(int index) {
+    return presses[index];
+  }
+
+  /** 循環長度 (奈秒) */
+  public long periodNanos() {
+    return periodNanos;
+  }
+
+  int[] heldAtLoopEnd() {
+    return heldAtLoopEnd;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.MouseEvent;
+
+/**
+ * 鍵盤與滑鼠腳本與播放事件串流之間的轉換。
+ *
+ * <p>鍵盤事件記錄絕對時間戳記，間隔為相鄰時間戳記的差；滑鼠事件的 delay 為與前一個事件的間隔。
+ */
+public final class ScriptTimings {
+
+  private ScriptTimings() {}
+
+  /** 鍵盤腳本轉為事件串流，第一個事件的間隔為 0 */
+  public static Iterator<TimedEvent<KeyEvent>> keyEvents(List<KeyEvent> events) {
+    return new Iterator<>() {
+      private int index = 0;
+      private long lastTimestamp;
+
+      @Override
+      public boolean hasNext() {
+        return index < events.size();
+      }
+
+      @Override
+      public TimedEvent<KeyEvent> next() {
+        KeyEvent event = events.get(index);
+        long gapMs = index == 0 ? 0 : Math.max(0, event.getTimestamp() - lastTimestamp);
+        lastTimestamp = event.getTimestamp();
+        index++;
+        return new TimedEvent<>(event, TimeUnit.MILLISECONDS.toNanos(gapMs));
+      }
+    };
+  }
+
+  /** 滑鼠腳本轉為事件串流 */
+  public static Iterator<TimedEvent<MouseEvent>> mouseEvents(List<MouseEvent> events) {
+    return new Iterator<>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < events.size();
+      }
+
+      @Override
+      public TimedEvent<MouseEvent> next() {
+        MouseEvent event = events.get(index++);
+        return new TimedEvent<>(
+            event, TimeUnit.MILLISECONDS.toNanos(Math.max(0, event.getDelay())));
+      }
+    };
+  }
+
+  /**
+   * 把轉換後的串流寫回鍵盤腳本，時間戳記從 startTimestamp 開始。
+   *
+   * <p>以累計的奈秒位移四捨五入成毫秒，避免每個間隔各自捨入造成累積誤差。
+   */
+  public static List<KeyEvent> toKeyEvents(
+      Iterator<TimedEvent<KeyEvent>> events, long startTimestamp) {
+    List<KeyEvent> result = new ArrayList<>();
+    long offsetNanos = 0;
+    while (events.hasNext()) {
+      TimedEvent<KeyEvent> timed = events.next();
+      offsetNanos += timed.gapNanos();
+      KeyEvent event = new KeyEvent();
+      event.setKey(timed.event().getKey());
+      event.setAction(timed.event().getAction());
+      event.setVk(timed.event().getVk());
+      event.setTimestamp(startTimestamp + roundToMillis(offsetNanos));
+      result.add(event);
+    }
+    return result;
+  }
+
+  /** 把轉換後的串流寫回滑鼠腳本，delay 同樣由累計位移計算，時間戳記從原錄製開始時間起算 */
+  public static List<MouseEvent> toMouseEvents(Iterator<TimedEvent<MouseEvent>> events) {
+    List<MouseEvent> result = new ArrayList<>();
+    long offsetNanos = 0;
+    long lastOffsetMs = 0;
+    long startTimestamp = 0;
+    while (events.hasNext()) {
+      TimedEvent<MouseEvent> timed = events.next();
+      MouseEvent source = timed.event();
+      if (result.isEmpty()) {
+        startTimestamp = source.getTimestamp() - Math.max(0, source.getDelay());
+      }
+      offsetNanos += timed.gapNanos();
+      long offsetMs = roundToMillis(offsetNanos);
+      MouseEvent event = new MouseEvent();
+      event.setAction(source.getAction());
+      event.setButton(source.getButton());
+      event.setX(source.getX());
+      event.setY(source.getY());
+      event.setTimestamp(startTimestamp + offsetMs);
+      event.setDelay(offsetMs - lastOffsetMs);
+      result.add(event);
+      lastOffsetMs = offsetMs;
+    }
+    return result;
+  }
+
+  private static long roundToMillis(long nanos) {
+    return (nanos + 500_000) / 1_000_000;
+  }
+}
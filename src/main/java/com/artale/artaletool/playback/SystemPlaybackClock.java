@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 以 System.nanoTime 為基準的時鐘。
+ *
+ * <p>park 的精度受作業系統計時器影響 (Windows 約 1 ms 以上)，因此距離期限 1 ms 以內改為自旋等待。
+ */
+public final class SystemPlaybackClock implements PlaybackClock {
+  public static final SystemPlaybackClock INSTANCE = new SystemPlaybackClock();
+  private static final long SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private SystemPlaybackClock() {}
+
+  @Override
+  public long nanoTime() {
+    return System.nanoTime();
+  }
+
+  @Override
+  public void parkUntil(long deadlineNanos) {
+    long remaining = deadlineNanos - System.nanoTime();
+    if (remaining > SPIN_NANOS) {
+      LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+    } else if (remaining > 0) {
+      Thread.onSpinWait();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import com.artale.artaletool.model.TimeWarpOptions;
+import com.artale.artaletool.model.TimeWarpReport;
+
+/**
+ * 載入腳本與播放之間的時間轉換管線。
+ *
+ * <p>以串流方式逐一轉換事件間隔，不複製整份腳本；各階段依序為壓縮閒置間隔、速度倍率、移除開頭閒置。
+ */
+public final class TimeWarp {
+  private static final TimeWarp NONE = new TimeWarp(TimeWarpStage.identity());
+  private final TimeWarpStage stage;
+
+  private TimeWarp(TimeWarpStage stage) {
+    this.stage = stage;
+  }
+
+  /** 不做任何轉換 */
+  public static TimeWarp none() {
+    return NONE;
+  }
+
+  /** 依選項組合轉換階段，選項為 null 時不做轉換 */
+  public static TimeWarp of(TimeWarpOptions options) {
+    if (options == null) {
+      return NONE;
+    }
+    TimeWarpStage stage = TimeWarpStage.identity();
+    if (options.getMaxIdleGapMs() != null) {
+      // 上限以錄製時間計算，再與其他間隔一起套用速度倍率
+      stage =
+          stage.andThen(
+              TimeWarpStage.clampIdleGaps(
+                  TimeUnit.MILLISECONDS.toNanos(options.getMaxIdleGapMs())));
+    }
+    if (options.getSpeed() != 1.0) {
+      stage = stage.andThen(TimeWarpStage.speed(options.getSpeed()));
+    }
+    if (options.isTrimLeading()) {
+      stage = stage.andThen(TimeWarpStage.trimLeading());
+    }
+    return new TimeWarp(stage);
+  }
+
+  /** 轉換事件串流 */
+  public <E> Iterator<TimedEvent<E>> apply(Iterator<TimedEvent<E>> source) {
+    if (this == NONE) {
+      return source;
+    }
+    return new Iterator<>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return source.hasNext();
+      }
+
+      @Override
+      public TimedEvent<E> next() {
+        TimedEvent<E> timed = source.next();
+        return new TimedEvent<>(timed.event(), Math.max(0, stage.apply(index++, timed.gapNanos())));
+      }
+    };
+  }
+
+  /** 串流中所有間隔的總和，即腳本從開頭到最後一個事件的長度 */
+  public static <E> long durationNanos(Iterator<TimedEvent<E>> events) {
+    long total = 0;
+    while (events.hasNext()) {
+      total += events.next().gapNanos();
+    }
+    return total;
+  }
+
+  /** 建立轉換前後的比較報告，循環長度為腳本長度加上循環間隔 */
+  public static TimeWarpReport report(
+      String scriptName,
+      String savedAs,
+      int eventCount,
+      long originalDurationNanos,
+      long originalLoopGapMs,
+      long warpedDurationNanos,
+      long warpedLoopGapMs) {
+    TimeWarpReport report = new TimeWarpReport();
+    report.setScriptName(scriptName);
+    report.setSavedAs(savedAs);
+    report.setEventCount(eventCount);
+    report.setOriginalDurationMs(TimeUnit.NANOSECONDS.toMillis(originalDurationNanos));
+    report.setWarpedDurationMs(TimeUnit.NANOSECONDS.toMillis(warpedDurationNanos));
+    report.setOriginalLoopPeriodMs(report.getOriginalDurationMs() + originalLoopGapMs);
+    report.setWarpedLoopPeriodMs(report.getWarpedDurationMs() + warpedLoopGapMs);
+    report.setOriginalLoopsPerHour(loopsPerHour(report.getOriginalLoopPeriodMs()));
+    report.setWarpedLoopsPerHour(loopsPerHour(report.getWarpedLoopPeriodMs()));
+    return report;
+  }
+
+  /** 每小時可完成的循環次數，循環長度為 0 時回傳 0 */
+  public static double loopsPerHour(long loopPeriodMs) {
+    if (loopPeriodMs <= 0) {
+      return 0;
+    }
+    return TimeUnit.HOURS.toMillis(1) / (double) loopPeriodMs;
+  }
+}
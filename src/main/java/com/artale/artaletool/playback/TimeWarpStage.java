@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+/** 時間轉換階段：依事件在腳本中的位置轉換它之前的間隔 */
+@FunctionalInterface
+public interface TimeWarpStage {
+
+  long apply(int index, long gapNanos);
+
+  /** 先套用此階段，再套用 next */
+  default TimeWarpStage andThen(TimeWarpStage next) {
+    return (index, gapNanos) -> next.apply(index, apply(index, gapNanos));
+  }
+
+  static TimeWarpStage identity() {
+    return (index, gapNanos) -> gapNanos;
+  }
+
+  /** 依速度倍率縮放所有間隔 */
+  static TimeWarpStage speed(double factor) {
+    if (!(factor > 0) || Double.isInfinite(factor)) {
+      throw new IllegalArgumentException("播放速度必須大於 0: " + factor);
+    }
+    return (index, gapNanos) -> Math.round(gapNanos / factor);
+  }
+
+  /** 把超過上限的閒置間隔壓縮到上限 */
+  static TimeWarpStage clampIdleGaps(long maxGapNanos) {
+    if (maxGapNanos < 0) {
+      throw new IllegalArgumentException("間隔上限不可為負數: " + maxGapNanos);
+    }
+    return (index, gapNanos) -> Math.min(gapNanos, maxGapNanos);
+  }
+
+  /** 移除第一個事件前的閒置時間 */
+  static TimeWarpStage trimLeading() {
+    return (index, gapNanos) -> index == 0 ? 0 : gapNanos;
+  }
+}
@@ -0,0 +1,8 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+/** 播放串流中的一個事件，gapNanos 為與前一個事件 (或腳本開頭) 的間隔 */
+public record TimedEvent<E>(E event, long gapNanos) {}
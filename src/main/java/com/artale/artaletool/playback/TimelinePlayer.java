@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 依絕對期限播放 {@link PlaybackTimeline} 的引擎，鍵盤與滑鼠播放共用。
+ *
+ * <p>每個事件的期限都由播放開始時間直接計算，單一事件的延遲不會累積到後面的事件或循環；循環次數以 long 計算，0 表示無限循環。
+ *
+ * <p>播放執行緒會追蹤被按住的輸入，在循環交界放開上一次循環結束時仍按住的輸入，並在播放結束或停止時通知輸出端 ({@link PlaybackTarget#onFinished})
+ * 後全部放開。
+ *
+ * <p>開始前先在播放執行緒上預熱 (輸出端的冷路徑、時間軸的記憶體分頁與等待路徑)，預熱耗時計入預備時間，第一個事件仍在絕對時間開始。
+ *
+ * <p>暫停、繼續與跳轉可在任何執行緒上呼叫，實際處理都在播放執行緒上進行：暫停時放開所有輸入並記住時間軸位置，繼續時按回該位置應按住的輸入並平移開始時間。
+ */
+public final class TimelinePlayer<E> {
+  private static final long NO_SEEK = -1;
+  private static final int WARMUP_PARKS = 4;
+  private static final long WARMUP_PARK_NANOS = 50_000;
+  private final PlaybackTimeline<E> timeline;
+  private final PlaybackClock clock;
+  private final PlaybackTarget<E> target;
+  private final boolean[] held = new boolean[PlaybackTimeline.MAX_INPUTS];
+  private final AtomicLong seekRequest = new AtomicLong(NO_SEEK);
+  private volatile boolean running = true;
+  private volatile boolean pauseRequested = false;
+  private volatile boolean paused = false;
+  private volatile Thread runner;
+  private volatile long currentLoop = 0;
+  private volatile int nextIndex = 0;
+  private volatile long warmupNanos = -1;
+  private volatile long firstEventLatenessNanos = -1;
+  private long warmupChecksum; // 保存預熱迴圈的結果，避免被 JIT 當成無用程式碼消除
+  // 以下只由播放執行緒讀寫
+  private long start;
+  private long loop;
+  private int index;
+
+  public TimelinePlayer(
+      PlaybackTimeline<E> timeline, PlaybackClock clock, PlaybackTarget<E> target) {
+    this.timeline = timeline;
+    this.clock = clock;
+    this.target = target;
+  }
+
+  /** 在目前執行緒上播放 loops 次 (0 表示直到停止)，回傳完整播放的循環次數 */
+  public long play(long loops) {
+    return play(loops, 0);
+  }
+
+  /**
+   * 等待 startDelayNanos 後播放 loops 次。
+   *
+   * <p>預備時間也在同一條時間軸上，期間可以停止、暫停或跳轉。
+   */
+  public long play(long loops, long startDelayNanos) {
+    runner = Thread.currentThread();
+    loop = 0;
+    index = 0;
+    try {
+      if (timeline.size() == 0) {
+        return 0;
+      }
+      long requested = clock.nanoTime();
+      warmUp();
+      long warmed = clock.nanoTime();
+      warmupNanos = warmed - requested;
+      // 預備時間從呼叫時起算，預熱超過預備時間時才順延
+      start = Math.max(requested + Math.max(0, startDelayNanos), warmed);
+      while (running) {
+        if (index == timeline.size()) {
+          loop++;
+          index = 0;
+          if (loops != 0 && loop >= loops) {
+            // 最後一次循環結束時仍按住的輸入留到結束時回報並放開
+            break;
+          }
+          releaseHeldAtLoopEnd();
+        }
+        currentLoop = loop + 1;
+        nextIndex = index;
+        if (applyControl()) {
+          continue;
+        }
+        long deadline = start + loop * timeline.periodNanos() + timeline.offset(index);
+        if (clock.nanoTime() < deadline) {
+          clock.parkUntil(deadline);
+          if (Thread.interrupted()) {
+            running = false;
+          }
+          continue;
+        }
+        injectNext(deadline);
+      }
+      return loop;
+    } finally {
+      target.onFinished(held);
+      releaseAll();
+      paused = false;
+      runner = null;
+    }
+  }
+
+  /** 停止播放 */
+  public void stop() {
+    running = false;
+    wakeRunner();
+  }
+
+  /** 暫停播放，保留時間軸位置 */
+  public void pause() {
+    pauseRequested = true;
+    wakeRunner();
+  }
+
+  /** 從暫停的位置繼續播放 */
+  public void resume() {
+    pauseRequested = false;
+    wakeRunner();
+  }
+
+  /** 跳轉到目前循環內的時間位置 (相對循環開始，奈秒)；暫停中跳轉會維持暫停 */
+  public void seekToOffset(long offsetNanos) {
+    seekRequest.set(Math.max(0, Math.min(offsetNanos, timeline.periodNanos())));
+    wakeRunner();
+  }
+
+  /** 跳轉到目前循環內的第 index 個事件，該事件會在跳轉後立即注入 */
+  public void seekToIndex(int index) {
+    if (index < 0 || index > timeline.size()) {
+      throw new IndexOutOfBoundsException("事件索引超出範圍: " + index);
+    }
+    seekToOffset(index == timeline.size() ? timeline.periodNanos() : timeline.offset(index));
+  }
+
+  /** 預熱耗時，尚未預熱時為 -1 */
+  public long warmupNanos() {
+    return warmupNanos;
+  }
+
+  /** 第一個注入事件的延遲，尚未注入時為 -1 */
+  public long firstEventLatenessNanos() {
+    return firstEventLatenessNanos;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public boolean isPaused() {
+    return paused;
+  }
+
+  /** 目前播放的循環 (從 1 開始) */
+  public long currentLoop() {
+    return currentLoop;
+  }
+
+  /** 下一個要注入的事件索引 */
+  public int nextIndex() {
+    return nextIndex;
+  }
+
+  private void wakeRunner() {
+    Thread thread = runner;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private void injectNext(long deadline) {
+    E event = timeline.event(index);
+    int inputId = timeline.inputId(index);
+    boolean press = timeline.isPress(index);
+    long injectStart = clock.nanoTime();
+    target.inject(event, inputId, press);
+    long injectEnd = clock.nanoTime();
+    if (inputId >= 0) {
+      held[inputId] = press;
+    }
+    if (firstEventLatenessNanos < 0) {
+      firstEventLatenessNanos = injectStart - deadline;
+    }
+    target.onEvent(loop + 1, index, event, injectStart - deadline, injectEnd - injectStart);
+    index++;
+  }
+
+  /**
+   * 播放前的預熱：輸出端載入注入路徑，依序讀過整個時間軸讓陣列分頁常駐，並走過幾次等待路徑。
+   *
+   * <p>等待使用實際時間的短暫 park，不推進播放時鐘。
+   */
+  private void warmUp() {
+    target.warmUp(timeline);
+    long checksum = 0;
+    for (int i = 0; i < timeline.size(); i++) {
+      checksum += timeline.offset(i) + timeline.inputId(i) + (timeline.isPress(i) ? 1 : 0);
+      if (timeline.event(i) == null) {
+        checksum++;
+      }
+    }
+    warmupChecksum = checksum;
+    for (int i = 0; i < WARMUP_PARKS && running; i++) {
+      clock.nanoTime();
+      LockSupport.parkNanos(this, WARMUP_PARK_NANOS);
+    }
+  }
+
+  /** 處理暫停與跳轉請求，位置有變動時回傳 true，呼叫端需重新計算期限 */
+  private boolean applyControl() {
+    boolean changed = false;
+    long seek = seekRequest.getAndSet(NO_SEEK);
+    if (seek != NO_SEEK) {
+      seek(seek);
+      changed = true;
+    }
+    if (pauseRequested && running) {
+      pauseUntilResumed();
+      changed = true;
+    }
+    return changed;
+  }
+
+  /** 跳轉到目前循環內的位移，依檢查點重建按住狀態，並讓開始時間對齊到跳轉的位置 */
+  private void seek(long offsetNanos) {
+    index = timeline.indexAt(offsetNanos);
+    nextIndex = index;
+    reconcile(timeline.heldBefore(index));
+    start = clock.nanoTime() - loop * timeline.periodNanos() - offsetNanos;
+    target.onPositionChanged(loop + 1, index, nextEvent(), false);
+  }
+
+  private void pauseUntilResumed() {
+    long position = clock.nanoTime() - start;
+    releaseAll();
+    paused = true;
+    target.onPositionChanged(loop + 1, index, nextEvent(), true);
+    while (pauseRequested && running) {
+      long seek = seekRequest.getAndSet(NO_SEEK);
+      if (seek != NO_SEEK) {
+        index = timeline.indexAt(seek);
+        nextIndex = index;
+        position = loop * timeline.periodNanos() + seek;
+        target.onPositionChanged(loop + 1, index, nextEvent(), true);
+      }
+      LockSupport.park(this);
+      if (Thread.interrupted()) {
+        running = false;
+      }
+    }
+    paused = false;
+    if (!running) {
+      return;
+    }
+    reconcile(timeline.heldBefore(index));
+    start = clock.nanoTime() - position;
+    target.onPositionChanged(loop + 1, index, nextEvent(), false);
+  }
+
+  private E nextEvent() {
+    return index < timeline.size() ? timeline.event(index) : null;
+  }
+
+  /** 讓實際按住狀態與目標一致：多按的放開，少按的按下 */
+  private void reconcile(boolean[] wanted) {
+    for (int inputId = 0; inputId < held.length; inputId++) {
+      if (held[inputId] && !wanted[inputId]) {
+        target.release(inputId);
+        held[inputId] = false;
+      }
+    }
+    for (int inputId = 0; inputId < held.length; inputId++) {
+      if (!held[inputId] && wanted[inputId]) {
+        target.press(inputId);
+        held[inputId] = true;
+      }
+    }
+  }
+
+  /** 循環交界：放開循環結束時仍按住的輸入，下一次循環從沒有按住任何輸入的狀態開始 */
+  private void releaseHeldAtLoopEnd() {
+    for (int inputId : timeline.heldAtLoopEnd()) {
+      if (held[inputId]) {
+        target.release(inputId);
+        held[inputId] = false;
+      }
+    }
+  }
+
+  private void releaseAll() {
+    for (int inputId = 0; inputId < held.length; inputId++) {
+      if (held[inputId]) {
+        target.release(inputId);
+        held[inputId] = false;
+      }
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 虛擬時鐘：等待時直接把時間推進到期限，不實際睡眠。
+ *
+ * <p>數小時的播放可在數毫秒內跑完，用於驗證與效能測試；多個播放執行緒共用時，時間只會往前推進。
+ */
+public final class VirtualPlaybackClock implements PlaybackClock {
+  private final AtomicLong now;
+
+  public VirtualPlaybackClock() {
+    this(0);
+  }
+
+  public VirtualPlaybackClock(long startNanos) {
+    this.now = new AtomicLong(startNanos);
+  }
+
+  @Override
+  public long nanoTime() {
+    return now.get();
+  }
+
+  @Override
+  public void parkUntil(long deadlineNanos) {
+    now.accumulateAndGet(deadlineNanos, Math::max);
+  }
+
+  /** 手動推進時間 */
+  public void advance(long nanos) {
+    now.addAndGet(nanos);
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+/**
+ * 腳本位元組碼的操作碼與條件代碼。
+ *
+ * <p>每個指令是一個操作碼加上固定個數的 int 運算元，跳躍目標為程式碼陣列的索引。r 表示暫存器編號，imm 表示立即值。
+ */
+public final class Op {
+  /** 結束 */
+  public static final int HALT = 0;
+
+  /** 按下按鍵：vk */
+  public static final int KEY_DOWN = 1;
+
+  /** 放開按鍵：vk */
+  public static final int KEY_UP = 2;
+
+  /** 移動游標：x, y */
+  public static final int MOUSE_MOVE = 3;
+
+  /** 按下滑鼠按鈕：button (1=左鍵, 2=右鍵, 3=中鍵) */
+  public static final int MOUSE_DOWN = 4;
+
+  /** 放開滑鼠按鈕：button */
+  public static final int MOUSE_UP = 5;
+
+  /** 等待：imm 毫秒 */
+  public static final int WAIT = 6;
+
+  /** 等待：暫存器 r 的毫秒數 */
+  public static final int WAIT_REG = 7;
+
+  /** 等待觸發訊號：trigger, timeoutMs (-1 為不逾時) */
+  public static final int WAIT_TRIGGER = 8;
+
+  /** r = imm */
+  public static final int SET = 9;
+
+  /** r += imm */
+  public static final int ADD = 10;
+
+  /** r = r2 */
+  public static final int COPY = 11;
+
+  /** 跳到 target */
+  public static final int JUMP = 12;
+
+  /** r 減 1，仍大於 0 時跳到 target：r, target */
+  public static final int LOOP = 13;
+
+  /** 條件不成立時跳到 target：cond, a, b, target */
+  public static final int BRANCH_FALSE = 14;
+
+  /** 呼叫子腳本：target */
+  public static final int CALL = 15;
+
+  /** 從子腳本返回 */
+  public static final int RET = 16;
+
+  /** 按鍵 a 被按住 */
+  public static final int IF_HELD = 0;
+
+  public static final int IF_NOT_HELD = 1;
+
+  /** 上一個 wait-trigger 收到訊號 (不是逾時) */
+  public static final int IF_TRIGGERED = 2;
+
+  public static final int IF_NOT_TRIGGERED = 3;
+
+  /** 暫存器 a 與立即值 b 比較 */
+  public static final int IF_EQ = 4;
+
+  public static final int IF_NE = 5;
+  public static final int IF_LT = 6;
+  public static final int IF_GE = 7;
+  public static final int IF_GT = 8;
+  public static final int IF_LE = 9;
+
+  private static final int[] LENGTHS = {1, 2, 2, 3, 2, 2, 2, 2, 3, 3, 3, 3, 2, 3, 5, 2, 1};
+  private static final String[] NAMES = {
+    "HALT",
+    "KEY_DOWN",
+    "KEY_UP",
+    "MOUSE_MOVE",
+    "MOUSE_DOWN",
+    "MOUSE_UP",
+    "WAIT",
+    "WAIT_REG",
+    "WAIT_TRIGGER",
+    "SET",
+    "ADD",
+    "COPY",
+    "JUMP",
+    "LOOP",
+    "BRANCH_FALSE",
+    "CALL",
+    "RET"
+  };
+  private static final String[] CONDITIONS = {
+    "HELD", "NOT_HELD", "TRIGGERED", "NOT_TRIGGERED", "EQ", "NE", "LT", "GE", "GT", "LE"
+  };
+
+  private Op() {}
+
+  /** 指令長度 (含操作碼) */
+  public static int length(int op) {
+    return LENGTHS[op];
+  }
+
+  public static String name(int op) {
+    return NAMES[op];
+  }
+
+  public static String conditionName(int cond) {
+    return CONDITIONS[cond];
+  }
+
+  /** 相反的條件；條件代碼兩兩成對排列 */
+  static int negate(int cond) {
+    return cond ^ 1;
+  }
+}
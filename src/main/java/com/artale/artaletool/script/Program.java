@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 編譯完成的腳本程式：位元組碼、暫存器數量、呼叫深度與使用的觸發訊號名稱。
+ *
+ * <p>主程式從索引 0 開始、以 HALT 結束，子腳本接在後面、以 RET 結束。子腳本不可遞迴，因此呼叫堆疊與暫存器都能在執行前一次配置。
+ */
+public final class Program {
+  private final String name;
+  final int[] code;
+  private final int registerCount;
+  private final int callDepth;
+  private final String[] triggers;
+  private final Map<String, Integer> variables;
+  private final int instructionCount;
+  private String contentHash; // 第一次使用時計算
+
+  Program(
+      String name,
+      int[] code,
+      int registerCount,
+      int callDepth,
+      String[] triggers,
+      Map<String, Integer> variables) {
+    this.name = name;
+    this.code = code;
+    this.registerCount = registerCount;
+    this.callDepth = callDepth;
+    this.triggers = triggers;
+    this.variables = Map.copyOf(variables);
+    int count = 0;
+    for (int pc = 0; pc < code.length; pc += Op.length(code[pc])) {
+      count++;
+    }
+    this.instructionCount = count;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** 位元組碼的複本 */
+  public int[] code() {
+    return code.clone();
+  }
+
+  public int getInstructionCount() {
+    return instructionCount;
+  }
+
+  /** 位元組碼大小 (位元組) */
+  public int getCodeBytes() {
+    return code.length * Integer.BYTES;
+  }
+
+  /** 暫存器數量，包含變數與迴圈計數器 */
+  public int getRegisterCount() {
+    return registerCount;
+  }
+
+  /** 最深的子腳本呼叫層數 */
+  public int getCallDepth() {
+    return callDepth;
+  }
+
+  /** 觸發訊號名稱，索引即 WAIT_TRIGGER 的運算元 */
+  public List<String> getTriggers() {
+    return List.of(triggers);
+  }
+
+  /** 變數名稱與暫存器編號 */
+  public Map<String, Integer> getVariables() {
+    return variables;
+  }
+
+  /**
+   * 位元組碼與暫存器數量的 SHA-256 (十六進位)，內容相同的程式雜湊相同，與名稱無關。
+   *
+   * <p>觸發訊號以索引引用，名稱在執行時才解析，因此不列入雜湊。
+   */
+  public String contentHash() {
+    String hash = contentHash;
+    if (hash == null) {
+      try {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ByteBuffer bytes = ByteBuffer.allocate((code.length + 1) * Integer.BYTES);
+        bytes.putInt(registerCount);
+        bytes.asIntBuffer().put(code);
+        hash = HexFormat.of().formatHex(digest.digest(bytes.array()));
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+      contentHash = hash;
+    }
+    return hash;
+  }
+
+  String trigger(int index) {
+    return triggers[index];
+  }
+
+  int triggerCount() {
+    return triggers.length;
+  }
+
+  /** 反組譯，每個指令一行：索引、名稱與運算元 */
+  public List<String> disassemble() {
+    List<String> lines = new ArrayList<>(instructionCount);
+    for (int pc = 0; pc < code.length; pc += Op.length(code[pc])) {
+      int op = code[pc];
+      StringBuilder line = new StringBuilder();
+      line.append(String.format("%5d  %s", pc, Op.name(op)));
+      int[] operands = Arrays.copyOfRange(code, pc + 1, pc + Op.length(op));
+      if (op == Op.BRANCH_FALSE) {
+        line.append(' ').append(Op.conditionName(operands[0]));
+        operands = Arrays.copyOfRange(operands, 1, operands.length);
+      } else if (op == Op.WAIT_TRIGGER) {
+        line.append(' ').append(triggers[operands[0]]);
+        operands = Arrays.copyOfRange(operands, 1, operands.length);
+      }
+      for (int operand : operands) {
+        line.append(' ').append(operand);
+      }
+      lines.add(line.toString());
+    }
+    return lines;
+  }
+}
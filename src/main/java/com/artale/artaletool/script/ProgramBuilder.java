@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** 逐一附加指令的位元組碼緩衝區，並配置暫存器與觸發訊號編號 */
+final class ProgramBuilder {
+  private int[] code = new int[64];
+  private int size;
+  private int registerCount;
+  private final Map<String, Integer> variables = new LinkedHashMap<>();
+  private final List<String> triggers = new ArrayList<>();
+
+  /** 附加一個指令，回傳指令的索引 */
+  int emit(int op, int... operands) {
+    if (operands.length != Op.length(op) - 1) {
+      throw new IllegalStateException(Op.name(op) + " 的運算元個數錯誤");
+    }
+    int at = size;
+    ensure(size + 1 + operands.length);
+    code[size++] = op;
+    for (int operand : operands) {
+      code[size++] = operand;
+    }
+    return at;
+  }
+
+  /** 下一個指令的索引 */
+  int position() {
+    return size;
+  }
+
+  /** 改寫已附加的運算元，用於補上往前跳的目標 */
+  void patch(int index, int value) {
+    code[index] = value;
+  }
+
+  int newRegister() {
+    return registerCount++;
+  }
+
+  /** 變數的暫存器，第一次使用時配置 */
+  int variable(String name) {
+    return variables.computeIfAbsent(name, n -> newRegister());
+  }
+
+  /** 已配置的變數暫存器，沒有時回傳 -1 */
+  int existingVariable(String name) {
+    Integer register = variables.get(name);
+    return register != null ? register : -1;
+  }
+
+  int trigger(String name) {
+    int index = triggers.indexOf(name);
+    if (index < 0) {
+      triggers.add(name);
+      index = triggers.size() - 1;
+    }
+    return index;
+  }
+
+  Program build(String name, int callDepth) {
+    return new Program(
+        name,
+        Arrays.copyOf(code, size),
+        registerCount,
+        callDepth,
+        triggers.toArray(new String[0]),
+        variables);
+  }
+
+  private void ensure(int capacity) {
+    if (capacity > code.length) {
+      code = Arrays.copyOf(code, Math.max(capacity, code.length * 2));
+    }
+  }
+}
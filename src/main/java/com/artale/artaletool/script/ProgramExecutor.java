@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+/** 程式的執行方式：{@link ProgramInterpreter} 逐指令直譯，{@link ProgramJit} 編譯成 JVM 類別 */
+public interface ProgramExecutor {
+
+  /** 在目前執行緒上執行，第一個指令的預定時間為 startNanos；執行到結尾時回傳 true，被停止時回傳 false */
+  boolean run(ProgramRuntime runtime, long startNanos);
+
+  /** 執行方式的名稱 (interpreter 或 jit) */
+  String backend();
+}
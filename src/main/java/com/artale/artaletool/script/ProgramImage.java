@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 可傳送到其他機器的已編譯程式。子腳本已在編譯時展開，接收端不需要原始碼目錄。
+ *
+ * <p>接收端以 {@link #toProgram()} 還原，位元組碼經過雜湊與 {@link ProgramVerifier} 檢查才會執行。
+ */
+public record ProgramImage(
+    String name,
+    String hash, // Program.contentHash()
+    int[] code,
+    int registers,
+    int callDepth,
+    List<String> triggers,
+    Map<String, Integer> variables) {
+
+  public static ProgramImage of(Program program) {
+    return new ProgramImage(
+        program.getName(),
+        program.contentHash(),
+        program.code(),
+        program.getRegisterCount(),
+        program.getCallDepth(),
+        program.getTriggers(),
+        program.getVariables());
+  }
+
+  /**
+   * 還原並驗證程式。
+   *
+   * @throws IllegalArgumentException 雜湊不符或位元組碼不合法
+   */
+  public Program toProgram() {
+    if (code == null || registers < 0 || callDepth < 0) {
+      throw new IllegalArgumentException("程式內容不完整: " + name);
+    }
+    Program program =
+        new Program(
+            name,
+            code.clone(),
+            registers,
+            callDepth,
+            triggers == null ? new String[0] : triggers.toArray(new String[0]),
+            variables == null ? Map.of() : variables);
+    if (!program.contentHash().equals(hash)) {
+      throw new IllegalArgumentException("程式 " + name + " 的雜湊不符");
+    }
+    ProgramVerifier.verify(program);
+    return program;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+/**
+ * 直接解讀位元組碼執行程式。
+ *
+ * <p>呼叫堆疊在開始時依程式的最大呼叫深度配置一次，暫存器由 {@link ProgramRuntime} 保存，逐指令執行時不配置物件。每個指令前檢查停止旗標，沒有等待的無窮迴圈也能被停止。
+ *
+ * <p>語意的參考實作，其他執行方式必須產生相同的注入時間軸。
+ */
+public final class ProgramInterpreter implements ProgramExecutor {
+  private final Program program;
+
+  public ProgramInterpreter(Program program) {
+    this.program = program;
+  }
+
+  @Override
+  public boolean run(ProgramRuntime runtime, long startNanos) {
+    int[] code = program.code;
+    int[] registers = runtime.registers;
+    int[] stack = new int[program.getCallDepth()];
+    int sp = 0;
+    int pc = 0;
+    runtime.begin(startNanos);
+    try {
+      while (runtime.isRunning()) {
+        switch (code[pc]) {
+          case Op.HALT -> {
+            return true;
+          }
+          case Op.KEY_DOWN -> {
+            runtime.keyDown(code[pc + 1]);
+            pc += 2;
+          }
+          case Op.KEY_UP -> {
+            runtime.keyUp(code[pc + 1]);
+            pc += 2;
+          }
+          case Op.MOUSE_MOVE -> {
+            runtime.mouseMove(code[pc + 1], code[pc + 2]);
+            pc += 3;
+          }
+          case Op.MOUSE_DOWN -> {
+            runtime.mouseDown(code[pc + 1]);
+            pc += 2;
+          }
+          case Op.MOUSE_UP -> {
+            runtime.mouseUp(code[pc + 1]);
+            pc += 2;
+          }
+          case Op.WAIT -> {
+            runtime.waitMillis(code[pc + 1]);
+            pc += 2;
+          }
+          case Op.WAIT_REG -> {
+            runtime.waitMillis(registers[code[pc + 1]]);
+            pc += 2;
+          }
+          case Op.WAIT_TRIGGER -> {
+            runtime.waitTrigger(code[pc + 1], code[pc + 2]);
+            pc += 3;
+          }
+          case Op.SET -> {
+            registers[code[pc + 1]] = code[pc + 2];
+            pc += 3;
+          }
+          case Op.ADD -> {
+            registers[code[pc + 1]] += code[pc + 2];
+            pc += 3;
+          }
+          case Op.COPY -> {
+            registers[code[pc + 1]] = registers[code[pc + 2]];
+            pc += 3;
+          }
+          case Op.JUMP -> pc = code[pc + 1];
+          case Op.LOOP -> pc = --registers[code[pc + 1]] > 0 ? code[pc + 2] : pc + 3;
+          case Op.BRANCH_FALSE ->
+              pc = runtime.test(code[pc + 1], code[pc + 2], code[pc + 3]) ? pc + 5 : code[pc + 4];
+          case Op.CALL -> {
+            stack[sp++] = pc + 2;
+            pc = code[pc + 1];
+          }
+          case Op.RET -> pc = stack[--sp];
+          default -> throw new IllegalStateException("未知的操作碼 " + code[pc] + " 位於 " + pc);
+        }
+      }
+      return false;
+    } finally {
+      runtime.finish();
+    }
+  }
+
+  @Override
+  public String backend() {
+    return "interpreter";
+  }
+}
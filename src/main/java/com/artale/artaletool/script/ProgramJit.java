@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodTooLargeException;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+/**
+ * 把驗證過的程式編譯成 JVM 隱藏類別 (hidden class) 執行。
+ *
+ * <p>每個指令展開成對 {@link ProgramRuntime} 的直接呼叫，暫存器運算與比較以 JVM 指令完成，沒有逐指令的分派；主程式與每個子腳本各是一個靜態方法。
+ * 過長的程序在沒有跳躍跨越的位置切成多個方法，讓每個方法都小於 HotSpot 願意編譯的大小。語意以 {@link ProgramInterpreter}
+ * 為準：等待與呼叫之後、以及往回跳的目標都檢查停止旗標。
+ *
+ * <p>編譯結果以 {@link Program#contentHash()} 快取，最近使用的留下；隱藏類別沒有其他參照後可被卸載。
+ */
+public final class ProgramJit {
+  // HotSpot 不編譯超過 8000 位元組 (HugeMethodLimit) 的方法，預留估計誤差
+  private static final int CHUNK_BYTES = 6000;
+  private static final String CLASS = "com/artale/artaletool/script/CompiledScript";
+  private static final String RUNTIME = Type.getInternalName(ProgramRuntime.class);
+  private static final String BODY = Type.getInternalName(CompiledBody.class);
+  private static final String METHOD = "(L" + RUNTIME + ";[I)Z";
+
+  private final int cacheSize;
+  private final Map<String, CompiledProgram> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong compiled = new AtomicLong();
+
+  /** cacheSize 為最多保留的編譯結果數 */
+  public ProgramJit(int cacheSize) {
+    this.cacheSize = cacheSize;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /** 編譯程式，內容相同的程式共用同一個類別；程式不合法或太大時丟出 IllegalArgumentException */
+  public ProgramExecutor compile(Program program) {
+    String key = program.contentHash();
+    synchronized (cache) {
+      CompiledProgram cached = cache.get(key);
+      if (cached != null) {
+        hits.incrementAndGet();
+        return cached;
+      }
+    }
+    CompiledProgram result = define(program, generate(program));
+    compiled.incrementAndGet();
+    synchronized (cache) {
+      CompiledProgram raced = cache.putIfAbsent(key, result);
+      if (raced != null) {
+        return raced;
+      }
+      if (cache.size() > cacheSize) {
+        cache.remove(cache.keySet().iterator().next());
+      }
+    }
+    return result;
+  }
+
+  /** 快取命中次數 */
+  public long cacheHits() {
+    return hits.get();
+  }
+
+  /** 實際產生過的類別數 */
+  public long compiledCount() {
+    return compiled.get();
+  }
+
+  /** 產生類別檔 */
+  static byte[] generate(Program program) {
+    int[] entries = ProgramVerifier.verify(program);
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+    writer.visit(
+        Opcodes.V17,
+        Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+        CLASS,
+        null,
+        "java/lang/Object",
+        new String[] {BODY});
+
+    MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    init.visitCode();
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+
+    MethodVisitor run = writer.visitMethod(Opcodes.ACC_PUBLIC, "run", METHOD, null, null);
+    run.visitCode();
+    run.visitVarInsn(Opcodes.ALOAD, 1);
+    run.visitVarInsn(Opcodes.ALOAD, 2);
+    run.visitMethodInsn(Opcodes.INVOKESTATIC, CLASS, routineName(0), METHOD, false);
+    run.visitInsn(Opcodes.IRETURN);
+    run.visitMaxs(0, 0);
+    run.visitEnd();
+
+    int[] code = program.code;
+    for (int i = 0; i < entries.length; i++) {
+      int end = i + 1 < entries.length ? entries[i + 1] : code.length;
+      new RoutineWriter(writer, code, entries[i], end).write();
+    }
+    writer.visitEnd();
+    try {
+      return writer.toByteArray();
+    } catch (MethodTooLargeException e) {
+      throw new IllegalArgumentException("程式 " + program.getName() + " 的迴圈太大，無法編譯", e);
+    }
+  }
+
+  private static CompiledProgram define(Program program, byte[] bytes) {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+      Class<?> type = lookup.lookupClass();
+      CompiledBody body =
+          (CompiledBody) lookup.findConstructor(type, MethodType.methodType(void.class)).invoke();
+      return new CompiledProgram(body, type.getDeclaredMethods().length);
+    } catch (Throwable e) {
+      throw new IllegalArgumentException("無法載入程式 " + program.getName() + " 的編譯結果", e);
+    }
+  }
+
+  private static String routineName(int entry) {
+    return "r" + entry;
+  }
+
+  /** 產生的類別實作的介面；回傳 false 表示被停止 */
+  interface CompiledBody {
+    boolean run(ProgramRuntime runtime, int[] registers);
+  }
+
+  /** 編譯完成的程式，可重複執行 */
+  static final class CompiledProgram implements ProgramExecutor {
+    private final CompiledBody body;
+    private final int methodCount;
+
+    private CompiledProgram(CompiledBody body, int methodCount) {
+      this.body = body;
+      this.methodCount = methodCount;
+    }
+
+    @Override
+    public boolean run(ProgramRuntime runtime, long startNanos) {
+      runtime.begin(startNanos);
+      try {
+        return body.run(runtime, runtime.registers) && runtime.isRunning();
+      } finally {
+        runtime.finish();
+      }
+    }
+
+    @Override
+    public String backend() {
+      return "jit";
+    }
+
+    /** 類別的方法數，包含 run 與程序切開的片段 */
+    int methodCount() {
+      return methodCount;
+    }
+  }
+
+  /** 產生一個程序 [begin, end) 的方法，必要時切成多個片段方法 */
+  private static final class RoutineWriter {
+    private final ClassWriter writer;
+    private final int[] code;
+    private final int begin;
+    private final int end;
+
+    private RoutineWriter(ClassWriter writer, int[] code, int begin, int end) {
+      this.writer = writer;
+      this.code = code;
+      this.begin = begin;
+      this.end = end;
+    }
+
+    void write() {
+      List<Integer> chunks = split();
+      String name = routineName(begin);
+      if (chunks.size() == 1) {
+        writeChunk(name, begin, end);
+        return;
+      }
+      for (int i = 0; i < chunks.size(); i++) {
+        int to = i + 1 < chunks.size() ? chunks.get(i + 1) : end;
+        writeChunk(name + "_" + i, chunks.get(i), to);
+      }
+      MethodVisitor mv =
+          writer.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, name, METHOD, null, null);
+      mv.visitCode();
+      Label stopped = new Label();
+      for (int i = 0; i < chunks.size(); i++) {
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, CLASS, name + "_" + i, METHOD, false);
+        mv.visitJumpInsn(Opcodes.IFEQ, stopped);
+      }
+      // 最後一個片段以 HALT/RET 結束
+      mv.visitInsn(Opcodes.ICONST_1);
+      mv.visitInsn(Opcodes.IRETURN);
+      mv.visitLabel(stopped);
+      mv.visitInsn(Opcodes.ICONST_0);
+      mv.visitInsn(Opcodes.IRETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+    }
+
+    /** 片段的開頭；只在沒有跳躍跨越的指令開頭切開 */
+    private List<Integer> split() {
+      // 切在 p 時，min(來源, 目標) < p <= max(來源, 目標) 的跳躍會被分到兩個方法
+      int[] crossing = new int[end - begin + 1];
+      for (int pc = begin; pc < end; pc += Op.length(code[pc])) {
+        int target = target(pc);
+        if (target >= 0) {
+          crossing[Math.min(pc, target) + 1 - begin]++;
+          crossing[Math.max(pc, target) + 1 - begin]--;
+        }
+      }
+      List<Integer> chunks = new ArrayList<>();
+      chunks.add(begin);
+      int open = 0;
+      int position = begin;
+      int size = 0;
+      for (int pc = begin; pc < end; pc += Op.length(code[pc])) {
+        while (position <= pc) {
+          open += crossing[position++ - begin];
+        }
+        if (size >= CHUNK_BYTES && open == 0) {
+          chunks.add(pc);
+          size = 0;
+        }
+        size += estimate(code[pc]);
+      }
+      return chunks;
+    }
+
+    /** 跳躍指令的目標，其他指令回傳 -1 */
+    private int target(int pc) {
+      return switch (code[pc]) {
+        case Op.JUMP -> code[pc + 1];
+        case Op.LOOP -> code[pc + 2];
+        case Op.BRANCH_FALSE -> code[pc + 4];
+        default -> -1;
+      };
+    }
+
+    /** 產生 [from, to) 的方法：區域變數 0 為 runtime，1 為暫存器 */
+    private void writeChunk(String name, int from, int to) {
+      Map<Integer, Label> labels = new HashMap<>();
+      Map<Integer, Boolean> backward = new HashMap<>();
+      for (int pc = from; pc < to; pc += Op.length(code[pc])) {
+        int target = target(pc);
+        if (target >= 0) {
+          labels.computeIfAbsent(target, t -> new Label());
+          backward.merge(target, target <= pc, Boolean::logicalOr);
+        }
+      }
+
+      MethodVisitor mv =
+          writer.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, name, METHOD, null, null);
+      mv.visitCode();
+      Label stopped = new Label();
+      for (int pc = from; pc < to; pc += Op.length(code[pc])) {
+        Label label = labels.get(pc);
+        if (label != null) {
+          mv.visitLabel(label);
+          if (backward.get(pc)) {
+            // 迴圈裡可能沒有等待，與直譯器一樣每一圈都檢查停止旗標
+            checkRunning(mv, stopped);
+          }
+        }
+        writeInstruction(mv, pc, labels, stopped);
+      }
+      // 接到下一個片段
+      mv.visitInsn(Opcodes.ICONST_1);
+      mv.visitInsn(Opcodes.IRETURN);
+      mv.visitLabel(stopped);
+      mv.visitInsn(Opcodes.ICONST_0);
+      mv.visitInsn(Opcodes.IRETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+    }
+
+    private void writeInstruction(
+        MethodVisitor mv, int pc, Map<Integer, Label> labels, Label stopped) {
+      int op = code[pc];
+      switch (op) {
+        case Op.HALT, Op.RET -> {
+          mv.visitInsn(Opcodes.ICONST_1);
+          mv.visitInsn(Opcodes.IRETURN);
+        }
+        case Op.KEY_DOWN -> invoke(mv, "keyDown", "(I)V", code[pc + 1]);
+        case Op.KEY_UP -> invoke(mv, "keyUp", "(I)V", code[pc + 1]);
+        case Op.MOUSE_MOVE -> invoke(mv, "mouseMove", "(II)V", code[pc + 1], code[pc + 2]);
+        case Op.MOUSE_DOWN -> invoke(mv, "mouseDown", "(I)V", code[pc + 1]);
+        case Op.MOUSE_UP -> invoke(mv, "mouseUp", "(I)V", code[pc + 1]);
+        case Op.WAIT -> {
+          invoke(mv, "waitMillis", "(I)V", code[pc + 1]);
+          checkRunning(mv, stopped);
+        }
+        case Op.WAIT_REG -> {
+          mv.visitVarInsn(Opcodes.ALOAD, 0);
+          loadRegister(mv, code[pc + 1]);
+          mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RUNTIME, "waitMillis", "(I)V", false);
+          checkRunning(mv, stopped);
+        }
+        case Op.WAIT_TRIGGER -> {
+          invoke(mv, "waitTrigger", "(II)V", code[pc + 1], code[pc + 2]);
+          checkRunning(mv, stopped);
+        }
+        case Op.SET -> {
+          mv.visitVarInsn(Opcodes.ALOAD, 1);
+          push(mv, code[pc + 1]);
+          push(mv, code[pc + 2]);
+          mv.visitInsn(Opcodes.IASTORE);
+        }
+        case Op.ADD -> {
+          mv.visitVarInsn(Opcodes.ALOAD, 1);
+          push(mv, code[pc + 1]);
+          mv.visitInsn(Opcodes.DUP2);
+          mv.visitInsn(Opcodes.IALOAD);
+          push(mv, code[pc + 2]);
+          mv.visitInsn(Opcodes.IADD);
+          mv.visitInsn(Opcodes.IASTORE);
+        }
+        case Op.COPY -> {
+          mv.visitVarInsn(Opcodes.ALOAD, 1);
+          push(mv, code[pc + 1]);
+          loadRegister(mv, code[pc + 2]);
+          mv.visitInsn(Opcodes.IASTORE);
+        }
+        case Op.JUMP -> mv.visitJumpInsn(Opcodes.GOTO, labels.get(code[pc + 1]));
+        case Op.LOOP -> {
+          // registers[r] 減一後留在堆疊上判斷
+          mv.visitVarInsn(Opcodes.ALOAD, 1);
+          push(mv, code[pc + 1]);
+          mv.visitInsn(Opcodes.DUP2);
+          mv.visitInsn(Opcodes.IALOAD);
+          mv.visitInsn(Opcodes.ICONST_1);
+          mv.visitInsn(Opcodes.ISUB);
+          mv.visitInsn(Opcodes.DUP_X2);
+          mv.visitInsn(Opcodes.IASTORE);
+          mv.visitJumpInsn(Opcodes.IFGT, labels.get(code[pc + 2]));
+        }
+        case Op.BRANCH_FALSE -> {
+          int cond = code[pc + 1];
+          Label otherwise = labels.get(code[pc + 4]);
+          if (cond >= Op.IF_EQ) {
+            loadRegister(mv, code[pc + 2]);
+            push(mv, code[pc + 3]);
+            mv.visitJumpInsn(unlessCompare(cond), otherwise);
+          } else {
+            invoke(mv, "test", "(III)Z", cond, code[pc + 2], code[pc + 3]);
+            mv.visitJumpInsn(Opcodes.IFEQ, otherwise);
+          }
+        }
+        case Op.CALL -> {
+          mv.visitVarInsn(Opcodes.ALOAD, 0);
+          mv.visitVarInsn(Opcodes.ALOAD, 1);
+          mv.visitMethodInsn(Opcodes.INVOKESTATIC, CLASS, routineName(code[pc + 1]), METHOD, false);
+          mv.visitJumpInsn(Opcodes.IFEQ, stopped);
+        }
+        default -> throw new IllegalStateException("未知的操作碼 " + op + " 位於 " + pc);
+      }
+    }
+  }
+
+  /** runtime.name(arguments...) */
+  private static void invoke(MethodVisitor mv, String name, String descriptor, int... arguments) {
+    mv.visitVarInsn(Opcodes.ALOAD, 0);
+    for (int argument : arguments) {
+      push(mv, argument);
+    }
+    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RUNTIME, name, descriptor, false);
+  }
+
+  private static void checkRunning(MethodVisitor mv, Label stopped) {
+    mv.visitVarInsn(Opcodes.ALOAD, 0);
+    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RUNTIME, "isRunning", "()Z", false);
+    mv.visitJumpInsn(Opcodes.IFEQ, stopped);
+  }
+
+  private static void loadRegister(MethodVisitor mv, int register) {
+    mv.visitVarInsn(Opcodes.ALOAD, 1);
+    push(mv, register);
+    mv.visitInsn(Opcodes.IALOAD);
+  }
+
+  private static void push(MethodVisitor mv, int value) {
+    if (value >= -1 && value <= 5) {
+      mv.visitInsn(Opcodes.ICONST_0 + value);
+    } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      mv.visitIntInsn(Opcodes.BIPUSH, value);
+    } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      mv.visitIntInsn(Opcodes.SIPUSH, value);
+    } else {
+      mv.visitLdcInsn(value);
+    }
+  }
+
+  /** 條件不成立時跳躍的比較指令 */
+  private static int unlessCompare(int cond) {
+    return switch (cond) {
+      case Op.IF_EQ -> Opcodes.IF_ICMPNE;
+      case Op.IF_NE -> Opcodes.IF_ICMPEQ;
+      case Op.IF_LT -> Opcodes.IF_ICMPGE;
+      case Op.IF_GE -> Opcodes.IF_ICMPLT;
+      case Op.IF_GT -> Opcodes.IF_ICMPLE;
+      case Op.IF_LE -> Opcodes.IF_ICMPGT;
+      default -> throw new IllegalStateException("未知的條件代碼: " + cond);
+    };
+  }
+
+  /** 指令產生的 JVM 位元組碼大小上限估計，包含迴圈目標的停止檢查 */
+  private static int estimate(int op) {
+    return 16 + 5 * (Op.length(op) - 1);
+  }
+}
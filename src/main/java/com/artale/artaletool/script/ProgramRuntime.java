@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.awt.event.InputEvent;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.backend.InputProbe;
+import com.artale.artaletool.backend.KeyTable;
+import com.artale.artaletool.playback.PlaybackClock;
+
+/**
+ * 一次程式執行的狀態與輸出：暫存器、預定時間、按住的輸入與觸發訊號的進度。
+ *
+ * <p>預定時間為開始時間加上之前所有等待的總和，等待時等到這個絕對時間，因此與 {@link com.artale.artaletool.playback.TimelinePlayer}
+ * 一樣單一輸入的延遲不會累積。執行中不配置物件。
+ *
+ * <p>執行結束或停止時放開所有仍被按住的按鍵與滑鼠按鈕。{@link #stop()} 可在任何執行緒上呼叫。
+ */
+public final class ProgramRuntime {
+  private static final long NANOS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1);
+  // 沒有被喚醒時檢查觸發訊號的間隔
+  private static final long TRIGGER_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final InputInjector injector;
+  private final InputProbe probe;
+  private final PlaybackClock clock;
+  private final TriggerBoard triggers;
+  final int[] registers;
+  private final int[] triggerSlots;
+  private final long[] triggerSeen;
+  private final boolean[] heldKeys = new boolean[KeyTable.CODES];
+  private final boolean[] heldButtons = new boolean[4];
+  private volatile boolean running = true;
+  private volatile Thread runner;
+  private volatile boolean finished;
+  private volatile long injected;
+  private volatile long maxLatenessNanos;
+  private volatile long firstLatenessNanos = -1;
+  // 以下只由執行緒讀寫
+  private long due;
+  private boolean triggered;
+
+  public ProgramRuntime(
+      Program program,
+      InputInjector injector,
+      InputProbe probe,
+      PlaybackClock clock,
+      TriggerBoard triggers) {
+    this.injector = injector;
+    this.probe = probe;
+    this.clock = clock;
+    this.triggers = triggers;
+    this.registers = new int[program.getRegisterCount()];
+    this.triggerSlots = new int[program.triggerCount()];
+    this.triggerSeen = new long[triggerSlots.length];
+    for (int i = 0; i < triggerSlots.length; i++) {
+      triggerSlots[i] = triggers.slot(program.trigger(i));
+    }
+  }
+
+  /** 開始執行：第一個指令的預定時間為 startNanos，開始前送出的觸發訊號不算數 */
+  void begin(long startNanos) {
+    runner = Thread.currentThread();
+    due = startNanos;
+    for (int i = 0; i < triggerSlots.length; i++) {
+      triggerSeen[i] = triggers.count(triggerSlots[i]);
+    }
+  }
+
+  /** 執行結束：正常結束時等到最後的等待完成，再放開所有輸入 */
+  void finish() {
+    try {
+      if (running) {
+        sync();
+      }
+    } finally {
+      releaseAll();
+      runner = null;
+      finished = true;
+    }
+  }
+
+  /** 停止執行 */
+  public void stop() {
+    running = false;
+    Thread thread = runner;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /** 執行已結束 (完成或被停止)，所有輸入都已放開 */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /** 已注入的輸入數 */
+  public long injectedCount() {
+    return injected;
+  }
+
+  /** 第一次到達預定時間時的延遲，即實際開始時間與預定開始時間的差；尚未開始時為 -1 */
+  public long startLatenessNanos() {
+    return firstLatenessNanos;
+  }
+
+  /** 輸入實際注入時間與預定時間的最大差距 */
+  public long maxLatenessNanos() {
+    return maxLatenessNanos;
+  }
+
+  public void keyDown(int vk) {
+    if (sync()) {
+      injector.keyPress(vk);
+      heldKeys[vk] = true;
+      injected++;
+    }
+  }
+
+  public void keyUp(int vk) {
+    if (sync()) {
+      injector.keyRelease(vk);
+      heldKeys[vk] = false;
+      injected++;
+    }
+  }
+
+  public void mouseMove(int x, int y) {
+    if (sync()) {
+      injector.mouseMove(x, y);
+      injected++;
+    }
+  }
+
+  public void mouseDown(int button) {
+    if (sync()) {
+      injector.mousePress(buttonMask(button));
+      heldButtons[button] = true;
+      injected++;
+    }
+  }
+
+  public void mouseUp(int button) {
+    if (sync()) {
+      injector.mouseRelease(buttonMask(button));
+      heldButtons[button] = false;
+      injected++;
+    }
+  }
+
+  /** 把預定時間往後推 ms 毫秒 (負數視為 0) 並等到該時間 */
+  public void waitMillis(int ms) {
+    if (ms > 0) {
+      due += ms * NANOS_PER_MS;
+      sync();
+    }
+  }
+
+  /**
+   * 等待觸發訊號，timeoutMs 為負數時不逾時。
+   *
+   * <p>上一次等待 (或開始執行) 之後送出的訊號都算數，收到時把預定時間對齊到目前時間；逾時時預定時間為開始等待的時間加上逾時。
+   */
+  public void waitTrigger(int trigger, int timeoutMs) {
+    triggered = false;
+    if (!sync()) {
+      return;
+    }
+    int slot = triggerSlots[trigger];
+    long limit = timeoutMs < 0 ? Long.MAX_VALUE : due + timeoutMs * NANOS_PER_MS;
+    triggers.setWaiter(slot, Thread.currentThread());
+    try {
+      while (running) {
+        long count = triggers.count(slot);
+        long now = clock.nanoTime();
+        if (count != triggerSeen[trigger]) {
+          triggerSeen[trigger] = count;
+          triggered = true;
+          due = Math.max(due, now);
+          return;
+        }
+        if (now >= limit) {
+          due = limit;
+          return;
+        }
+        clock.parkUntil(Math.min(limit, now + TRIGGER_POLL_NANOS));
+        if (Thread.interrupted()) {
+          running = false;
+        }
+      }
+    } finally {
+      triggers.setWaiter(slot, null);
+    }
+  }
+
+  /** 在預定時間判斷條件，代碼見 {@link Op} 的 IF_ 常數 */
+  public boolean test(int cond, int a, int b) {
+    if (cond <= Op.IF_NOT_HELD) {
+      sync();
+      boolean held = probe.getAsyncKeyState(a) < 0;
+      return held == (cond == Op.IF_HELD);
+    }
+    return switch (cond) {
+      case Op.IF_TRIGGERED -> triggered;
+      case Op.IF_NOT_TRIGGERED -> !triggered;
+      case Op.IF_EQ -> registers[a] == b;
+      case Op.IF_NE -> registers[a] != b;
+      case Op.IF_LT -> registers[a] < b;
+      case Op.IF_GE -> registers[a] >= b;
+      case Op.IF_GT -> registers[a] > b;
+      case Op.IF_LE -> registers[a] <= b;
+      default -> throw new IllegalStateException("未知的條件代碼: " + cond);
+    };
+  }
+
+  /** 等到預定時間，期間被停止時回傳 false */
+  private boolean sync() {
+    long now;
+    while ((now = clock.nanoTime()) < due) {
+      if (!running) {
+        return false;
+      }
+      clock.parkUntil(due);
+      if (Thread.interrupted()) {
+        running = false;
+      }
+    }
+    if (!running) {
+      return false;
+    }
+    long lateness = now - due;
+    if (firstLatenessNanos < 0) {
+      firstLatenessNanos = lateness;
+    }
+    if (lateness > maxLatenessNanos) {
+      maxLatenessNanos = lateness;
+    }
+    return true;
+  }
+
+  private void releaseAll() {
+    for (int vk = 0; vk < heldKeys.length; vk++) {
+      if (heldKeys[vk]) {
+        injector.keyRelease(vk);
+        heldKeys[vk] = false;
+      }
+    }
+    for (int button = 1; button < heldButtons.length; button++) {
+      if (heldButtons[button]) {
+        injector.mouseRelease(buttonMask(button));
+        heldButtons[button] = false;
+      }
+    }
+  }
+
+  /** 滑鼠按鈕 (1=左鍵, 2=右鍵, 3=中鍵) 對應的注入遮罩 */
+  private static int buttonMask(int button) {
+    return switch (button) {
+      case 1 -> InputEvent.BUTTON1_DOWN_MASK;
+      case 2 -> InputEvent.BUTTON3_DOWN_MASK;
+      default -> InputEvent.BUTTON2_DOWN_MASK;
+    };
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.artale.artaletool.backend.KeyTable;
+
+/**
+ * 檢查位元組碼的結構，讓編譯成 JVM 類別的程式不必在執行時檢查範圍。
+ *
+ * <p>程式分成數個程序 (routine)：主程式從 0 開始、以 HALT 結束，每個 CALL 的目標是一個子腳本的開頭、以 RET
+ * 結束。跳躍只能落在同一個程序內的指令開頭，呼叫不可形成迴圈，按鍵、按鈕、暫存器、觸發訊號與條件代碼都必須在範圍內。
+ */
+final class ProgramVerifier {
+  private ProgramVerifier() {}
+
+  /** 驗證程式，回傳排序過的程序開頭索引 (第一個為 0)；不合法時丟出 IllegalArgumentException */
+  static int[] verify(Program program) {
+    int[] code = program.code;
+    BitSet starts = new BitSet(code.length);
+    BitSet routines = new BitSet(code.length);
+    routines.set(0);
+    int pc = 0;
+    while (pc < code.length) {
+      int op = code[pc];
+      if (op < Op.HALT || op > Op.RET) {
+        throw error(pc, "未知的操作碼 " + op);
+      }
+      if (pc + Op.length(op) > code.length) {
+        throw error(pc, "指令超出程式結尾");
+      }
+      starts.set(pc);
+      if (op == Op.CALL) {
+        routines.set(check(code[pc + 1], 1, code.length - 1, pc, "呼叫目標"));
+      }
+      pc += Op.length(op);
+    }
+    if (code.length == 0) {
+      throw new IllegalArgumentException("程式沒有任何指令");
+    }
+
+    int[] entries = routines.stream().toArray();
+    for (int i = 0; i < entries.length; i++) {
+      int begin = entries[i];
+      int end = i + 1 < entries.length ? entries[i + 1] : code.length;
+      if (!starts.get(begin)) {
+        throw error(begin, "呼叫目標不是指令開頭");
+      }
+      int last = -1;
+      for (pc = begin; pc < end; pc += Op.length(code[pc])) {
+        checkOperands(program, code, pc, begin, end, starts);
+        last = pc;
+      }
+      int exit = begin == 0 ? Op.HALT : Op.RET;
+      if (code[last] != exit) {
+        throw error(last, begin == 0 ? "主程式必須以 HALT 結束" : "子腳本必須以 RET 結束");
+      }
+    }
+    checkCallDepth(code, entries, program.getCallDepth());
+    return entries;
+  }
+
+  /** 程序 [begin, end) 中 pc 的指令 */
+  private static void checkOperands(
+      Program program, int[] code, int pc, int begin, int end, BitSet starts) {
+    int registers = program.getRegisterCount();
+    switch (code[pc]) {
+      case Op.HALT, Op.RET -> {
+        int exit = begin == 0 ? Op.HALT : Op.RET;
+        if (code[pc] != exit || pc + 1 != end) {
+          throw error(pc, Op.name(code[pc]) + " 只能是程序的最後一個指令");
+        }
+      }
+      case Op.KEY_DOWN, Op.KEY_UP -> check(code[pc + 1], 0, KeyTable.CODES - 1, pc, "按鍵代碼");
+      case Op.MOUSE_DOWN, Op.MOUSE_UP -> check(code[pc + 1], 1, 3, pc, "滑鼠按鈕");
+      case Op.WAIT -> check(code[pc + 1], 0, Integer.MAX_VALUE, pc, "等待時間");
+      case Op.WAIT_REG, Op.SET, Op.ADD -> check(code[pc + 1], 0, registers - 1, pc, "暫存器");
+      case Op.WAIT_TRIGGER -> {
+        check(code[pc + 1], 0, program.triggerCount() - 1, pc, "觸發訊號");
+        check(code[pc + 2], -1, Integer.MAX_VALUE, pc, "逾時");
+      }
+      case Op.COPY -> {
+        check(code[pc + 1], 0, registers - 1, pc, "暫存器");
+        check(code[pc + 2], 0, registers - 1, pc, "暫存器");
+      }
+      case Op.JUMP -> checkTarget(code[pc + 1], begin, end, starts, pc);
+      case Op.LOOP -> {
+        check(code[pc + 1], 0, registers - 1, pc, "暫存器");
+        checkTarget(code[pc + 2], begin, end, starts, pc);
+      }
+      case Op.BRANCH_FALSE -> {
+        int cond = check(code[pc + 1], Op.IF_HELD, Op.IF_LE, pc, "條件代碼");
+        if (cond <= Op.IF_NOT_HELD) {
+          check(code[pc + 2], 0, KeyTable.CODES - 1, pc, "按鍵代碼");
+        } else if (cond >= Op.IF_EQ) {
+          check(code[pc + 2], 0, registers - 1, pc, "暫存器");
+        }
+        checkTarget(code[pc + 4], begin, end, starts, pc);
+      }
+      default -> {
+        // MOUSE_MOVE 與 CALL 沒有需要檢查的範圍 (呼叫目標在第一輪檢查過)
+      }
+    }
+  }
+
+  private static void checkTarget(int target, int begin, int end, BitSet starts, int pc) {
+    check(target, begin, end - 1, pc, "跳躍目標");
+    if (!starts.get(target)) {
+      throw error(pc, "跳躍目標 " + target + " 不是指令開頭");
+    }
+  }
+
+  /** 呼叫圖不可有迴圈，且最深的呼叫層數不超過程式記錄的深度 (直譯器依此配置堆疊) */
+  private static void checkCallDepth(int[] code, int[] entries, int callDepth) {
+    int[] depth = new int[entries.length];
+    Arrays.fill(depth, -1);
+    int deepest = depth(code, entries, 0, depth, new boolean[entries.length]);
+    if (deepest > callDepth) {
+      throw new IllegalArgumentException("呼叫深度 " + deepest + " 超過程式記錄的 " + callDepth);
+    }
+  }
+
+  /** 從程序 index 開始的最大呼叫層數 */
+  private static int depth(int[] code, int[] entries, int index, int[] depth, boolean[] active) {
+    if (depth[index] >= 0) {
+      return depth[index];
+    }
+    if (active[index]) {
+      throw error(entries[index], "子腳本不可遞迴呼叫");
+    }
+    active[index] = true;
+    int end = index + 1 < entries.length ? entries[index + 1] : code.length;
+    int deepest = 0;
+    for (int pc = entries[index]; pc < end; pc += Op.length(code[pc])) {
+      if (code[pc] == Op.CALL) {
+        int callee = Arrays.binarySearch(entries, code[pc + 1]);
+        deepest = Math.max(deepest, 1 + depth(code, entries, callee, depth, active));
+      }
+    }
+    active[index] = false;
+    depth[index] = deepest;
+    return deepest;
+  }
+
+  private static int check(int value, int min, int max, int pc, String what) {
+    if (value < min || value > max) {
+      throw error(pc, what + "超出範圍: " + value);
+    }
+    return value;
+  }
+
+  private static IllegalArgumentException error(int pc, String message) {
+    return new IllegalArgumentException("位元組碼 " + pc + ": " + message);
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.util.List;
+
+import com.artale.artaletool.backend.KeyTable;
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.MouseEvent;
+
+/**
+ * 把錄製的鍵盤與滑鼠腳本轉成沒有分支的程式或腳本原始碼。
+ *
+ * <p>事件間隔變成 WAIT，按鍵變成 KEY_DOWN/KEY_UP；無法解析的按鍵與未知的滑鼠按鈕略過，與一般播放相同。原始碼再編譯的結果與直接轉換的位元組碼相同。
+ */
+public final class Recordings {
+
+  private Recordings() {}
+
+  /** 鍵盤腳本轉為程式，間隔為相鄰時間戳記的差 */
+  public static Program keyProgram(String name, List<KeyEvent> events, KeyTable keyTable) {
+    ProgramBuilder out = new ProgramBuilder();
+    long last = events.isEmpty() ? 0 : events.get(0).getTimestamp();
+    for (KeyEvent event : events) {
+      emitWait(out, event.getTimestamp() - last);
+      last = event.getTimestamp();
+      int vk = keyCode(event, keyTable);
+      if (vk >= 0) {
+        out.emit("PRESS".equals(event.getAction()) ? Op.KEY_DOWN : Op.KEY_UP, vk);
+      }
+    }
+    out.emit(Op.HALT);
+    return out.build(name, 0);
+  }
+
+  /** 滑鼠腳本轉為程式：每個事件先移動游標，按下與放開再加上按鈕指令 */
+  public static Program mouseProgram(String name, List<MouseEvent> events) {
+    ProgramBuilder out = new ProgramBuilder();
+    for (MouseEvent event : events) {
+      emitWait(out, event.getDelay());
+      out.emit(Op.MOUSE_MOVE, event.getX(), event.getY());
+      int op = buttonOp(event);
+      if (op >= 0) {
+        out.emit(op, event.getButton());
+      }
+    }
+    out.emit(Op.HALT);
+    return out.build(name, 0);
+  }
+
+  /** 鍵盤腳本轉為原始碼，按鍵使用對照表的標準名稱 */
+  public static String keySource(List<KeyEvent> events, KeyTable keyTable) {
+    StringBuilder source = new StringBuilder();
+    long last = events.isEmpty() ? 0 : events.get(0).getTimestamp();
+    for (KeyEvent event : events) {
+      appendWait(source, event.getTimestamp() - last);
+      last = event.getTimestamp();
+      int vk = keyCode(event, keyTable);
+      if (vk >= 0) {
+        source.append("PRESS".equals(event.getAction()) ? "press " : "release ");
+        source.append(keyTable.name(vk)).append('\n');
+      }
+    }
+    return source.toString();
+  }
+
+  public static String mouseSource(List<MouseEvent> events) {
+    StringBuilder source = new StringBuilder();
+    for (MouseEvent event : events) {
+      appendWait(source, event.getDelay());
+      source.append("move ").append(event.getX()).append(' ').append(event.getY()).append('\n');
+      int op = buttonOp(event);
+      if (op >= 0) {
+        source.append(op == Op.MOUSE_DOWN ? "mouse-down " : "mouse-up ");
+        source.append(event.getButton()).append('\n');
+      }
+    }
+    return source.toString();
+  }
+
+  /** 錄製時已記下鍵碼的事件直接使用，舊腳本才由名稱解析 */
+  private static int keyCode(KeyEvent event, KeyTable keyTable) {
+    if (keyTable.name(event.getVk()) != null) {
+      return event.getVk();
+    }
+    return event.getKey() != null ? keyTable.code(event.getKey()) : -1;
+  }
+
+  private static int buttonOp(MouseEvent event) {
+    if (event.getButton() < 1 || event.getButton() > 3) {
+      return -1;
+    }
+    if ("PRESS".equals(event.getAction())) {
+      return Op.MOUSE_DOWN;
+    }
+    return "RELEASE".equals(event.getAction()) ? Op.MOUSE_UP : -1;
+  }
+
+  /** 超過 int 範圍的間隔拆成多個 WAIT */
+  private static void emitWait(ProgramBuilder out, long ms) {
+    while (ms > 0) {
+      int step = (int) Math.min(ms, Integer.MAX_VALUE);
+      out.emit(Op.WAIT, step);
+      ms -= step;
+    }
+  }
+
+  private static void appendWait(StringBuilder source, long ms) {
+    while (ms > 0) {
+      int step = (int) Math.min(ms, Integer.MAX_VALUE);
+      source.append("wait ").append(step).append('\n');
+      ms -= step;
+    }
+  }
+}
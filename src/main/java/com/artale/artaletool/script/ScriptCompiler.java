@@ -0,0 +1,521 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import com.artale.artaletool.backend.KeyTable;
+
+/**
+ * 把腳本語言編譯成 {@link Program}。
+ *
+ * <p>一行一個指令，# 之後為註解，縮排不影響語意，區塊以 end 結束：
+ *
+ * <pre>
+ * press KEY | release KEY | tap KEY [按住毫秒]
+ * move X Y | mouse-down BUTTON | mouse-up BUTTON | click BUTTON [按住毫秒]
+ * wait 毫秒|變數 | wait-trigger 名稱 [逾時毫秒]
+ * set 變數 整數|變數 | add 變數 整數
+ * repeat 次數|變數 ... end | forever ... end
+ * if [not] held KEY | if [not] triggered | if 變數 (== != &lt; &lt;= &gt; &gt;=) 整數 ... [else ...] end
+ * sub 名稱 ... end | call 名稱
+ * </pre>
+ *
+ * <p>call 先找同一個檔案內的 sub，找不到時以 resolver 載入同名的腳本檔作為子腳本；子腳本不可遞迴。變數為全域，所有子腳本共用，且必須在某處以 set 設定過。
+ */
+public final class ScriptCompiler {
+  /** tap 與 click 沒有指定時的按住時間 */
+  public static final int DEFAULT_HOLD_MS = 50;
+
+  static final int MAX_CALL_DEPTH = 32;
+  private static final Pattern NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_\\-]*");
+
+  private final KeyTable keyTable;
+  private final Function<String, String> resolver;
+
+  /**
+   * @param resolver 依名稱載入其他腳本檔的原始碼，不存在時回傳 null
+   */
+  public ScriptCompiler(KeyTable keyTable, Function<String, String> resolver) {
+    this.keyTable = keyTable;
+    this.resolver = resolver;
+  }
+
+  /**
+   * 編譯腳本，name 為腳本檔名稱 (錯誤訊息與子腳本解析使用)。
+   *
+   * @throws IllegalArgumentException 語法錯誤、未知的按鍵或變數、找不到子腳本或遞迴呼叫
+   */
+  public Program compile(String name, String source) {
+    return new Compilation().run(name, source);
+  }
+
+  private record Line(String unit, int number, String[] tokens) {
+    String keyword() {
+      return tokens[0];
+    }
+  }
+
+  /** 一個腳本檔：主程式的行與其中定義的 sub */
+  private static final class Unit {
+    private final String name;
+    private final List<Line> main = new ArrayList<>();
+    private final Map<String, List<Line>> subs = new LinkedHashMap<>();
+
+    private Unit(String name) {
+      this.name = name;
+    }
+  }
+
+  /** 一段要產生程式碼的程序：腳本檔的主程式或其中的 sub */
+  private static final class Routine {
+    private final String id;
+    private final Unit unit;
+    private final List<Line> body;
+    private final Set<Routine> callees = new LinkedHashSet<>();
+    private final List<Integer> callSites = new ArrayList<>();
+    private int address = -1;
+    private int depth = -1;
+
+    private Routine(String id, Unit unit, List<Line> body) {
+      this.id = id;
+      this.unit = unit;
+      this.body = body;
+    }
+  }
+
+  private final class Compilation {
+    private final ProgramBuilder out = new ProgramBuilder();
+    private final Map<String, Unit> units = new HashMap<>();
+    private final Map<String, Routine> routines = new LinkedHashMap<>();
+    private final ArrayDeque<Routine> pending = new ArrayDeque<>();
+    private final Set<String> assigned = new LinkedHashSet<>();
+    private final Map<String, Line> referenced = new LinkedHashMap<>();
+    private Routine current;
+
+    private Program run(String name, String source) {
+      Unit unit = parse(name, source);
+      units.put(name, unit);
+      Routine entry = new Routine(name, unit, unit.main);
+      routines.put(entry.id, entry);
+      emitRoutine(entry, Op.HALT);
+      while (!pending.isEmpty()) {
+        emitRoutine(pending.poll(), Op.RET);
+      }
+      for (Routine routine : routines.values()) {
+        for (int site : routine.callSites) {
+          out.patch(site, routine.address);
+        }
+      }
+      for (Map.Entry<String, Line> ref : referenced.entrySet()) {
+        if (!assigned.contains(ref.getKey())) {
+          throw error(ref.getValue(), "變數 " + ref.getKey() + " 沒有以 set 設定過");
+        }
+      }
+      int depth = depth(entry, new ArrayDeque<>());
+      if (depth > MAX_CALL_DEPTH) {
+        throw new IllegalArgumentException("子腳本呼叫層數超過上限 " + MAX_CALL_DEPTH);
+      }
+      return out.build(name, depth);
+    }
+
+    private void emitRoutine(Routine routine, int terminator) {
+      current = routine;
+      routine.address = out.position();
+      int end = block(routine.body, 0);
+      if (end < routine.body.size()) {
+        Line line = routine.body.get(end);
+        throw error(line, "多餘的 " + line.keyword());
+      }
+      out.emit(terminator);
+    }
+
+    /** 產生 lines[start..] 直到區塊結尾 (end 或 else)，回傳結尾行的索引；沒有結尾時回傳 lines.size() */
+    private int block(List<Line> lines, int start) {
+      int i = start;
+      while (i < lines.size()) {
+        Line line = lines.get(i);
+        switch (line.keyword()) {
+          case "end", "else" -> {
+            return i;
+          }
+          case "repeat" -> i = repeat(lines, i);
+          case "forever" -> i = forever(lines, i);
+          case "if" -> i = conditional(lines, i);
+          default -> {
+            statement(line);
+            i++;
+          }
+        }
+      }
+      return i;
+    }
+
+    private int repeat(List<Line> lines, int i) {
+      Line line = lines.get(i);
+      arguments(line, 1, 1);
+      String count = line.tokens()[1];
+      int counter = out.newRegister();
+      boolean positive = false;
+      if (isNumber(count)) {
+        int n = nonNegative(line, count);
+        out.emit(Op.SET, counter, n);
+        positive = n > 0;
+      } else {
+        out.emit(Op.COPY, counter, variableRef(line, count));
+      }
+      int skip = positive ? -1 : out.emit(Op.BRANCH_FALSE, Op.IF_GT, counter, 0, 0);
+      int body = out.position();
+      int end = close(lines, block(lines, i + 1), line, false);
+      out.emit(Op.LOOP, counter, body);
+      if (skip >= 0) {
+        out.patch(skip + 4, out.position());
+      }
+      return end + 1;
+    }
+
+    private int forever(List<Line> lines, int i) {
+      Line line = lines.get(i);
+      arguments(line, 0, 0);
+      int body = out.position();
+      int end = close(lines, block(lines, i + 1), line, false);
+      out.emit(Op.JUMP, body);
+      return end + 1;
+    }
+
+    private int conditional(List<Line> lines, int i) {
+      Line line = lines.get(i);
+      int[] cond = condition(line);
+      int branch = out.emit(Op.BRANCH_FALSE, cond[0], cond[1], cond[2], 0);
+      int end = close(lines, block(lines, i + 1), line, true);
+      Line closing = lines.get(end);
+      if (!closing.keyword().equals("else")) {
+        out.patch(branch + 4, out.position());
+        return end + 1;
+      }
+      arguments(closing, 0, 0);
+      int jump = out.emit(Op.JUMP, 0);
+      out.patch(branch + 4, out.position());
+      int elseEnd = close(lines, block(lines, end + 1), closing, false);
+      out.patch(jump + 1, out.position());
+      return elseEnd + 1;
+    }
+
+    /** 確認區塊以 end (或允許時以 else) 結束，回傳結尾行的索引 */
+    private int close(List<Line> lines, int end, Line opener, boolean allowElse) {
+      if (end == lines.size()) {
+        throw error(opener, opener.keyword() + " 區塊缺少 end");
+      }
+      Line closing = lines.get(end);
+      if (closing.keyword().equals("else") && !allowElse) {
+        throw error(closing, "else 只能用在 if 區塊");
+      }
+      if (closing.keyword().equals("end")) {
+        arguments(closing, 0, 0);
+      }
+      return end;
+    }
+
+    /** if 之後的條件，回傳 {條件代碼, a, b} */
+    private int[] condition(Line line) {
+      String[] t = line.tokens();
+      int at = 1;
+      boolean negate = t.length > 1 && t[1].equalsIgnoreCase("not");
+      if (negate) {
+        at++;
+      }
+      if (t.length <= at) {
+        throw error(line, "if 缺少條件");
+      }
+      int[] cond;
+      String head = t[at].toLowerCase(Locale.ROOT);
+      if (head.equals("held")) {
+        arguments(line, at + 1, at + 1);
+        cond = new int[] {Op.IF_HELD, key(line, t[at + 1]), 0};
+      } else if (head.equals("triggered")) {
+        arguments(line, at, at);
+        cond = new int[] {Op.IF_TRIGGERED, 0, 0};
+      } else {
+        arguments(line, at + 2, at + 2);
+        int op =
+            switch (t[at + 1]) {
+              case "==" -> Op.IF_EQ;
+              case "!=" -> Op.IF_NE;
+              case "<" -> Op.IF_LT;
+              case ">=" -> Op.IF_GE;
+              case ">" -> Op.IF_GT;
+              case "<=" -> Op.IF_LE;
+              default -> throw error(line, "未知的比較運算子: " + t[at + 1]);
+            };
+        cond = new int[] {op, variableRef(line, t[at]), integer(line, t[at + 2])};
+      }
+      if (negate) {
+        cond[0] = Op.negate(cond[0]);
+      }
+      return cond;
+    }
+
+    private void statement(Line line) {
+      String[] t = line.tokens();
+      switch (line.keyword()) {
+        case "press" -> {
+          arguments(line, 1, 1);
+          out.emit(Op.KEY_DOWN, key(line, t[1]));
+        }
+        case "release" -> {
+          arguments(line, 1, 1);
+          out.emit(Op.KEY_UP, key(line, t[1]));
+        }
+        case "tap" -> {
+          arguments(line, 1, 2);
+          int vk = key(line, t[1]);
+          out.emit(Op.KEY_DOWN, vk);
+          emitWait(t.length > 2 ? nonNegative(line, t[2]) : DEFAULT_HOLD_MS);
+          out.emit(Op.KEY_UP, vk);
+        }
+        case "move" -> {
+          arguments(line, 2, 2);
+          out.emit(Op.MOUSE_MOVE, integer(line, t[1]), integer(line, t[2]));
+        }
+        case "mouse-down" -> {
+          arguments(line, 1, 1);
+          out.emit(Op.MOUSE_DOWN, button(line, t[1]));
+        }
+        case "mouse-up" -> {
+          arguments(line, 1, 1);
+          out.emit(Op.MOUSE_UP, button(line, t[1]));
+        }
+        case "click" -> {
+          arguments(line, 1, 2);
+          int button = button(line, t[1]);
+          out.emit(Op.MOUSE_DOWN, button);
+          emitWait(t.length > 2 ? nonNegative(line, t[2]) : DEFAULT_HOLD_MS);
+          out.emit(Op.MOUSE_UP, button);
+        }
+        case "wait" -> {
+          arguments(line, 1, 1);
+          if (isNumber(t[1])) {
+            out.emit(Op.WAIT, nonNegative(line, t[1]));
+          } else {
+            out.emit(Op.WAIT_REG, variableRef(line, t[1]));
+          }
+        }
+        case "wait-trigger" -> {
+          arguments(line, 1, 2);
+          int timeout = t.length > 2 ? nonNegative(line, t[2]) : -1;
+          out.emit(Op.WAIT_TRIGGER, out.trigger(name(line, t[1])), timeout);
+        }
+        case "set" -> {
+          arguments(line, 2, 2);
+          if (isNumber(t[2])) {
+            out.emit(Op.SET, assign(line, t[1]), integer(line, t[2]));
+          } else {
+            int source = variableRef(line, t[2]);
+            out.emit(Op.COPY, assign(line, t[1]), source);
+          }
+        }
+        case "add" -> {
+          arguments(line, 2, 2);
+          out.emit(Op.ADD, variableRef(line, t[1]), integer(line, t[2]));
+        }
+        case "call" -> {
+          arguments(line, 1, 1);
+          Routine target = resolve(line, name(line, t[1]));
+          current.callees.add(target);
+          target.callSites.add(out.emit(Op.CALL, 0) + 1);
+        }
+        case "sub" -> throw error(line, "sub 只能定義在最外層");
+        default -> throw error(line, "未知的指令: " + t[0]);
+      }
+    }
+
+    private void emitWait(int ms) {
+      if (ms > 0) {
+        out.emit(Op.WAIT, ms);
+      }
+    }
+
+    /** 同一個檔案內的 sub 優先，其次是同名的腳本檔 */
+    private Routine resolve(Line line, String name) {
+      Unit unit = current.unit;
+      List<Line> sub = unit.subs.get(name);
+      if (sub != null) {
+        return routine(unit.name + "/" + name, unit, sub);
+      }
+      Unit external = units.get(name);
+      if (external == null) {
+        String source = resolver.apply(name);
+        if (source == null) {
+          throw error(line, "找不到子腳本: " + name);
+        }
+        external = parse(name, source);
+        units.put(name, external);
+      }
+      return routine(name, external, external.main);
+    }
+
+    private Routine routine(String id, Unit unit, List<Line> body) {
+      Routine routine = routines.get(id);
+      if (routine == null) {
+        routine = new Routine(id, unit, body);
+        routines.put(id, routine);
+        pending.add(routine);
+      }
+      return routine;
+    }
+
+    /** 從 routine 開始最深的呼叫層數，發現遞迴時失敗 */
+    private int depth(Routine routine, ArrayDeque<Routine> path) {
+      if (path.contains(routine)) {
+        StringBuilder chain = new StringBuilder();
+        path.descendingIterator().forEachRemaining(r -> chain.append(r.id).append(" -> "));
+        throw new IllegalArgumentException("子腳本不可遞迴呼叫: " + chain + routine.id);
+      }
+      if (routine.depth >= 0) {
+        return routine.depth;
+      }
+      path.push(routine);
+      int deepest = 0;
+      for (Routine callee : routine.callees) {
+        deepest = Math.max(deepest, 1 + depth(callee, path));
+      }
+      path.pop();
+      routine.depth = deepest;
+      return deepest;
+    }
+
+    private int assign(Line line, String variable) {
+      assigned.add(name(line, variable));
+      return out.variable(variable);
+    }
+
+    private int variableRef(Line line, String variable) {
+      referenced.putIfAbsent(name(line, variable), line);
+      return out.variable(variable);
+    }
+  }
+
+  private Unit parse(String name, String source) {
+    Unit unit = new Unit(name);
+    String[] rows = source.split("\\R", -1);
+    List<Line> sub = null;
+    Line subLine = null;
+    int depth = 0;
+    for (int n = 0; n < rows.length; n++) {
+      String text = rows[n];
+      int comment = text.indexOf('#');
+      if (comment >= 0) {
+        text = text.substring(0, comment);
+      }
+      text = text.strip();
+      if (text.isEmpty()) {
+        continue;
+      }
+      String[] tokens = text.split("\\s+");
+      tokens[0] = tokens[0].toLowerCase(Locale.ROOT);
+      Line line = new Line(name, n + 1, tokens);
+      String keyword = line.keyword();
+      if (sub == null) {
+        if (keyword.equals("sub")) {
+          arguments(line, 1, 1);
+          if (unit.subs.containsKey(name(line, tokens[1]))) {
+            throw error(line, "sub 名稱重複: " + tokens[1]);
+          }
+          sub = new ArrayList<>();
+          subLine = line;
+          depth = 0;
+        } else {
+          unit.main.add(line);
+        }
+        continue;
+      }
+      switch (keyword) {
+        case "repeat", "forever", "if" -> depth++;
+        case "end" -> {
+          if (depth == 0) {
+            arguments(line, 0, 0);
+            unit.subs.put(subLine.tokens()[1], sub);
+            sub = null;
+            continue;
+          }
+          depth--;
+        }
+        case "sub" -> throw error(line, "sub 不可巢狀定義");
+        default -> {}
+      }
+      sub.add(line);
+    }
+    if (sub != null) {
+      throw error(subLine, "sub 區塊缺少 end");
+    }
+    return unit;
+  }
+
+  private int key(Line line, String name) {
+    int vk = keyTable.code(name);
+    if (vk < 0) {
+      throw error(line, "未知的按鍵: " + name);
+    }
+    return vk;
+  }
+
+  private static int button(Line line, String name) {
+    return switch (name.toLowerCase(Locale.ROOT)) {
+      case "left", "1" -> 1;
+      case "right", "2" -> 2;
+      case "middle", "3" -> 3;
+      default -> throw error(line, "未知的滑鼠按鈕: " + name);
+    };
+  }
+
+  private static String name(Line line, String name) {
+    if (!NAME.matcher(name).matches()) {
+      throw error(line, "名稱無效: " + name);
+    }
+    return name;
+  }
+
+  private static boolean isNumber(String token) {
+    int start = token.startsWith("-") ? 1 : 0;
+    return token.length() > start && Character.isDigit(token.charAt(start));
+  }
+
+  private static int integer(Line line, String token) {
+    try {
+      return Integer.parseInt(token);
+    } catch (NumberFormatException e) {
+      throw error(line, "不是有效的整數: " + token);
+    }
+  }
+
+  private static int nonNegative(Line line, String token) {
+    int value = integer(line, token);
+    if (value < 0) {
+      throw error(line, "不可為負數: " + token);
+    }
+    return value;
+  }
+
+  private static void arguments(Line line, int min, int max) {
+    int count = line.tokens().length - 1;
+    if (count < min || count > max) {
+      throw error(line, line.keyword() + " 的參數個數錯誤");
+    }
+  }
+
+  private static IllegalArgumentException error(Line line, String message) {
+    return new IllegalArgumentException(line.unit() + " 第 " + line.number() + " 行: " + message);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 具名的觸發訊號，供腳本的 wait-trigger 等待 (例如由畫面監看規則送出)。
+ *
+ * <p>每個名稱對應一個固定的槽位與遞增的計數器，等待端比較計數器是否前進，不需要配置物件；送出訊號時喚醒正在等待該槽位的執行緒。
+ */
+public final class TriggerBoard {
+  public static final int CAPACITY = 64;
+
+  private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+  private final AtomicLongArray counts = new AtomicLongArray(CAPACITY);
+  private final AtomicReferenceArray<Thread> waiters = new AtomicReferenceArray<>(CAPACITY);
+
+  /**
+   * 名稱對應的槽位，第一次使用時配置。
+   *
+   * @throws IllegalStateException 槽位已用完
+   */
+  public int slot(String name) {
+    Integer slot = slots.get(name);
+    if (slot != null) {
+      return slot;
+    }
+    synchronized (slots) {
+      slot = slots.get(name);
+      if (slot == null) {
+        if (slots.size() == CAPACITY) {
+          throw new IllegalStateException("觸發訊號數量已達上限 " + CAPACITY);
+        }
+        slot = slots.size();
+        slots.put(name, slot);
+      }
+      return slot;
+    }
+  }
+
+  /** 送出訊號並喚醒等待中的腳本 */
+  public void signal(String name) {
+    int slot = slot(name);
+    counts.incrementAndGet(slot);
+    Thread waiter = waiters.get(slot);
+    if (waiter != null) {
+      LockSupport.unpark(waiter);
+    }
+  }
+
+  /** 各訊號目前的計數 */
+  public Map<String, Long> snapshot() {
+    Map<String, Long> result = new TreeMap<>();
+    slots.forEach((name, slot) -> result.put(name, counts.get(slot)));
+    return result;
+  }
+
+  long count(int slot) {
+    return counts.get(slot);
+  }
+
+  void setWaiter(int slot, Thread thread) {
+    waiters.set(slot, thread);
+  }
+}
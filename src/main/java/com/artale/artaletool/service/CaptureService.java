@@ -0,0 +1,473 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.artale.artaletool.backend.FrameSource;
+import com.artale.artaletool.capture.Frame;
+import com.artale.artaletool.capture.FrameListener;
+import com.artale.artaletool.capture.FramePool;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.CaptureRegion;
+import com.artale.artaletool.model.CaptureStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 以固定頻率擷取設定的視窗區域。
+ *
+ * <p>每個區域有自己的畫面池與上一個畫面的分塊雜湊；擷取到的畫面交給已註冊的 {@link FrameListener}，並保留最新一個畫面供查詢。穩定狀態下擷取循環不配置物件，
+ * 畫面池用盡時略過該區域這一次的擷取。
+ */
+@Service
+public class CaptureService {
+  private static final Logger logger = LoggerFactory.getLogger(CaptureService.class);
+  private static final double MAX_FPS = 240;
+  private static final int FPS_WINDOW = 32;
+
+  private final ToolMetrics metrics;
+  private final WindowService windowService;
+  private final FrameSource frameSource;
+  private final int poolSize;
+
+  private final Object captureLock = new Object();
+  private final int[] windowRect = new int[4];
+  private volatile RegionState[] states = new RegionState[0];
+  private volatile FrameListener[] listeners = new FrameListener[0];
+
+  private volatile boolean isRunning = false;
+  private volatile double targetFps;
+  private volatile long periodNanos;
+  private volatile double measuredFps;
+  private Thread captureThread;
+
+  private final long[] cycleStarts = new long[FPS_WINDOW];
+  private int cycleCount;
+
+  private final Counter changedCounter;
+  private final Counter unchangedCounter;
+  private final Counter failedCounter;
+  private final Counter skippedCounter;
+
+  public CaptureService(
+      ToolMetrics metrics,
+      WindowService windowService,
+      FrameSource frameSource,
+      @Value("${artaletool.capture.fps:10}") double fps,
+      @Value("${artaletool.capture.pool-size:4}") int poolSize) {
+    if (poolSize < 2) {
+      throw new IllegalArgumentException("畫面池容量至少為 2: " + poolSize);
+    }
+    this.metrics = metrics;
+    this.windowService = windowService;
+    this.frameSource = frameSource;
+    this.poolSize = poolSize;
+    setFps(fps);
+    changedCounter = metrics.captureFrames("changed");
+    unchangedCounter = metrics.captureFrames("unchanged");
+    failedCounter = metrics.captureFrames("failed");
+    skippedCounter = metrics.captureFrames("skipped");
+    metrics.captureFps(() -> measuredFps);
+  }
+
+  /** 一個區域的擷取狀態；latest 由 state 本身的鎖保護 */
+  private static final class RegionState {
+    private final CaptureRegion region;
+    private final FramePool pool;
+    private final long[] lastHashes;
+    private final Timer latencyTimer;
+    private boolean first = true;
+    private long sequence;
+    private Frame latest;
+
+    private RegionState(CaptureRegion region, FramePool pool, Timer latencyTimer) {
+      this.region = region;
+      this.pool = pool;
+      this.latencyTimer = latencyTimer;
+      int tiles =
+          ((region.getWidth() + Frame.TILE - 1) / Frame.TILE)
+              * ((region.getHeight() + Frame.TILE - 1) / Frame.TILE);
+      this.lastHashes = new long[tiles];
+    }
+
+    private synchronized Frame swapLatest(Frame frame) {
+      Frame previous = latest;
+      latest = frame;
+      return previous;
+    }
+
+    private synchronized Frame retainLatest() {
+      return latest != null ? latest.retain() : null;
+    }
+  }
+
+  /** 註冊畫面接收端，在擷取執行緒上呼叫 */
+  public synchronized void addListener(FrameListener listener) {
+    FrameListener[] current = listeners;
+    FrameListener[] next = new FrameListener[current.length + 1];
+    System.arraycopy(current, 0, next, 0, current.length);
+    next[current.length] = listener;
+    listeners = next;
+  }
+
+  public synchronized void removeListener(FrameListener listener) {
+    FrameListener[] current = listeners;
+    List<FrameListener> next = new ArrayList<>(current.length);
+    for (FrameListener l : current) {
+      if (l != listener) {
+        next.add(l);
+      }
+    }
+    listeners = next.toArray(new FrameListener[0]);
+  }
+
+  /**
+   * 設定擷取區域，取代原本的設定。
+   *
+   * <p>名稱與大小都沒有變的區域沿用原本的畫面池與分塊雜湊，下一個畫面只標記實際變化的分塊。
+   */
+  public void setRegions(List<CaptureRegion> regions) {
+    Set<String> names = new HashSet<>();
+    for (CaptureRegion region : regions) {
+      if (region.getName() == null || region.getName().isBlank()) {
+        throw new IllegalArgumentException("區域名稱不能為空");
+      }
+      if (!names.add(region.getName())) {
+        throw new IllegalArgumentException("區域名稱重複: " + region.getName());
+      }
+      if (region.getWidth() <= 0 || region.getHeight() <= 0) {
+        throw new IllegalArgumentException(
+            "區域大小無效: " + region.getName() + " " + region.getWidth() + "x" + region.getHeight());
+      }
+    }
+
+    synchronized (captureLock) {
+      RegionState[] previous = states;
+      RegionState[] next = new RegionState[regions.size()];
+      for (int i = 0; i < next.length; i++) {
+        CaptureRegion region = copy(regions.get(i));
+        RegionState reused = find(previous, region.getName());
+        if (reused != null
+            && reused.region.getWidth() == region.getWidth()
+            && reused.region.getHeight() == region.getHeight()) {
+          next[i] = new RegionState(region, reused.pool, reused.latencyTimer);
+          System.arraycopy(reused.lastHashes, 0, next[i].lastHashes, 0, reused.lastHashes.length);
+          next[i].first = reused.first;
+          next[i].sequence = reused.sequence;
+          next[i].latest = reused.swapLatest(null);
+        } else {
+          next[i] =
+              new RegionState(
+                  region,
+                  new FramePool(region.getWidth(), region.getHeight(), poolSize),
+                  metrics.captureLatency(region.getName()));
+        }
+      }
+      states = next;
+      for (RegionState state : previous) {
+        Frame dropped = state.swapLatest(null);
+        if (dropped != null) {
+          dropped.release();
+        }
+      }
+    }
+    logger.info("擷取區域已更新: {} 個", regions.size());
+  }
+
+  public List<CaptureRegion> getRegions() {
+    RegionState[] current = states;
+    List<CaptureRegion> regions = new ArrayList<>(current.length);
+    for (RegionState state : current) {
+      regions.add(copy(state.region));
+    }
+    return regions;
+  }
+
+  /** 設定目標擷取頻率 (0 < fps <= 240)，執行中也會在下一個循環生效 */
+  public void setFps(double fps) {
+    if (!(fps > 0 && fps <= MAX_FPS)) {
+      throw new IllegalArgumentException("擷取頻率必須介於 0 與 " + (int) MAX_FPS + " 之間: " + fps);
+    }
+    targetFps = fps;
+    periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / fps);
+  }
+
+  /** 開始擷取，來源無法使用時回傳 false */
+  public synchronized boolean start() {
+    if (isRunning) {
+      return true;
+    }
+    if (!frameSource.isAvailable()) {
+      logger.warn("畫面來源無法使用，無法開始擷取");
+      return false;
+    }
+    isRunning = true;
+    cycleCount = 0;
+    captureThread = new Thread(this::runCaptureLoop, "ScreenCaptureThread");
+    captureThread.setDaemon(true);
+    captureThread.start();
+    logger.info("開始擷取畫面，目標頻率 {} fps", targetFps);
+    return true;
+  }
+
+  public synchronized void stop() {
+    if (!isRunning) {
+      return;
+    }
+    isRunning = false;
+    Thread thread = captureThread;
+    captureThread = null;
+    thread.interrupt();
+    try {
+      thread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("等待擷取線程結束時被中斷");
+    }
+    measuredFps = 0;
+    logger.info("停止擷取畫面");
+  }
+
+  public boolean isRunning() {
+    return isRunning;
+  }
+
+  /**
+   * 擷取循環：以絕對期限排程，單次擷取變慢時下一次立即開始以追上原本的節奏。
+   *
+   * <p>落後超過一個週期時不補擷取，直接從現在重新起算，避免連續擷取過時的畫面。
+   */
+  private void runCaptureLoop() {
+    long deadline = System.nanoTime();
+    while (isRunning && !Thread.currentThread().isInterrupted()) {
+      long cycleStart = System.nanoTime();
+      recordCycle(cycleStart);
+      try {
+        captureOnce();
+      } catch (RuntimeException e) {
+        logger.error("擷取畫面時發生錯誤: {}", e.getMessage());
+      }
+
+      long period = periodNanos;
+      deadline += period;
+      long now = System.nanoTime();
+      if (now - deadline > period) {
+        deadline = now;
+      }
+      long wait = deadline - now;
+      if (wait > 0) {
+        LockSupport.parkNanos(this, wait);
+      }
+    }
+    logger.info("擷取線程結束");
+  }
+
+  private void recordCycle(long cycleStart) {
+    cycleStarts[cycleCount % FPS_WINDOW] = cycleStart;
+    cycleCount++;
+    int samples = Math.min(cycleCount, FPS_WINDOW);
+    if (samples < 2) {
+      return;
+    }
+    long oldest = cycleStarts[(cycleCount - samples) % FPS_WINDOW];
+    long span = cycleStart - oldest;
+    if (span > 0) {
+      measuredFps = (samples - 1) * (double) TimeUnit.SECONDS.toNanos(1) / span;
+    }
+  }
+
+  /** 擷取所有區域一次並通知接收端 */
+  void captureOnce() {
+    synchronized (captureLock) {
+      RegionState[] current = states;
+      for (RegionState state : current) {
+        captureRegion(state);
+      }
+    }
+  }
+
+  private void captureRegion(RegionState state) {
+    long start = System.nanoTime();
+    CaptureRegion region = state.region;
+
+    int originX = 0;
+    int originY = 0;
+    long handle =
+        region.getWindowHandle() != 0
+            ? region.getWindowHandle()
+            : windowService.getLockedWindowHandle();
+    if (handle != 0) {
+      if (!windowService.getWindowRect(handle, windowRect)) {
+        failedCounter.increment();
+        return;
+      }
+      originX = windowRect[0];
+      originY = windowRect[1];
+    }
+
+    Frame frame = state.pool.acquire();
+    if (frame == null) {
+      skippedCounter.increment();
+      return;
+    }
+    int screenX = originX + region.getX();
+    int screenY = originY + region.getY();
+    boolean captured;
+    try {
+      captured =
+          frameSource.capture(
+              screenX, screenY, region.getWidth(), region.getHeight(), frame.pixels());
+    } catch (RuntimeException e) {
+      logger.error("擷取區域 {} 失敗: {}", region.getName(), e.getMessage());
+      captured = false;
+    }
+    if (!captured) {
+      frame.release();
+      failedCounter.increment();
+      return;
+    }
+
+    frame.hashTiles(state.lastHashes, state.first);
+    state.first = false;
+    frame.stamp(region.getName(), ++state.sequence, screenX, screenY, start);
+    long latency = System.nanoTime() - start;
+    frame.setLatencyNanos(latency);
+    state.latencyTimer.record(latency, TimeUnit.NANOSECONDS);
+    (frame.isChanged() ? changedCounter : unchangedCounter).increment();
+
+    for (FrameListener listener : listeners) {
+      try {
+        listener.onFrame(frame);
+      } catch (RuntimeException e) {
+        logger.error("畫面接收端處理 {} 時發生錯誤: {}", region.getName(), e.getMessage());
+      }
+    }
+
+    // 取出時的參考轉給 latest，上一個畫面在沒有其他持有者時回到池中
+    Frame previous = state.swapLatest(frame);
+    if (previous != null) {
+      previous.release();
+    }
+  }
+
+  /** 取得區域最新的畫面並增加一個參考，用完必須 {@link Frame#release()}；尚未擷取時回傳 null */
+  public Frame acquireLatest(String name) {
+    RegionState state = find(states, name);
+    if (state == null) {
+      throw new IllegalArgumentException("找不到擷取區域: " + name);
+    }
+    return state.retainLatest();
+  }
+
+  /** 區域最新畫面的圖片複本，尚未擷取時回傳 null */
+  public BufferedImage snapshot(String name) {
+    Frame frame = acquireLatest(name);
+    if (frame == null) {
+      return null;
+    }
+    try {
+      BufferedImage image =
+          new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_RGB);
+      image.setRGB(0, 0, frame.getWidth(), frame.getHeight(), frame.pixels(), 0, frame.getWidth());
+      return image;
+    } finally {
+      frame.release();
+    }
+  }
+
+  public CaptureStatus getStatus() {
+    RegionState[] current = states;
+    List<CaptureStatus.Region> regions = new ArrayList<>(current.length);
+    for (RegionState state : current) {
+      CaptureRegion region = state.region;
+      Frame frame = state.retainLatest();
+      if (frame == null) {
+        regions.add(
+            new CaptureStatus.Region(
+                region.getName(),
+                0,
+                0,
+                region.getWidth(),
+                region.getHeight(),
+                0,
+                0,
+                0,
+                state.lastHashes.length));
+        continue;
+      }
+      try {
+        regions.add(
+            new CaptureStatus.Region(
+                region.getName(),
+                frame.getScreenX(),
+                frame.getScreenY(),
+                frame.getWidth(),
+                frame.getHeight(),
+                frame.getSequence(),
+                frame.getLatencyNanos() / 1_000_000.0,
+                frame.getDirtyTileCount(),
+                frame.tilesX() * frame.tilesY()));
+      } finally {
+        frame.release();
+      }
+    }
+    return new CaptureStatus(
+        isRunning,
+        targetFps,
+        measuredFps,
+        (long) changedCounter.count(),
+        (long) unchangedCounter.count(),
+        (long) failedCounter.count(),
+        (long) skippedCounter.count(),
+        regions);
+  }
+
+  private static RegionState find(RegionState[] states, String name) {
+    for (RegionState state : states) {
+      if (state.region.getName().equals(name)) {
+        return state;
+      }
+    }
+    return null;
+  }
+
+  private static CaptureRegion copy(CaptureRegion region) {
+    CaptureRegion copy = new CaptureRegion();
+    copy.setName(region.getName());
+    copy.setWindowHandle(region.getWindowHandle());
+    copy.setX(region.getX());
+    copy.setY(region.getY());
+    copy.setWidth(region.getWidth());
+    copy.setHeight(region.getHeight());
+    return copy;
+  }
+
+  @PreDestroy
+  public void cleanup() {
+    stop();
+    synchronized (captureLock) {
+      for (RegionState state : states) {
+        Frame frame = state.swapLatest(null);
+        if (frame != null) {
+          frame.release();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.artale.artaletool.model.FleetAgentRun;
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.script.Program;
+import com.artale.artaletool.script.ProgramImage;
+import com.artale.artaletool.script.ProgramRuntime;
+
+/**
+ * 多台同步的代理角色：回報播放時鐘、接收協調端傳來的已編譯程式，並在指定的時鐘時間開始執行。
+ *
+ * <p>預設不啟用 ({@code artaletool.fleet.agent-enabled})，啟用後任何能連到本機的協調端都能讓本機注入輸入。
+ */
+@Service
+public class FleetAgentService {
+  private static final Logger logger = LoggerFactory.getLogger(FleetAgentService.class);
+  private static final int MAX_STAGED = 16;
+
+  private final ScriptProgramService programService;
+  private final PlaybackClock playbackClock;
+  private final boolean enabled;
+  // 依使用順序保留最近收到的程式
+  private final Map<String, Program> staged = new LinkedHashMap<>(16, 0.75f, true);
+  private volatile Run lastRun;
+
+  public FleetAgentService(
+      ScriptProgramService programService,
+      PlaybackClock playbackClock,
+      @Value("${artaletool.fleet.agent-enabled:false}") boolean enabled) {
+    this.programService = programService;
+    this.playbackClock = playbackClock;
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** 播放時鐘的目前時間 */
+  public long clock() {
+    requireEnabled();
+    return playbackClock.nanoTime();
+  }
+
+  /** 驗證並保留程式，回傳雜湊 */
+  public String stage(ProgramImage image) {
+    requireEnabled();
+    Program program = image.toProgram();
+    synchronized (staged) {
+      staged.put(program.contentHash(), program);
+      if (staged.size() > MAX_STAGED) {
+        staged.remove(staged.keySet().iterator().next());
+      }
+    }
+    logger.info("收到協調端的腳本程式: {} ({} 個指令)", program.getName(), program.getInstructionCount());
+    return program.contentHash();
+  }
+
+  /** 在播放時鐘的 startNanos 開始執行先前收到的程式 */
+  public void start(String hash, long startNanos, Boolean jit) {
+    requireEnabled();
+    Program program;
+    synchronized (staged) {
+      program = staged.get(hash);
+    }
+    if (program == null) {
+      throw new IllegalArgumentException("沒有收到雜湊為 " + hash + " 的程式");
+    }
+    ProgramRuntime runtime = programService.playAt(program, jit, startNanos);
+    lastRun = new Run(program, startNanos, runtime);
+    logger.info(
+        "腳本程式 {} 將在 {} ms 後同步開始",
+        program.getName(),
+        String.format("%.1f", (startNanos - playbackClock.nanoTime()) / 1_000_000.0));
+  }
+
+  /** 最近一次排程的執行狀態，沒有排程過時為 null */
+  public FleetAgentRun lastRun() {
+    requireEnabled();
+    Run run = lastRun;
+    if (run == null) {
+      return null;
+    }
+    long lateness = run.runtime().startLatenessNanos();
+    return new FleetAgentRun(
+        run.program().getName(),
+        run.program().contentHash(),
+        run.scheduledNanos(),
+        lateness >= 0,
+        !run.runtime().isFinished(),
+        lateness,
+        run.runtime().injectedCount());
+  }
+
+  private void requireEnabled() {
+    if (!enabled) {
+      throw new IllegalArgumentException("未啟用多台同步的代理角色 (artaletool.fleet.agent-enabled)");
+    }
+  }
+
+  private record Run(Program program, long scheduledNanos, ProgramRuntime runtime) {}
+}
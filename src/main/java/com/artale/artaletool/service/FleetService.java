@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.artale.artaletool.fleet.ClockSync;
+import com.artale.artaletool.fleet.FleetAgentClient;
+import com.artale.artaletool.fleet.HttpFleetAgentClient;
+import com.artale.artaletool.model.FleetAgentInfo;
+import com.artale.artaletool.model.FleetAgentRun;
+import com.artale.artaletool.model.FleetLaunch;
+import com.artale.artaletool.model.FleetLaunch.AgentStart;
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.script.Program;
+import com.artale.artaletool.script.ProgramImage;
+
+/**
+ * 多台同步的協調角色：登記其他機器上的 ArtaleTool (代理)，把編譯好的腳本程式傳給每個代理，並讓所有代理在同一個時間點開始。
+ *
+ * <p>各機器的時鐘原點不同，開始前以多次時間戳交換估計每個代理的時鐘差 ({@link ClockSync})，把共同的開始時間換算成各代理的時鐘時間後送出。
+ * 代理在自己的播放時鐘上等到該時間，之後與一般播放一樣依絕對時間執行，因此網路延遲只影響排程是否來得及，不影響開始時間。
+ */
+@Service
+public class FleetService {
+  private static final Logger logger = LoggerFactory.getLogger(FleetService.class);
+
+  private final ScriptProgramService programService;
+  private final PlaybackClock playbackClock;
+  private final int syncSamples;
+  private final long defaultLeadMs;
+  private final Function<String, FleetAgentClient> clients;
+  private final Map<String, Agent> agents = new LinkedHashMap<>();
+  private volatile Launch lastLaunch;
+
+  public FleetService(
+      ScriptProgramService programService,
+      PlaybackClock playbackClock,
+      @Value("${artaletool.fleet.sync-samples:16}") int syncSamples,
+      @Value("${artaletool.fleet.start-lead-ms:500}") long defaultLeadMs,
+      @Value("${artaletool.fleet.timeout-ms:2000}") long timeoutMs) {
+    this.programService = programService;
+    this.playbackClock = playbackClock;
+    this.syncSamples = syncSamples;
+    this.defaultLeadMs = defaultLeadMs;
+    this.clients = url -> new HttpFleetAgentClient(url, Duration.ofMillis(timeoutMs));
+  }
+
+  /** 登記代理，url 為代理的 http 位址；同一個 id 重新登記時取代舊的位址 */
+  public FleetAgentInfo register(String id, String url) {
+    if (id == null || id.isBlank()) {
+      throw new IllegalArgumentException("代理名稱不能為空");
+    }
+    if (url == null || !(url.startsWith("http://") || url.startsWith("https://"))) {
+      throw new IllegalArgumentException("代理位址必須是 http:// 或 https:// 開頭: " + url);
+    }
+    Agent agent = new Agent(id, url, clients.apply(url));
+    synchronized (agents) {
+      agents.put(id, agent);
+    }
+    logger.info("登記代理: {} ({})", id, url);
+    return agent.info();
+  }
+
+  public boolean unregister(String id) {
+    synchronized (agents) {
+      return agents.remove(id) != null;
+    }
+  }
+
+  public List<FleetAgentInfo> getAgents() {
+    List<FleetAgentInfo> infos = new ArrayList<>();
+    for (Agent agent : snapshot()) {
+      infos.add(agent.info());
+    }
+    return infos;
+  }
+
+  /** 重新估計代理的時鐘差 */
+  public FleetAgentInfo sync(String id) {
+    Agent agent;
+    synchronized (agents) {
+      agent = agents.get(id);
+    }
+    if (agent == null) {
+      throw new IllegalArgumentException("找不到代理: " + id);
+    }
+    sync(agent);
+    return agent.info();
+  }
+
+  /**
+   * 把程式傳給所有代理，並在 leadMs 毫秒後同時開始。
+   *
+   * <p>傳送與時鐘同步都在決定開始時間之前完成，leadMs 只需要涵蓋送出開始指令的時間。個別代理失敗時記錄在結果中，不影響其他代理。
+   *
+   * @param leadMs 為 null 時使用 {@code artaletool.fleet.start-lead-ms}
+   */
+  public FleetLaunch launch(String programName, Boolean jit, Long leadMs) throws IOException {
+    List<Agent> targets = snapshot();
+    if (targets.isEmpty()) {
+      throw new IllegalArgumentException("沒有登記任何代理");
+    }
+    long lead = leadMs != null ? leadMs : defaultLeadMs;
+    if (lead < 0) {
+      throw new IllegalArgumentException("開始前的等待時間不可為負數: " + lead);
+    }
+    Program program = programService.compile(programName);
+    ProgramImage image = ProgramImage.of(program);
+
+    Map<Agent, String> errors = new LinkedHashMap<>();
+    for (Agent agent : targets) {
+      try {
+        agent.client.stage(image);
+        sync(agent);
+      } catch (IllegalStateException | IllegalArgumentException e) {
+        errors.put(agent, e.getMessage());
+        logger.warn("代理 {} 無法準備腳本程式: {}", agent.id, e.getMessage());
+      }
+    }
+
+    long startAt = playbackClock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lead);
+    for (Agent agent : targets) {
+      if (!errors.containsKey(agent)) {
+        try {
+          agent.client.start(image.hash(), agent.estimate.toRemote(startAt), jit);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+          errors.put(agent, e.getMessage());
+          logger.warn("代理 {} 無法開始腳本程式: {}", agent.id, e.getMessage());
+        }
+      }
+    }
+    if (playbackClock.nanoTime() > startAt) {
+      logger.warn("送出開始指令時已超過預定開始時間，請加長開始前的等待時間 (目前 {} ms)", lead);
+    }
+
+    Launch launch =
+        new Launch(
+            program.getName(), image.hash(), System.currentTimeMillis(), startAt, targets, errors);
+    lastLaunch = launch;
+    logger.info(
+        "腳本程式 {} 將在 {} ms 後於 {} 個代理同步開始", program.getName(), lead, targets.size() - errors.size());
+    return launch.report(null);
+  }
+
+  /** 最近一次同步開始的結果，向每個代理查詢實際開始時間；沒有開始過時為 null */
+  public FleetLaunch getLastLaunch() {
+    Launch launch = lastLaunch;
+    if (launch == null) {
+      return null;
+    }
+    Map<Agent, FleetAgentRun> runs = new LinkedHashMap<>();
+    for (Agent agent : launch.agents) {
+      if (!launch.errors.containsKey(agent)) {
+        try {
+          runs.put(agent, agent.client.lastRun());
+        } catch (IllegalStateException e) {
+          logger.debug("無法查詢代理 {} 的執行狀態: {}", agent.id, e.getMessage());
+        }
+      }
+    }
+    return launch.report(runs);
+  }
+
+  private void sync(Agent agent) {
+    agent.estimate = ClockSync.estimate(playbackClock, agent.client::clock, syncSamples);
+    agent.syncedAt = System.currentTimeMillis();
+    logger.debug(
+        "代理 {} 時鐘差 {} ms (±{} ms)",
+        agent.id,
+        String.format("%.3f", agent.estimate.offsetNanos() / 1_000_000.0),
+        String.format("%.3f", agent.estimate.uncertaintyNanos() / 1_000_000.0));
+  }
+
+  private List<Agent> snapshot() {
+    synchronized (agents) {
+      return new ArrayList<>(agents.values());
+    }
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static final class Agent {
+    private final String id;
+    private final String url;
+    private final FleetAgentClient client;
+    private volatile ClockSync.Estimate estimate;
+    private volatile long syncedAt;
+
+    private Agent(String id, String url, FleetAgentClient client) {
+      this.id = id;
+      this.url = url;
+      this.client = client;
+    }
+
+    private FleetAgentInfo info() {
+      ClockSync.Estimate current = estimate;
+      return current == null
+          ? new FleetAgentInfo(id, url, false, 0, 0, 0)
+          : new FleetAgentInfo(
+              id,
+              url,
+              true,
+              millis(current.offsetNanos()),
+              millis(current.uncertaintyNanos()),
+              syncedAt);
+    }
+  }
+
+  /** 開始時每個代理使用的時鐘差固定下來，之後重新同步不影響這次的結果 */
+  private static final class Launch {
+    private final String program;
+    private final String hash;
+    private final long createdAt;
+    private final long startAt;
+    private final List<Agent> agents;
+    private final Map<Agent, String> errors;
+    private final Map<Agent, ClockSync.Estimate> estimates = new LinkedHashMap<>();
+
+    private Launch(
+        String program,
+        String hash,
+        long createdAt,
+        long startAt,
+        List<Agent> agents,
+        Map<Agent, String> errors) {
+      this.program = program;
+      this.hash = hash;
+      this.createdAt = createdAt;
+      this.startAt = startAt;
+      this.agents = agents;
+      this.errors = errors;
+      for (Agent agent : agents) {
+        if (!errors.containsKey(agent)) {
+          estimates.put(agent, agent.estimate);
+        }
+      }
+    }
+
+    /** runs 為各代理回報的執行狀態，null 表示還沒有查詢 */
+    private FleetLaunch report(Map<Agent, FleetAgentRun> runs) {
+      List<AgentStart> starts = new ArrayList<>();
+      double earliest = Double.MAX_VALUE;
+      double latest = -Double.MAX_VALUE;
+      double uncertainty = 0;
+      for (Agent agent : agents) {
+        String error = errors.get(agent);
+        ClockSync.Estimate estimate = estimates.get(agent);
+        if (estimate == null) {
+          starts.add(new AgentStart(agent.id, 0, 0, 0, null, error));
+          continue;
+        }
+        long scheduled = estimate.toRemote(startAt);
+        FleetAgentRun run = runs == null ? null : runs.get(agent);
+        Double skew = null;
+        if (run == null && runs != null) {
+          error = "無法查詢執行狀態";
+        } else if (run != null && (!hash.equals(run.hash()) || run.scheduledNanos() != scheduled)) {
+          error = "代理已執行其他排程";
+        } else if (run != null && run.started()) {
+          skew = millis(run.startLatenessNanos());
+          earliest = Math.min(earliest, skew);
+          latest = Math.max(latest, skew);
+          uncertainty = Math.max(uncertainty, millis(estimate.uncertaintyNanos()));
+        }
+        starts.add(
+            new AgentStart(
+                agent.id,
+                millis(estimate.offsetNanos()),
+                millis(estimate.uncertaintyNanos()),
+                scheduled,
+                skew,
+                error));
+      }
+      Double spread = latest >= earliest ? latest - earliest + 2 * uncertainty : null;
+      return new FleetLaunch(program, hash, createdAt, startAt, starts, spread);
+    }
+  }
+}
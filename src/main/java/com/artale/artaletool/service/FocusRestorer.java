@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.artale.artaletool.metrics.ToolMetrics;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 把鎖定視窗帶回前台的非同步工作。
+ *
+ * <p>監控執行緒只送出請求，實際的視窗操作在背景執行緒上執行；同一時間最多一個請求，兩次嘗試之間至少相隔設定的最小間隔。焦點恢復期間偵測到的按鍵由呼叫端暫存，恢復後依 {@link
+ * BufferPolicy} 補錄或丟棄。
+ */
+@Service
+public class FocusRestorer {
+  private static final Logger logger = LoggerFactory.getLogger(FocusRestorer.class);
+
+  /** 焦點恢復期間暫存按鍵的處理方式 */
+  public enum BufferPolicy {
+    /** 焦點恢復後以原本的時間補錄 */
+    REPLAY,
+    /** 丟棄，不錄製焦點不在鎖定視窗時的按鍵 */
+    DROP
+  }
+
+  private final WindowService windowService;
+  private final long minIntervalNanos;
+  private final BufferPolicy bufferPolicy;
+  private final long bufferTimeoutNanos;
+  private final int bufferCapacity;
+  private final AtomicBoolean inFlight = new AtomicBoolean();
+  private volatile long lastAttemptNanos;
+  private volatile boolean attempted = false;
+  private volatile ExecutorService executor;
+
+  private final Counter restoredCounter;
+  private final Counter failedCounter;
+  private final Counter throttledCounter;
+
+  public FocusRestorer(
+      ToolMetrics metrics,
+      WindowService windowService,
+      @Value("${artaletool.focus.min-interval-ms:250}") long minIntervalMs,
+      @Value("${artaletool.focus.buffered-keys:replay}") String bufferPolicy,
+      @Value("${artaletool.focus.buffer-timeout-ms:2000}") long bufferTimeoutMs,
+      @Value("${artaletool.focus.buffer-capacity:64}") int bufferCapacity) {
+    if (bufferCapacity <= 0) {
+      throw new IllegalArgumentException("暫存容量必須大於 0: " + bufferCapacity);
+    }
+    this.windowService = windowService;
+    this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+    this.bufferPolicy = BufferPolicy.valueOf(bufferPolicy.trim().toUpperCase(Locale.ROOT));
+    this.bufferTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(bufferTimeoutMs);
+    this.bufferCapacity = bufferCapacity;
+    restoredCounter = metrics.focusRestores("restored");
+    failedCounter = metrics.focusRestores("failed");
+    throttledCounter = metrics.focusRestores("throttled");
+  }
+
+  /** 鎖定了視窗但它不在前台 */
+  public boolean isFocusLost() {
+    return windowService.isWindowLocked() && !windowService.isLockedWindowActive();
+  }
+
+  /**
+   * 請求把鎖定視窗帶回前台，不會阻塞。
+   *
+   * @return 已排入背景執行緒時回傳 true；已有請求在執行或距上次嘗試太近時回傳 false
+   */
+  public boolean request() {
+    long now = System.nanoTime();
+    if (attempted && now - lastAttemptNanos < minIntervalNanos) {
+      throttledCounter.increment();
+      return false;
+    }
+    if (!inFlight.compareAndSet(false, true)) {
+      return false;
+    }
+    lastAttemptNanos = now;
+    attempted = true;
+    try {
+      executor().execute(this::restore);
+    } catch (RuntimeException e) {
+      inFlight.set(false);
+      logger.error("無法排入焦點恢復工作: {}", e.getMessage());
+      return false;
+    }
+    return true;
+  }
+
+  /** 是否有焦點恢復工作正在執行 */
+  public boolean isRestoring() {
+    return inFlight.get();
+  }
+
+  public BufferPolicy getBufferPolicy() {
+    return bufferPolicy;
+  }
+
+  /** 暫存的按鍵超過此時間焦點仍未恢復時丟棄 */
+  public long getBufferTimeoutNanos() {
+    return bufferTimeoutNanos;
+  }
+
+  public int getBufferCapacity() {
+    return bufferCapacity;
+  }
+
+  private void restore() {
+    try {
+      if (windowService.bringLockedWindowToFront()) {
+        restoredCounter.increment();
+      } else {
+        failedCounter.increment();
+      }
+    } catch (RuntimeException e) {
+      failedCounter.increment();
+      logger.error("將鎖定視窗帶回前台失敗: {}", e.getMessage());
+    } finally {
+      inFlight.set(false);
+    }
+  }
+
+  private ExecutorService executor() {
+    ExecutorService current = executor;
+    if (current == null) {
+      synchronized (this) {
+        current = executor;
+        if (current == null) {
+          current =
+              Executors.newSingleThreadExecutor(
+                  r -> {
+                    Thread thread = new Thread(r, "FocusRestoreThread");
+                    thread.setDaemon(true);
+                    return thread;
+                  });
+          executor = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  @PreDestroy
+  public void close() {
+    ExecutorService current = executor;
+    if (current != null) {
+      current.shutdownNow();
+    }
+  }
+}
@@ -4,9 +4,6 @@
  */
 package com.artale.artaletool.service;
 
-import java.awt.AWTException;
-import java.awt.Frame;
-import java.awt.Robot;
 import java.awt.event.KeyListener;
 import java.io.File;
 import java.io.IOException;
@@ -21,145 +18,158 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.backend.InputProbe;
+import com.artale.artaletool.backend.KeyTable;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.FidelityReport;
 import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.PlaybackStatus;
+import com.artale.artaletool.model.RecordingStatus;
+import com.artale.artaletool.model.TimeWarpOptions;
+import com.artale.artaletool.model.TimeWarpReport;
+import com.artale.artaletool.playback.FidelityRecorder;
+import com.artale.artaletool.playback.InputMapping;
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.playback.PlaybackTarget;
+import com.artale.artaletool.playback.PlaybackTimeline;
+import com.artale.artaletool.playback.ScriptTimings;
+import com.artale.artaletool.playback.TimeWarp;
+import com.artale.artaletool.playback.TimelinePlayer;
+import com.artale.artaletool.script.Program;
+import com.artale.artaletool.script.ProgramExecutor;
+import com.artale.artaletool.script.ProgramRuntime;
+import com.artale.artaletool.script.TriggerBoard;
+import com.artale.artaletool.trace.TraceSink;
+import com.artale.artaletool.trace.TraceType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.sun.jna.*;
-import com.sun.jna.platform.win32.*;
-import com.sun.jna.win32.*;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PreDestroy;
 
 @Service
 public class KeyboardService implements KeyListener {
   private static final Logger logger = LoggerFactory.getLogger(KeyboardService.class);
   private List<KeyEvent> recordedEvents = new ArrayList<>();
-  private boolean isRecording = false;
-  private boolean isPlaying = false;
+  private volatile boolean isRecording = false;
+  private volatile boolean isPlaying = false;
   private final ObjectMapper objectMapper = new ObjectMapper();
-  private final String SCRIPTS_DIR = "scripts";
+  private final String SCRIPTS_DIR;
+  private final PlaybackClock playbackClock;
   private final List<String> currentPressedKeys = new CopyOnWriteArrayList<>();
   private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-  private Robot robot;
-  private final Map<String, Integer> keyCodeMap = new HashMap<>();
-  private final Map<Integer, String> reverseKeyCodeMap = new HashMap<>();
-  private Frame frame;
-  private final User32 user32 = User32.INSTANCE;
-  private final Map<Integer, Boolean> keyStates = new HashMap<>();
+  private final InputInjector injector;
+  private final InputProbe inputProbe;
+  private final TraceSink traceSink;
+  private final FocusRestorer focusRestorer;
+  private final PendingKeyBuffer pendingKeys;
+  private final boolean lazyStartup;
+  private final long defaultPreRollMs; // 開始播放前的預備時間，期間進行預熱
+  private final KeyTable keyTable = KeyTable.STANDARD;
+  private final boolean[] keyStates = new boolean[KeyTable.CODES]; // 以鍵碼為索引的按住狀態
   private Thread keyMonitorThread;
-  private boolean isLooping = false;
-  private int loopCount = 0;
-  private int currentLoop = 0;
+  private volatile boolean isLooping = false;
+  private volatile TimelinePlayer<KeyEvent> currentPlayer;
+  private volatile ProgramRuntime currentProgram;
   private final Map<String, ScheduledExecutorService> scheduledTasks = new HashMap<>();
   private final Map<String, Integer> scheduledKeyCodes = new HashMap<>();
-  private static final int VK_ESCAPE = 0x1B; // ESC 鍵的虛擬鍵碼
-  private KeyEvent currentPlayingEvent = null;
-  private int currentPlayingIndex = -1;
+  private static final long DEFAULT_LOOP_GAP_MS = 0;
+  private static final String FIDELITY_SUFFIX = ".fidelity.json"; // 忠實度報告與腳本存放在同一個目錄
+  private volatile FidelityReport lastFidelityReport;
+  // 對外公開的狀態快照，只以整個物件替換
+  private final AtomicReference<PlaybackStatus<KeyEvent>> playbackStatus =
+      new AtomicReference<>(PlaybackStatus.idle(0, 0));
+  private final AtomicReference<RecordingStatus> recordingStatus =
+      new AtomicReference<>(RecordingStatus.IDLE);
+  private final RecordStreamHub<KeyEvent> recordStream = new RecordStreamHub<>("鍵盤", objectMapper);
+
+  // 監控指標
+  private final ToolMetrics.PollMonitor keyMonitorMetrics;
+  private final Timer getAsyncKeyStateTimer;
+  private final Counter recordedEventsCounter;
+  private final Timer playbackLatenessTimer;
+  private final Timer firstEventLatenessTimer;
+  private final Timer playbackWarmupTimer;
+  private final Timer injectionLatencyTimer;
+  private final Timer scheduledKeyFireErrorTimer;
+  private final Counter replayedPendingKeysCounter;
+  private final Counter droppedPendingKeysCounter;
 
   @Autowired private WindowService windowService;
 
-  public interface User32 extends StdCallLibrary {
-    User32 INSTANCE = Native.load("user32", User32.class, W32APIOptions.DEFAULT_OPTIONS);
+  @Autowired private StatusPublisher statusPublisher;
+
+  public KeyboardService(
+      ToolMetrics metrics,
+      InputInjector injector,
+      InputProbe inputProbe,
+      PlaybackClock playbackClock,
+      TraceSink traceSink,
+      FocusRestorer focusRestorer,
+      @Value("${artaletool.startup.lazy:false}") boolean lazyStartup,
+      @Value("${artaletool.playback.keyboard.pre-roll-ms:3000}") long preRollMs,
+      @Value("${artaletool.scripts.keyboard-dir:scripts}") String scriptsDir) {
+    this.injector = injector;
+    this.traceSink = traceSink;
+    this.focusRestorer = focusRestorer;
+    this.pendingKeys = new PendingKeyBuffer(focusRestorer.getBufferCapacity());
+    this.playbackClock = playbackClock;
+    this.SCRIPTS_DIR = scriptsDir;
+    this.inputProbe = inputProbe;
+    this.lazyStartup = lazyStartup;
+    this.defaultPreRollMs = Math.max(0, preRollMs);
+    keyMonitorMetrics = metrics.pollMonitor("keyboard", 10);
+    getAsyncKeyStateTimer = metrics.nativeCall("GetAsyncKeyState");
+    recordedEventsCounter = metrics.recordedEvents("keyboard");
+    playbackLatenessTimer = metrics.playbackLateness("keyboard");
+    firstEventLatenessTimer = metrics.firstEventLateness("keyboard");
+    playbackWarmupTimer = metrics.playbackWarmup("keyboard");
+    injectionLatencyTimer = metrics.injectionLatency("keyboard");
+    scheduledKeyFireErrorTimer = metrics.scheduledKeyFireError();
+    replayedPendingKeysCounter = metrics.focusBufferedKeys("replayed");
+    droppedPendingKeysCounter = metrics.focusBufferedKeys("dropped");
 
-    short GetAsyncKeyState(int vKey);
-  }
-
-  public KeyboardService() {
     try {
       Files.createDirectories(Paths.get(SCRIPTS_DIR));
       logger.info("腳本目錄創建成功: {}", SCRIPTS_DIR);
-
-      // 設置系統屬性以允許在 headless 環境中創建 Robot
-      System.setProperty("java.awt.headless", "false");
-      try {
-        robot = new Robot();
-        logger.info("Robot 初始化成功");
-      } catch (AWTException e) {
-        logger.error("Robot 初始化失敗: {}", e.getMessage());
-      }
-
-      // 初始化按鍵映射
-      initializeKeyCodeMap();
       logger.info("按鍵監聽器初始化成功");
 
-      // 啟動按鍵監聽
-      startKeyMonitor();
+      // 快速啟動模式下，按鍵監聽延到第一次錄製或播放時才啟動
+      if (!lazyStartup) {
+        startKeyMonitor();
+      }
     } catch (Exception e) {
       logger.error("初始化失敗: {}", e.getMessage());
     }
   }
 
-  private void startKeyMonitor() {
+  private synchronized void startKeyMonitor() {
     if (keyMonitorThread != null && keyMonitorThread.isAlive()) {
       return;
     }
 
     logger.info("開始監控按鍵事件");
-    long startTime = System.currentTimeMillis();
     keyMonitorThread =
         new Thread(
             () -> {
               while (!Thread.currentThread().isInterrupted()) {
                 try {
-                  // 檢查所有按鍵狀態
-                  for (Map.Entry<String, Integer> entry : keyCodeMap.entrySet()) {
-                    String key = entry.getKey();
-                    int vKey = entry.getValue();
-                    short keyState = user32.GetAsyncKeyState(vKey);
-                    boolean isPressed = (keyState & 0x8000) != 0;
-                    Boolean wasPressed = keyStates.get(vKey);
-
-                    if (isPressed && (wasPressed == null || !wasPressed)) {
-                      // 檢查視窗鎖定狀態
-                      if (windowService != null
-                          && windowService.isWindowLocked()
-                          && !windowService.isLockedWindowActive()) {
-                        logger.debug("視窗未鎖定，自動切換回鎖定視窗: {}", key);
-                        // 自動將鎖定視窗帶到前台
-                        windowService.bringLockedWindowToFront();
-                        // 等待視窗切換完成
-                        Thread.sleep(100);
-                        continue;
-                      }
-
-                      // 按鍵按下
-                      long currentTime = System.currentTimeMillis();
-                      long relativeTime = currentTime - startTime;
-
-                      if (isRecording) {
-                        logger.info("[錄製中] 時間: {}ms, 按鍵: {}, 動作: PRESS", relativeTime, key);
-                        recordKeyPress(vKey);
-                      } else {
-                        logger.debug("時間: {}ms, 按鍵: {}, 動作: PRESS", relativeTime, key);
-                      }
-
-                      // 如果是 ESC 鍵且正在播放，則停止播放
-                      if (key.equals("Escape") && isPlaying) {
-                        logger.info("檢測到 ESC 鍵按下，停止播放");
-                        stopPlayback();
-                      }
-
-                      keyStates.put(vKey, true);
-                    } else if (!isPressed && wasPressed != null && wasPressed) {
-                      // 按鍵釋放
-                      long currentTime = System.currentTimeMillis();
-                      long relativeTime = currentTime - startTime;
-
-                      if (isRecording) {
-                        logger.info("[錄製中] 時間: {}ms, 按鍵: {}, 動作: RELEASE", relativeTime, key);
-                        recordKeyRelease(vKey);
-                      } else {
-                        logger.debug("時間: {}ms, 按鍵: {}, 動作: RELEASE", relativeTime, key);
-                      }
-
-                      keyStates.put(vKey, false);
-                    }
-                  }
+                  long tickStart = System.nanoTime();
+                  pollKeyTick();
+                  keyMonitorMetrics.recordTick(System.nanoTime() - tickStart);
                   Thread.sleep(10); // 10ms 的輪詢間隔
                 } catch (InterruptedException e) {
                   logger.info("按鍵監控執行緒被中斷");
@@ -170,11 +180,118 @@ public class KeyboardService implements KeyListener {
                 }
               }
               logger.info("停止監控按鍵事件");
-            });
+            },
+            "KeyMonitorThread");
     keyMonitorThread.setDaemon(true);
     keyMonitorThread.start();
   }
 
+  /**
+   * 按鍵監控執行緒的單次輪詢。
+   *
+   * <p>鎖定視窗不在前台時只送出非同步的焦點恢復請求，輪詢不等待視窗操作；這段期間的按鍵先暫存，焦點恢復後依設定補錄或丟棄。
+   */
+  void pollKeyTick() {
+    long now = System.nanoTime();
+    // 只在有按鍵變化或有暫存事件時才查詢前台視窗
+    boolean focusChecked = false;
+    boolean focusLost = false;
+    if (!pendingKeys.isEmpty()) {
+      focusLost = focusRestorer.isFocusLost();
+      focusChecked = true;
+      if (!focusLost) {
+        releasePendingKeys();
+      } else if (pendingKeys.isExpired(now, focusRestorer.getBufferTimeoutNanos())) {
+        logger.warn("焦點未在時限內恢復，丟棄 {} 個暫存按鍵", pendingKeys.size());
+        dropPendingKeys();
+      } else {
+        focusRestorer.request();
+      }
+    }
+
+    for (int i = 0; i < keyTable.size(); i++) {
+      int vKey = keyTable.codeAt(i);
+      long callStart = System.nanoTime();
+      short keyState = inputProbe.getAsyncKeyState(vKey);
+      getAsyncKeyStateTimer.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+      boolean isPressed = (keyState & 0x8000) != 0;
+      if (isPressed == keyStates[vKey]) {
+        continue;
+      }
+      keyStates[vKey] = isPressed;
+
+      // 逐筆事件只寫入追蹤，不在監控執行緒上格式化日誌
+      traceSink.trace(isPressed ? TraceType.KEY_PRESS : TraceType.KEY_RELEASE, vKey);
+
+      // ESC 停止播放不受視窗焦點影響
+      if (isPressed && vKey == KeyTable.VK_ESCAPE && isPlaying) {
+        logger.info("檢測到 ESC 鍵按下，停止播放");
+        stopPlayback();
+      }
+
+      if (isPressed && !focusChecked) {
+        focusLost = focusRestorer.isFocusLost();
+        focusChecked = true;
+      }
+      if (isPressed && focusLost) {
+        // 自動將鎖定視窗帶到前台，由背景執行緒處理
+        focusRestorer.request();
+      }
+      if ((isPressed && focusLost) || !pendingKeys.isEmpty()) {
+        // 暫存期間的放開也要暫存，維持事件順序
+        bufferKey(vKey, isPressed, now);
+        continue;
+      }
+
+      if (isPressed) {
+        recordKeyPress(vKey);
+      } else {
+        recordKeyRelease(vKey);
+      }
+    }
+  }
+
+  private void bufferKey(int vKey, boolean press, long nowNanos) {
+    if (!isRecording) {
+      return;
+    }
+    if (!pendingKeys.offer(System.currentTimeMillis(), nowNanos, vKey, press)) {
+      droppedPendingKeysCounter.increment();
+    }
+  }
+
+  /** 焦點已恢復，依設定補錄或丟棄暫存的按鍵 */
+  private void releasePendingKeys() {
+    if (focusRestorer.getBufferPolicy() == FocusRestorer.BufferPolicy.DROP) {
+      dropPendingKeys();
+      return;
+    }
+    for (int i = 0; i < pendingKeys.size(); i++) {
+      if (pendingKeys.isPress(i)) {
+        recordKeyPress(pendingKeys.keyCode(i), pendingKeys.timestamp(i));
+      } else {
+        recordKeyRelease(pendingKeys.keyCode(i), pendingKeys.timestamp(i));
+      }
+    }
+    replayedPendingKeysCounter.increment(pendingKeys.size());
+    pendingKeys.clear();
+  }
+
+  /** 丟棄暫存的按下與對應的放開；按下在暫存前已錄製的按鍵仍補錄放開，否則會一直留在按住的清單中 */
+  private void dropPendingKeys() {
+    int dropped = 0;
+    for (int i = 0; i < pendingKeys.size(); i++) {
+      if (pendingKeys.isPress(i) || pendingKeys.releasesBufferedPress(i)) {
+        dropped++;
+      } else {
+        recordKeyRelease(pendingKeys.keyCode(i), pendingKeys.timestamp(i));
+      }
+    }
+    droppedPendingKeysCounter.increment(dropped);
+    replayedPendingKeysCounter.increment(pendingKeys.size() - dropped);
+    pendingKeys.clear();
+  }
+
   @PreDestroy
   public void cleanup() {
     try {
@@ -185,6 +302,7 @@ public class KeyboardService implements KeyListener {
         stopPlayback();
       }
       stopAllScheduledTasks();
+      recordStream.close();
       if (keyMonitorThread != null) {
         keyMonitorThread.interrupt();
       }
@@ -204,7 +322,7 @@ public class KeyboardService implements KeyListener {
   public void keyPressed(java.awt.event.KeyEvent e) {
     if (isRecording) {
       logger.debug("按鍵按下: {}", e.getKeyCode());
-      recordKeyPress(e.getKeyCode());
+      recordKeyPress(keyTable.fromAwtCode(e.getKeyCode()));
     }
   }
 
@@ -212,7 +330,7 @@ public class KeyboardService implements KeyListener {
   public void keyReleased(java.awt.event.KeyEvent e) {
     if (isRecording) {
       logger.debug("按鍵釋放: {}", e.getKeyCode());
-      recordKeyRelease(e.getKeyCode());
+      recordKeyRelease(keyTable.fromAwtCode(e.getKeyCode()));
     }
   }
 
@@ -221,140 +339,17 @@ public class KeyboardService implements KeyListener {
     // 不需要處理
   }
 
-  private void initializeKeyCodeMap() {
-    try {
-      // 字母鍵
-      for (char c = 'A'; c <= 'Z'; c++) {
-        int keyCode = java.awt.event.KeyEvent.class.getField("VK_" + c).getInt(null);
-        keyCodeMap.put(String.valueOf(c), keyCode);
-        reverseKeyCodeMap.put(keyCode, String.valueOf(c));
-      }
-
-      // 數字鍵
-      for (char c = '0'; c <= '9'; c++) {
-        int keyCode = java.awt.event.KeyEvent.class.getField("VK_" + c).getInt(null);
-        keyCodeMap.put(String.valueOf(c), keyCode);
-        reverseKeyCodeMap.put(keyCode, String.valueOf(c));
-      }
-
-      // 功能鍵
-      for (int i = 1; i <= 12; i++) {
-        int keyCode = java.awt.event.KeyEvent.class.getField("VK_F" + i).getInt(null);
-        keyCodeMap.put("F" + i, keyCode);
-        reverseKeyCodeMap.put(keyCode, "F" + i);
-      }
-
-      // 特殊按鍵
-      keyCodeMap.put("Space", java.awt.event.KeyEvent.VK_SPACE);
-      keyCodeMap.put("Enter", java.awt.event.KeyEvent.VK_ENTER);
-      keyCodeMap.put("Escape", java.awt.event.KeyEvent.VK_ESCAPE);
-      keyCodeMap.put("Tab", java.awt.event.KeyEvent.VK_TAB);
-      keyCodeMap.put("Backspace", java.awt.event.KeyEvent.VK_BACK_SPACE);
-      keyCodeMap.put("Delete", java.awt.event.KeyEvent.VK_DELETE);
-      keyCodeMap.put("Insert", java.awt.event.KeyEvent.VK_INSERT);
-      keyCodeMap.put("Home", java.awt.event.KeyEvent.VK_HOME);
-      keyCodeMap.put("End", java.awt.event.KeyEvent.VK_END);
-      keyCodeMap.put("PageUp", java.awt.event.KeyEvent.VK_PAGE_UP);
-      keyCodeMap.put("PageDown", java.awt.event.KeyEvent.VK_PAGE_DOWN);
-
-      // 方向鍵
-      keyCodeMap.put("Left", java.awt.event.KeyEvent.VK_LEFT);
-      keyCodeMap.put("Right", java.awt.event.KeyEvent.VK_RIGHT);
-      keyCodeMap.put("Up", java.awt.event.KeyEvent.VK_UP);
-      keyCodeMap.put("Down", java.awt.event.KeyEvent.VK_DOWN);
-
-      // 修飾鍵
-      keyCodeMap.put("Shift", java.awt.event.KeyEvent.VK_SHIFT);
-      keyCodeMap.put("Ctrl", java.awt.event.KeyEvent.VK_CONTROL);
-      keyCodeMap.put("Alt", java.awt.event.KeyEvent.VK_ALT);
-      keyCodeMap.put("Windows", java.awt.event.KeyEvent.VK_WINDOWS);
-      keyCodeMap.put("Command", java.awt.event.KeyEvent.VK_META);
-
-      // 反向映射
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_SPACE, "Space");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_ENTER, "Enter");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_ESCAPE, "Escape");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_TAB, "Tab");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_BACK_SPACE, "Backspace");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_DELETE, "Delete");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_INSERT, "Insert");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_HOME, "Home");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_END, "End");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_PAGE_UP, "PageUp");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_PAGE_DOWN, "PageDown");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_LEFT, "Left");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_RIGHT, "Right");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_UP, "Up");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_DOWN, "Down");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_SHIFT, "Shift");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_CONTROL, "Ctrl");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_ALT, "Alt");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_WINDOWS, "Windows");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_META, "Command");
-
-      // 額外的特殊按鍵
-      keyCodeMap.put("NumLock", java.awt.event.KeyEvent.VK_NUM_LOCK);
-      keyCodeMap.put("ScrollLock", java.awt.event.KeyEvent.VK_SCROLL_LOCK);
-      keyCodeMap.put("CapsLock", java.awt.event.KeyEvent.VK_CAPS_LOCK);
-      keyCodeMap.put("PrintScreen", java.awt.event.KeyEvent.VK_PRINTSCREEN);
-      keyCodeMap.put("Pause", java.awt.event.KeyEvent.VK_PAUSE);
-      keyCodeMap.put("ContextMenu", java.awt.event.KeyEvent.VK_CONTEXT_MENU);
-
-      // 數字鍵盤
-      keyCodeMap.put("NumPad0", java.awt.event.KeyEvent.VK_NUMPAD0);
-      keyCodeMap.put("NumPad1", java.awt.event.KeyEvent.VK_NUMPAD1);
-      keyCodeMap.put("NumPad2", java.awt.event.KeyEvent.VK_NUMPAD2);
-      keyCodeMap.put("NumPad3", java.awt.event.KeyEvent.VK_NUMPAD3);
-      keyCodeMap.put("NumPad4", java.awt.event.KeyEvent.VK_NUMPAD4);
-      keyCodeMap.put("NumPad5", java.awt.event.KeyEvent.VK_NUMPAD5);
-      keyCodeMap.put("NumPad6", java.awt.event.KeyEvent.VK_NUMPAD6);
-      keyCodeMap.put("NumPad7", java.awt.event.KeyEvent.VK_NUMPAD7);
-      keyCodeMap.put("NumPad8", java.awt.event.KeyEvent.VK_NUMPAD8);
-      keyCodeMap.put("NumPad9", java.awt.event.KeyEvent.VK_NUMPAD9);
-      keyCodeMap.put("NumPadAdd", java.awt.event.KeyEvent.VK_ADD);
-      keyCodeMap.put("NumPadSubtract", java.awt.event.KeyEvent.VK_SUBTRACT);
-      keyCodeMap.put("NumPadMultiply", java.awt.event.KeyEvent.VK_MULTIPLY);
-      keyCodeMap.put("NumPadDivide", java.awt.event.KeyEvent.VK_DIVIDE);
-      keyCodeMap.put("NumPadDecimal", java.awt.event.KeyEvent.VK_DECIMAL);
-      keyCodeMap.put("NumPadEnter", java.awt.event.KeyEvent.VK_ENTER);
-
-      // 反向映射
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUM_LOCK, "NumLock");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_SCROLL_LOCK, "ScrollLock");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_CAPS_LOCK, "CapsLock");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_PRINTSCREEN, "PrintScreen");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_PAUSE, "Pause");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_CONTEXT_MENU, "ContextMenu");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD0, "NumPad0");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD1, "NumPad1");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD2, "NumPad2");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD3, "NumPad3");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD4, "NumPad4");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD5, "NumPad5");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD6, "NumPad6");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD7, "NumPad7");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD8, "NumPad8");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_NUMPAD9, "NumPad9");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_ADD, "NumPadAdd");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_SUBTRACT, "NumPadSubtract");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_MULTIPLY, "NumPadMultiply");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_DIVIDE, "NumPadDivide");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_DECIMAL, "NumPadDecimal");
-      reverseKeyCodeMap.put(java.awt.event.KeyEvent.VK_ENTER, "NumPadEnter");
-
-    } catch (NoSuchFieldException | IllegalAccessException e) {
-      logger.error("初始化按鍵映射時發生錯誤", e);
-    }
-  }
-
   public void startRecording() {
     if (isRecording) {
       logger.warn("已經在錄製中");
       return;
     }
 
+    startKeyMonitor();
     recordedEvents.clear();
     isRecording = true;
+    recordingStatus.set(new RecordingStatus(true, 0));
+    statusPublisher.signal();
     logger.info("=== 開始錄製鍵盤事件 ===");
     logger.info("當前已記錄的事件數: {}", recordedEvents.size());
   }
@@ -366,29 +361,24 @@ public class KeyboardService implements KeyListener {
     }
 
     isRecording = false;
+    recordingStatus.set(new RecordingStatus(false, recordedEvents.size()));
+    statusPublisher.signal();
     logger.info("=== 停止錄製鍵盤事件 ===");
     logger.info("總共錄製了 {} 個事件", recordedEvents.size());
 
-    // 輸出所有錄製的事件
-    for (int i = 0; i < recordedEvents.size(); i++) {
-      KeyEvent event = recordedEvents.get(i);
-      logger.info(
-          "事件 {}: 時間={}ms, 按鍵={}, 動作={}",
-          i + 1,
-          event.getTimestamp(),
-          event.getKey(),
-          event.getAction());
-    }
-
     return new ArrayList<>(recordedEvents);
   }
 
   public void recordKeyPress(int keyCode) {
+    recordKeyPress(keyCode, System.currentTimeMillis());
+  }
+
+  private void recordKeyPress(int keyCode, long timestamp) {
     if (!isRecording) {
       return;
     }
 
-    String keyText = reverseKeyCodeMap.get(keyCode);
+    String keyText = keyTable.name(keyCode);
     if (keyText == null) {
       logger.warn("未知的按鍵代碼: {}", keyCode);
       return;
@@ -397,20 +387,28 @@ public class KeyboardService implements KeyListener {
     if (!currentPressedKeys.contains(keyText)) {
       currentPressedKeys.add(keyText);
       KeyEvent event = new KeyEvent();
-      event.setTimestamp(System.currentTimeMillis());
+      event.setTimestamp(timestamp);
       event.setKey(keyText);
+      event.setVk(keyCode);
       event.setAction("PRESS");
       recordedEvents.add(event);
-      logger.debug("記錄按鍵按下: {}", keyText);
+      recordStream.publish(event);
+      recordingStatus.set(new RecordingStatus(true, recordedEvents.size()));
+      recordedEventsCounter.increment();
+      statusPublisher.signal();
     }
   }
 
   public void recordKeyRelease(int keyCode) {
+    recordKeyRelease(keyCode, System.currentTimeMillis());
+  }
+
+  private void recordKeyRelease(int keyCode, long timestamp) {
     if (!isRecording) {
       return;
     }
 
-    String keyText = reverseKeyCodeMap.get(keyCode);
+    String keyText = keyTable.name(keyCode);
     if (keyText == null) {
       logger.warn("未知的按鍵代碼: {}", keyCode);
       return;
@@ -419,14 +417,32 @@ public class KeyboardService implements KeyListener {
     if (currentPressedKeys.contains(keyText)) {
       currentPressedKeys.remove(keyText);
       KeyEvent event = new KeyEvent();
-      event.setTimestamp(System.currentTimeMillis());
+      event.setTimestamp(timestamp);
       event.setKey(keyText);
+      event.setVk(keyCode);
       event.setAction("RELEASE");
       recordedEvents.add(event);
-      logger.debug("記錄按鍵釋放: {}", keyText);
+      recordStream.publish(event);
+      recordingStatus.set(new RecordingStatus(true, recordedEvents.size()));
+      recordedEventsCounter.increment();
+      statusPublisher.signal();
     }
   }
 
+  /** 開啟即時錄製事件串流 */
+  public StreamingResponseBody openRecordStream() {
+    return recordStream.openStream();
+  }
+
+  /** 新增錄製事件的監聽者，在擷取執行緒上呼叫 (只在錄製中產生事件) */
+  public void addRecordListener(Consumer<KeyEvent> listener) {
+    recordStream.addListener(listener);
+  }
+
+  public void removeRecordListener(Consumer<KeyEvent> listener) {
+    recordStream.removeListener(listener);
+  }
+
   public List<String> getCurrentPressedKeys() {
     return new ArrayList<>(currentPressedKeys);
   }
@@ -451,7 +467,8 @@ public class KeyboardService implements KeyListener {
     File dir = new File(SCRIPTS_DIR);
     List<String> scripts = new ArrayList<>();
     if (dir.exists() && dir.isDirectory()) {
-      File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+      File[] files =
+          dir.listFiles((d, name) -> name.endsWith(".json") && !name.endsWith(FIDELITY_SUFFIX));
       if (files != null) {
         for (File file : files) {
           scripts.add(file.getName().replace(".json", ""));
@@ -466,6 +483,7 @@ public class KeyboardService implements KeyListener {
     Path filePath = Paths.get(SCRIPTS_DIR, name + ".json");
     if (Files.exists(filePath)) {
       Files.delete(filePath);
+      Files.deleteIfExists(Paths.get(SCRIPTS_DIR, name + FIDELITY_SUFFIX));
       logger.info("腳本刪除成功: {}", filePath);
       return true;
     }
@@ -488,83 +506,111 @@ public class KeyboardService implements KeyListener {
     }
 
     Files.move(oldPath, newPath);
+    Path oldReport = Paths.get(SCRIPTS_DIR, oldName + FIDELITY_SUFFIX);
+    if (Files.exists(oldReport)) {
+      Files.move(oldReport, Paths.get(SCRIPTS_DIR, newName + FIDELITY_SUFFIX));
+    }
     logger.info("腳本重命名成功: {} -> {}", oldPath, newPath);
     return true;
   }
 
-  public void playScript(List<KeyEvent> events, boolean loop, int count) {
+  public void playScript(List<KeyEvent> events, boolean loop, long count) {
+    playScript(events, loop, count, null);
+  }
+
+  /** 播放腳本，timeWarp 為 null 時依錄製時間播放；循環播放時 count 為 0 表示無限循環 */
+  public void playScript(
+      List<KeyEvent> events, boolean loop, long count, TimeWarpOptions timeWarp) {
+    playScript(events, loop, count, timeWarp, false, null);
+  }
+
+  /**
+   * 播放腳本，fidelity 為 true 時記錄每個注入動作的時間，播放結束後產生忠實度報告。
+   *
+   * <p>指定 scriptName 時報告另存到腳本旁的 {@code <scriptName>.fidelity.json}。
+   */
+  public void playScript(
+      List<KeyEvent> events,
+      boolean loop,
+      long count,
+      TimeWarpOptions timeWarp,
+      boolean fidelity,
+      String scriptName) {
     if (isPlaying) {
       logger.warn("正在播放中");
       return;
     }
 
-    if (robot == null) {
-      logger.error("Robot 未初始化，無法播放腳本");
+    if (events == null || events.isEmpty()) {
+      logger.warn("沒有可播放的按鍵事件");
+      return;
+    }
+
+    if (!injector.isAvailable()) {
+      logger.error("輸入注入器無法使用，無法播放腳本");
       return;
     }
 
+    TimeWarp warp = TimeWarp.of(timeWarp);
+    long preRollMs =
+        timeWarp != null ? timeWarp.resolvePreRollMs(defaultPreRollMs) : defaultPreRollMs;
+    long loopGapMs =
+        timeWarp != null ? timeWarp.resolveLoopGapMs(DEFAULT_LOOP_GAP_MS) : DEFAULT_LOOP_GAP_MS;
+    PlaybackTimeline<KeyEvent> timeline =
+        PlaybackTimeline.build(
+            warp.apply(ScriptTimings.keyEvents(events)),
+            keyInputMapping(),
+            TimeUnit.MILLISECONDS.toNanos(loopGapMs));
+    long loops = loop ? count : 1;
+    if (loop) {
+      long periodMs = TimeUnit.NANOSECONDS.toMillis(timeline.periodNanos());
+      logger.info(
+          "循環長度 {} ms，預估每小時 {} 次循環",
+          periodMs,
+          String.format("%.1f", TimeWarp.loopsPerHour(periodMs)));
+    }
+
+    // 播放中需要按鍵監聽來偵測 ESC 停止
+    startKeyMonitor();
     isPlaying = true;
     isLooping = loop;
-    loopCount = count;
-    currentLoop = 0;
-    currentPlayingEvent = null;
-    currentPlayingIndex = -1;
     currentPressedKeys.clear();
-
-    scheduler.schedule(
+    PlaybackStatus<KeyEvent> startedStatus = PlaybackStatus.started(loop, 0, count);
+    PlaybackTarget<KeyEvent> target = new KeyPlaybackTarget(startedStatus);
+    FidelityRecorder<KeyEvent> recorder =
+        fidelity ? new FidelityRecorder<>(timeline, playbackClock, target) : null;
+    TimelinePlayer<KeyEvent> player =
+        new TimelinePlayer<>(timeline, playbackClock, recorder != null ? recorder : target);
+    currentPlayer = player;
+    playbackStatus.set(startedStatus);
+    statusPublisher.signal();
+
+    // 預備時間也排在播放時間軸上，期間按 ESC 停止會立即生效
+    long preRollNanos = TimeUnit.MILLISECONDS.toNanos(preRollMs);
+    scheduler.execute(
         () -> {
+          long completed = 0;
           try {
-            do {
-              currentLoop++;
-              logger.info("開始第 {} 次播放", currentLoop);
-              long lastTimestamp = events.get(0).getTimestamp();
-              for (int i = 0; i < events.size(); i++) {
-                KeyEvent event = events.get(i);
-                if (!isPlaying) {
-                  logger.info("播放被中斷");
-                  return;
-                }
-                // 更新當前播放的按鍵
-                currentPlayingEvent = event;
-                currentPlayingIndex = i;
-
-                // 計算時間差
-                long delay = event.getTimestamp() - lastTimestamp;
-                if (delay > 0) {
-                  Thread.sleep(delay);
-                }
-                lastTimestamp = event.getTimestamp();
-
-                // 執行按鍵動作
-                int keyCode = getKeyCode(event.getKey());
-                if (keyCode != -1) {
-                  if (event.getAction().equals("PRESS")) {
-                    robot.keyPress(keyCode);
-                    if (!currentPressedKeys.contains(event.getKey())) {
-                      currentPressedKeys.add(event.getKey());
-                    }
-                  } else {
-                    robot.keyRelease(keyCode);
-                    currentPressedKeys.remove(event.getKey());
-                  }
-                }
-              }
-              logger.info("第 {} 次播放完成", currentLoop);
-            } while (isLooping && (loopCount == 0 || currentLoop < loopCount));
+            if (isPlaying) {
+              completed = player.play(loops, preRollNanos);
+              logger.info("播放完成，共 {} 次循環", completed);
+            }
           } catch (Exception e) {
             logger.error("播放腳本失敗: {}", e.getMessage());
           } finally {
+            // 報告在播放狀態結束前產生，結束後即可讀取
+            if (recorder != null) {
+              FidelityReport report = recorder.report(scriptName, completed, this::keyName);
+              report.setWarmupMs(Math.max(0, player.warmupNanos()) / 1_000_000.0);
+              publishFidelityReport(report, scriptName);
+            }
             isPlaying = false;
             isLooping = false;
-            currentPlayingEvent = null;
-            currentPlayingIndex = -1;
-            // 確保所有按鍵都被釋放
-            for (String key : currentPressedKeys) {
-              int keyCode = getKeyCode(key);
-              if (keyCode != -1) {
-                robot.keyRelease(keyCode);
-              }
+            if (currentPlayer == player) {
+              currentPlayer = null;
             }
+            playbackStatus.set(PlaybackStatus.idle(player.currentLoop(), count));
+            statusPublisher.signal();
             currentPressedKeys.clear();
 
             // 自動解鎖視窗
@@ -573,9 +619,261 @@ public class KeyboardService implements KeyListener {
               logger.info("腳本播放完成，自動解鎖視窗");
             }
           }
-        },
-        3,
-        TimeUnit.SECONDS); // 3秒後開始播放
+        });
+  }
+
+  /**
+   * 以指定的執行方式在播放執行緒上執行已編譯的腳本程式，預備時間與一般腳本相同。
+   *
+   * <p>按 ESC 或 {@link #stopPlayback()} 會停止程式並放開所有仍按住的輸入；程式沒有時間軸，不支援暫停與跳轉。
+   *
+   * @return 這次執行的狀態，正在播放或注入器無法使用而沒有開始時為 null
+   */
+  public ProgramRuntime playProgram(
+      Program program, ProgramExecutor executor, TriggerBoard triggers) {
+    long preRollNanos = TimeUnit.MILLISECONDS.toNanos(defaultPreRollMs);
+    return startProgram(program, executor, triggers, () -> playbackClock.nanoTime() + preRollNanos);
+  }
+
+  /** 在播放時鐘的 startNanos 開始執行程式，用於多台同步開始；已經過了的時間會立即開始 */
+  public ProgramRuntime playProgramAt(
+      Program program, ProgramExecutor executor, TriggerBoard triggers, long startNanos) {
+    return startProgram(program, executor, triggers, () -> startNanos);
+  }
+
+  private ProgramRuntime startProgram(
+      Program program, ProgramExecutor executor, TriggerBoard triggers, LongSupplier start) {
+    if (isPlaying) {
+      logger.warn("正在播放中");
+      return null;
+    }
+
+    if (!injector.isAvailable()) {
+      logger.error("輸入注入器無法使用，無法執行腳本程式");
+      return null;
+    }
+
+    startKeyMonitor();
+    isPlaying = true;
+    isLooping = false;
+    currentPressedKeys.clear();
+    ProgramRuntime runtime =
+        new ProgramRuntime(program, injector, inputProbe, playbackClock, triggers);
+    currentProgram = runtime;
+    playbackStatus.set(PlaybackStatus.started(false, 0, 1));
+    statusPublisher.signal();
+
+    scheduler.execute(
+        () -> {
+          try {
+            if (isPlaying) {
+              boolean completed = executor.run(runtime, start.getAsLong());
+              logger.info(
+                  "腳本程式 {} ({}) {}，注入 {} 個輸入，最大延遲 {} ms",
+                  program.getName(),
+                  executor.backend(),
+                  completed ? "執行完成" : "已停止",
+                  runtime.injectedCount(),
+                  String.format("%.3f", runtime.maxLatenessNanos() / 1_000_000.0));
+            }
+          } catch (Exception e) {
+            logger.error("執行腳本程式失敗: {}", e.getMessage());
+          } finally {
+            isPlaying = false;
+            if (currentProgram == runtime) {
+              currentProgram = null;
+            }
+            playbackStatus.set(PlaybackStatus.idle(1, 1));
+            statusPublisher.signal();
+            currentPressedKeys.clear();
+
+            if (windowService != null && windowService.isWindowLocked()) {
+              windowService.unlockWindow();
+              logger.info("腳本程式執行完成，自動解鎖視窗");
+            }
+          }
+        });
+    return runtime;
+  }
+
+  /** 保存最近一次的忠實度報告，有腳本名稱時也寫入檔案 */
+  private void publishFidelityReport(FidelityReport report, String scriptName) {
+    lastFidelityReport = report;
+    logger.info(
+        "播放忠實度: {} 個事件, 延遲 p99 {} ms, 最大 {} ms, 遺漏 {}, 亂序 {}, 未放開 {}",
+        report.getInjectedEvents(),
+        String.format("%.3f", report.getLatenessP99Ms()),
+        String.format("%.3f", report.getLatenessMaxMs()),
+        report.getDroppedEvents(),
+        report.getReorderedEvents(),
+        report.getHeldAtEnd());
+    if (scriptName == null || scriptName.isEmpty()) {
+      return;
+    }
+    try {
+      Path filePath = Paths.get(SCRIPTS_DIR, scriptName + FIDELITY_SUFFIX);
+      objectMapper.writeValue(filePath.toFile(), report);
+      logger.info("忠實度報告儲存成功: {}", filePath);
+    } catch (IOException e) {
+      logger.error("儲存忠實度報告失敗: {}", e.getMessage());
+    }
+  }
+
+  /** 取得忠實度報告：name 為 null 時回傳最近一次播放的報告，否則讀取腳本旁的報告檔；沒有報告時回傳 null */
+  public FidelityReport getFidelityReport(String name) throws IOException {
+    if (name == null || name.isEmpty()) {
+      return lastFidelityReport;
+    }
+    Path filePath = Paths.get(SCRIPTS_DIR, name + FIDELITY_SUFFIX);
+    if (!Files.exists(filePath)) {
+      return null;
+    }
+    return objectMapper.readValue(filePath.toFile(), FidelityReport.class);
+  }
+
+  private String keyName(int keyCode) {
+    String name = keyTable.name(keyCode);
+    return name != null ? name : String.valueOf(keyCode);
+  }
+
+  /** 按鍵事件的輸入代碼為其鍵碼，無法解析的按鍵不影響按住狀態 */
+  private InputMapping<KeyEvent> keyInputMapping() {
+    return new InputMapping<>() {
+      @Override
+      public int inputId(KeyEvent event) {
+        return getKeyCode(event);
+      }
+
+      @Override
+      public boolean isPress(KeyEvent event) {
+        return "PRESS".equals(event.getAction());
+      }
+    };
+  }
+
+  /** 第一個事件注入後記錄預熱耗時與第一個事件的延遲 */
+  private void reportFirstEvent(long latenessNanos) {
+    firstEventLatenessTimer.record(Math.max(0, latenessNanos), TimeUnit.NANOSECONDS);
+    TimelinePlayer<KeyEvent> player = currentPlayer;
+    long warmupNanos = player != null ? player.warmupNanos() : -1;
+    if (warmupNanos >= 0) {
+      playbackWarmupTimer.record(warmupNanos, TimeUnit.NANOSECONDS);
+    }
+    logger.info(
+        "播放預熱耗時 {} ms，第一個事件延遲 {} ms",
+        String.format("%.3f", Math.max(0, warmupNanos) / 1_000_000.0),
+        String.format("%.3f", latenessNanos / 1_000_000.0));
+  }
+
+  /** 把時間軸上的按鍵事件注入系統，並更新播放狀態與指標 */
+  private final class KeyPlaybackTarget implements PlaybackTarget<KeyEvent> {
+    private PlaybackStatus<KeyEvent> status;
+    private boolean firstEventSeen = false;
+
+    private KeyPlaybackTarget(PlaybackStatus<KeyEvent> startedStatus) {
+      this.status = startedStatus;
+    }
+
+    @Override
+    public void warmUp(PlaybackTimeline<KeyEvent> timeline) {
+      // 注入器與原生函式在第一次呼叫時才載入與連結，先在播放執行緒上各呼叫一次
+      injector.isAvailable();
+      inputProbe.getAsyncKeyState(KeyTable.VK_ESCAPE);
+    }
+
+    @Override
+    public void inject(KeyEvent event, int keyCode, boolean press) {
+      if (keyCode < 0) {
+        return;
+      }
+      if (press) {
+        injector.keyPress(keyCode);
+        if (!currentPressedKeys.contains(event.getKey())) {
+          currentPressedKeys.add(event.getKey());
+        }
+      } else {
+        injector.keyRelease(keyCode);
+        currentPressedKeys.remove(event.getKey());
+      }
+    }
+
+    @Override
+    public void press(int keyCode) {
+      injector.keyPress(keyCode);
+      String key = keyTable.name(keyCode);
+      if (key != null && !currentPressedKeys.contains(key)) {
+        currentPressedKeys.add(key);
+      }
+    }
+
+    @Override
+    public void release(int keyCode) {
+      injector.keyRelease(keyCode);
+      String key = keyTable.name(keyCode);
+      if (key != null) {
+        currentPressedKeys.remove(key);
+      }
+    }
+
+    @Override
+    public void onEvent(
+        long loop, int index, KeyEvent event, long latenessNanos, long injectNanos) {
+      if (!firstEventSeen) {
+        firstEventSeen = true;
+        reportFirstEvent(latenessNanos);
+      }
+      // 記錄實際執行時間與預定時間的差
+      playbackLatenessTimer.record(Math.max(0, latenessNanos), TimeUnit.NANOSECONDS);
+      injectionLatencyTimer.record(injectNanos, TimeUnit.NANOSECONDS);
+      if (traceSink.isEnabled()) {
+        traceSink.trace(
+            "PRESS".equals(event.getAction())
+                ? TraceType.PLAY_KEY_PRESS
+                : TraceType.PLAY_KEY_RELEASE,
+            getKeyCode(event),
+            0,
+            0,
+            latenessNanos);
+      }
+      status = status.at(loop, event, index);
+      playbackStatus.set(status);
+      statusPublisher.signal();
+    }
+
+    @Override
+    public void onPositionChanged(long loop, int nextIndex, KeyEvent nextEvent, boolean paused) {
+      status = status.at(loop, nextEvent, nextIndex).paused(paused);
+      playbackStatus.set(status);
+      statusPublisher.signal();
+    }
+  }
+
+  /** 以時間轉換選項改寫腳本並另存，回傳轉換前後的長度與每小時循環次數 */
+  public TimeWarpReport rewriteScript(String name, String saveAs, TimeWarpOptions timeWarp)
+      throws IOException {
+    if (timeWarp == null) {
+      timeWarp = new TimeWarpOptions();
+    }
+    List<KeyEvent> events = loadScript(name);
+    if (events.isEmpty()) {
+      throw new IOException("腳本沒有任何事件: " + name);
+    }
+    List<KeyEvent> rewritten =
+        ScriptTimings.toKeyEvents(
+            TimeWarp.of(timeWarp).apply(ScriptTimings.keyEvents(events)),
+            events.get(0).getTimestamp());
+    saveScript(saveAs, rewritten);
+
+    long originalNanos = TimeWarp.durationNanos(ScriptTimings.keyEvents(events));
+    long warpedNanos = TimeWarp.durationNanos(ScriptTimings.keyEvents(rewritten));
+    return TimeWarp.report(
+        name,
+        saveAs,
+        events.size(),
+        originalNanos,
+        DEFAULT_LOOP_GAP_MS,
+        warpedNanos,
+        timeWarp.resolveLoopGapMs(DEFAULT_LOOP_GAP_MS));
   }
 
   public void stopPlayback() {
@@ -586,58 +884,110 @@ public class KeyboardService implements KeyListener {
 
     isPlaying = false;
     isLooping = false;
+    playbackStatus.set(playbackStatus.get().finished());
+    statusPublisher.signal();
     logger.info("停止播放腳本");
 
-    try {
-      // 確保所有按鍵都被釋放
-      for (String key : currentPressedKeys) {
-        int keyCode = getKeyCode(key);
-        if (keyCode != -1) {
-          robot.keyRelease(keyCode);
-        }
+    // 播放執行緒會在停止時放開所有仍按住的按鍵並自動解鎖視窗
+    TimelinePlayer<KeyEvent> player = currentPlayer;
+    if (player != null) {
+      player.stop();
+    }
+    ProgramRuntime program = currentProgram;
+    if (program != null) {
+      program.stop();
+    }
+  }
+
+  /** 暫停播放，保留時間軸位置與按住狀態的檢查點 */
+  public void pausePlayback() {
+    TimelinePlayer<KeyEvent> player = currentPlayer;
+    if (!isPlaying || player == null) {
+      logger.warn("腳本未在播放中");
+      return;
+    }
+
+    player.pause();
+    logger.info("暫停播放腳本");
+  }
+
+  /** 從暫停的位置繼續播放 */
+  public void resumePlayback() {
+    TimelinePlayer<KeyEvent> player = currentPlayer;
+    if (!isPlaying || player == null) {
+      logger.warn("腳本未在播放中");
+      return;
+    }
+
+    player.resume();
+    logger.info("繼續播放腳本");
+  }
+
+  /**
+   * 跳轉到目前循環內的時間 (毫秒，時間轉換後的時間軸) 或事件索引，兩者擇一。
+   *
+   * <p>按住狀態由時間軸的檢查點重建，不需從頭重播。
+   */
+  public void seekPlayback(Long timeMs, Integer index) {
+    if ((timeMs == null) == (index == null)) {
+      throw new IllegalArgumentException("timeMs 與 index 必須擇一指定");
+    }
+    TimelinePlayer<KeyEvent> player = currentPlayer;
+    if (!isPlaying || player == null) {
+      logger.warn("腳本未在播放中");
+      return;
+    }
+
+    if (timeMs != null) {
+      if (timeMs < 0) {
+        throw new IllegalArgumentException("時間不可為負數: " + timeMs);
       }
-    } catch (Exception e) {
-      logger.error("釋放按鍵時發生錯誤: {}", e.getMessage());
-    } finally {
-      currentPressedKeys.clear();
-
-      // 自動解鎖視窗
-      if (windowService != null && windowService.isWindowLocked()) {
-        windowService.unlockWindow();
-        logger.info("腳本停止，自動解鎖視窗");
+      player.seekToOffset(TimeUnit.MILLISECONDS.toNanos(timeMs));
+      logger.info("腳本跳轉到 {} ms", timeMs);
+    } else {
+      try {
+        player.seekToIndex(index);
+      } catch (IndexOutOfBoundsException e) {
+        throw new IllegalArgumentException(e.getMessage());
       }
+      logger.info("腳本跳轉到第 {} 個事件", index);
     }
   }
 
-  private int getKeyCode(String keyText) {
-    // 嘗試直接獲取按鍵代碼
-    Integer keyCode = keyCodeMap.get(keyText);
-    if (keyCode != null) {
-      return keyCode;
+  /** 錄製時已記下鍵碼的事件直接使用，舊腳本才由名稱解析 */
+  private int getKeyCode(KeyEvent event) {
+    int vk = event.getVk();
+    if (keyTable.name(vk) != null) {
+      return vk;
     }
+    return getKeyCode(event.getKey());
+  }
 
-    // 如果找不到，嘗試轉換大小寫後再查找
-    String upperKey = keyText.toUpperCase();
-    keyCode = keyCodeMap.get(upperKey);
-    if (keyCode != null) {
-      return keyCode;
+  private int getKeyCode(String keyText) {
+    // 名稱不分大小寫，也接受別名
+    int keyCode = keyTable.code(keyText);
+    if (keyCode < 0) {
+      logger.error("無法解析按鍵代碼: {}", keyText);
     }
-
-    // 如果還是找不到，記錄錯誤
-    logger.error("無法解析按鍵代碼: {}", keyText);
-    return -1;
+    return keyCode;
   }
 
   public boolean isPlaying() {
     return isPlaying;
   }
 
-  public int getCurrentLoop() {
-    return currentLoop;
+  public boolean isRecording() {
+    return isRecording;
   }
 
-  public int getTotalLoops() {
-    return loopCount;
+  /** 取得播放狀態快照 */
+  public PlaybackStatus<KeyEvent> getPlaybackStatus() {
+    return playbackStatus.get();
+  }
+
+  /** 取得錄製狀態快照 */
+  public RecordingStatus getRecordingStatus() {
+    return recordingStatus.get();
   }
 
   public void startScheduledKeyPress(String taskId, String key, int intervalSeconds) {
@@ -656,12 +1006,19 @@ public class KeyboardService implements KeyListener {
     scheduledTasks.put(taskId, scheduler);
     scheduledKeyCodes.put(taskId, keyCode);
 
+    long intervalNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+    long firstFireNanos = System.nanoTime();
+    AtomicLong fireCount = new AtomicLong();
     scheduler.scheduleAtFixedRate(
         () -> {
           try {
-            robot.keyPress(keyCode);
+            long expectedNanos = firstFireNanos + fireCount.getAndIncrement() * intervalNanos;
+            scheduledKeyFireErrorTimer.record(
+                Math.abs(System.nanoTime() - expectedNanos), TimeUnit.NANOSECONDS);
+            injector.keyPress(keyCode);
             Thread.sleep(50); // 短暫延遲
-            robot.keyRelease(keyCode);
+            injector.keyRelease(keyCode);
+            statusPublisher.scheduledKeyFired(taskId, key);
             logger.info("定時按鍵 {} 執行完成", key);
           } catch (Exception e) {
             logger.error("定時按鍵執行失敗: {}", e.getMessage());
@@ -687,6 +1044,7 @@ public class KeyboardService implements KeyListener {
       }
       scheduledTasks.remove(taskId);
       scheduledKeyCodes.remove(taskId);
+      statusPublisher.scheduledKeyStopped(taskId);
       logger.info("停止定時按鍵任務 {}", taskId);
     }
   }
@@ -696,12 +1054,4 @@ public class KeyboardService implements KeyListener {
       stopScheduledKeyPress(taskId);
     }
   }
-
-  public KeyEvent getCurrentPlayingEvent() {
-    return currentPlayingEvent;
-  }
-
-  public int getCurrentPlayingIndex() {
-    return currentPlayingIndex;
-  }
 }
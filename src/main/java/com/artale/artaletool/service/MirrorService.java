@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.mirror.MirrorFollower;
+import com.artale.artaletool.mirror.MirrorLeader;
+import com.artale.artaletool.mirror.MirrorRect;
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.MirrorStatus;
+import com.artale.artaletool.model.MouseEvent;
+import com.artale.artaletool.model.WindowInfo;
+import com.artale.artaletool.playback.PlaybackClock;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 即時鏡像：本機擔任領導端時把錄製中擷取到的輸入轉送給其他機器，擔任跟隨端時注入領導端的輸入。
+ *
+ * <p>領導端直接監聽鍵盤與滑鼠的錄製路徑，因此只在錄製中轉送；滑鼠只錄製按鈕變化，跟隨端在按下與放開前把游標移到對應位置。
+ *
+ * <p>同一個實例不能同時擔任兩種角色，否則注入的輸入會再被錄製而形成迴圈。
+ */
+@Service
+public class MirrorService {
+  private static final Logger logger = LoggerFactory.getLogger(MirrorService.class);
+
+  private final KeyboardService keyboardService;
+  private final MouseService mouseService;
+  private final WindowService windowService;
+  private final InputInjector injector;
+  private final PlaybackClock playbackClock;
+  private final Timer latencyTimer;
+  private final String bindAddress;
+  private final int defaultPort;
+  private final String token;
+  private final long batchWindowNanos;
+  private final int syncSamples;
+  private final Consumer<KeyEvent> keyListener = this::onKeyEvent;
+  private final Consumer<MouseEvent> mouseListener = this::onMouseEvent;
+  private volatile MirrorLeader leader;
+  private volatile MirrorFollower follower;
+
+  public MirrorService(
+      KeyboardService keyboardService,
+      MouseService mouseService,
+      WindowService windowService,
+      InputInjector injector,
+      PlaybackClock playbackClock,
+      ToolMetrics metrics,
+      @Value("${artaletool.mirror.bind-address:127.0.0.1}") String bindAddress,
+      @Value("${artaletool.mirror.port:7421}") int defaultPort,
+      @Value("${artaletool.mirror.token:}") String token,
+      @Value("${artaletool.mirror.batch-window-us:1000}") long batchWindowMicros,
+      @Value("${artaletool.mirror.sync-samples:16}") int syncSamples) {
+    this.keyboardService = keyboardService;
+    this.mouseService = mouseService;
+    this.windowService = windowService;
+    this.injector = injector;
+    this.playbackClock = playbackClock;
+    this.latencyTimer = metrics.mirrorLatency();
+    this.bindAddress = bindAddress;
+    this.defaultPort = defaultPort;
+    this.token = token;
+    this.batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, batchWindowMicros));
+    this.syncSamples = syncSamples;
+  }
+
+  /** 開始擔任領導端，port 為 null 時依設定 */
+  public synchronized MirrorStatus.LeaderStatus startLeader(Integer port) throws IOException {
+    if (leader != null) {
+      throw new IllegalArgumentException("已經是鏡像領導端: " + leader.status().address());
+    }
+    if (follower != null && follower.isConnected()) {
+      throw new IllegalArgumentException("正在跟隨 " + follower.leader() + "，不能同時擔任領導端");
+    }
+    int listenPort = port != null ? port : defaultPort;
+    if (listenPort < 0 || listenPort > 0xFFFF) {
+      throw new IllegalArgumentException("無效的 port: " + listenPort);
+    }
+    MirrorLeader started =
+        new MirrorLeader(
+            playbackClock,
+            new InetSocketAddress(bindAddress, listenPort),
+            token,
+            batchWindowNanos,
+            this::lockedWindowRect);
+    started.start();
+    leader = started;
+    keyboardService.addRecordListener(keyListener);
+    mouseService.addRecordListener(mouseListener);
+    if (!keyboardService.isRecording() && !mouseService.isRecording()) {
+      logger.info("鏡像只轉送錄製中的輸入，開始錄製後才會送出事件");
+    }
+    return started.status();
+  }
+
+  public synchronized boolean stopLeader() {
+    if (leader == null) {
+      return false;
+    }
+    keyboardService.removeRecordListener(keyListener);
+    mouseService.removeRecordListener(mouseListener);
+    leader.close();
+    leader = null;
+    return true;
+  }
+
+  /**
+   * 連到領導端並開始注入。
+   *
+   * @param peerToken 為 null 時使用 {@code artaletool.mirror.token}
+   * @param target 本機對應領導端視窗的範圍，為 null 時使用鎖定視窗，沒有鎖定視窗時座標不換算
+   */
+  public synchronized MirrorStatus.FollowerStatus follow(
+      String host, Integer port, String peerToken, MirrorRect target) throws IOException {
+    if (host == null || host.isBlank()) {
+      throw new IllegalArgumentException("領導端位址不能為空");
+    }
+    if (leader != null) {
+      throw new IllegalArgumentException("正在擔任鏡像領導端，不能同時跟隨其他實例");
+    }
+    if (follower != null && follower.isConnected()) {
+      throw new IllegalArgumentException("已經在跟隨 " + follower.leader());
+    }
+    if (follower != null) {
+      follower.close();
+      follower = null;
+    }
+    MirrorRect mapping = target != null ? target : lockedWindowRect();
+    MirrorFollower connected =
+        new MirrorFollower(
+            host,
+            port != null ? port : defaultPort,
+            peerToken != null ? peerToken : token,
+            injector,
+            playbackClock,
+            mapping,
+            syncSamples,
+            latencyTimer);
+    connected.start();
+    follower = connected;
+    if (!mapping.isEmpty() && connected.source().isEmpty()) {
+      logger.info("領導端沒有鎖定視窗，座標不換算");
+    }
+    return connected.status();
+  }
+
+  public synchronized boolean unfollow() {
+    if (follower == null) {
+      return false;
+    }
+    follower.close();
+    follower = null;
+    return true;
+  }
+
+  public MirrorStatus getStatus() {
+    MirrorLeader currentLeader = leader;
+    MirrorFollower currentFollower = follower;
+    return new MirrorStatus(
+        currentLeader == null ? null : currentLeader.status(),
+        currentFollower == null ? null : currentFollower.status());
+  }
+
+  private void onKeyEvent(KeyEvent event) {
+    MirrorLeader current = leader;
+    if (current == null) {
+      return;
+    }
+    if ("PRESS".equals(event.getAction())) {
+      current.keyDown(event.getVk());
+    } else {
+      current.keyUp(event.getVk());
+    }
+  }
+
+  private void onMouseEvent(MouseEvent event) {
+    MirrorLeader current = leader;
+    if (current == null) {
+      return;
+    }
+    if ("PRESS".equals(event.getAction())) {
+      current.mouseDown(event.getButton(), event.getX(), event.getY());
+    } else {
+      current.mouseUp(event.getButton(), event.getX(), event.getY());
+    }
+  }
+
+  private MirrorRect lockedWindowRect() {
+    WindowInfo window = windowService.getLockedWindowInfo();
+    if (window == null) {
+      return MirrorRect.NONE;
+    }
+    return new MirrorRect(window.getX(), window.getY(), window.getWidth(), window.getHeight());
+  }
+
+  @PreDestroy
+  public synchronized void cleanup() {
+    stopLeader();
+    unfollow();
+  }
+}
@@ -4,53 +4,89 @@
  */
 package com.artale.artaletool.service;
 
-import java.awt.AWTException;
-import java.awt.Robot;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.backend.InputProbe;
+import com.artale.artaletool.backend.KeyTable;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.FidelityReport;
 import com.artale.artaletool.model.MouseEvent;
+import com.artale.artaletool.model.PlaybackStatus;
+import com.artale.artaletool.model.RecordingStatus;
+import com.artale.artaletool.model.TimeWarpOptions;
+import com.artale.artaletool.model.TimeWarpReport;
+import com.artale.artaletool.playback.FidelityRecorder;
+import com.artale.artaletool.playback.InputMapping;
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.playback.PlaybackTarget;
+import com.artale.artaletool.playback.PlaybackTimeline;
+import com.artale.artaletool.playback.ScriptTimings;
+import com.artale.artaletool.playback.TimeWarp;
+import com.artale.artaletool.playback.TimelinePlayer;
+import com.artale.artaletool.trace.TraceSink;
+import com.artale.artaletool.trace.TraceType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.sun.jna.Native;
-import com.sun.jna.win32.W32APIOptions;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PreDestroy;
 
 @Service
 public class MouseService {
   private static final Logger logger = LoggerFactory.getLogger(MouseService.class);
   private List<MouseEvent> recordedEvents = new ArrayList<>();
-  private boolean isRecording = false;
-  private boolean isPlaying = false;
+  private volatile boolean isRecording = false;
+  private volatile boolean isPlaying = false;
   private final ObjectMapper objectMapper = new ObjectMapper();
-  private final String SCRIPTS_DIR = "mouse_scripts";
-  private Robot robot;
+  private final String SCRIPTS_DIR;
+  private final PlaybackClock playbackClock;
+  private final InputInjector injector;
+  private final InputProbe inputProbe;
+  private final TraceSink traceSink;
+  // 監控執行緒專用的按鍵狀態與游標位置緩衝區
+  private final boolean[] keyDown = new boolean[256];
+  private final int[] cursorPos = new int[2];
+  private volatile long lastEventTime;
+  private final boolean lazyStartup;
+  private final long defaultPreRollMs; // 開始播放前的預備時間，期間進行預熱
   private Thread mouseMonitorThread;
-  private final User32 user32 = User32.INSTANCE;
-  private boolean isLooping = false;
-  private int loopCount = 0;
-  private int currentLoop = 0;
-  private MouseEvent currentPlayingEvent = null;
-  private int currentPlayingIndex = -1;
-  private final Map<Integer, Boolean> keyStates = new HashMap<>();
-
-  public interface User32 extends com.sun.jna.platform.win32.User32 {
-    User32 INSTANCE = Native.load("user32", User32.class, W32APIOptions.DEFAULT_OPTIONS);
-
-    boolean GetCursorPos(int[] lpPoint);
-
-    void mouse_event(int dwFlags, int dx, int dy, int dwData, int dwExtraInfo);
-  }
+  private volatile boolean isLooping = false;
+  private volatile TimelinePlayer<MouseEvent> currentPlayer;
+  // 對外公開的狀態快照，只以整個物件替換
+  private final AtomicReference<PlaybackStatus<MouseEvent>> playbackStatus =
+      new AtomicReference<>(PlaybackStatus.idle(0, 0));
+  private final AtomicReference<RecordingStatus> recordingStatus =
+      new AtomicReference<>(RecordingStatus.IDLE);
+  private final RecordStreamHub<MouseEvent> recordStream =
+      new RecordStreamHub<>("滑鼠", objectMapper);
+
+  // 監控指標
+  private final ToolMetrics.PollMonitor mouseMonitorMetrics;
+  private final Timer getAsyncKeyStateTimer;
+  private final Timer getCursorPosTimer;
+  private final Counter recordedEventsCounter;
+  private final Timer playbackLatenessTimer;
+  private final Timer firstEventLatenessTimer;
+  private final Timer playbackWarmupTimer;
+  private final Timer injectionLatencyTimer;
+
+  @Autowired private StatusPublisher statusPublisher;
 
   // 滑鼠事件常量
   private static final int MOUSEEVENTF_LEFTDOWN = 0x0002;
@@ -67,34 +103,56 @@ public class MouseService {
   private static final int VK_RBUTTON = 0x02;
   private static final int VK_MBUTTON = 0x04;
 
-  // 快捷鍵常量
-  private static final int VK_F1 = java.awt.event.KeyEvent.VK_F1;
-  private static final int VK_F2 = java.awt.event.KeyEvent.VK_F2;
-  private static final int VK_ESCAPE = java.awt.event.KeyEvent.VK_ESCAPE;
+  // 播放預設值：不預備，循環之間間隔 1 秒
+  private static final long DEFAULT_LOOP_GAP_MS = 1000;
+  private static final String FIDELITY_SUFFIX = ".fidelity.json"; // 忠實度報告與腳本存放在同一個目錄
+  private volatile FidelityReport lastFidelityReport;
+
+  // 快捷鍵常量 (Win32 虛擬鍵碼)
+  private static final int VK_F1 = KeyTable.STANDARD.code("F1");
+  private static final int VK_F2 = KeyTable.STANDARD.code("F2");
+  private static final int VK_ESCAPE = KeyTable.VK_ESCAPE;
+
+  public MouseService(
+      ToolMetrics metrics,
+      InputInjector injector,
+      InputProbe inputProbe,
+      PlaybackClock playbackClock,
+      TraceSink traceSink,
+      @Value("${artaletool.startup.lazy:false}") boolean lazyStartup,
+      @Value("${artaletool.playback.mouse.pre-roll-ms:0}") long preRollMs,
+      @Value("${artaletool.scripts.mouse-dir:mouse_scripts}") String scriptsDir) {
+    this.injector = injector;
+    this.traceSink = traceSink;
+    this.playbackClock = playbackClock;
+    this.SCRIPTS_DIR = scriptsDir;
+    this.inputProbe = inputProbe;
+    this.lazyStartup = lazyStartup;
+    this.defaultPreRollMs = Math.max(0, preRollMs);
+    mouseMonitorMetrics = metrics.pollMonitor("mouse", 10);
+    getAsyncKeyStateTimer = metrics.nativeCall("GetAsyncKeyState");
+    getCursorPosTimer = metrics.nativeCall("GetCursorPos");
+    recordedEventsCounter = metrics.recordedEvents("mouse");
+    playbackLatenessTimer = metrics.playbackLateness("mouse");
+    firstEventLatenessTimer = metrics.firstEventLateness("mouse");
+    playbackWarmupTimer = metrics.playbackWarmup("mouse");
+    injectionLatencyTimer = metrics.injectionLatency("mouse");
 
-  public MouseService() {
     try {
       Files.createDirectories(Paths.get(SCRIPTS_DIR));
       logger.info("滑鼠腳本目錄創建成功: {}", SCRIPTS_DIR);
-
-      // 設置系統屬性以允許在 headless 環境中創建 Robot
-      System.setProperty("java.awt.headless", "false");
-      try {
-        robot = new Robot();
-        logger.info("Robot 初始化成功");
-      } catch (AWTException e) {
-        logger.error("Robot 初始化失敗: {}", e.getMessage());
-      }
     } catch (Exception e) {
       logger.error("滑鼠服務初始化失敗: {}", e.getMessage());
     }
 
-    // 啟動滑鼠和快捷鍵監聽
-    startMouseAndHotkeyMonitor();
+    // 快速啟動模式下，滑鼠和快捷鍵監聽延到第一次錄製或播放時才啟動
+    if (!lazyStartup) {
+      startMouseAndHotkeyMonitor();
+    }
   }
 
   /** 啟動滑鼠和快捷鍵監聽 */
-  private void startMouseAndHotkeyMonitor() {
+  private synchronized void startMouseAndHotkeyMonitor() {
     if (mouseMonitorThread != null && mouseMonitorThread.isAlive()) {
       return;
     }
@@ -103,152 +161,13 @@ public class MouseService {
         new Thread(
             () -> {
               logger.info("開始監控滑鼠事件和快捷鍵");
-              long startTime = System.currentTimeMillis();
-              long lastEventTime = startTime;
+              lastEventTime = System.currentTimeMillis();
 
               while (!Thread.currentThread().isInterrupted()) {
                 try {
-                  // 檢查快捷鍵狀態
-                  short f1State = user32.GetAsyncKeyState(VK_F1);
-                  short f2State = user32.GetAsyncKeyState(VK_F2);
-                  short escapeState = user32.GetAsyncKeyState(VK_ESCAPE);
-
-                  // 檢查 F1 鍵 (開始錄製)
-                  boolean f1Pressed = (f1State & 0x8000) != 0;
-                  Boolean f1WasPressed = keyStates.get(VK_F1);
-                  if (f1Pressed && (f1WasPressed == null || !f1WasPressed)) {
-                    if (!isRecording) {
-                      logger.info("檢測到 F1 快捷鍵，開始錄製滑鼠事件");
-                      startRecording();
-                    }
-                    keyStates.put(VK_F1, true);
-                  } else if (!f1Pressed && f1WasPressed != null && f1WasPressed) {
-                    keyStates.put(VK_F1, false);
-                  }
-
-                  // 檢查 F2 鍵 (停止錄製)
-                  boolean f2Pressed = (f2State & 0x8000) != 0;
-                  Boolean f2WasPressed = keyStates.get(VK_F2);
-                  if (f2Pressed && (f2WasPressed == null || !f2WasPressed)) {
-                    if (isRecording) {
-                      logger.info("檢測到 F2 快捷鍵，停止錄製滑鼠事件");
-                      stopRecording();
-                    }
-                    keyStates.put(VK_F2, true);
-                  } else if (!f2Pressed && f2WasPressed != null && f2WasPressed) {
-                    keyStates.put(VK_F2, false);
-                  }
-
-                  // 檢查 ESC 鍵 (停止播放)
-                  boolean escapePressed = (escapeState & 0x8000) != 0;
-                  Boolean escapeWasPressed = keyStates.get(VK_ESCAPE);
-                  if (escapePressed && (escapeWasPressed == null || !escapeWasPressed)) {
-                    if (isPlaying) {
-                      logger.info("檢測到 ESC 快捷鍵，停止播放滑鼠腳本");
-                      stopPlayback();
-                    }
-                    keyStates.put(VK_ESCAPE, true);
-                  } else if (!escapePressed && escapeWasPressed != null && escapeWasPressed) {
-                    keyStates.put(VK_ESCAPE, false);
-                  }
-
-                  // 調試快捷鍵狀態
-                  if (f1Pressed || f2Pressed || escapePressed) {
-                    logger.debug(
-                        "快捷鍵狀態 - F1: {}, F2: {}, ESC: {}", f1Pressed, f2Pressed, escapePressed);
-                  }
-
-                  // 如果正在錄製，檢查滑鼠按鍵狀態
-                  if (isRecording) {
-                    // 檢查滑鼠按鍵狀態
-                    short leftButtonState = user32.GetAsyncKeyState(VK_LBUTTON);
-                    short rightButtonState = user32.GetAsyncKeyState(VK_RBUTTON);
-                    short middleButtonState = user32.GetAsyncKeyState(VK_MBUTTON);
-
-                    // 獲取當前滑鼠位置
-                    int[] cursorPos = new int[2];
-                    user32.GetCursorPos(cursorPos);
-                    int x = cursorPos[0];
-                    int y = cursorPos[1];
-
-                    long currentTime = System.currentTimeMillis();
-                    long delay = currentTime - lastEventTime;
-
-                    // 檢查左鍵
-                    if ((leftButtonState & 0x8000) != 0) {
-                      MouseEvent event = new MouseEvent();
-                      event.setAction("PRESS");
-                      event.setButton(1);
-                      event.setX(x);
-                      event.setY(y);
-                      event.setTimestamp(currentTime);
-                      event.setDelay(delay);
-                      recordedEvents.add(event);
-                      lastEventTime = currentTime;
-                      logger.debug("錄製左鍵按下: ({}, {})", x, y);
-                    } else if ((leftButtonState & 0x0001) != 0) {
-                      MouseEvent event = new MouseEvent();
-                      event.setAction("RELEASE");
-                      event.setButton(1);
-                      event.setX(x);
-                      event.setY(y);
-                      event.setTimestamp(currentTime);
-                      event.setDelay(delay);
-                      recordedEvents.add(event);
-                      lastEventTime = currentTime;
-                      logger.debug("錄製左鍵釋放: ({}, {})", x, y);
-                    }
-
-                    // 檢查右鍵
-                    if ((rightButtonState & 0x8000) != 0) {
-                      MouseEvent event = new MouseEvent();
-                      event.setAction("PRESS");
-                      event.setButton(2);
-                      event.setX(x);
-                      event.setY(y);
-                      event.setTimestamp(currentTime);
-                      event.setDelay(delay);
-                      recordedEvents.add(event);
-                      lastEventTime = currentTime;
-                      logger.debug("錄製右鍵按下: ({}, {})", x, y);
-                    } else if ((rightButtonState & 0x0001) != 0) {
-                      MouseEvent event = new MouseEvent();
-                      event.setAction("RELEASE");
-                      event.setButton(2);
-                      event.setX(x);
-                      event.setY(y);
-                      event.setTimestamp(currentTime);
-                      event.setDelay(delay);
-                      recordedEvents.add(event);
-                      lastEventTime = currentTime;
-                      logger.debug("錄製右鍵釋放: ({}, {})", x, y);
-                    }
-
-                    // 檢查中鍵
-                    if ((middleButtonState & 0x8000) != 0) {
-                      MouseEvent event = new MouseEvent();
-                      event.setAction("PRESS");
-                      event.setButton(3);
-                      event.setX(x);
-                      event.setY(y);
-                      event.setTimestamp(currentTime);
-                      event.setDelay(delay);
-                      recordedEvents.add(event);
-                      lastEventTime = currentTime;
-                      logger.debug("錄製中鍵按下: ({}, {})", x, y);
-                    } else if ((middleButtonState & 0x0001) != 0) {
-                      MouseEvent event = new MouseEvent();
-                      event.setAction("RELEASE");
-                      event.setButton(3);
-                      event.setX(x);
-                      event.setY(y);
-                      event.setTimestamp(currentTime);
-                      event.setDelay(delay);
-                      recordedEvents.add(event);
-                      lastEventTime = currentTime;
-                      logger.debug("錄製中鍵釋放: ({}, {})", x, y);
-                    }
-                  }
+                  long tickStart = System.nanoTime();
+                  pollMonitorTick();
+                  mouseMonitorMetrics.recordTick(System.nanoTime() - tickStart);
 
                   // 短暫休眠以避免過度佔用 CPU
                   Thread.sleep(10);
@@ -268,6 +187,95 @@ public class MouseService {
     logger.info("滑鼠監控線程已啟動");
   }
 
+  /**
+   * 監控執行緒的單次輪詢。
+   *
+   * <p>按鍵與滑鼠按鈕都只在狀態改變的那一次輪詢產生事件，沒有變化時不配置任何物件。
+   */
+  void pollMonitorTick() {
+    // F1 開始錄製
+    if (keyPressed(VK_F1) && !isRecording) {
+      logger.info("檢測到 F1 快捷鍵，開始錄製滑鼠事件");
+      startRecording();
+    }
+
+    // F2 停止錄製
+    if (keyPressed(VK_F2) && isRecording) {
+      logger.info("檢測到 F2 快捷鍵，停止錄製滑鼠事件");
+      stopRecording();
+    }
+
+    // ESC 停止播放
+    if (keyPressed(VK_ESCAPE) && isPlaying) {
+      logger.info("檢測到 ESC 快捷鍵，停止播放滑鼠腳本");
+      stopPlayback();
+    }
+
+    if (!isRecording) {
+      // 未錄製時不追蹤滑鼠按鈕，開始錄製時已按住的按鈕會記為按下
+      keyDown[VK_LBUTTON] = false;
+      keyDown[VK_RBUTTON] = false;
+      keyDown[VK_MBUTTON] = false;
+      return;
+    }
+
+    pollButton(VK_LBUTTON, 1);
+    pollButton(VK_RBUTTON, 2);
+    pollButton(VK_MBUTTON, 3);
+  }
+
+  /** 更新按鍵狀態，由放開變為按下時回傳 true */
+  private boolean keyPressed(int vKey) {
+    boolean down = (getAsyncKeyState(vKey) & 0x8000) != 0;
+    boolean wasDown = keyDown[vKey];
+    keyDown[vKey] = down;
+    return down && !wasDown;
+  }
+
+  /** 滑鼠按鈕狀態改變時錄製一個 PRESS 或 RELEASE 事件 */
+  private void pollButton(int vKey, int button) {
+    boolean down = (getAsyncKeyState(vKey) & 0x8000) != 0;
+    if (down == keyDown[vKey]) {
+      return;
+    }
+    keyDown[vKey] = down;
+
+    // 只在產生事件時讀取游標位置
+    long callStart = System.nanoTime();
+    inputProbe.getCursorPos(cursorPos);
+    getCursorPosTimer.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+
+    long currentTime = System.currentTimeMillis();
+    MouseEvent event = new MouseEvent();
+    event.setAction(down ? "PRESS" : "RELEASE");
+    event.setButton(button);
+    event.setX(cursorPos[0]);
+    event.setY(cursorPos[1]);
+    event.setTimestamp(currentTime);
+    event.setDelay(currentTime - lastEventTime);
+    lastEventTime = currentTime;
+
+    recordedEvents.add(event);
+    recordStream.publish(event);
+    recordingStatus.set(new RecordingStatus(true, recordedEvents.size()));
+    recordedEventsCounter.increment();
+    statusPublisher.signal();
+    traceSink.trace(
+        down ? TraceType.MOUSE_PRESS : TraceType.MOUSE_RELEASE,
+        button,
+        event.getX(),
+        event.getY(),
+        0);
+  }
+
+  /** 讀取按鍵狀態並記錄原生呼叫延遲 */
+  private short getAsyncKeyState(int vKey) {
+    long callStart = System.nanoTime();
+    short state = inputProbe.getAsyncKeyState(vKey);
+    getAsyncKeyStateTimer.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+    return state;
+  }
+
   /** 開始錄製滑鼠事件 */
   public void startRecording() {
     if (isRecording) {
@@ -275,8 +283,12 @@ public class MouseService {
       return;
     }
 
+    startMouseAndHotkeyMonitor();
     recordedEvents.clear();
+    lastEventTime = System.currentTimeMillis();
     isRecording = true;
+    recordingStatus.set(new RecordingStatus(true, 0));
+    statusPublisher.signal();
     logger.info("開始錄製滑鼠事件");
   }
 
@@ -288,11 +300,34 @@ public class MouseService {
     }
 
     isRecording = false;
+    recordingStatus.set(new RecordingStatus(false, recordedEvents.size()));
+    statusPublisher.signal();
     logger.info("停止錄製滑鼠事件，共錄製 {} 個事件", recordedEvents.size());
   }
 
   /** 播放錄製的滑鼠腳本 */
-  public void playScript(List<MouseEvent> events, boolean loop, int loopCount) {
+  public void playScript(List<MouseEvent> events, boolean loop, long loopCount) {
+    playScript(events, loop, loopCount, null);
+  }
+
+  /** 播放滑鼠腳本，timeWarp 為 null 時依錄製時間播放；循環播放時 loopCount 為 0 表示無限循環 */
+  public void playScript(
+      List<MouseEvent> events, boolean loop, long loopCount, TimeWarpOptions timeWarp) {
+    playScript(events, loop, loopCount, timeWarp, false, null);
+  }
+
+  /**
+   * 播放滑鼠腳本，fidelity 為 true 時記錄每個注入動作的時間，播放結束後產生忠實度報告。
+   *
+   * <p>指定 scriptName 時報告另存到腳本旁的 {@code <scriptName>.fidelity.json}。
+   */
+  public void playScript(
+      List<MouseEvent> events,
+      boolean loop,
+      long loopCount,
+      TimeWarpOptions timeWarp,
+      boolean fidelity,
+      String scriptName) {
     if (isPlaying) {
       logger.warn("滑鼠腳本正在播放中");
       return;
@@ -303,105 +338,255 @@ public class MouseService {
       return;
     }
 
-    this.isLooping = loop;
-    this.loopCount = loopCount;
-    this.currentLoop = 0;
+    if (!injector.isAvailable()) {
+      logger.error("輸入注入器無法使用，無法播放滑鼠腳本");
+      return;
+    }
+
+    TimeWarp warp = TimeWarp.of(timeWarp);
+    long preRollMs =
+        timeWarp != null ? timeWarp.resolvePreRollMs(defaultPreRollMs) : defaultPreRollMs;
+    long loopGapMs =
+        timeWarp != null ? timeWarp.resolveLoopGapMs(DEFAULT_LOOP_GAP_MS) : DEFAULT_LOOP_GAP_MS;
+    PlaybackTimeline<MouseEvent> timeline =
+        PlaybackTimeline.build(
+            warp.apply(ScriptTimings.mouseEvents(events)),
+            MOUSE_INPUT_MAPPING,
+            TimeUnit.MILLISECONDS.toNanos(loopGapMs));
+    long loops = loop ? loopCount : 1;
+    if (loop) {
+      long periodMs = TimeUnit.NANOSECONDS.toMillis(timeline.periodNanos());
+      logger.info(
+          "滑鼠循環長度 {} ms，預估每小時 {} 次循環",
+          periodMs,
+          String.format("%.1f", TimeWarp.loopsPerHour(periodMs)));
+    }
+
+    // 播放中需要快捷鍵監聽來偵測 ESC 停止
+    startMouseAndHotkeyMonitor();
+    isPlaying = true;
+    isLooping = loop;
+    PlaybackStatus<MouseEvent> startedStatus = PlaybackStatus.started(loop, 0, loopCount);
+    PlaybackTarget<MouseEvent> target = new MousePlaybackTarget(startedStatus);
+    FidelityRecorder<MouseEvent> recorder =
+        fidelity ? new FidelityRecorder<>(timeline, playbackClock, target) : null;
+    TimelinePlayer<MouseEvent> player =
+        new TimelinePlayer<>(timeline, playbackClock, recorder != null ? recorder : target);
+    currentPlayer = player;
+    playbackStatus.set(startedStatus);
+    statusPublisher.signal();
 
     new Thread(
             () -> {
+              long completed = 0;
               try {
-                playMouseEvents(events);
+                if (isPlaying) {
+                  logger.info("開始播放滑鼠腳本，共 {} 個事件", timeline.size());
+                  completed = player.play(loops, TimeUnit.MILLISECONDS.toNanos(preRollMs));
+                  logger.info("滑鼠腳本播放完成，共 {} 次循環", completed);
+                }
               } catch (Exception e) {
                 logger.error("播放滑鼠腳本時發生錯誤: {}", e.getMessage());
+              } finally {
+                // 報告在播放狀態結束前產生，結束後即可讀取
+                if (recorder != null) {
+                  FidelityReport report =
+                      recorder.report(scriptName, completed, button -> "button" + button);
+                  report.setWarmupMs(Math.max(0, player.warmupNanos()) / 1_000_000.0);
+                  publishFidelityReport(report, scriptName);
+                }
                 isPlaying = false;
+                isLooping = false;
+                if (currentPlayer == player) {
+                  currentPlayer = null;
+                }
+                playbackStatus.set(PlaybackStatus.idle(player.currentLoop(), loopCount));
+                statusPublisher.signal();
               }
             },
             "MousePlaybackThread")
         .start();
   }
 
-  /** 播放滑鼠事件 */
-  private void playMouseEvents(List<MouseEvent> events) {
-    isPlaying = true;
-    logger.info("開始播放滑鼠腳本，共 {} 個事件", events.size());
+  /** 保存最近一次的忠實度報告，有腳本名稱時也寫入檔案 */
+  private void publishFidelityReport(FidelityReport report, String scriptName) {
+    lastFidelityReport = report;
+    logger.info(
+        "滑鼠播放忠實度: {} 個事件, 延遲 p99 {} ms, 最大 {} ms, 遺漏 {}, 亂序 {}, 未放開 {}",
+        report.getInjectedEvents(),
+        String.format("%.3f", report.getLatenessP99Ms()),
+        String.format("%.3f", report.getLatenessMaxMs()),
+        report.getDroppedEvents(),
+        report.getReorderedEvents(),
+        report.getHeldAtEnd());
+    if (scriptName == null || scriptName.isEmpty()) {
+      return;
+    }
+    try {
+      File file = new File(SCRIPTS_DIR, scriptName + FIDELITY_SUFFIX);
+      objectMapper.writeValue(file, report);
+      logger.info("滑鼠忠實度報告已保存到: {}", file.getAbsolutePath());
+    } catch (IOException e) {
+      logger.error("保存滑鼠忠實度報告失敗: {}", e.getMessage());
+    }
+  }
 
-    do {
-      currentLoop++;
-      if (isLooping && loopCount > 0) {
-        logger.info("播放第 {} 次循環 (共 {} 次)", currentLoop, loopCount);
-      }
+  /** 取得忠實度報告：filename 為 null 時回傳最近一次播放的報告，否則讀取腳本旁的報告檔；沒有報告時回傳 null */
+  public FidelityReport getFidelityReport(String filename) throws IOException {
+    if (filename == null || filename.isEmpty()) {
+      return lastFidelityReport;
+    }
+    File file = new File(SCRIPTS_DIR, filename + FIDELITY_SUFFIX);
+    if (!file.exists()) {
+      return null;
+    }
+    return objectMapper.readValue(file, FidelityReport.class);
+  }
 
-      for (int i = 0; i < events.size() && isPlaying; i++) {
-        MouseEvent event = events.get(i);
-        currentPlayingEvent = event;
-        currentPlayingIndex = i;
-
-        try {
-          // 移動滑鼠到指定位置
-          robot.mouseMove(event.getX(), event.getY());
-
-          // 根據按鍵類型執行相應動作
-          switch (event.getButton()) {
-            case 1: // 左鍵
-              if ("PRESS".equals(event.getAction())) {
-                robot.mousePress(java.awt.event.InputEvent.BUTTON1_DOWN_MASK);
-              } else if ("RELEASE".equals(event.getAction())) {
-                robot.mouseRelease(java.awt.event.InputEvent.BUTTON1_DOWN_MASK);
-              }
-              break;
-            case 2: // 右鍵
-              if ("PRESS".equals(event.getAction())) {
-                robot.mousePress(java.awt.event.InputEvent.BUTTON3_DOWN_MASK);
-              } else if ("RELEASE".equals(event.getAction())) {
-                robot.mouseRelease(java.awt.event.InputEvent.BUTTON3_DOWN_MASK);
-              }
-              break;
-            case 3: // 中鍵
-              if ("PRESS".equals(event.getAction())) {
-                robot.mousePress(java.awt.event.InputEvent.BUTTON2_DOWN_MASK);
-              } else if ("RELEASE".equals(event.getAction())) {
-                robot.mouseRelease(java.awt.event.InputEvent.BUTTON2_DOWN_MASK);
-              }
-              break;
-          }
-
-          // 等待指定的延遲時間
-          if (event.getDelay() > 0) {
-            Thread.sleep(event.getDelay());
-          }
-
-          logger.debug(
-              "播放事件 {}: {} 按鍵 {} 在 ({}, {})",
-              i,
-              event.getAction(),
-              event.getButton(),
-              event.getX(),
-              event.getY());
-        } catch (InterruptedException e) {
-          logger.info("滑鼠腳本播放被中斷");
-          break;
-        } catch (Exception e) {
-          logger.error("播放滑鼠事件時發生錯誤: {}", e.getMessage());
+  /** 滑鼠按鈕對應的 Robot 按鍵遮罩，未知按鈕回傳 0 */
+  private static int buttonMask(int button) {
+    switch (button) {
+      case 1: // 左鍵
+        return java.awt.event.InputEvent.BUTTON1_DOWN_MASK;
+      case 2: // 右鍵
+        return java.awt.event.InputEvent.BUTTON3_DOWN_MASK;
+      case 3: // 中鍵
+        return java.awt.event.InputEvent.BUTTON2_DOWN_MASK;
+      default:
+        return 0;
+    }
+  }
+
+  private static TraceType playTraceType(String action) {
+    if ("PRESS".equals(action)) {
+      return TraceType.PLAY_MOUSE_PRESS;
+    }
+    return "RELEASE".equals(action) ? TraceType.PLAY_MOUSE_RELEASE : TraceType.PLAY_MOUSE_MOVE;
+  }
+
+  /** 滑鼠事件的輸入代碼為按鈕編號，只有按下與放開會影響按住狀態 */
+  private static final InputMapping<MouseEvent> MOUSE_INPUT_MAPPING =
+      new InputMapping<>() {
+        @Override
+        public int inputId(MouseEvent event) {
+          boolean buttonAction =
+              "PRESS".equals(event.getAction()) || "RELEASE".equals(event.getAction());
+          return buttonAction && buttonMask(event.getButton()) != 0 ? event.getButton() : -1;
         }
-      }
 
-      // 檢查是否需要繼續循環
-      if (isLooping && (loopCount == 0 || currentLoop < loopCount)) {
-        logger.info("準備開始下一次循環");
-        try {
-          Thread.sleep(1000); // 循環間隔 1 秒
-        } catch (InterruptedException e) {
-          break;
+        @Override
+        public boolean isPress(MouseEvent event) {
+          return "PRESS".equals(event.getAction());
         }
+      };
+
+  /** 第一個事件注入後記錄預熱耗時與第一個事件的延遲 */
+  private void reportFirstEvent(long latenessNanos) {
+    firstEventLatenessTimer.record(Math.max(0, latenessNanos), TimeUnit.NANOSECONDS);
+    TimelinePlayer<MouseEvent> player = currentPlayer;
+    long warmupNanos = player != null ? player.warmupNanos() : -1;
+    if (warmupNanos >= 0) {
+      playbackWarmupTimer.record(warmupNanos, TimeUnit.NANOSECONDS);
+    }
+    logger.info(
+        "滑鼠播放預熱耗時 {} ms，第一個事件延遲 {} ms",
+        String.format("%.3f", Math.max(0, warmupNanos) / 1_000_000.0),
+        String.format("%.3f", latenessNanos / 1_000_000.0));
+  }
+
+  /** 把時間軸上的滑鼠事件注入系統，並更新播放狀態與指標 */
+  private final class MousePlaybackTarget implements PlaybackTarget<MouseEvent> {
+    private PlaybackStatus<MouseEvent> status;
+    private boolean firstEventSeen = false;
+
+    private MousePlaybackTarget(PlaybackStatus<MouseEvent> startedStatus) {
+      this.status = startedStatus;
+    }
+
+    @Override
+    public void warmUp(PlaybackTimeline<MouseEvent> timeline) {
+      // 注入器與原生函式在第一次呼叫時才載入與連結，先在播放執行緒上各呼叫一次
+      injector.isAvailable();
+      inputProbe.getAsyncKeyState(VK_ESCAPE);
+      inputProbe.getCursorPos(new int[2]);
+    }
+
+    @Override
+    public void inject(MouseEvent event, int button, boolean press) {
+      // 移動滑鼠到指定位置
+      injector.mouseMove(event.getX(), event.getY());
+      if (button < 0) {
+        return;
+      }
+      if (press) {
+        injector.mousePress(buttonMask(button));
       } else {
-        break;
+        injector.mouseRelease(buttonMask(button));
       }
-    } while (isLooping && (loopCount == 0 || currentLoop < loopCount));
+    }
 
-    isPlaying = false;
-    currentPlayingEvent = null;
-    currentPlayingIndex = -1;
-    logger.info("滑鼠腳本播放完成");
+    @Override
+    public void press(int button) {
+      injector.mousePress(buttonMask(button));
+    }
+
+    @Override
+    public void release(int button) {
+      injector.mouseRelease(buttonMask(button));
+    }
+
+    @Override
+    public void onEvent(
+        long loop, int index, MouseEvent event, long latenessNanos, long injectNanos) {
+      if (!firstEventSeen) {
+        firstEventSeen = true;
+        reportFirstEvent(latenessNanos);
+      }
+      playbackLatenessTimer.record(Math.max(0, latenessNanos), TimeUnit.NANOSECONDS);
+      injectionLatencyTimer.record(injectNanos, TimeUnit.NANOSECONDS);
+      status = status.at(loop, event, index);
+      playbackStatus.set(status);
+      statusPublisher.signal();
+      traceSink.trace(
+          playTraceType(event.getAction()),
+          event.getButton(),
+          event.getX(),
+          event.getY(),
+          latenessNanos);
+    }
+
+    @Override
+    public void onPositionChanged(long loop, int nextIndex, MouseEvent nextEvent, boolean paused) {
+      status = status.at(loop, nextEvent, nextIndex).paused(paused);
+      playbackStatus.set(status);
+      statusPublisher.signal();
+    }
+  }
+
+  /** 以時間轉換選項改寫腳本並另存，回傳轉換前後的長度與每小時循環次數 */
+  public TimeWarpReport rewriteScript(String filename, String saveAs, TimeWarpOptions timeWarp)
+      throws IOException {
+    if (timeWarp == null) {
+      timeWarp = new TimeWarpOptions();
+    }
+    List<MouseEvent> events = loadScript(filename);
+    if (events.isEmpty()) {
+      throw new IOException("滑鼠腳本沒有任何事件: " + filename);
+    }
+    List<MouseEvent> rewritten =
+        ScriptTimings.toMouseEvents(TimeWarp.of(timeWarp).apply(ScriptTimings.mouseEvents(events)));
+    saveScript(saveAs, rewritten);
+
+    long originalNanos = TimeWarp.durationNanos(ScriptTimings.mouseEvents(events));
+    long warpedNanos = TimeWarp.durationNanos(ScriptTimings.mouseEvents(rewritten));
+    return TimeWarp.report(
+        filename,
+        saveAs,
+        events.size(),
+        originalNanos,
+        DEFAULT_LOOP_GAP_MS,
+        warpedNanos,
+        timeWarp.resolveLoopGapMs(DEFAULT_LOOP_GAP_MS));
   }
 
   /** 停止播放 */
@@ -412,28 +597,95 @@ public class MouseService {
     }
 
     isPlaying = false;
+    playbackStatus.set(playbackStatus.get().finished());
+    statusPublisher.signal();
     logger.info("停止播放滑鼠腳本");
+
+    TimelinePlayer<MouseEvent> player = currentPlayer;
+    if (player != null) {
+      player.stop();
+    }
   }
 
-  /** 暫停播放 */
+  /** 暫停播放，保留時間軸位置與按住狀態的檢查點 */
   public void pausePlayback() {
-    if (!isPlaying) {
+    TimelinePlayer<MouseEvent> player = currentPlayer;
+    if (!isPlaying || player == null) {
       logger.warn("滑鼠腳本未在播放中");
       return;
     }
 
-    isPlaying = false;
+    player.pause();
     logger.info("暫停播放滑鼠腳本");
   }
 
+  /** 從暫停的位置繼續播放 */
+  public void resumePlayback() {
+    TimelinePlayer<MouseEvent> player = currentPlayer;
+    if (!isPlaying || player == null) {
+      logger.warn("滑鼠腳本未在播放中");
+      return;
+    }
+
+    player.resume();
+    logger.info("繼續播放滑鼠腳本");
+  }
+
+  /**
+   * 跳轉到目前循環內的時間 (毫秒，時間轉換後的時間軸) 或事件索引，兩者擇一。
+   *
+   * <p>按住狀態由時間軸的檢查點重建，不需從頭重播。
+   */
+  public void seekPlayback(Long timeMs, Integer index) {
+    if ((timeMs == null) == (index == null)) {
+      throw new IllegalArgumentException("timeMs 與 index 必須擇一指定");
+    }
+    TimelinePlayer<MouseEvent> player = currentPlayer;
+    if (!isPlaying || player == null) {
+      logger.warn("滑鼠腳本未在播放中");
+      return;
+    }
+
+    if (timeMs != null) {
+      if (timeMs < 0) {
+        throw new IllegalArgumentException("時間不可為負數: " + timeMs);
+      }
+      player.seekToOffset(TimeUnit.MILLISECONDS.toNanos(timeMs));
+      logger.info("滑鼠腳本跳轉到 {} ms", timeMs);
+    } else {
+      try {
+        player.seekToIndex(index);
+      } catch (IndexOutOfBoundsException e) {
+        throw new IllegalArgumentException(e.getMessage());
+      }
+      logger.info("滑鼠腳本跳轉到第 {} 個事件", index);
+    }
+  }
+
   /** 獲取錄製的事件列表 */
   public List<MouseEvent> getRecordedEvents() {
     return new ArrayList<>(recordedEvents);
   }
 
+  /** 開啟即時錄製事件串流 */
+  public StreamingResponseBody openRecordStream() {
+    return recordStream.openStream();
+  }
+
+  /** 新增錄製事件的監聽者，在擷取執行緒上呼叫 (只在錄製中產生事件) */
+  public void addRecordListener(Consumer<MouseEvent> listener) {
+    recordStream.addListener(listener);
+  }
+
+  public void removeRecordListener(Consumer<MouseEvent> listener) {
+    recordStream.removeListener(listener);
+  }
+
   /** 清空錄製的事件 */
   public void clearRecordedEvents() {
     recordedEvents.clear();
+    recordingStatus.set(new RecordingStatus(isRecording, 0));
+    statusPublisher.signal();
     logger.info("已清空錄製的滑鼠事件");
   }
 
@@ -442,19 +694,19 @@ public class MouseService {
     return isRecording;
   }
 
+  /** 獲取錄製狀態快照 */
+  public RecordingStatus getRecordingStatus() {
+    return recordingStatus.get();
+  }
+
   /** 獲取當前播放狀態 */
   public boolean isPlaying() {
     return isPlaying;
   }
 
-  /** 獲取當前播放的事件 */
-  public MouseEvent getCurrentPlayingEvent() {
-    return currentPlayingEvent;
-  }
-
-  /** 獲取當前播放的索引 */
-  public int getCurrentPlayingIndex() {
-    return currentPlayingIndex;
+  /** 獲取播放狀態快照 */
+  public PlaybackStatus<MouseEvent> getPlaybackStatus() {
+    return playbackStatus.get();
   }
 
   /** 獲取循環播放狀態 */
@@ -462,16 +714,6 @@ public class MouseService {
     return isLooping;
   }
 
-  /** 獲取當前循環次數 */
-  public int getCurrentLoop() {
-    return currentLoop;
-  }
-
-  /** 獲取總循環次數 */
-  public int getLoopCount() {
-    return loopCount;
-  }
-
   /** 保存腳本到檔案 */
   public void saveScript(String filename) throws IOException {
     if (recordedEvents.isEmpty()) {
@@ -479,8 +721,13 @@ public class MouseService {
       return;
     }
 
+    saveScript(filename, recordedEvents);
+  }
+
+  /** 保存指定的滑鼠事件為腳本 */
+  public void saveScript(String filename, List<MouseEvent> events) throws IOException {
     File file = new File(SCRIPTS_DIR, filename + ".json");
-    objectMapper.writeValue(file, recordedEvents);
+    objectMapper.writeValue(file, events);
     logger.info("滑鼠腳本已保存到: {}", file.getAbsolutePath());
   }
 
@@ -504,7 +751,9 @@ public class MouseService {
     List<String> scripts = new ArrayList<>();
     File dir = new File(SCRIPTS_DIR);
     if (dir.exists() && dir.isDirectory()) {
-      File[] files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".json"));
+      File[] files =
+          dir.listFiles(
+              (d, name) -> name.toLowerCase().endsWith(".json") && !name.endsWith(FIDELITY_SUFFIX));
       if (files != null) {
         for (File file : files) {
           scripts.add(file.getName().replace(".json", ""));
@@ -520,6 +769,7 @@ public class MouseService {
     if (file.exists()) {
       boolean deleted = file.delete();
       if (deleted) {
+        new File(SCRIPTS_DIR, filename + FIDELITY_SUFFIX).delete();
         logger.info("腳本檔案已刪除: {}", filename);
       } else {
         logger.warn("無法刪除腳本檔案: {}", filename);
@@ -534,50 +784,50 @@ public class MouseService {
   /** 獲取當前滑鼠位置 */
   public int[] getCurrentMousePosition() {
     int[] cursorPos = new int[2];
-    user32.GetCursorPos(cursorPos);
+    inputProbe.getCursorPos(cursorPos);
     return cursorPos;
   }
 
   /** 移動滑鼠到指定位置 */
   public void moveMouse(int x, int y) {
-    if (robot != null) {
-      robot.mouseMove(x, y);
+    if (injector.isAvailable()) {
+      injector.mouseMove(x, y);
       logger.debug("移動滑鼠到位置: ({}, {})", x, y);
     } else {
-      logger.warn("Robot 未初始化，無法移動滑鼠");
+      logger.warn("輸入注入器無法使用，無法移動滑鼠");
     }
   }
 
   /** 點擊滑鼠左鍵 */
   public void clickLeftButton() {
-    if (robot != null) {
-      robot.mousePress(java.awt.event.InputEvent.BUTTON1_DOWN_MASK);
-      robot.mouseRelease(java.awt.event.InputEvent.BUTTON1_DOWN_MASK);
+    if (injector.isAvailable()) {
+      injector.mousePress(java.awt.event.InputEvent.BUTTON1_DOWN_MASK);
+      injector.mouseRelease(java.awt.event.InputEvent.BUTTON1_DOWN_MASK);
       logger.debug("點擊滑鼠左鍵");
     } else {
-      logger.warn("Robot 未初始化，無法點擊滑鼠");
+      logger.warn("輸入注入器無法使用，無法點擊滑鼠");
     }
   }
 
   /** 點擊滑鼠右鍵 */
   public void clickRightButton() {
-    if (robot != null) {
-      robot.mousePress(java.awt.event.InputEvent.BUTTON3_DOWN_MASK);
-      robot.mouseRelease(java.awt.event.InputEvent.BUTTON3_DOWN_MASK);
+    if (injector.isAvailable()) {
+      injector.mousePress(java.awt.event.InputEvent.BUTTON3_DOWN_MASK);
+      injector.mouseRelease(java.awt.event.InputEvent.BUTTON3_DOWN_MASK);
       logger.debug("點擊滑鼠右鍵");
     } else {
-      logger.warn("Robot 未初始化，無法點擊滑鼠");
+      logger.warn("輸入注入器無法使用，無法點擊滑鼠");
     }
   }
 
   /** 點擊滑鼠中鍵 */
   public void clickMiddleButton() {
-    if (robot != null) {
-      robot.mousePress(java.awt.event.InputEvent.BUTTON2_DOWN_MASK);
-      robot.mouseRelease(java.awt.event.InputEvent.BUTTON2_DOWN_MASK);
+    if (injector.isAvailable()) {
+      injector.mousePress(java.awt.event.InputEvent.BUTTON2_DOWN_MASK);
+      injector.mouseRelease(java.awt.event.InputEvent.BUTTON2_DOWN_MASK);
       logger.debug("點擊滑鼠中鍵");
     } else {
-      logger.warn("Robot 未初始化，無法點擊滑鼠");
+      logger.warn("輸入注入器無法使用，無法點擊滑鼠");
     }
   }
 
@@ -588,6 +838,7 @@ public class MouseService {
     // 停止錄製和播放
     isRecording = false;
     isPlaying = false;
+    recordStream.close();
 
     // 中斷監控線程
     if (mouseMonitorThread != null && mouseMonitorThread.isAlive()) {
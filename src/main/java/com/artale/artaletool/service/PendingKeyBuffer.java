@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+/** 焦點恢復期間偵測到的按鍵事件，只由按鍵監控執行緒存取；以固定大小的陣列保存，不配置物件 */
+final class PendingKeyBuffer {
+  private final long[] timestamps;
+  private final int[] keyCodes;
+  private final boolean[] presses;
+  private int size;
+  private long firstNanos;
+
+  PendingKeyBuffer(int capacity) {
+    timestamps = new long[capacity];
+    keyCodes = new int[capacity];
+    presses = new boolean[capacity];
+  }
+
+  /** 加入一個事件，已滿時回傳 false */
+  boolean offer(long timestamp, long nowNanos, int keyCode, boolean press) {
+    if (size == keyCodes.length) {
+      return false;
+    }
+    if (size == 0) {
+      firstNanos = nowNanos;
+    }
+    timestamps[size] = timestamp;
+    keyCodes[size] = keyCode;
+    presses[size] = press;
+    size++;
+    return true;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** 最早的事件已暫存超過 timeoutNanos */
+  boolean isExpired(long nowNanos, long timeoutNanos) {
+    return size > 0 && nowNanos - firstNanos > timeoutNanos;
+  }
+
+  long timestamp(int index) {
+    return timestamps[index];
+  }
+
+  int keyCode(int index) {
+    return keyCodes[index];
+  }
+
+  boolean isPress(int index) {
+    return presses[index];
+  }
+
+  /** 第 index 個事件是放開，且同一個按鍵在它之前的最後一個事件是暫存中的按下 */
+  boolean releasesBufferedPress(int index) {
+    if (presses[index]) {
+      return false;
+    }
+    for (int i = index - 1; i >= 0; i--) {
+      if (keyCodes[i] == keyCodes[index]) {
+        return presses[i];
+      }
+    }
+    return false;
+  }
+
+  void clear() {
+    size = 0;
+  }
+}
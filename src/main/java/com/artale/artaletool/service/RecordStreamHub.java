@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 將錄製中擷取到的事件即時分送給 NDJSON 串流訂閱者。
+ *
+ * <p>擷取執行緒只對每個訂閱者的有界佇列做非阻塞 offer；佇列已滿的訂閱者會被直接移除並結束串流，不會拖慢擷取。
+ *
+ * <p>序列化與寫出都在訂閱者自己的回應執行緒上進行，佇列清空時才 flush，讓連續事件合併成同一個 chunk。 閒置時每秒寫出一個空行，客戶端離線後寫出失敗，串流隨之結束並釋放回應執行緒。
+ *
+ * <p>程式內的監聽者 ({@link #addListener}) 直接在擷取執行緒上收到事件，必須立即返回。
+ */
+public class RecordStreamHub<T> {
+  private static final Logger logger = LoggerFactory.getLogger(RecordStreamHub.class);
+  private static final int DEFAULT_CAPACITY = 4096;
+  private static final byte[] NEWLINE = {'\n'};
+  private final String name;
+  private final ObjectMapper objectMapper;
+  private final CopyOnWriteArrayList<Subscription<T>> subscriptions = new CopyOnWriteArrayList<>();
+  private final CopyOnWriteArrayList<Consumer<? super T>> listeners = new CopyOnWriteArrayList<>();
+
+  public RecordStreamHub(String name, ObjectMapper objectMapper) {
+    this.name = name;
+    this.objectMapper = objectMapper;
+  }
+
+  /** 分送一個事件給所有訂閱者 (在擷取執行緒上呼叫，不會阻塞) */
+  public void publish(T event) {
+    for (Consumer<? super T> listener : listeners) {
+      listener.accept(event);
+    }
+    for (Subscription<T> subscription : subscriptions) {
+      if (!subscription.queue.offer(event)) {
+        subscription.dropped = true;
+        subscriptions.remove(subscription);
+        logger.warn("{} 錄製串流訂閱者跟不上擷取速度，已中斷", name);
+      }
+    }
+  }
+
+  /** 新增在擷取執行緒上直接收到事件的監聽者 */
+  public void addListener(Consumer<? super T> listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Consumer<? super T> listener) {
+    listeners.remove(listener);
+  }
+
+  /** 是否有訂閱者 */
+  public boolean hasSubscribers() {
+    return !subscriptions.isEmpty();
+  }
+
+  /** 建立新的 NDJSON 串流 */
+  public StreamingResponseBody openStream() {
+    Subscription<T> subscription = new Subscription<>(DEFAULT_CAPACITY);
+    subscriptions.add(subscription);
+    logger.info("{} 錄製串流新增訂閱者，目前共 {} 個", name, subscriptions.size());
+    return output -> {
+      try {
+        writeLoop(subscription, output);
+      } finally {
+        subscriptions.remove(subscription);
+        logger.info("{} 錄製串流訂閱者已離開", name);
+      }
+    };
+  }
+
+  /** 關閉所有串流 */
+  public void close() {
+    for (Subscription<T> subscription : subscriptions) {
+      subscription.closed = true;
+    }
+    subscriptions.clear();
+  }
+
+  private void writeLoop(Subscription<T> subscription, OutputStream output) throws IOException {
+    List<T> batch = new ArrayList<>();
+    // 先 flush 讓客戶端立即收到回應標頭
+    output.flush();
+    while (!subscription.closed && !subscription.dropped) {
+      T event;
+      try {
+        event = subscription.queue.poll(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (event == null) {
+        // 保持連線的空行，客戶端已離線時會丟出 IOException
+        output.write(NEWLINE);
+        output.flush();
+        continue;
+      }
+      batch.add(event);
+      subscription.queue.drainTo(batch);
+      for (T item : batch) {
+        output.write(objectMapper.writeValueAsBytes(item));
+        output.write(NEWLINE);
+      }
+      batch.clear();
+      output.flush();
+    }
+  }
+
+  private static final class Subscription<T> {
+    private final BlockingQueue<T> queue;
+    private volatile boolean dropped = false;
+    private volatile boolean closed = false;
+
+    private Subscription(int capacity) {
+      this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+  }
+}
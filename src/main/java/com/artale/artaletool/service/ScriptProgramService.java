@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.artale.artaletool.backend.KeyTable;
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.MouseEvent;
+import com.artale.artaletool.model.ProgramInfo;
+import com.artale.artaletool.script.Program;
+import com.artale.artaletool.script.ProgramExecutor;
+import com.artale.artaletool.script.ProgramInterpreter;
+import com.artale.artaletool.script.ProgramJit;
+import com.artale.artaletool.script.ProgramRuntime;
+import com.artale.artaletool.script.Recordings;
+import com.artale.artaletool.script.ScriptCompiler;
+import com.artale.artaletool.script.TriggerBoard;
+
+/**
+ * 腳本程式：以迴圈、等待、條件與子腳本撰寫的腳本，編譯成位元組碼後在鍵盤播放執行緒上執行。
+ *
+ * <p>原始碼存放在程式目錄，每次執行前重新編譯；call 找不到同檔案的 sub 時載入目錄中同名的程式。錄製的鍵盤或滑鼠腳本可轉換成沒有分支的程式，再手動改寫成迴圈。
+ *
+ * <p>程式可由直譯器執行，或編譯成 JVM 類別執行 ({@link ProgramJit})；編譯失敗時改用直譯器。
+ */
+@Service
+public class ScriptProgramService {
+  private static final Logger logger = LoggerFactory.getLogger(ScriptProgramService.class);
+  private static final String SUFFIX = ".art";
+
+  private final KeyboardService keyboardService;
+  private final MouseService mouseService;
+  private final Path programDir;
+  private final KeyTable keyTable = KeyTable.STANDARD;
+  private final ScriptCompiler compiler;
+  private final TriggerBoard triggers = new TriggerBoard();
+  private final ProgramJit jit;
+  private final boolean jitByDefault;
+
+  public ScriptProgramService(
+      KeyboardService keyboardService,
+      MouseService mouseService,
+      @Value("${artaletool.scripts.program-dir:programs}") String programDir,
+      @Value("${artaletool.scripts.jit:false}") boolean jitByDefault,
+      @Value("${artaletool.scripts.jit-cache-size:32}") int jitCacheSize) {
+    this.keyboardService = keyboardService;
+    this.mouseService = mouseService;
+    this.programDir = Paths.get(programDir);
+    this.compiler = new ScriptCompiler(keyTable, this::readIfExists);
+    this.jit = new ProgramJit(jitCacheSize);
+    this.jitByDefault = jitByDefault;
+  }
+
+  /** 編譯確認沒有錯誤後儲存原始碼 */
+  public ProgramInfo save(String name, String source) throws IOException {
+    validateName(name);
+    Program program = compiler.compile(name, source);
+    Files.createDirectories(programDir);
+    Files.writeString(path(name), source, StandardCharsets.UTF_8);
+    logger.info(
+        "腳本程式儲存成功: {} ({} 個指令, {} 位元組碼)",
+        name,
+        program.getInstructionCount(),
+        program.getCodeBytes());
+    return info(program, source);
+  }
+
+  /**
+   * 讀取原始碼。
+   *
+   * @throws IllegalArgumentException 程式不存在
+   */
+  public String load(String name) throws IOException {
+    validateName(name);
+    String source = readIfExists(name);
+    if (source == null) {
+      throw new IllegalArgumentException("找不到腳本程式: " + name);
+    }
+    return source;
+  }
+
+  public List<String> list() {
+    List<String> names = new ArrayList<>();
+    File[] files = programDir.toFile().listFiles((d, name) -> name.endsWith(SUFFIX));
+    if (files != null) {
+      for (File file : files) {
+        names.add(file.getName().substring(0, file.getName().length() - SUFFIX.length()));
+      }
+    }
+    Collections.sort(names);
+    return names;
+  }
+
+  public boolean delete(String name) throws IOException {
+    validateName(name);
+    boolean removed = Files.deleteIfExists(path(name));
+    if (removed) {
+      logger.info("腳本程式刪除成功: {}", name);
+    }
+    return removed;
+  }
+
+  /** 編譯程式，包含它呼叫的其他程式 */
+  public Program compile(String name) throws IOException {
+    return compiler.compile(name, load(name));
+  }
+
+  public ProgramInfo info(String name) throws IOException {
+    String source = load(name);
+    return info(compiler.compile(name, source), source);
+  }
+
+  public List<String> disassemble(String name) throws IOException {
+    return compile(name).disassemble();
+  }
+
+  /** 把錄製的鍵盤 (mouse 為 false) 或滑鼠腳本轉成程式並儲存為 saveAs */
+  public ProgramInfo importRecording(String script, boolean mouse, String saveAs)
+      throws IOException {
+    validateName(saveAs);
+    String header = "# 由" + (mouse ? "滑鼠" : "鍵盤") + "腳本 " + script + " 轉換\n";
+    String source;
+    int events;
+    if (mouse) {
+      List<MouseEvent> recording = mouseService.loadScript(script);
+      source = header + Recordings.mouseSource(recording);
+      events = recording.size();
+    } else {
+      List<KeyEvent> recording = keyboardService.loadScript(script);
+      source = header + Recordings.keySource(recording, keyTable);
+      events = recording.size();
+    }
+    ProgramInfo info = save(saveAs, source);
+    logger.info("錄製腳本 {} ({} 個事件) 已轉換為腳本程式 {}", script, events, saveAs);
+    return info;
+  }
+
+  /** 在鍵盤播放執行緒上執行程式，jit 為 null 時依設定決定是否編譯成 JVM 類別 */
+  public void play(String name, Boolean jit) throws IOException {
+    Program program = compile(name);
+    ProgramExecutor executor = executor(program, jit != null ? jit : jitByDefault);
+    logger.info("執行腳本程式: {} ({})", name, executor.backend());
+    keyboardService.playProgram(program, executor, triggers);
+  }
+
+  /**
+   * 在播放時鐘的 startNanos 開始執行已編譯的程式，用於多台同步開始。
+   *
+   * @throws IllegalArgumentException 正在播放或無法注入輸入
+   */
+  public ProgramRuntime playAt(Program program, Boolean jit, long startNanos) {
+    ProgramExecutor executor = executor(program, jit != null ? jit : jitByDefault);
+    ProgramRuntime runtime = keyboardService.playProgramAt(program, executor, triggers, startNanos);
+    if (runtime == null) {
+      throw new IllegalArgumentException("正在播放中或無法注入輸入");
+    }
+    return runtime;
+  }
+
+  /** 選擇執行方式；編譯成類別失敗時記錄原因並改用直譯器 */
+  ProgramExecutor executor(Program program, boolean compiled) {
+    if (compiled) {
+      try {
+        long start = System.nanoTime();
+        ProgramExecutor executor = jit.compile(program);
+        logger.debug(
+            "腳本程式 {} 編譯成類別 ({} ms, 快取命中 {} 次, 已編譯 {} 個)",
+            program.getName(),
+            String.format("%.2f", (System.nanoTime() - start) / 1_000_000.0),
+            jit.cacheHits(),
+            jit.compiledCount());
+        return executor;
+      } catch (IllegalArgumentException e) {
+        logger.warn("腳本程式 {} 無法編譯成類別，改用直譯器: {}", program.getName(), e.getMessage());
+      }
+    }
+    return new ProgramInterpreter(program);
+  }
+
+  /** 送出觸發訊號，喚醒等待中的 wait-trigger */
+  public void signal(String trigger) {
+    if (trigger == null || trigger.isBlank()) {
+      throw new IllegalArgumentException("觸發訊號名稱不能為空");
+    }
+    triggers.signal(trigger);
+  }
+
+  /** 各觸發訊號送出的次數 */
+  public Map<String, Long> getTriggers() {
+    return triggers.snapshot();
+  }
+
+  private static ProgramInfo info(Program program, String source) {
+    return new ProgramInfo(
+        program.getName(),
+        source.getBytes(StandardCharsets.UTF_8).length,
+        program.getInstructionCount(),
+        program.getCodeBytes(),
+        program.getRegisterCount(),
+        program.getCallDepth(),
+        program.getTriggers());
+  }
+
+  private String readIfExists(String name) {
+    Path path = path(name);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try {
+      return Files.readString(path, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Path path(String name) {
+    return programDir.resolve(name + SUFFIX);
+  }
+
+  private static void validateName(String name) {
+    if (name == null || name.isBlank() || name.contains("/") || name.contains("\\")) {
+      throw new IllegalArgumentException("腳本程式名稱無效: " + name);
+    }
+  }
+}
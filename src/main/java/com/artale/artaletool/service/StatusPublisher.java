@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 將播放、錄製、視窗鎖定與定時按鍵狀態以 Server-Sent Events 推送給訂閱者。
+ *
+ * <p>各服務在狀態改變時只呼叫 {@link #signal()}；由單一發布執行緒合併連續的變更，建立並序列化一次快照。
+ *
+ * <p>每個訂閱者有自己的最小推送間隔，被限流的訂閱者到期時收到最新的快照，中間的狀態會被合併掉。
+ */
+@Service
+public class StatusPublisher {
+  private static final Logger logger = LoggerFactory.getLogger(StatusPublisher.class);
+  private static final long HEARTBEAT_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ObjectProvider<KeyboardService> keyboardService;
+  private final ObjectProvider<MouseService> mouseService;
+  private final ObjectProvider<WindowService> windowService;
+  private final AtomicBoolean dirty = new AtomicBoolean(true);
+  private final Map<String, Long> scheduledKeyFires = new ConcurrentHashMap<>();
+  private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private volatile Map<String, Object> lastScheduledKeyFire = null;
+  private volatile boolean running = false;
+  private Thread publisherThread;
+  private String lastSnapshot = null;
+  private long version = 0;
+
+  public StatusPublisher(
+      ObjectProvider<KeyboardService> keyboardService,
+      ObjectProvider<MouseService> mouseService,
+      ObjectProvider<WindowService> windowService) {
+    this.keyboardService = keyboardService;
+    this.mouseService = mouseService;
+    this.windowService = windowService;
+  }
+
+  @PostConstruct
+  public void start() {
+    running = true;
+    publisherThread = new Thread(this::publishLoop, "StatusPublisherThread");
+    publisherThread.setDaemon(true);
+    publisherThread.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    if (publisherThread != null) {
+      publisherThread.interrupt();
+    }
+    for (Subscriber subscriber : subscribers) {
+      subscriber.emitter.complete();
+    }
+    subscribers.clear();
+  }
+
+  /** 通知狀態已改變；可在任何執行緒上呼叫，連續的通知會被合併 */
+  public void signal() {
+    if (dirty.compareAndSet(false, true)) {
+      Thread thread = publisherThread;
+      if (thread != null) {
+        LockSupport.unpark(thread);
+      }
+    }
+  }
+
+  /** 記錄一次定時按鍵觸發 */
+  public void scheduledKeyFired(String taskId, String key) {
+    scheduledKeyFires.merge(taskId, 1L, Long::sum);
+    Map<String, Object> fire = new LinkedHashMap<>();
+    fire.put("taskId", taskId);
+    fire.put("key", key);
+    fire.put("time", System.currentTimeMillis());
+    lastScheduledKeyFire = fire;
+    signal();
+  }
+
+  /** 移除已停止的定時按鍵任務 */
+  public void scheduledKeyStopped(String taskId) {
+    scheduledKeyFires.remove(taskId);
+    signal();
+  }
+
+  /** 新增訂閱者，minIntervalMs 為推送給此訂閱者的最小間隔 */
+  public SseEmitter subscribe(long minIntervalMs) {
+    SseEmitter emitter = new SseEmitter(0L);
+    Subscriber subscriber = new Subscriber(emitter, TimeUnit.MILLISECONDS.toNanos(minIntervalMs));
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    logger.info("新增狀態訂閱者，目前共 {} 個", subscribers.size());
+    // 讓新訂閱者立即收到目前的完整狀態
+    dirty.set(true);
+    LockSupport.unpark(publisherThread);
+    return emitter;
+  }
+
+  /** 目前的訂閱者數量 */
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  private void publishLoop() {
+    long parkNanos = HEARTBEAT_NANOS;
+    while (running) {
+      LockSupport.parkNanos(this, parkNanos);
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+      try {
+        if (subscribers.isEmpty()) {
+          dirty.set(false);
+          parkNanos = HEARTBEAT_NANOS;
+          continue;
+        }
+        // 錄製事件數等狀態未必每次都有通知，心跳時也重新比對快照
+        dirty.set(false);
+        String snapshot = objectMapper.writeValueAsString(buildSnapshot());
+        if (!snapshot.equals(lastSnapshot)) {
+          lastSnapshot = snapshot;
+          version++;
+        }
+        parkNanos = deliver(snapshot);
+      } catch (JsonProcessingException e) {
+        logger.error("序列化狀態快照失敗: {}", e.getMessage());
+      } catch (Exception e) {
+        logger.error("推送狀態時發生錯誤: {}", e.getMessage());
+      }
+    }
+  }
+
+  /** 推送給到期的訂閱者，回傳下次需要喚醒的等待時間 */
+  private long deliver(String snapshot) {
+    long now = System.nanoTime();
+    long nextWake = HEARTBEAT_NANOS;
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.sentVersion == version) {
+        continue;
+      }
+      long due = subscriber.lastSentNanos + subscriber.minIntervalNanos;
+      if (now - due >= 0) {
+        try {
+          subscriber.emitter.send(SseEmitter.event().name("status").data(snapshot));
+          subscriber.sentVersion = version;
+          subscriber.lastSentNanos = now;
+        } catch (IOException | IllegalStateException e) {
+          subscribers.remove(subscriber);
+        }
+      } else {
+        nextWake = Math.min(nextWake, due - now);
+      }
+    }
+    return nextWake;
+  }
+
+  private Map<String, Object> buildSnapshot() {
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+
+    KeyboardService keyboard = keyboardService.getIfAvailable();
+    if (keyboard != null) {
+      Map<String, Object> status = new LinkedHashMap<>();
+      status.put("playback", keyboard.getPlaybackStatus());
+      status.put("recording", keyboard.getRecordingStatus());
+      snapshot.put("keyboard", status);
+    }
+
+    MouseService mouse = mouseService.getIfAvailable();
+    if (mouse != null) {
+      Map<String, Object> status = new LinkedHashMap<>();
+      status.put("playback", mouse.getPlaybackStatus());
+      status.put("recording", mouse.getRecordingStatus());
+      snapshot.put("mouse", status);
+    }
+
+    WindowService window = windowService.getIfAvailable();
+    if (window != null) {
+      Map<String, Object> status = new LinkedHashMap<>();
+      status.put("isLocked", window.isWindowLocked());
+      status.put("lockedWindowTitle", window.getLockedWindowTitle());
+      status.put("isWindowSizePositionLocked", window.isWindowSizePositionLocked());
+      status.put("lockedSizePositionWindowTitle", window.getLockedSizePositionWindowTitle());
+      snapshot.put("window", status);
+    }
+
+    Map<String, Object> scheduledKeys = new LinkedHashMap<>();
+    scheduledKeys.put("fireCounts", new LinkedHashMap<>(scheduledKeyFires));
+    scheduledKeys.put("lastFire", lastScheduledKeyFire);
+    snapshot.put("scheduledKeys", scheduledKeys);
+    return snapshot;
+  }
+
+  /** 單一 SSE 訂閱者及其限流狀態 (只由發布執行緒讀寫) */
+  private static final class Subscriber {
+    private final SseEmitter emitter;
+    private final long minIntervalNanos;
+    private long lastSentNanos;
+    private long sentVersion = -1;
+
+    private Subscriber(SseEmitter emitter, long minIntervalNanos) {
+      this.emitter = emitter;
+      this.minIntervalNanos = minIntervalNanos;
+      this.lastSentNanos = System.nanoTime() - minIntervalNanos;
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.artale.artaletool.capture.Frame;
+import com.artale.artaletool.match.Template;
+import com.artale.artaletool.match.TemplateMatcher;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.TemplateMatch;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 在擷取區域的最新畫面中尋找樣板圖片 (按鈕、圖示、小地圖標記)。
+ *
+ * <p>樣板以 PNG 存放在樣板目錄，第一次使用時載入。每個樣板與區域的結果會快取，直到區域畫面的內容雜湊改變為止；快取只保存相對區域的結果，
+ * 螢幕座標與畫面序號每次都由目前的畫面計算，視窗移動但內容不變時仍回傳正確的位置。
+ */
+@Service
+public class TemplateMatchService {
+  private static final Logger logger = LoggerFactory.getLogger(TemplateMatchService.class);
+  private static final String SUFFIX = ".png";
+
+  private final CaptureService captureService;
+  private final TemplateMatcher matcher;
+  private final Path templateDir;
+  private final double defaultThreshold;
+  private final int maxLevels;
+  private final Map<String, Template> templates = new ConcurrentHashMap<>();
+  private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+  private volatile boolean loaded = false;
+
+  private final Timer hitTimer;
+  private final Timer missTimer;
+
+  /** 一個樣板與區域的上一次比對結果 (相對區域) */
+  private record Cached(
+      Template template, long contentHash, double threshold, TemplateMatcher.Result result) {}
+
+  public TemplateMatchService(
+      ToolMetrics metrics,
+      CaptureService captureService,
+      @Value("${artaletool.match.template-dir:templates}") String templateDir,
+      @Value("${artaletool.match.threshold:0.9}") double defaultThreshold,
+      @Value("${artaletool.match.pyramid-levels:3}") int maxLevels,
+      @Value("${artaletool.match.vector:true}") boolean allowVector,
+      @Value("${artaletool.match.parallel-threshold:4000000}") long parallelThreshold) {
+    this.captureService = captureService;
+    this.templateDir = Paths.get(templateDir);
+    this.defaultThreshold = defaultThreshold;
+    this.maxLevels = maxLevels;
+    this.matcher = new TemplateMatcher(allowVector, ForkJoinPool.commonPool(), parallelThreshold);
+    hitTimer = metrics.templateMatch("hit");
+    missTimer = metrics.templateMatch("miss");
+    logger.info("樣板比對核心: {}", matcher.kernelName());
+  }
+
+  /**
+   * 在區域最新的畫面中尋找樣板，threshold 為 null 時使用預設門檻。
+   *
+   * @throws IllegalArgumentException 樣板或區域不存在
+   * @throws IllegalStateException 區域尚未擷取到畫面
+   */
+  public TemplateMatch find(String templateName, String region, Double threshold) {
+    Template template = getTemplate(templateName);
+    double minScore = threshold != null ? threshold : defaultThreshold;
+    if (!(minScore >= -1 && minScore <= 1)) {
+      throw new IllegalArgumentException("門檻必須介於 -1 與 1 之間: " + minScore);
+    }
+    Frame frame = captureService.acquireLatest(region);
+    if (frame == null) {
+      throw new IllegalStateException("區域 " + region + " 尚未擷取到畫面");
+    }
+    try {
+      long start = System.nanoTime();
+      String key = templateName + '\n' + region;
+      Cached cached = cache.get(key);
+      if (cached != null
+          && cached.template == template
+          && cached.contentHash == frame.getContentHash()
+          && cached.threshold == minScore) {
+        hitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return toMatch(templateName, region, template, frame, cached.result, true, 0);
+      }
+
+      TemplateMatcher.Result result =
+          matcher.find(template, frame.pixels(), frame.getWidth(), frame.getHeight(), minScore);
+      long elapsed = System.nanoTime() - start;
+      missTimer.record(elapsed, TimeUnit.NANOSECONDS);
+      cache.put(key, new Cached(template, frame.getContentHash(), minScore, result));
+      return toMatch(templateName, region, template, frame, result, false, elapsed);
+    } finally {
+      frame.release();
+    }
+  }
+
+  /** 以目前畫面的位置與序號把相對區域的結果轉為回傳值 */
+  private static TemplateMatch toMatch(
+      String templateName,
+      String region,
+      Template template,
+      Frame frame,
+      TemplateMatcher.Result result,
+      boolean cached,
+      long elapsedNanos) {
+    return new TemplateMatch(
+        templateName,
+        region,
+        result.found(),
+        result.score(),
+        result.x(),
+        result.y(),
+        template.getWidth(),
+        template.getHeight(),
+        frame.getScreenX() + result.x() + template.getWidth() / 2,
+        frame.getScreenY() + result.y() + template.getHeight() / 2,
+        frame.getSequence(),
+        cached,
+        elapsedNanos / 1_000_000.0);
+  }
+
+  /** 新增或取代樣板，並存到樣板目錄 */
+  public void saveTemplate(String name, BufferedImage image) throws IOException {
+    validateName(name);
+    Template template = Template.of(name, image, maxLevels);
+    Files.createDirectories(templateDir);
+    ImageIO.write(image, "png", templateDir.resolve(name + SUFFIX).toFile());
+    ensureLoaded();
+    templates.put(name, template);
+    logger.info("樣板儲存成功: {} ({}x{})", name, image.getWidth(), image.getHeight());
+  }
+
+  public boolean deleteTemplate(String name) throws IOException {
+    validateName(name);
+    ensureLoaded();
+    boolean removed = templates.remove(name) != null;
+    removed |= Files.deleteIfExists(templateDir.resolve(name + SUFFIX));
+    if (removed) {
+      logger.info("樣板刪除成功: {}", name);
+    }
+    return removed;
+  }
+
+  public List<String> listTemplates() {
+    ensureLoaded();
+    List<String> names = new ArrayList<>(templates.keySet());
+    Collections.sort(names);
+    return names;
+  }
+
+  public String getKernelName() {
+    return matcher.kernelName();
+  }
+
+  private Template getTemplate(String name) {
+    ensureLoaded();
+    Template template = templates.get(name);
+    if (template == null) {
+      throw new IllegalArgumentException("找不到樣板: " + name);
+    }
+    return template;
+  }
+
+  private void ensureLoaded() {
+    if (loaded) {
+      return;
+    }
+    synchronized (this) {
+      if (loaded) {
+        return;
+      }
+      File[] files = templateDir.toFile().listFiles((d, name) -> name.endsWith(SUFFIX));
+      if (files != null) {
+        for (File file : files) {
+          String name = file.getName().substring(0, file.getName().length() - SUFFIX.length());
+          try {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+              logger.warn("無法辨識的樣板圖片: {}", file);
+              continue;
+            }
+            templates.putIfAbsent(name, Template.of(name, image, maxLevels));
+          } catch (IOException | IllegalArgumentException e) {
+            logger.warn("載入樣板 {} 失敗: {}", file, e.getMessage());
+          }
+        }
+      }
+      loaded = true;
+      logger.info("已載入 {} 個樣板", templates.size());
+    }
+  }
+
+  private static void validateName(String name) {
+    if (name == null || name.isBlank() || name.contains("/") || name.contains("\\")) {
+      throw new IllegalArgumentException("樣板名稱無效: " + name);
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.WatchRule;
+import com.artale.artaletool.model.WatchRuleStatus;
+import com.artale.artaletool.watch.WatchEngine;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 畫面監看規則：在擷取執行緒上評估條件，觸發的動作 (播放腳本、啟動或停止定時按鍵) 在背景執行緒上執行。
+ *
+ * <p>取代固定間隔的定時按鍵，例如血條平均亮度低於門檻時才開始按藥水鍵，恢復後停止；也可以送出觸發訊號給等待中的腳本程式。
+ */
+@Service
+public class WatchService {
+  private static final Logger logger = LoggerFactory.getLogger(WatchService.class);
+
+  private final CaptureService captureService;
+  private final KeyboardService keyboardService;
+  private final ScriptProgramService programService;
+  private final WatchEngine engine;
+  private final Map<WatchRule.Action, Timer> triggerLatencyTimers =
+      new EnumMap<>(WatchRule.Action.class);
+  private volatile ExecutorService executor;
+
+  public WatchService(
+      ToolMetrics metrics,
+      CaptureService captureService,
+      KeyboardService keyboardService,
+      ScriptProgramService programService) {
+    this.captureService = captureService;
+    this.keyboardService = keyboardService;
+    this.programService = programService;
+    for (WatchRule.Action action : WatchRule.Action.values()) {
+      triggerLatencyTimers.put(
+          action, metrics.watchTriggerLatency(action.name().toLowerCase(Locale.ROOT)));
+    }
+    this.engine =
+        new WatchEngine(
+            this::dispatch,
+            metrics.watchEvaluation(),
+            metrics.watchRules("evaluated"),
+            metrics.watchRules("skipped"));
+    captureService.addListener(engine);
+  }
+
+  /** 驗證並套用規則，取代原本的設定 */
+  public void setRules(List<WatchRule> rules) {
+    engine.setRules(rules);
+    logger.info("監看規則已更新: {} 條", rules.size());
+  }
+
+  public List<WatchRule> getRules() {
+    return engine.getRules();
+  }
+
+  public List<WatchRuleStatus> getStatus() {
+    return engine.getStatus();
+  }
+
+  /** 由擷取執行緒呼叫，只把動作排入背景執行緒 */
+  private void dispatch(WatchRule rule, long captureNanos) {
+    try {
+      executor().execute(() -> execute(rule, captureNanos));
+    } catch (RejectedExecutionException e) {
+      logger.warn("無法排入監看規則 {} 的動作: {}", rule.getId(), e.getMessage());
+    }
+  }
+
+  private void execute(WatchRule rule, long captureNanos) {
+    triggerLatencyTimers
+        .get(rule.getAction())
+        .record(System.nanoTime() - captureNanos, TimeUnit.NANOSECONDS);
+    logger.info("監看規則 {} 觸發: {}", rule.getId(), rule.getAction());
+    try {
+      switch (rule.getAction()) {
+        case PLAY_SCRIPT -> {
+          if (keyboardService.isPlaying()) {
+            logger.info("正在播放中，略過監看規則 {} 的腳本 {}", rule.getId(), rule.getScript());
+            return;
+          }
+          keyboardService.playScript(
+              keyboardService.loadScript(rule.getScript()), rule.isLoop(), rule.getCount());
+        }
+        case STOP_PLAYBACK -> keyboardService.stopPlayback();
+        case START_SCHEDULED_KEY ->
+            keyboardService.startScheduledKeyPress(
+                rule.getTaskId(), rule.getKey(), rule.getIntervalSeconds());
+        case STOP_SCHEDULED_KEY -> keyboardService.stopScheduledKeyPress(rule.getTaskId());
+        case SIGNAL_TRIGGER -> programService.signal(rule.getTrigger());
+      }
+    } catch (Exception e) {
+      logger.error("執行監看規則 {} 的動作失敗: {}", rule.getId(), e.getMessage());
+    }
+  }
+
+  private ExecutorService executor() {
+    ExecutorService current = executor;
+    if (current == null) {
+      synchronized (this) {
+        current = executor;
+        if (current == null) {
+          current =
+              Executors.newSingleThreadExecutor(
+                  r -> {
+                    Thread thread = new Thread(r, "WatchActionThread");
+                    thread.setDaemon(true);
+                    return thread;
+                  });
+          executor = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  @PreDestroy
+  public void close() {
+    captureService.removeListener(engine);
+    ExecutorService current = executor;
+    if (current != null) {
+      current.shutdownNow();
+    }
+  }
+}
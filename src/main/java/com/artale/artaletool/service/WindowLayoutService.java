@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.artale.artaletool.model.WindowLayoutProfile;
+import com.artale.artaletool.model.WindowLayoutResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** 管理儲存在伺服器端的視窗版面配置，並以單一批次交易套用 */
+@Service
+public class WindowLayoutService {
+  private static final Logger logger = LoggerFactory.getLogger(WindowLayoutService.class);
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final String LAYOUTS_DIR = "layouts";
+
+  @Autowired private WindowService windowService;
+
+  public WindowLayoutService() {
+    try {
+      Files.createDirectories(Paths.get(LAYOUTS_DIR));
+      logger.info("版面配置目錄創建成功: {}", LAYOUTS_DIR);
+    } catch (IOException e) {
+      logger.error("版面配置目錄創建失敗: {}", e.getMessage());
+    }
+  }
+
+  /** 儲存版面配置 */
+  public void saveLayout(String name, WindowLayoutProfile profile) throws IOException {
+    profile.setName(name);
+    Path filePath = Paths.get(LAYOUTS_DIR, name + ".json");
+    objectMapper.writeValue(filePath.toFile(), profile);
+    logger.info("版面配置儲存成功: {}", filePath);
+  }
+
+  /** 讀取版面配置 */
+  public WindowLayoutProfile loadLayout(String name) throws IOException {
+    Path filePath = Paths.get(LAYOUTS_DIR, name + ".json");
+    if (!Files.exists(filePath)) {
+      throw new IOException("版面配置不存在: " + filePath);
+    }
+    return objectMapper.readValue(filePath.toFile(), WindowLayoutProfile.class);
+  }
+
+  /** 列出所有版面配置 */
+  public List<String> listLayouts() {
+    File dir = new File(LAYOUTS_DIR);
+    List<String> layouts = new ArrayList<>();
+    if (dir.exists() && dir.isDirectory()) {
+      File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+      if (files != null) {
+        for (File file : files) {
+          layouts.add(file.getName().replace(".json", ""));
+        }
+      }
+    }
+    return layouts;
+  }
+
+  /** 刪除版面配置 */
+  public boolean deleteLayout(String name) throws IOException {
+    Path filePath = Paths.get(LAYOUTS_DIR, name + ".json");
+    if (Files.exists(filePath)) {
+      Files.delete(filePath);
+      logger.info("版面配置刪除成功: {}", filePath);
+      return true;
+    }
+    logger.warn("版面配置不存在: {}", filePath);
+    return false;
+  }
+
+  /** 套用指定名稱的版面配置 */
+  public WindowLayoutResult applyLayout(String name) throws IOException {
+    WindowLayoutProfile profile = loadLayout(name);
+    return windowService.applyWindowLayout(name, profile.getWindows());
+  }
+}
@@ -5,111 +5,138 @@
 package com.artale.artaletool.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.artale.artaletool.backend.InputProbe;
+import com.artale.artaletool.backend.WindowManager;
+import com.artale.artaletool.backend.WindowPlacement;
+import com.artale.artaletool.metrics.ToolMetrics;
 import com.artale.artaletool.model.WindowInfo;
-import com.sun.jna.Native;
-import com.sun.jna.Pointer;
-import com.sun.jna.platform.win32.WinDef.HWND;
-import com.sun.jna.platform.win32.WinDef.RECT;
-import com.sun.jna.platform.win32.WinUser.WNDENUMPROC;
-import com.sun.jna.win32.W32APIOptions;
+import com.artale.artaletool.model.WindowLayoutEntry;
+import com.artale.artaletool.model.WindowLayoutResult;
+
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class WindowService {
   private static final Logger logger = LoggerFactory.getLogger(WindowService.class);
-  private final User32 user32 = User32.INSTANCE;
-  private HWND lockedWindow = null;
-  private String lockedWindowTitle = null;
+  // 擷取執行緒與焦點恢復執行緒也會讀取，鎖定與解鎖必須立即可見
+  private volatile long lockedWindow = 0;
+  private volatile String lockedWindowTitle = null;
 
   // 新增：鎖定視窗大小位置的相關變數
   private boolean isWindowSizePositionLocked = false;
-  private RECT originalWindowRect = null;
-  private HWND lockedSizePositionWindow = null;
+  private int[] originalWindowRect = null; // left, top, right, bottom
+  private long lockedSizePositionWindow = 0;
   private String lockedSizePositionWindowTitle = null;
   private Thread windowMonitorThread = null;
   private boolean isMonitoring = false;
 
-  public interface User32 extends com.sun.jna.platform.win32.User32 {
-    User32 INSTANCE = Native.load("user32", User32.class, W32APIOptions.DEFAULT_OPTIONS);
-
-    boolean EnumWindows(WNDENUMPROC lpEnumFunc, Pointer userData);
-
-    int GetWindowTextA(HWND hWnd, byte[] lpString, int nMaxCount);
-
-    int GetClassNameA(HWND hWnd, byte[] lpClassName, int nMaxCount);
-
-    boolean IsWindowVisible(HWND hWnd);
+  // 視窗狀態快取：批次套用版面配置時用來比對，跳過位置大小未變更的視窗
+  // 每次更新都建立新的快照整個替換，快照中的 WindowInfo 是獨立的副本且不會再被修改
+  private final AtomicReference<WindowSnapshot> windowCache =
+      new AtomicReference<>(new WindowSnapshot(Map.of(), 0));
+  private static final long WINDOW_CACHE_TTL_MS = 500;
 
-    boolean IsWindow(HWND hWnd);
+  private record WindowSnapshot(Map<Long, WindowInfo> windows, long time) {}
 
-    HWND GetForegroundWindow();
+  // 監控指標
+  private final ToolMetrics.PollMonitor windowMonitorMetrics;
+  private final Timer getWindowRectTimer;
+  private final Timer windowEnumerationTimer;
 
-    boolean SetForegroundWindow(HWND hWnd);
+  @Autowired private StatusPublisher statusPublisher;
 
-    boolean GetWindowRect(HWND hWnd, RECT lpRect);
+  private final InputProbe inputProbe;
+  private final WindowManager windowManager;
 
-    boolean SetWindowPos(HWND hWnd, HWND hWndInsertAfter, int X, int Y, int cx, int cy, int uFlags);
-
-    boolean BringWindowToTop(HWND hWnd);
+  public WindowService(ToolMetrics metrics, InputProbe inputProbe, WindowManager windowManager) {
+    this.inputProbe = inputProbe;
+    this.windowManager = windowManager;
+    windowMonitorMetrics = metrics.pollMonitor("window", 100);
+    getWindowRectTimer = metrics.nativeCall("GetWindowRect");
+    windowEnumerationTimer = metrics.windowEnumeration();
   }
 
   /** 列舉所有可見的視窗 */
   public List<WindowInfo> enumerateWindows() {
+    long startTime = System.nanoTime();
     List<WindowInfo> windows = new ArrayList<>();
-    HWND foregroundWindow = user32.GetForegroundWindow();
-
-    user32.EnumWindows(
-        (hWnd, userData) -> {
-          if (user32.IsWindow(hWnd) && user32.IsWindowVisible(hWnd)) {
-            WindowInfo windowInfo = getWindowInfo(hWnd);
-            if (windowInfo != null && !windowInfo.getTitle().isEmpty()) {
-              // 檢查是否為當前活動視窗
-              windowInfo.setActive(hWnd.equals(foregroundWindow));
-              // 檢查是否為大小位置鎖定的視窗
-              windowInfo.setSizePositionLocked(hWnd.equals(lockedSizePositionWindow));
-              windows.add(windowInfo);
-            }
-          }
-          return true;
-        },
-        null);
+    long foregroundWindow = inputProbe.getForegroundWindow();
 
+    for (long hWnd : windowManager.listWindows()) {
+      if (inputProbe.isWindow(hWnd) && windowManager.isWindowVisible(hWnd)) {
+        WindowInfo windowInfo = getWindowInfo(hWnd);
+        if (windowInfo != null && !windowInfo.getTitle().isEmpty()) {
+          // 檢查是否為當前活動視窗
+          windowInfo.setActive(hWnd == foregroundWindow);
+          // 檢查是否為大小位置鎖定的視窗
+          windowInfo.setSizePositionLocked(hWnd == lockedSizePositionWindow);
+          windows.add(windowInfo);
+        }
+      }
+    }
+
+    // 更新視窗狀態快取，存放副本，呼叫端拿到的物件與快取互不影響
+    Map<Long, WindowInfo> cache = new HashMap<>();
+    for (WindowInfo window : windows) {
+      cache.put(window.getHandle(), copyOf(window));
+    }
+    windowCache.set(new WindowSnapshot(cache, System.currentTimeMillis()));
+
+    windowEnumerationTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
     return windows;
   }
 
-  /** 獲取指定視窗的詳細資訊 */
-  private WindowInfo getWindowInfo(HWND hWnd) {
-    try {
-      // 獲取視窗標題 - 使用繁體中文編碼
-      byte[] titleBytes = new byte[512];
-      int titleLength = user32.GetWindowTextA(hWnd, titleBytes, titleBytes.length);
-      String title = new String(titleBytes, 0, titleLength, "Big5").trim();
+  /** 取得快取的視窗列表，超過有效時間才重新列舉 */
+  private List<WindowInfo> getCachedWindows() {
+    WindowSnapshot snapshot = windowCache.get();
+    if (snapshot.windows().isEmpty()
+        || System.currentTimeMillis() - snapshot.time() > WINDOW_CACHE_TTL_MS) {
+      return enumerateWindows();
+    }
+    return new ArrayList<>(snapshot.windows().values());
+  }
 
-      // 獲取視窗類別名稱 - 使用繁體中文編碼
-      byte[] classNameBytes = new byte[256];
-      int classNameLength = user32.GetClassNameA(hWnd, classNameBytes, classNameBytes.length);
-      String className = new String(classNameBytes, 0, classNameLength, "Big5").trim();
+  /** 讀取視窗矩形 (left, top, right, bottom) 並記錄原生呼叫延遲 */
+  public boolean getWindowRect(long hWnd, int[] rect) {
+    long callStart = System.nanoTime();
+    boolean success = inputProbe.getWindowRect(hWnd, rect);
+    getWindowRectTimer.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+    return success;
+  }
 
+  /** 獲取指定視窗的詳細資訊 */
+  private WindowInfo getWindowInfo(long hWnd) {
+    try {
       // 獲取視窗位置和大小
-      RECT rect = new RECT();
-      boolean hasRect = user32.GetWindowRect(hWnd, rect);
+      int[] rect = new int[4];
+      boolean hasRect = getWindowRect(hWnd, rect);
 
       WindowInfo windowInfo = new WindowInfo();
-      windowInfo.setHandle(Pointer.nativeValue(hWnd.getPointer()));
-      windowInfo.setTitle(title);
-      windowInfo.setClassName(className);
-      windowInfo.setVisible(user32.IsWindowVisible(hWnd));
+      windowInfo.setHandle(hWnd);
+      windowInfo.setTitle(windowManager.getWindowTitle(hWnd));
+      windowInfo.setClassName(windowManager.getClassName(hWnd));
+      windowInfo.setVisible(windowManager.isWindowVisible(hWnd));
 
       if (hasRect) {
-        windowInfo.setX(rect.left);
-        windowInfo.setY(rect.top);
-        windowInfo.setWidth(rect.right - rect.left);
-        windowInfo.setHeight(rect.bottom - rect.top);
+        windowInfo.setX(rect[0]);
+        windowInfo.setY(rect[1]);
+        windowInfo.setWidth(rect[2] - rect[0]);
+        windowInfo.setHeight(rect[3] - rect[1]);
       }
 
       return windowInfo;
@@ -122,11 +149,11 @@ public class WindowService {
   /** 鎖定指定視窗 */
   public boolean lockWindow(long windowHandle) {
     try {
-      HWND hWnd = new HWND(new Pointer(windowHandle));
-      if (user32.IsWindow(hWnd)) {
-        lockedWindow = hWnd;
-        WindowInfo windowInfo = getWindowInfo(hWnd);
+      if (inputProbe.isWindow(windowHandle)) {
+        lockedWindow = windowHandle;
+        WindowInfo windowInfo = getWindowInfo(windowHandle);
         lockedWindowTitle = windowInfo != null ? windowInfo.getTitle() : "未知視窗";
+        statusPublisher.signal();
         logger.info("視窗已鎖定: {}", lockedWindowTitle);
         return true;
       }
@@ -139,26 +166,33 @@ public class WindowService {
 
   /** 解鎖視窗 */
   public void unlockWindow() {
-    if (lockedWindow != null) {
+    if (lockedWindow != 0) {
       logger.info("視窗已解鎖: {}", lockedWindowTitle);
-      lockedWindow = null;
+      lockedWindow = 0;
       lockedWindowTitle = null;
+      statusPublisher.signal();
     }
   }
 
   /** 檢查視窗是否已鎖定 */
   public boolean isWindowLocked() {
-    return lockedWindow != null;
+    return lockedWindow != 0;
   }
 
   /** 獲取當前鎖定的視窗資訊 */
   public WindowInfo getLockedWindowInfo() {
-    if (lockedWindow != null) {
-      return getWindowInfo(lockedWindow);
+    long handle = lockedWindow;
+    if (handle != 0) {
+      return getWindowInfo(handle);
     }
     return null;
   }
 
+  /** 鎖定視窗的句柄，沒有鎖定時為 0 */
+  public long getLockedWindowHandle() {
+    return lockedWindow;
+  }
+
   /** 獲取鎖定視窗的標題 */
   public String getLockedWindowTitle() {
     return lockedWindowTitle;
@@ -166,10 +200,10 @@ public class WindowService {
 
   /** 將鎖定的視窗帶到前台 */
   public boolean bringLockedWindowToFront() {
-    if (lockedWindow != null) {
+    long handle = lockedWindow;
+    if (handle != 0) {
       try {
-        user32.BringWindowToTop(lockedWindow);
-        user32.SetForegroundWindow(lockedWindow);
+        windowManager.bringToFront(handle);
         logger.info("視窗已帶到前台: {}", lockedWindowTitle);
         return true;
       } catch (Exception e) {
@@ -183,10 +217,8 @@ public class WindowService {
   /** 直接將指定視窗帶到前台 */
   public boolean bringWindowToFrontDirect(long windowHandle) {
     try {
-      HWND hWnd = new HWND(new Pointer(windowHandle));
-      if (user32.IsWindow(hWnd)) {
-        user32.BringWindowToTop(hWnd);
-        user32.SetForegroundWindow(hWnd);
+      if (inputProbe.isWindow(windowHandle)) {
+        windowManager.bringToFront(windowHandle);
         logger.info("視窗已直接帶到前台: handle={}", windowHandle);
         return true;
       }
@@ -199,11 +231,11 @@ public class WindowService {
 
   /** 檢查當前活動視窗是否為鎖定的視窗 */
   public boolean isLockedWindowActive() {
-    if (lockedWindow == null) {
+    long handle = lockedWindow;
+    if (handle == 0) {
       return true; // 如果沒有鎖定視窗，允許所有操作
     }
-    HWND foregroundWindow = user32.GetForegroundWindow();
-    return lockedWindow.equals(foregroundWindow);
+    return handle == inputProbe.getForegroundWindow();
   }
 
   /** 根據視窗標題查找視窗 */
@@ -224,33 +256,29 @@ public class WindowService {
   /** 鎖定視窗大小和位置 */
   public boolean lockWindowSizePosition(long windowHandle) {
     try {
-      HWND hWnd = new HWND(new Pointer(windowHandle));
-      if (user32.IsWindow(hWnd)) {
+      if (inputProbe.isWindow(windowHandle)) {
         // 如果已經有鎖定的視窗，先解鎖
         if (isWindowSizePositionLocked) {
           unlockWindowSizePosition();
         }
 
         // 獲取當前視窗位置和大小
-        RECT rect = new RECT();
-        if (user32.GetWindowRect(hWnd, rect)) {
+        int[] rect = new int[4];
+        if (getWindowRect(windowHandle, rect)) {
           // 儲存原始位置和大小
-          originalWindowRect = new RECT();
-          originalWindowRect.left = rect.left;
-          originalWindowRect.top = rect.top;
-          originalWindowRect.right = rect.right;
-          originalWindowRect.bottom = rect.bottom;
+          originalWindowRect = rect;
 
           // 設定鎖定狀態
           isWindowSizePositionLocked = true;
-          lockedSizePositionWindow = hWnd; // 儲存被鎖定的視窗句柄
+          lockedSizePositionWindow = windowHandle; // 儲存被鎖定的視窗句柄
 
           // 開始監控視窗
-          startWindowMonitoring(hWnd);
+          startWindowMonitoring(windowHandle);
 
-          WindowInfo windowInfo = getWindowInfo(hWnd);
+          WindowInfo windowInfo = getWindowInfo(windowHandle);
           String windowTitle = windowInfo != null ? windowInfo.getTitle() : "未知視窗";
           lockedSizePositionWindowTitle = windowTitle;
+          statusPublisher.signal();
           logger.info("視窗大小位置已鎖定: {}", windowTitle);
           return true;
         }
@@ -267,10 +295,11 @@ public class WindowService {
     if (isWindowSizePositionLocked) {
       logger.info("視窗大小位置已解鎖: {}", lockedSizePositionWindowTitle);
       isWindowSizePositionLocked = false;
-      lockedSizePositionWindow = null;
+      lockedSizePositionWindow = 0;
       lockedSizePositionWindowTitle = null;
       originalWindowRect = null;
       stopWindowMonitoring();
+      statusPublisher.signal();
     }
   }
 
@@ -285,7 +314,7 @@ public class WindowService {
   }
 
   /** 開始監控視窗位置和大小 */
-  private void startWindowMonitoring(HWND hWnd) {
+  private void startWindowMonitoring(long handle) {
     if (isMonitoring) {
       return;
     }
@@ -294,40 +323,19 @@ public class WindowService {
     windowMonitorThread =
         new Thread(
             () -> {
+              int[] lockedRect = originalWindowRect;
+              int[] currentRect = new int[4];
               while (isMonitoring && isWindowSizePositionLocked) {
                 try {
-                  // 檢查視窗是否仍然存在
-                  if (!user32.IsWindow(hWnd)) {
+                  long tickStart = System.nanoTime();
+                  // 檢查視窗是否仍然存在，並在位置或大小變更時恢復
+                  if (!enforceLockedRect(handle, lockedRect, currentRect)) {
                     logger.info("鎖定的視窗已關閉，自動解鎖");
                     unlockWindowSizePosition();
                     break;
                   }
 
-                  // 獲取當前視窗位置和大小
-                  RECT currentRect = new RECT();
-                  if (user32.GetWindowRect(hWnd, currentRect)) {
-                    // 檢查位置或大小是否有變更
-                    if (currentRect.left != originalWindowRect.left
-                        || currentRect.top != originalWindowRect.top
-                        || currentRect.right != originalWindowRect.right
-                        || currentRect.bottom != originalWindowRect.bottom) {
-
-                      // 恢復到原始位置和大小
-                      int width = originalWindowRect.right - originalWindowRect.left;
-                      int height = originalWindowRect.bottom - originalWindowRect.top;
-
-                      user32.SetWindowPos(
-                          hWnd,
-                          null,
-                          originalWindowRect.left,
-                          originalWindowRect.top,
-                          width,
-                          height,
-                          0x0004 | 0x0010); // SWP_NOZORDER | SWP_NOACTIVATE
-
-                      logger.debug("視窗位置或大小已恢復到鎖定狀態");
-                    }
-                  }
+                  windowMonitorMetrics.recordTick(System.nanoTime() - tickStart);
 
                   // 每100毫秒檢查一次
                   Thread.sleep(100);
@@ -344,6 +352,33 @@ public class WindowService {
     windowMonitorThread.start();
   }
 
+  /**
+   * 大小位置鎖定監控的單次檢查，視窗被移動或縮放時恢復到鎖定的矩形。
+   *
+   * <p>只使用呼叫端提供的緩衝區，視窗沒有變化時不配置任何物件；視窗已不存在時回傳 false。
+   */
+  boolean enforceLockedRect(long handle, int[] lockedRect, int[] currentRect) {
+    if (!inputProbe.isWindow(handle)) {
+      return false;
+    }
+
+    long callStart = System.nanoTime();
+    boolean hasRect = inputProbe.getWindowRect(handle, currentRect);
+    getWindowRectTimer.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+    if (hasRect && !Arrays.equals(currentRect, lockedRect)) {
+      // 恢復到原始位置和大小
+      windowManager.setWindowPos(
+          handle,
+          lockedRect[0],
+          lockedRect[1],
+          lockedRect[2] - lockedRect[0],
+          lockedRect[3] - lockedRect[1],
+          WindowManager.SWP_NOZORDER | WindowManager.SWP_NOACTIVATE);
+      logger.debug("視窗位置或大小已恢復到鎖定狀態");
+    }
+    return true;
+  }
+
   /** 停止監控視窗 */
   private void stopWindowMonitoring() {
     isMonitoring = false;
@@ -355,16 +390,21 @@ public class WindowService {
   /** 修改視窗大小和位置 */
   public boolean setWindowPosition(long windowHandle, int x, int y, int width, int height) {
     try {
-      HWND hWnd = new HWND(new Pointer(windowHandle));
-      if (user32.IsWindow(hWnd)) {
+      if (inputProbe.isWindow(windowHandle)) {
         // 檢查是否為鎖定大小位置的視窗
-        if (isWindowSizePositionLocked && hWnd.equals(lockedSizePositionWindow)) {
+        if (isWindowSizePositionLocked && windowHandle == lockedSizePositionWindow) {
           logger.warn("無法修改鎖定大小位置的視窗");
           return false;
         }
 
-        // SWP_NOZORDER = 0x0004, SWP_NOACTIVATE = 0x0010
-        boolean success = user32.SetWindowPos(hWnd, null, x, y, width, height, 0x0004 | 0x0010);
+        boolean success =
+            windowManager.setWindowPos(
+                windowHandle,
+                x,
+                y,
+                width,
+                height,
+                WindowManager.SWP_NOZORDER | WindowManager.SWP_NOACTIVATE);
         if (success) {
           logger.info("視窗位置和大小已修改: x={}, y={}, width={}, height={}", x, y, width, height);
         } else {
@@ -382,21 +422,30 @@ public class WindowService {
   /** 修改視窗位置 */
   public boolean setWindowPosition(long windowHandle, int x, int y) {
     try {
-      HWND hWnd = new HWND(new Pointer(windowHandle));
-      if (user32.IsWindow(hWnd)) {
+      if (inputProbe.isWindow(windowHandle)) {
         // 檢查是否為鎖定大小位置的視窗
-        if (isWindowSizePositionLocked && hWnd.equals(lockedSizePositionWindow)) {
+        if (isWindowSizePositionLocked && windowHandle == lockedSizePositionWindow) {
           logger.warn("無法修改鎖定大小位置的視窗");
           return false;
         }
 
-        // 先獲取當前視窗大小
-        RECT rect = new RECT();
-        if (user32.GetWindowRect(hWnd, rect)) {
-          int width = rect.right - rect.left;
-          int height = rect.bottom - rect.top;
-          return setWindowPosition(windowHandle, x, y, width, height);
+        // SWP_NOSIZE 保留目前大小，不需要先查詢視窗矩形
+        boolean success =
+            windowManager.setWindowPos(
+                windowHandle,
+                x,
+                y,
+                0,
+                0,
+                WindowManager.SWP_NOSIZE
+                    | WindowManager.SWP_NOZORDER
+                    | WindowManager.SWP_NOACTIVATE);
+        if (success) {
+          logger.info("視窗位置已修改: x={}, y={}", x, y);
+        } else {
+          logger.error("修改視窗位置失敗");
         }
+        return success;
       }
       return false;
     } catch (Exception e) {
@@ -408,21 +457,30 @@ public class WindowService {
   /** 修改視窗大小 */
   public boolean setWindowSize(long windowHandle, int width, int height) {
     try {
-      HWND hWnd = new HWND(new Pointer(windowHandle));
-      if (user32.IsWindow(hWnd)) {
+      if (inputProbe.isWindow(windowHandle)) {
         // 檢查是否為鎖定大小位置的視窗
-        if (isWindowSizePositionLocked && hWnd.equals(lockedSizePositionWindow)) {
+        if (isWindowSizePositionLocked && windowHandle == lockedSizePositionWindow) {
           logger.warn("無法修改鎖定大小位置的視窗");
           return false;
         }
 
-        // 先獲取當前視窗位置
-        RECT rect = new RECT();
-        if (user32.GetWindowRect(hWnd, rect)) {
-          int x = rect.left;
-          int y = rect.top;
-          return setWindowPosition(windowHandle, x, y, width, height);
+        // SWP_NOMOVE 保留目前位置，不需要先查詢視窗矩形
+        boolean success =
+            windowManager.setWindowPos(
+                windowHandle,
+                0,
+                0,
+                width,
+                height,
+                WindowManager.SWP_NOMOVE
+                    | WindowManager.SWP_NOZORDER
+                    | WindowManager.SWP_NOACTIVATE);
+        if (success) {
+          logger.info("視窗大小已修改: width={}, height={}", width, height);
+        } else {
+          logger.error("修改視窗大小失敗");
         }
+        return success;
       }
       return false;
     } catch (Exception e) {
@@ -430,4 +488,151 @@ public class WindowService {
       return false;
     }
   }
+
+  /**
+   * 以單一 DeferWindowPos 批次套用多個視窗的位置和大小。
+   *
+   * <p>每個項目先以句柄比對，沒有句柄時以標題正規表示式比對尚未配對的視窗。與快取的視窗狀態相同的視窗會被跳過，其餘視窗交給 {@link
+   * WindowManager#setWindowPositions} 一次重新排列，避免逐一移動造成的中間重繪。
+   */
+  public WindowLayoutResult applyWindowLayout(String profileName, List<WindowLayoutEntry> entries) {
+    long startTime = System.nanoTime();
+    WindowLayoutResult result = new WindowLayoutResult();
+    result.setProfileName(profileName);
+    result.setRequested(entries.size());
+
+    List<WindowInfo> windows = getCachedWindows();
+    Set<Long> claimed = new HashSet<>();
+    List<WindowPlacement> targets = new ArrayList<>();
+
+    for (WindowLayoutEntry entry : entries) {
+      WindowInfo window = matchLayoutEntry(entry, windows, claimed);
+      if (window == null) {
+        result.getUnmatched().add(describeLayoutEntry(entry));
+        continue;
+      }
+      claimed.add(window.getHandle());
+      result.setMatched(result.getMatched() + 1);
+
+      if (isWindowSizePositionLocked && window.getHandle() == lockedSizePositionWindow) {
+        logger.warn("版面配置略過鎖定大小位置的視窗: {}", window.getTitle());
+        result.getFailed().add(window.getTitle());
+        continue;
+      }
+
+      boolean moved = window.getX() != entry.getX() || window.getY() != entry.getY();
+      boolean resized =
+          window.getWidth() != entry.getWidth() || window.getHeight() != entry.getHeight();
+      if (!moved && !resized) {
+        result.setSkipped(result.getSkipped() + 1);
+        continue;
+      }
+
+      int flags = WindowManager.SWP_NOZORDER | WindowManager.SWP_NOACTIVATE;
+      if (!moved) {
+        flags |= WindowManager.SWP_NOMOVE;
+      }
+      if (!resized) {
+        flags |= WindowManager.SWP_NOSIZE;
+      }
+      targets.add(
+          new WindowPlacement(
+              window.getHandle(),
+              entry.getX(),
+              entry.getY(),
+              entry.getWidth(),
+              entry.getHeight(),
+              flags));
+    }
+
+    if (!targets.isEmpty()) {
+      boolean success = windowManager.setWindowPositions(targets);
+      if (success) {
+        result.setApplied(targets.size());
+        updateCachedRects(targets);
+      } else {
+        for (WindowPlacement target : targets) {
+          result.getFailed().add(String.valueOf(target.hWnd()));
+        }
+      }
+    }
+
+    result.setSuccess(result.getFailed().isEmpty() && result.getUnmatched().isEmpty());
+    result.setApplyTimeMs((System.nanoTime() - startTime) / 1_000_000.0);
+    logger.info(
+        "版面配置 {} 套用完成: 配對 {}, 移動 {}, 跳過 {}, 耗時 {} ms",
+        profileName,
+        result.getMatched(),
+        result.getApplied(),
+        result.getSkipped(),
+        String.format("%.2f", result.getApplyTimeMs()));
+    return result;
+  }
+
+  /** 找出符合版面配置項目的視窗 */
+  private WindowInfo matchLayoutEntry(
+      WindowLayoutEntry entry, List<WindowInfo> windows, Set<Long> claimed) {
+    if (entry.getHandle() != null) {
+      for (WindowInfo window : windows) {
+        if (window.getHandle() == entry.getHandle()) {
+          return window;
+        }
+      }
+      return null;
+    }
+    if (entry.getTitlePattern() == null || entry.getTitlePattern().isEmpty()) {
+      return null;
+    }
+    Pattern pattern = Pattern.compile(entry.getTitlePattern());
+    for (WindowInfo window : windows) {
+      if (!claimed.contains(window.getHandle()) && pattern.matcher(window.getTitle()).find()) {
+        return window;
+      }
+    }
+    return null;
+  }
+
+  private String describeLayoutEntry(WindowLayoutEntry entry) {
+    return entry.getHandle() != null ? "handle=" + entry.getHandle() : entry.getTitlePattern();
+  }
+
+  /** 以套用後的位置大小建立新的快照，不修改其他執行緒可能正在讀取的 WindowInfo */
+  private void updateCachedRects(List<WindowPlacement> placements) {
+    windowCache.updateAndGet(
+        snapshot -> {
+          Map<Long, WindowInfo> cache = new HashMap<>(snapshot.windows());
+          for (WindowPlacement placement : placements) {
+            WindowInfo cached = cache.get(placement.hWnd());
+            if (cached == null) {
+              continue;
+            }
+            WindowInfo updated = copyOf(cached);
+            if ((placement.flags() & WindowManager.SWP_NOMOVE) == 0) {
+              updated.setX(placement.x());
+              updated.setY(placement.y());
+            }
+            if ((placement.flags() & WindowManager.SWP_NOSIZE) == 0) {
+              updated.setWidth(placement.width());
+              updated.setHeight(placement.height());
+            }
+            cache.put(placement.hWnd(), updated);
+          }
+          return new WindowSnapshot(cache, snapshot.time());
+        });
+  }
+
+  private static WindowInfo copyOf(WindowInfo window) {
+    WindowInfo copy = new WindowInfo();
+    copy.setHandle(window.getHandle());
+    copy.setTitle(window.getTitle());
+    copy.setClassName(window.getClassName());
+    copy.setVisible(window.isVisible());
+    copy.setActive(window.isActive());
+    copy.setX(window.getX());
+    copy.setY(window.getY());
+    copy.setWidth(window.getWidth());
+    copy.setHeight(window.getHeight());
+    copy.setSizePositionLocked(window.isSizePositionLocked());
+    return copy;
+  }
 }
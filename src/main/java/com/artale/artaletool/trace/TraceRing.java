@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 多生產者、單一消費者的有界環形佇列，欄位存在預先配置的平行陣列中。
+ *
+ * <p>每個槽位有一個序號：等於寫入位置時可寫入，等於位置 + 1 時可讀取。生產者以 CAS 取得位置，佇列滿時直接回傳 false，不會阻塞也不配置物件。
+ */
+final class TraceRing {
+  private final int capacity;
+  private final int mask;
+  private final AtomicLongArray sequences;
+  private final long[] times;
+  private final TraceType[] types;
+  private final int[] codes;
+  private final int[] xs;
+  private final int[] ys;
+  private final long[] values;
+  private final AtomicLong tail = new AtomicLong();
+  // 只由消費者寫入
+  private volatile long head;
+
+  /** 可讀取的一筆事件，由消費者重複使用 */
+  static final class Entry {
+    long time;
+    TraceType type;
+    int code;
+    int x;
+    int y;
+    long value;
+  }
+
+  TraceRing(int requestedCapacity) {
+    capacity = requestedCapacity <= 2 ? 2 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+    mask = capacity - 1;
+    sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+    times = new long[capacity];
+    types = new TraceType[capacity];
+    codes = new int[capacity];
+    xs = new int[capacity];
+    ys = new int[capacity];
+    values = new long[capacity];
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /** 加入一筆事件，佇列已滿時回傳 false */
+  boolean offer(long time, TraceType type, int code, int x, int y, long value) {
+    long position = tail.get();
+    while (true) {
+      int slot = (int) position & mask;
+      long difference = sequences.get(slot) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          times[slot] = time;
+          types[slot] = type;
+          codes[slot] = code;
+          xs[slot] = x;
+          ys[slot] = y;
+          values[slot] = value;
+          sequences.lazySet(slot, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /** 取出下一筆事件到 entry，沒有可讀取的事件時回傳 false；只能由單一消費者呼叫 */
+  boolean poll(Entry entry) {
+    int slot = (int) head & mask;
+    if (sequences.get(slot) != head + 1) {
+      return false;
+    }
+    entry.time = times[slot];
+    entry.type = types[slot];
+    entry.code = codes[slot];
+    entry.x = xs[slot];
+    entry.y = ys[slot];
+    entry.value = values[slot];
+    types[slot] = null;
+    sequences.lazySet(slot, head + capacity);
+    head++;
+    return true;
+  }
+
+  /** 已被生產者取得的位置數，包含尚未寫完的槽位 */
+  long claimed() {
+    return tail.get();
+  }
+
+  /** 消費者已取出的事件數 */
+  long consumed() {
+    return head;
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.trace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.artale.artaletool.metrics.ToolMetrics;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 逐筆輸入事件的追蹤輸出，取代錄製與播放執行緒上的逐筆日誌。
+ *
+ * <p>呼叫端只把固定欄位寫入有界的無鎖佇列，不做字串格式化也不配置物件；背景執行緒把事件寫成 NDJSON (每行一筆)，檔案超過大小上限時輪替為 {@code
+ * trace.1.ndjson}、{@code trace.2.ndjson}…，只保留最近的幾個檔案。
+ *
+ * <p>預設關閉，關閉時 {@link #trace} 只做一次欄位判斷。佇列已滿時事件被丟棄並計入 {@code
+ * artaletool.trace.events{result=dropped}}， 寫入執行緒也會在追蹤檔中寫入一筆丟棄紀錄並記錄警告。
+ */
+@Component
+public class TraceSink {
+  private static final Logger logger = LoggerFactory.getLogger(TraceSink.class);
+  private static final String FILE_NAME = "trace.ndjson";
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long DROP_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final boolean enabled;
+  private final TraceRing ring;
+  private final Path dir;
+  private final long maxFileBytes;
+  private final int maxFiles;
+  private final Counter writtenCounter;
+  private final Counter droppedCounter;
+  private final StringBuilder line = new StringBuilder(128);
+  private final AtomicLong dropped = new AtomicLong();
+  private volatile boolean running;
+  private volatile long flushedUpTo;
+  private Thread writerThread;
+  // 以下只由寫入執行緒讀寫
+  private Writer writer;
+  private long fileBytes;
+  private long reportedDrops;
+
+  public TraceSink(
+      ToolMetrics metrics,
+      @Value("${artaletool.trace.enabled:false}") boolean enabled,
+      @Value("${artaletool.trace.dir:traces}") String dir,
+      @Value("${artaletool.trace.queue-capacity:65536}") int capacity,
+      @Value("${artaletool.trace.max-file-bytes:16777216}") long maxFileBytes,
+      @Value("${artaletool.trace.max-files:5}") int maxFiles) {
+    this.enabled = enabled;
+    this.ring = enabled ? new TraceRing(capacity) : null;
+    this.dir = Paths.get(dir);
+    this.maxFileBytes = Math.max(1024, maxFileBytes);
+    this.maxFiles = Math.max(1, maxFiles);
+    writtenCounter = metrics != null ? metrics.traceEvents("written") : null;
+    droppedCounter = metrics != null ? metrics.traceEvents("dropped") : null;
+    if (enabled) {
+      start();
+    }
+  }
+
+  /** 不輸出任何追蹤的實例 */
+  public static TraceSink disabled() {
+    return new TraceSink(null, false, "traces", 2, 1024, 1);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** 記錄一筆事件，不會阻塞；佇列已滿時丟棄並計數 */
+  public void trace(TraceType type, int code, int x, int y, long value) {
+    if (!enabled) {
+      return;
+    }
+    if (!ring.offer(System.nanoTime(), type, code, x, y, value)) {
+      dropped.incrementAndGet();
+      droppedCounter.increment();
+    }
+  }
+
+  public void trace(TraceType type, int code) {
+    trace(type, code, 0, 0, 0);
+  }
+
+  /** 已丟棄的事件數 */
+  public long droppedEvents() {
+    return dropped.get();
+  }
+
+  /** 等待目前已加入的事件都寫入檔案，逾時回傳 false */
+  public boolean flush(long timeoutMillis) {
+    if (!enabled) {
+      return true;
+    }
+    long target = ring.claimed();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (flushedUpTo < target) {
+      if (!running || System.nanoTime() > deadline) {
+        return false;
+      }
+      LockSupport.unpark(writerThread);
+      LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+    }
+    return true;
+  }
+
+  private void start() {
+    try {
+      Files.createDirectories(dir);
+      openFile();
+    } catch (IOException e) {
+      logger.error("無法建立追蹤檔: {}", e.getMessage());
+      return;
+    }
+    running = true;
+    writerThread = new Thread(this::drain, "TraceWriterThread");
+    writerThread.setDaemon(true);
+    writerThread.start();
+    logger.info("事件追蹤已啟用，輸出到 {}", dir.toAbsolutePath());
+  }
+
+  @PreDestroy
+  public void close() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(writerThread);
+    try {
+      writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** 寫入執行緒：取出事件寫入檔案，佇列空時把緩衝區寫出並短暫等待 */
+  private void drain() {
+    TraceRing.Entry entry = new TraceRing.Entry();
+    long lastDropCheck = System.nanoTime();
+    try {
+      while (true) {
+        boolean stopping = !running;
+        if (ring.poll(entry)) {
+          write(entry);
+          continue;
+        }
+        long now = System.nanoTime();
+        if (stopping || now - lastDropCheck > DROP_REPORT_INTERVAL_NANOS) {
+          lastDropCheck = now;
+          reportDrops();
+        }
+        writer.flush();
+        flushedUpTo = ring.consumed();
+        if (stopping) {
+          break;
+        }
+        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+      }
+    } catch (IOException e) {
+      logger.error("寫入追蹤檔失敗，停止追蹤: {}", e.getMessage());
+    } finally {
+      running = false;
+      try {
+        writer.close();
+      } catch (IOException e) {
+        logger.warn("關閉追蹤檔失敗: {}", e.getMessage());
+      }
+    }
+  }
+
+  private void write(TraceRing.Entry entry) throws IOException {
+    line.setLength(0);
+    line.append("{\"t\":")
+        .append(entry.time)
+        .append(",\"e\":\"")
+        .append(entry.type.code())
+        .append("\",\"c\":")
+        .append(entry.code);
+    if (entry.x != 0 || entry.y != 0) {
+      line.append(",\"x\":").append(entry.x).append(",\"y\":").append(entry.y);
+    }
+    if (entry.value != 0) {
+      line.append(",\"v\":").append(entry.value);
+    }
+    line.append("}\n");
+    writeLine();
+    writtenCounter.increment();
+  }
+
+  /** 有新的丟棄時在追蹤檔中標記，讓讀取端知道此處有缺漏 */
+  private void reportDrops() throws IOException {
+    long total = dropped.get();
+    if (total == reportedDrops) {
+      return;
+    }
+    long count = total - reportedDrops;
+    reportedDrops = total;
+    logger.warn("追蹤佇列已滿，丟棄了 {} 筆事件 (累計 {})", count, total);
+    line.setLength(0);
+    line.append("{\"t\":")
+        .append(System.nanoTime())
+        .append(",\"e\":\"drop\",\"n\":")
+        .append(count)
+        .append("}\n");
+    writeLine();
+  }
+
+  private void writeLine() throws IOException {
+    if (fileBytes + line.length() > maxFileBytes) {
+      rotate();
+    }
+    writer.append(line);
+    // 只寫入 ASCII，字元數即位元組數
+    fileBytes += line.length();
+  }
+
+  private void rotate() throws IOException {
+    writer.close();
+    Files.deleteIfExists(rotated(maxFiles - 1));
+    for (int i = maxFiles - 2; i >= 1; i--) {
+      Path from = rotated(i);
+      if (Files.exists(from)) {
+        Files.move(from, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    if (maxFiles > 1) {
+      Files.move(dir.resolve(FILE_NAME), rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+    openFile();
+  }
+
+  private Path rotated(int index) {
+    return dir.resolve("trace." + index + ".ndjson");
+  }
+
+  /** 開新檔案並寫入檔頭，記錄 nanoTime 與牆上時間的對應 */
+  private void openFile() throws IOException {
+    writer =
+        new BufferedWriter(
+            new OutputStreamWriter(
+                Files.newOutputStream(dir.resolve(FILE_NAME)), StandardCharsets.US_ASCII),
+            1 << 16);
+    fileBytes = 0;
+    line.setLength(0);
+    line.append("{\"t\":")
+        .append(System.nanoTime())
+        .append(",\"e\":\"open\",\"wall\":")
+        .append(System.currentTimeMillis())
+        .append("}\n");
+    writer.append(line);
+    fileBytes += line.length();
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.trace;
+
+/** 追蹤事件類型，code 為寫入追蹤檔的簡寫 */
+public enum TraceType {
+  /** 監控執行緒偵測到按鍵按下，code 為虛擬鍵碼 */
+  KEY_PRESS("kp"),
+  KEY_RELEASE("kr"),
+  /** 錄製到的滑鼠按鍵，code 為按鈕，x / y 為游標位置 */
+  MOUSE_PRESS("mp"),
+  MOUSE_RELEASE("mr"),
+  /** 播放注入的按鍵，code 為鍵碼，value 為相對預定時間的延遲 (奈秒) */
+  PLAY_KEY_PRESS("pkp"),
+  PLAY_KEY_RELEASE("pkr"),
+  /** 播放注入的滑鼠事件，code 為按鈕 (移動時為 0)，value 為延遲 (奈秒) */
+  PLAY_MOUSE_PRESS("pmp"),
+  PLAY_MOUSE_RELEASE("pmr"),
+  PLAY_MOUSE_MOVE("pmm");
+
+  private final String code;
+
+  TraceType(String code) {
+    this.code = code;
+  }
+
+  public String code() {
+    return code;
+  }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.watch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.artale.artaletool.capture.Frame;
+import com.artale.artaletool.capture.FrameListener;
+import com.artale.artaletool.model.WatchRule;
+import com.artale.artaletool.model.WatchRuleStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 在擷取執行緒上評估監看規則。
+ *
+ * <p>規則依擷取區域分組，每個畫面只處理該區域的那一組，直接讀取共用的畫面像素。畫面沒有變化時整組略過；範圍內的分塊都沒有變化的規則沿用上一次的結果，不重新讀取像素。
+ *
+ * <p>條件由不成立變為成立時觸發 (邊緣觸發)，距上次觸發未滿冷卻時間的邊緣會被忽略。動作交給 {@link Trigger}，不可在擷取執行緒上阻塞。
+ */
+public final class WatchEngine implements FrameListener {
+
+  /** 規則觸發時呼叫，captureNanos 為觸發畫面的擷取時間 */
+  @FunctionalInterface
+  public interface Trigger {
+    void fire(WatchRule rule, long captureNanos);
+  }
+
+  private final Trigger trigger;
+  private final Timer evaluationTimer;
+  private final Counter evaluatedCounter;
+  private final Counter skippedCounter;
+  private volatile Group[] groups = new Group[0];
+
+  public WatchEngine(
+      Trigger trigger, Timer evaluationTimer, Counter evaluatedCounter, Counter skippedCounter) {
+    this.trigger = trigger;
+    this.evaluationTimer = evaluationTimer;
+    this.evaluatedCounter = evaluatedCounter;
+    this.skippedCounter = skippedCounter;
+  }
+
+  /** 同一擷取區域的規則 */
+  private static final class Group {
+    private final String region;
+    private final Compiled[] rules;
+
+    private Group(String region, Compiled[] rules) {
+      this.region = region;
+      this.rules = rules;
+    }
+  }
+
+  /** 編譯後的規則與它在擷取執行緒上的狀態 */
+  private static final class Compiled {
+    private final WatchRule rule;
+    private final WatchRule.Condition condition;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final int red;
+    private final int green;
+    private final int blue;
+    private final int tolerance;
+    private final WatchRule.Channel channel;
+    private final double threshold;
+    private final long cooldownNanos;
+
+    private boolean evaluated;
+    private long lastTriggerNanos;
+    private volatile boolean matched;
+    private volatile long evaluations;
+    private volatile long skipped;
+    private volatile long triggers;
+
+    private Compiled(WatchRule rule) {
+      this.rule = rule;
+      this.condition = rule.getCondition();
+      this.x = rule.getX();
+      this.y = rule.getY();
+      this.width = rule.getWidth();
+      this.height = rule.getHeight();
+      int rgb = condition == WatchRule.Condition.PIXEL_COLOR ? parseColor(rule.getColor()) : 0;
+      this.red = (rgb >> 16) & 0xFF;
+      this.green = (rgb >> 8) & 0xFF;
+      this.blue = rgb & 0xFF;
+      this.tolerance = rule.getTolerance();
+      this.channel = rule.getChannel() != null ? rule.getChannel() : WatchRule.Channel.LUMA;
+      this.threshold = rule.getThreshold();
+      this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(rule.getCooldownMs());
+    }
+
+    private int areaWidth(Frame frame) {
+      return width > 0 ? Math.min(width, frame.getWidth() - x) : frame.getWidth() - x;
+    }
+
+    private int areaHeight(Frame frame) {
+      return height > 0 ? Math.min(height, frame.getHeight() - y) : frame.getHeight() - y;
+    }
+
+    private boolean isAreaDirty(Frame frame) {
+      if (condition == WatchRule.Condition.PIXEL_COLOR) {
+        return frame.isAreaDirty(x, y, 1, 1);
+      }
+      return frame.isAreaDirty(x, y, areaWidth(frame), areaHeight(frame));
+    }
+
+    private boolean test(Frame frame) {
+      return switch (condition) {
+        case PIXEL_COLOR -> testPixel(frame);
+        case AVERAGE_BELOW -> average(frame) < threshold;
+        case AVERAGE_ABOVE -> average(frame) > threshold;
+        case CHANGED -> evaluated; // 只在範圍有變化時評估；第一個畫面沒有比較基準
+      };
+    }
+
+    private boolean testPixel(Frame frame) {
+      if (x >= frame.getWidth() || y >= frame.getHeight()) {
+        return false;
+      }
+      int argb = frame.pixel(x, y);
+      return Math.abs(((argb >> 16) & 0xFF) - red) <= tolerance
+          && Math.abs(((argb >> 8) & 0xFF) - green) <= tolerance
+          && Math.abs((argb & 0xFF) - blue) <= tolerance;
+    }
+
+    private double average(Frame frame) {
+      int w = areaWidth(frame);
+      int h = areaHeight(frame);
+      if (w <= 0 || h <= 0) {
+        return Double.NaN;
+      }
+      int[] pixels = frame.pixels();
+      int stride = frame.getWidth();
+      long sum = 0;
+      for (int row = y; row < y + h; row++) {
+        int offset = row * stride;
+        for (int i = offset + x; i < offset + x + w; i++) {
+          sum += channelValue(pixels[i]);
+        }
+      }
+      double mean = (double) sum / ((long) w * h);
+      return channel == WatchRule.Channel.LUMA ? mean / 1000 : mean;
+    }
+
+    /** LUMA 以千分之一為單位 (0.299R + 0.587G + 0.114B)，避免浮點運算 */
+    private int channelValue(int argb) {
+      int r = (argb >> 16) & 0xFF;
+      int g = (argb >> 8) & 0xFF;
+      int b = argb & 0xFF;
+      return switch (channel) {
+        case RED -> r;
+        case GREEN -> g;
+        case BLUE -> b;
+        case LUMA -> 299 * r + 587 * g + 114 * b;
+      };
+    }
+  }
+
+  /** 驗證並套用規則，取代原本的設定；所有規則的狀態重新開始 */
+  public void setRules(List<WatchRule> rules) {
+    Set<String> ids = new HashSet<>();
+    Map<String, List<Compiled>> byRegion = new LinkedHashMap<>();
+    for (WatchRule rule : rules) {
+      validate(rule);
+      if (!ids.add(rule.getId())) {
+        throw new IllegalArgumentException("規則名稱重複: " + rule.getId());
+      }
+      byRegion.computeIfAbsent(rule.getRegion(), r -> new ArrayList<>()).add(new Compiled(rule));
+    }
+    Group[] next = new Group[byRegion.size()];
+    int i = 0;
+    for (Map.Entry<String, List<Compiled>> entry : byRegion.entrySet()) {
+      next[i++] = new Group(entry.getKey(), entry.getValue().toArray(new Compiled[0]));
+    }
+    groups = next;
+  }
+
+  public List<WatchRule> getRules() {
+    List<WatchRule> rules = new ArrayList<>();
+    for (Group group : groups) {
+      for (Compiled compiled : group.rules) {
+        rules.add(compiled.rule);
+      }
+    }
+    return rules;
+  }
+
+  public List<WatchRuleStatus> getStatus() {
+    List<WatchRuleStatus> status = new ArrayList<>();
+    for (Group group : groups) {
+      for (Compiled c : group.rules) {
+        status.add(
+            new WatchRuleStatus(
+                c.rule.getId(),
+                group.region,
+                c.rule.isEnabled(),
+                c.matched,
+                c.evaluations,
+                c.skipped,
+                c.triggers));
+      }
+    }
+    return status;
+  }
+
+  @Override
+  public void onFrame(Frame frame) {
+    Group group = find(frame.getRegion());
+    if (group == null) {
+      return;
+    }
+    long start = System.nanoTime();
+    boolean changed = frame.isChanged();
+    int evaluated = 0;
+    int skipped = 0;
+    for (Compiled rule : group.rules) {
+      if (!rule.rule.isEnabled()) {
+        continue;
+      }
+      if (rule.evaluated && (!changed || !rule.isAreaDirty(frame))) {
+        // 範圍沒有變化：CHANGED 條件不再成立，其他條件沿用上一次的結果
+        if (rule.condition == WatchRule.Condition.CHANGED) {
+          rule.matched = false;
+        }
+        rule.skipped++;
+        skipped++;
+        continue;
+      }
+      boolean matched = rule.test(frame);
+      rule.evaluations++;
+      evaluated++;
+      if (matched && (!rule.matched || rule.condition == WatchRule.Condition.CHANGED)) {
+        if (rule.triggers == 0 || start - rule.lastTriggerNanos >= rule.cooldownNanos) {
+          rule.lastTriggerNanos = start;
+          rule.triggers++;
+          trigger.fire(rule.rule, frame.getCaptureNanos());
+        }
+      }
+      rule.matched = matched;
+      rule.evaluated = true;
+    }
+    if (evaluated > 0) {
+      evaluatedCounter.increment(evaluated);
+    }
+    if (skipped > 0) {
+      skippedCounter.increment(skipped);
+    }
+    evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  private Group find(String region) {
+    for (Group group : groups) {
+      if (group.region.equals(region)) {
+        return group;
+      }
+    }
+    return null;
+  }
+
+  private static void validate(WatchRule rule) {
+    if (rule.getId() == null || rule.getId().isBlank()) {
+      throw new IllegalArgumentException("規則名稱不能為空");
+    }
+    String id = rule.getId();
+    if (rule.getRegion() == null || rule.getRegion().isBlank()) {
+      throw new IllegalArgumentException("規則 " + id + " 沒有指定擷取區域");
+    }
+    if (rule.getCondition() == null) {
+      throw new IllegalArgumentException("規則 " + id + " 沒有指定條件");
+    }
+    if (rule.getAction() == null) {
+      throw new IllegalArgumentException("規則 " + id + " 沒有指定動作");
+    }
+    if (rule.getX() < 0 || rule.getY() < 0 || rule.getWidth() < 0 || rule.getHeight() < 0) {
+      throw new IllegalArgumentException("規則 " + id + " 的範圍無效");
+    }
+    if (rule.getCooldownMs() < 0) {
+      throw new IllegalArgumentException("規則 " + id + " 的冷卻時間不能為負數");
+    }
+    switch (rule.getCondition()) {
+      case PIXEL_COLOR -> {
+        parseColor(rule.getColor());
+        if (rule.getTolerance() < 0 || rule.getTolerance() > 255) {
+          throw new IllegalArgumentException("規則 " + id + " 的容許差距必須介於 0 與 255 之間");
+        }
+      }
+      case AVERAGE_BELOW, AVERAGE_ABOVE -> {
+        if (rule.getThreshold() < 0 || rule.getThreshold() > 255) {
+          throw new IllegalArgumentException("規則 " + id + " 的門檻必須介於 0 與 255 之間");
+        }
+      }
+      case CHANGED -> {}
+    }
+    switch (rule.getAction()) {
+      case PLAY_SCRIPT -> require(rule.getScript(), "規則 " + id + " 沒有指定腳本");
+      case START_SCHEDULED_KEY -> {
+        require(rule.getTaskId(), "規則 " + id + " 沒有指定定時任務 ID");
+        require(rule.getKey(), "規則 " + id + " 沒有指定按鍵");
+        if (rule.getIntervalSeconds() <= 0) {
+          throw new IllegalArgumentException("規則 " + id + " 的定時間隔必須大於 0");
+        }
+      }
+      case STOP_SCHEDULED_KEY -> require(rule.getTaskId(), "規則 " + id + " 沒有指定定時任務 ID");
+      case SIGNAL_TRIGGER -> require(rule.getTrigger(), "規則 " + id + " 沒有指定觸發訊號");
+      case STOP_PLAYBACK -> {}
+    }
+  }
+
+  private static void require(String value, String message) {
+    if (value == null || value.isBlank()) {
+      throw new IllegalArgumentException(message);
+    }
+  }
+
+  /** 解析 RRGGBB 十六進位顏色，可帶 # 前綴 */
+  static int parseColor(String color) {
+    if (color == null) {
+      throw new IllegalArgumentException("沒有指定顏色");
+    }
+    String hex = color.startsWith("#") ? color.substring(1) : color;
+    if (hex.length() != 6) {
+      throw new IllegalArgumentException("顏色格式應為 RRGGBB: " + color);
+    }
+    try {
+      return Integer.parseInt(hex, 16);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("顏色格式應為 RRGGBB: " + color);
+    }
+  }
+}
@@ -5,20 +5,41 @@
 package com.firefish.ArtaleTool;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.TypeExcludeFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.ComponentScan.Filter;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.playback.SystemPlaybackClock;
+
 @SpringBootApplication
-@ComponentScan(basePackages = {"com.firefish.ArtaleTool", "com.artale.artaletool"})
+// 與 @SpringBootApplication 預設相同的排除條件，測試用的 @TestConfiguration 不會被掃描進來
+@ComponentScan(
+    basePackages = {"com.firefish.ArtaleTool", "com.artale.artaletool"},
+    excludeFilters = {
+      @Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+      @Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class)
+    })
 public class ArtaleToolSpringApplication {
 
   public static void main(String[] args) {
     SpringApplication.run(ArtaleToolSpringApplication.class, args);
   }
 
+  /** 腳本播放使用的時鐘，模擬後端另外提供 */
+  @Bean
+  @Profile("!simulated")
+  public PlaybackClock playbackClock() {
+    return SystemPlaybackClock.INSTANCE;
+  }
+
   @Bean
   public WebMvcConfigurer corsConfigurer() {
     return new WebMvcConfigurer() {
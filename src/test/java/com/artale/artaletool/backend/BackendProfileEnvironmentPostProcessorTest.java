@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+class BackendProfileEnvironmentPostProcessorTest {
+
+  @Test
+  void autoUsesSimulatedBackendOffWindows() {
+    assertTrue(BackendProfileEnvironmentPostProcessor.useSimulated("auto", "Linux"));
+    assertFalse(BackendProfileEnvironmentPostProcessor.useSimulated("auto", "Windows 11"));
+    assertTrue(BackendProfileEnvironmentPostProcessor.useSimulated("simulated", "Windows 11"));
+    assertFalse(BackendProfileEnvironmentPostProcessor.useSimulated("win32", "Linux"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> BackendProfileEnvironmentPostProcessor.useSimulated("x11", "Linux"));
+  }
+
+  @Test
+  void activatesSimulatedProfileOnce() {
+    MockEnvironment environment =
+        new MockEnvironment().withProperty("artaletool.backend", "simulated");
+    BackendProfileEnvironmentPostProcessor processor = new BackendProfileEnvironmentPostProcessor();
+
+    processor.postProcessEnvironment(environment, null);
+    processor.postProcessEnvironment(environment, null);
+
+    assertArrayEquals(new String[] {"simulated"}, environment.getActiveProfiles());
+  }
+
+  @Test
+  void aotBuildMustMatchBackendOfThisMachine() {
+    assertDoesNotThrow(() -> BackendProfileEnvironmentPostProcessor.checkAotBackend(false, false));
+    assertDoesNotThrow(() -> BackendProfileEnvironmentPostProcessor.checkAotBackend(true, true));
+    // Linux 上建置的 simulated 產物在 Windows 上執行
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () -> BackendProfileEnvironmentPostProcessor.checkAotBackend(false, true));
+    assertTrue(e.getMessage().contains("-Daot.backend=win32"), e.getMessage());
+    assertThrows(
+        IllegalStateException.class,
+        () -> BackendProfileEnvironmentPostProcessor.checkAotBackend(true, false));
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class KeyTableTest {
+  private final KeyTable table = KeyTable.STANDARD;
+
+  @Test
+  void everyCodeRoundTripsThroughItsName() {
+    for (int code : table.codes()) {
+      assertEquals(code, table.code(table.name(code)), table.name(code));
+      assertEquals(code, table.fromAwtCode(table.awtCode(code)), table.name(code));
+    }
+  }
+
+  @Test
+  void enterKeepsItsOwnNameAndNumPadEnterIsAnAlias() {
+    assertEquals("Enter", table.name(KeyTable.VK_ENTER));
+    assertEquals(KeyTable.VK_ENTER, table.code("NumPadEnter"));
+    assertEquals("Enter", table.canonicalName("numpadenter"));
+    assertEquals(KeyTable.VK_ENTER, table.fromAwtCode(java.awt.event.KeyEvent.VK_ENTER));
+  }
+
+  @Test
+  void namesAreCaseInsensitiveAndUseWin32Codes() {
+    assertEquals(0x41, table.code("a"));
+    assertEquals(0x70, table.code("f1"));
+    assertEquals(0x2E, table.code("DELETE"));
+    assertEquals(0x5B, table.code("Command"));
+    assertEquals(java.awt.event.KeyEvent.VK_DELETE, table.awtCode(0x2E));
+    assertEquals(-1, table.code("NoSuchKey"));
+    assertEquals(-1, table.code(""));
+    assertNull(table.name(0x07));
+    assertNull(table.name(300));
+  }
+
+  @Test
+  void buildRejectsAmbiguousNames() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> KeyTable.builder().key(0x41, 65, "A").key(0x42, 66, "a").build());
+    assertThrows(
+        IllegalStateException.class,
+        () -> KeyTable.builder().key(0x0D, 10, "Enter").key(0x0D, 10, "NumPadEnter"));
+    assertThrows(IllegalStateException.class, () -> KeyTable.builder().alias("Return", 0x0D));
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.simulated;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.artale.artaletool.backend.simulated.RecordingInjector.InjectedInput;
+import com.artale.artaletool.model.FidelityReport;
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.WindowInfo;
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.playback.VirtualPlaybackClock;
+import com.artale.artaletool.service.KeyboardService;
+import com.artale.artaletool.service.WindowService;
+import com.firefish.ArtaleTool.ArtaleToolSpringApplication;
+
+/** 以 simulated 設定檔啟動完整應用程式，在虛擬桌面上驗證播放與視窗操作 */
+@SpringBootTest(
+    classes = ArtaleToolSpringApplication.class,
+    properties = "artaletool.startup.lazy=true")
+@ActiveProfiles("simulated")
+class SimulatedBackendTest {
+  private static final Path ROOT = createRoot();
+
+  @Autowired private KeyboardService keyboardService;
+  @Autowired private WindowService windowService;
+  @Autowired private VirtualDesktop desktop;
+  @Autowired private RecordingInjector injector;
+  @Autowired private PlaybackClock playbackClock;
+
+  @DynamicPropertySource
+  static void scriptDirs(DynamicPropertyRegistry registry) {
+    registry.add("artaletool.scripts.keyboard-dir", () -> ROOT.resolve("scripts").toString());
+    registry.add("artaletool.scripts.mouse-dir", () -> ROOT.resolve("mouse_scripts").toString());
+  }
+
+  @BeforeEach
+  void setUp() {
+    injector.clear();
+    windowService.unlockWindow();
+  }
+
+  @Test
+  void playsHourLongScriptOnVirtualClock() throws Exception {
+    // 一小時內每秒按一次鍵，按住 100 ms
+    List<KeyEvent> events = new ArrayList<>();
+    for (int second = 0; second < 3600; second++) {
+      events.add(keyEvent(second * 1000L, second % 2 == 0 ? "Z" : "X", "PRESS"));
+      events.add(keyEvent(second * 1000L + 100, second % 2 == 0 ? "Z" : "X", "RELEASE"));
+    }
+    assertTrue(playbackClock instanceof VirtualPlaybackClock);
+
+    long wallStart = System.nanoTime();
+    keyboardService.playScript(events, false, 1);
+    awaitIdle();
+    long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - wallStart);
+
+    assertEquals(events.size(), injector.keyEventCount());
+    List<InjectedInput> injected = injector.recent(events.size());
+    long virtualSpan = injected.get(injected.size() - 1).nanoTime() - injected.get(0).nanoTime();
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(3_599_100), virtualSpan);
+    assertTrue(wallMillis < 30_000, "一小時的腳本應在數秒內跑完，實際 " + wallMillis + " ms");
+    assertTrue(desktop.pressedKeys().isEmpty());
+  }
+
+  @Test
+  void fidelityReportIsExactOnVirtualClock() throws Exception {
+    List<KeyEvent> events = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      events.add(keyEvent(i * 40L, "Space", "PRESS"));
+      events.add(keyEvent(i * 40L + 20, "Space", "RELEASE"));
+    }
+    keyboardService.saveScript("fidelity-check", events);
+
+    keyboardService.playScript(events, true, 3, null, true, "fidelity-check");
+    awaitIdle();
+
+    FidelityReport report = keyboardService.getFidelityReport("fidelity-check");
+    assertEquals(3, report.getLoopsPlayed());
+    assertEquals(3L * events.size(), report.getInjectedEvents());
+    assertEquals(0, report.getDroppedEvents());
+    assertEquals(0, report.getReorderedEvents());
+    assertEquals(0.0, report.getLatenessMaxMs());
+    assertEquals(report.getScheduledDurationMs(), report.getActualDurationMs());
+    assertTrue(report.getHeldAtEnd().isEmpty());
+    assertEquals(report, keyboardService.getFidelityReport(null));
+    assertEquals(List.of("fidelity-check"), keyboardService.listScripts());
+  }
+
+  @Test
+  void enumeratesAndLocksVirtualWindows() {
+    long game = desktop.openWindow("Artale", "UnityWndClass", 0, 0, 1024, 768);
+    long other = desktop.openWindow("記事本", "Notepad", 50, 50, 400, 300);
+
+    List<WindowInfo> windows = windowService.enumerateWindows();
+    WindowInfo first = windows.get(0);
+    assertEquals(other, first.getHandle());
+    assertTrue(first.isActive());
+    assertEquals(400, first.getWidth());
+
+    assertTrue(windowService.lockWindow(game));
+    assertFalse(windowService.isLockedWindowActive());
+    assertTrue(windowService.bringLockedWindowToFront());
+    assertTrue(windowService.isLockedWindowActive());
+    assertEquals(game, desktop.foregroundWindow());
+
+    assertTrue(windowService.setWindowPosition(other, 200, 100));
+    int[] rect = new int[4];
+    desktop.getWindowRect(other, rect);
+    assertEquals(List.of(200, 100, 600, 400), List.of(rect[0], rect[1], rect[2], rect[3]));
+
+    desktop.closeWindow(other);
+    desktop.closeWindow(game);
+  }
+
+  @Test
+  void lockedSizePositionRestoresMovedWindow() throws Exception {
+    long game = desktop.openWindow("Artale 鎖定", "UnityWndClass", 10, 20, 800, 600);
+    assertTrue(windowService.lockWindowSizePosition(game));
+
+    desktop.moveWindow(game, 300, 300, 640, 480);
+    int[] rect = new int[4];
+    long deadline = System.currentTimeMillis() + 5000;
+    do {
+      Thread.sleep(20);
+      desktop.getWindowRect(game, rect);
+    } while (rect[0] != 10 && System.currentTimeMillis() < deadline);
+    assertEquals(List.of(10, 20, 810, 620), List.of(rect[0], rect[1], rect[2], rect[3]));
+
+    windowService.unlockWindowSizePosition();
+    desktop.closeWindow(game);
+  }
+
+  @Test
+  void keysPressedWhileFocusIsRestoredAreReplayedIntoRecording() throws Exception {
+    long game = desktop.openWindow("Artale 焦點", "UnityWndClass", 0, 0, 800, 600);
+    assertTrue(windowService.lockWindow(game));
+    long other = desktop.openWindow("瀏覽器", "Chrome_WidgetWin_1", 100, 100, 640, 480);
+    assertEquals(other, desktop.foregroundWindow());
+
+    keyboardService.startRecording();
+    desktop.setKeyDown(0x5A, true);
+    awaitRecorded(1);
+    desktop.setKeyDown(0x5A, false);
+    awaitRecorded(2);
+    List<KeyEvent> recorded = keyboardService.stopRecording();
+
+    assertEquals(game, desktop.foregroundWindow());
+    assertEquals(List.of("PRESS", "RELEASE"), recorded.stream().map(KeyEvent::getAction).toList());
+    assertEquals("Z", recorded.get(0).getKey());
+    assertEquals(0x5A, recorded.get(0).getVk());
+
+    windowService.unlockWindow();
+    desktop.closeWindow(other);
+    desktop.closeWindow(game);
+  }
+
+  private void awaitRecorded(int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (keyboardService.getRecordingStatus().eventCount() < count
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(count, keyboardService.getRecordingStatus().eventCount());
+  }
+
+  private void awaitIdle() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 60_000;
+    while (keyboardService.isPlaying() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertFalse(keyboardService.isPlaying());
+  }
+
+  private static KeyEvent keyEvent(long timestamp, String key, String action) {
+    KeyEvent event = new KeyEvent();
+    event.setTimestamp(timestamp);
+    event.setKey(key);
+    event.setAction(action);
+    return event;
+  }
+
+  private static Path createRoot() {
+    try {
+      return Files.createTempDirectory("artaletool-simulated");
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.artale.artaletool.backend.win32.DirectMappingTest.LibCDirect;
+import com.artale.artaletool.backend.win32.DirectMappingTest.LibCProxy;
+import com.sun.jna.Memory;
+
+/**
+ * 介面代理與 direct mapping 單次呼叫成本的 JMH 基準測試。
+ *
+ * <p>user32 只存在於 Windows，這裡以 libc 作為替身 (只能在 Linux 與 macOS 執行)：abs 對應 GetAsyncKeyState 這類純量呼叫，
+ * clock_gettime 對應 GetCursorPos 這類寫入緩衝區的呼叫。
+ *
+ * <p>執行: {@code mvn -Pbench test-compile exec:exec -Dbench=DirectMappingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectMappingBenchmark {
+  private final LibCProxy proxy = LibCProxy.INSTANCE;
+  private final Memory buffer = new Memory(16);
+  private final long[] timespec = new long[2];
+
+  @Benchmark
+  public int proxyScalar() {
+    return proxy.abs(-1);
+  }
+
+  @Benchmark
+  public int directScalar() {
+    return LibCDirect.abs(-1);
+  }
+
+  @Benchmark
+  public int proxyBuffer() {
+    return proxy.clock_gettime(DirectMappingTest.CLOCK_MONOTONIC, timespec);
+  }
+
+  @Benchmark
+  public int directBuffer() {
+    return LibCDirect.clock_gettime(DirectMappingTest.CLOCK_MONOTONIC, buffer);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.backend.win32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import com.sun.jna.Library;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+/**
+ * 確認 direct mapping 的綁定方式 (靜態 native 方法、以 {@link Pointer} 傳遞輸出緩衝區) 與介面代理的結果相同。
+ *
+ * <p>user32 只存在於 Windows，這裡以 libc 作為替身：abs 對應 GetAsyncKeyState 這類純量呼叫，clock_gettime 對應 GetCursorPos
+ * 這類寫入緩衝區的呼叫。呼叫成本的比較在 {@link DirectMappingBenchmark}。
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class DirectMappingTest {
+  static final int CLOCK_MONOTONIC = 1;
+
+  interface LibCProxy extends Library {
+    LibCProxy INSTANCE = Native.load("c", LibCProxy.class);
+
+    int abs(int value);
+
+    int clock_gettime(int clockId, long[] timespec);
+  }
+
+  static final class LibCDirect {
+    static {
+      Native.register("c");
+    }
+
+    static native int abs(int value);
+
+    static native int clock_gettime(int clockId, Pointer timespec);
+  }
+
+  @Test
+  void scalarCallMatchesProxy() {
+    for (int value : new int[] {-7, 0, 42, Integer.MIN_VALUE + 1}) {
+      assertEquals(LibCProxy.INSTANCE.abs(value), LibCDirect.abs(value));
+    }
+  }
+
+  @Test
+  void bufferCallWritesIntoPointer() {
+    Memory buffer = new Memory(16);
+    long[] timespec = new long[2];
+
+    assertEquals(0, LibCProxy.INSTANCE.clock_gettime(CLOCK_MONOTONIC, timespec));
+    assertEquals(0, LibCDirect.clock_gettime(CLOCK_MONOTONIC, buffer));
+
+    // 單調時鐘不會倒退：direct 呼叫寫入的時間不早於先前代理呼叫讀到的時間
+    long proxyNanos = timespec[0] * 1_000_000_000L + timespec[1];
+    long directNanos = buffer.getLong(0) * 1_000_000_000L + buffer.getLong(8);
+    assertTrue(buffer.getLong(8) >= 0 && buffer.getLong(8) < 1_000_000_000L);
+    assertTrue(directNanos >= proxyNanos, directNanos + " < " + proxyNanos);
+  }
+}
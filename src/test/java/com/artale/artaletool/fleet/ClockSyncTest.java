@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.fleet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.artale.artaletool.playback.VirtualPlaybackClock;
+
+/** 以虛擬時鐘模擬去程與回程延遲不同的交換，確認取最短來回時間的一次與誤差上限 */
+class ClockSyncTest {
+  private static final long MS = 1_000_000L;
+  private static final long OFFSET = 123_456 * MS;
+
+  private final VirtualPlaybackClock local = new VirtualPlaybackClock(10 * MS);
+
+  @Test
+  void picksTheShortestRoundTrip() {
+    // {去程, 回程}：只有第三次是對稱的短延遲
+    long[][] delays = {{9 * MS, 1 * MS}, {1 * MS, 12 * MS}, {MS / 2, MS / 2}, {4 * MS, 3 * MS}};
+    int[] sample = {0};
+
+    ClockSync.Estimate estimate =
+        ClockSync.estimate(
+            local,
+            () -> {
+              long[] delay = delays[sample[0]++];
+              local.advance(delay[0]);
+              long remote = local.nanoTime() + OFFSET;
+              local.advance(delay[1]);
+              return remote;
+            },
+            delays.length);
+
+    assertEquals(OFFSET, estimate.offsetNanos());
+    assertEquals(MS, estimate.roundTripNanos());
+    assertEquals(4, estimate.samples());
+    assertEquals(local.nanoTime() + OFFSET, estimate.toRemote(local.nanoTime()));
+    assertEquals(local.nanoTime(), estimate.toLocal(estimate.toRemote(local.nanoTime())));
+  }
+
+  @Test
+  void errorStaysWithinHalfTheRoundTrip() {
+    // 去程 3 ms、回程幾乎為 0 時，估計偏差接近來回時間的一半
+    ClockSync.Estimate estimate =
+        ClockSync.estimate(
+            local,
+            () -> {
+              local.advance(3 * MS);
+              return local.nanoTime() + OFFSET;
+            },
+            3);
+
+    long error = Math.abs(estimate.offsetNanos() - OFFSET);
+    assertTrue(error <= estimate.uncertaintyNanos(), "誤差 " + error);
+    assertEquals(3 * MS / 2, estimate.uncertaintyNanos());
+  }
+}
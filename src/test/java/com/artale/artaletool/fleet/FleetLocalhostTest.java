@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.fleet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.artale.artaletool.backend.simulated.RecordingInjector;
+import com.artale.artaletool.backend.simulated.RecordingInjector.InjectedInput;
+import com.artale.artaletool.model.FleetLaunch;
+import com.artale.artaletool.model.FleetLaunch.AgentStart;
+import com.artale.artaletool.script.ProgramImage;
+import com.artale.artaletool.service.FleetService;
+import com.artale.artaletool.service.ScriptProgramService;
+import com.firefish.ArtaleTool.ArtaleToolSpringApplication;
+
+/**
+ * 在本機啟動三個模擬後端的 ArtaleTool，各自的系統時鐘加上不同的差模擬三台機器，由第一個協調同步開始。
+ *
+ * <p>三者實際上共用 System.nanoTime，扣掉設定的時鐘差就能比較真正的開始時間。
+ */
+class FleetLocalhostTest {
+  private static final Logger logger = LoggerFactory.getLogger(FleetLocalhostTest.class);
+  private static final long[] OFFSETS_MS = {0, 86_400_000L, -3_600_000L};
+  private static final long MS = 1_000_000L;
+
+  @TempDir Path root;
+
+  @Test
+  void agentsStartTogetherAtTheCommonInstant() throws Exception {
+    List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    try {
+      for (int i = 0; i < OFFSETS_MS.length; i++) {
+        contexts.add(start(i));
+      }
+      FleetService fleet = contexts.get(0).getBean(FleetService.class);
+      for (int i = 0; i < contexts.size(); i++) {
+        fleet.register("agent" + i, url(contexts.get(i)));
+      }
+      contexts
+          .get(0)
+          .getBean(ScriptProgramService.class)
+          .save("together", "repeat 5\n  tap A 20\n  wait 30\nend\n");
+
+      FleetLaunch launch = fleet.launch("together", null, 1000L);
+
+      for (int i = 0; i < contexts.size(); i++) {
+        AgentStart agent = launch.agents().get(i);
+        assertNull(agent.error(), agent.error());
+        // 本機的來回時間很短，估計的時鐘差應接近設定值
+        assertEquals(OFFSETS_MS[i], agent.offsetMs(), agent.uncertaintyMs() + 1.0);
+      }
+
+      long[] starts = new long[contexts.size()];
+      for (int i = 0; i < contexts.size(); i++) {
+        RecordingInjector injector = contexts.get(i).getBean(RecordingInjector.class);
+        List<InjectedInput> inputs = awaitInputs(injector, 10);
+        starts[i] = inputs.get(0).nanoTime() - OFFSETS_MS[i] * MS;
+      }
+      long spread =
+          Arrays.stream(starts).max().getAsLong() - Arrays.stream(starts).min().getAsLong();
+
+      FleetLaunch report = fleet.getLastLaunch();
+      logger.info(
+          "同步開始: 實際偏差 {} ms, 回報 {}", String.format("%.3f", spread / (double) MS), report.agents());
+      assertTrue(spread < 10 * MS, "開始時間相差 " + spread / (double) MS + " ms");
+      assertNotNull(report.spreadMs());
+      for (AgentStart agent : report.agents()) {
+        assertNotNull(agent.startSkewMs(), agent.id());
+        assertTrue(Math.abs(agent.startSkewMs()) < 10, agent.id() + " 偏差 " + agent.startSkewMs());
+      }
+    } finally {
+      for (ConfigurableApplicationContext context : contexts) {
+        context.close();
+      }
+    }
+  }
+
+  @Test
+  void agentRejectsTamperedPrograms() {
+    try (ConfigurableApplicationContext context = start(0)) {
+      HttpFleetAgentClient client = new HttpFleetAgentClient(url(context), Duration.ofSeconds(2));
+      ProgramImage tampered =
+          new ProgramImage("bad", "00", new int[] {0}, 0, 0, List.of(), Map.of());
+
+      IllegalStateException e =
+          assertThrows(IllegalStateException.class, () -> client.stage(tampered));
+      assertTrue(e.getMessage().contains("雜湊不符"), e.getMessage());
+    }
+  }
+
+  private ConfigurableApplicationContext start(int index) {
+    Path dir = root.resolve("agent" + index);
+    return new SpringApplicationBuilder(ArtaleToolSpringApplication.class)
+        .profiles("simulated")
+        .run(
+            "--server.port=0",
+            "--artaletool.startup.lazy=true",
+            "--artaletool.simulated.clock=system",
+            "--artaletool.simulated.clock-offset-ms=" + OFFSETS_MS[index],
+            "--artaletool.fleet.agent-enabled=true",
+            "--artaletool.scripts.keyboard-dir=" + dir.resolve("scripts"),
+            "--artaletool.scripts.mouse-dir=" + dir.resolve("mouse_scripts"),
+            "--artaletool.scripts.program-dir=" + dir.resolve("programs"));
+  }
+
+  private static String url(ConfigurableApplicationContext context) {
+    return "http://127.0.0.1:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+  }
+
+  private static List<InjectedInput> awaitInputs(RecordingInjector injector, int count)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (injector.recent(count).size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    List<InjectedInput> inputs = injector.recent(count);
+    assertEquals(count, inputs.size());
+    return inputs;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.match;
+
+import java.util.Random;
+
+/** 樣板比對測試與基準測試使用的合成畫面：漸層背景、雜訊、隨機色塊，以及一個按鈕圖示 */
+final class SampleImages {
+  static final int BUTTON_WIDTH = 48;
+  static final int BUTTON_HEIGHT = 24;
+
+  private SampleImages() {}
+
+  /** 產生 width × height 的畫面，按鈕畫在 (buttonX, buttonY) */
+  static int[] scene(int width, int height, int buttonX, int buttonY, long seed) {
+    Random random = new Random(seed);
+    int[] argb = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int base = 40 + (x * 80 / width) + (y * 60 / height);
+        int noise = random.nextInt(17) - 8;
+        argb[y * width + x] = gray(base + noise);
+      }
+    }
+    for (int i = 0; i < 40; i++) {
+      int w = 10 + random.nextInt(80);
+      int h = 10 + random.nextInt(60);
+      fill(
+          argb,
+          width,
+          height,
+          random.nextInt(width),
+          random.nextInt(height),
+          w,
+          h,
+          0xFF000000 | random.nextInt(0xFFFFFF));
+    }
+    drawButton(argb, width, height, buttonX, buttonY);
+    return argb;
+  }
+
+  /** 按鈕：深色邊框、淺色底與中間的箭頭 */
+  static void drawButton(int[] argb, int width, int height, int x, int y) {
+    fill(argb, width, height, x, y, BUTTON_WIDTH, BUTTON_HEIGHT, 0xFF202830);
+    fill(argb, width, height, x + 2, y + 2, BUTTON_WIDTH - 4, BUTTON_HEIGHT - 4, 0xFFE0C070);
+    for (int i = 0; i < 8; i++) {
+      fill(argb, width, height, x + 16 + i, y + 4 + i, 2, BUTTON_HEIGHT - 8 - 2 * i, 0xFF803010);
+    }
+  }
+
+  static int[] crop(int[] argb, int stride, int x, int y, int w, int h) {
+    int[] out = new int[w * h];
+    for (int row = 0; row < h; row++) {
+      System.arraycopy(argb, (y + row) * stride + x, out, row * w, w);
+    }
+    return out;
+  }
+
+  private static void fill(
+      int[] argb, int width, int height, int x, int y, int w, int h, int color) {
+    for (int row = Math.max(0, y); row < Math.min(height, y + h); row++) {
+      for (int col = Math.max(0, x); col < Math.min(width, x + w); col++) {
+        argb[row * width + col] = color;
+      }
+    }
+  }
+
+  private static int gray(int v) {
+    int c = Math.max(0, Math.min(255, v));
+    return 0xFF000000 | (c << 16) | (c << 8) | c;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.match;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 樣板比對的 JMH 基準測試，以 1280×720 的合成畫面比較純量與 SIMD 核心、有無金字塔，以及單執行緒與 fork/join。
+ *
+ * <p>執行: {@code mvn -Pbench test-compile exec:exec -Dbench=TemplateMatcherBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class TemplateMatcherBenchmark {
+  private static final int WIDTH = 1280;
+  private static final int HEIGHT = 720;
+
+  @Param({"true", "false"})
+  public boolean vector;
+
+  @Param({"true", "false"})
+  public boolean parallel;
+
+  private int[] scene;
+  private Template pyramid;
+  private Template exhaustive;
+  private TemplateMatcher matcher;
+
+  @Setup
+  public void setUp() {
+    scene = SampleImages.scene(WIDTH, HEIGHT, 901, 533, 7);
+    int[] button =
+        SampleImages.crop(
+            scene, WIDTH, 901, 533, SampleImages.BUTTON_WIDTH, SampleImages.BUTTON_HEIGHT);
+    pyramid =
+        Template.of("button", button, SampleImages.BUTTON_WIDTH, SampleImages.BUTTON_HEIGHT, 3);
+    exhaustive =
+        Template.of("button", button, SampleImages.BUTTON_WIDTH, SampleImages.BUTTON_HEIGHT, 0);
+    matcher = new TemplateMatcher(vector, ForkJoinPool.commonPool(), parallel ? 0 : Long.MAX_VALUE);
+  }
+
+  @Benchmark
+  public TemplateMatcher.Result pyramidSearch() {
+    return matcher.find(pyramid, scene, WIDTH, HEIGHT, 0.9);
+  }
+
+  @Benchmark
+  public TemplateMatcher.Result exhaustiveSearch() {
+    return matcher.find(exhaustive, scene, WIDTH, HEIGHT, 0.9);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/** 以合成畫面確認金字塔、SIMD 與平行搜尋都找到相同的位置 */
+class TemplateMatcherTest {
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 360;
+  private static final int BUTTON_X = 413;
+  private static final int BUTTON_Y = 187;
+
+  private final int[] scene = SampleImages.scene(WIDTH, HEIGHT, BUTTON_X, BUTTON_Y, 7);
+  private final Template button = template(3);
+
+  @Test
+  void findsTemplateWithPyramid() {
+    TemplateMatcher matcher = new TemplateMatcher(true, ForkJoinPool.commonPool(), Long.MAX_VALUE);
+
+    TemplateMatcher.Result result = matcher.find(button, scene, WIDTH, HEIGHT, 0.9);
+
+    assertTrue(result.found());
+    assertEquals(BUTTON_X, result.x());
+    assertEquals(BUTTON_Y, result.y());
+    assertTrue(result.score() > 0.99, "score " + result.score());
+  }
+
+  @Test
+  void pyramidParallelAndScalarSearchesAgreeWithExhaustiveSearch() {
+    Template flat = template(0);
+    TemplateMatcher.Result exhaustive =
+        new TemplateMatcher(false, ForkJoinPool.commonPool(), Long.MAX_VALUE)
+            .find(flat, scene, WIDTH, HEIGHT, 0.9);
+    TemplateMatcher.Result parallel =
+        new TemplateMatcher(true, new ForkJoinPool(4), 0).find(button, scene, WIDTH, HEIGHT, 0.9);
+    TemplateMatcher.Result scalar =
+        new TemplateMatcher(false, new ForkJoinPool(4), 0).find(button, scene, WIDTH, HEIGHT, 0.9);
+
+    assertEquals(BUTTON_X, exhaustive.x());
+    assertEquals(BUTTON_Y, exhaustive.y());
+    assertEquals(exhaustive.x(), parallel.x());
+    assertEquals(exhaustive.y(), parallel.y());
+    assertEquals(exhaustive.score(), parallel.score(), 1e-4);
+    assertEquals(parallel.score(), scalar.score(), 1e-4);
+  }
+
+  @Test
+  void vectorKernelMatchesScalarKernel() {
+    DotKernel vector = DotKernel.select(true);
+    float[] a = new float[37];
+    float[] b = new float[37];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = i * 1.5f;
+      b[i] = 20 - i;
+    }
+    for (int length = 0; length <= 30; length++) {
+      assertEquals(
+          ScalarDotKernel.INSTANCE.dot(a, 3, b, 5, length), vector.dot(a, 3, b, 5, length), 1e-2);
+    }
+  }
+
+  @Test
+  void missingTemplateIsNotFound() {
+    int[] other = SampleImages.scene(WIDTH, HEIGHT, -100, -100, 11);
+    TemplateMatcher matcher = new TemplateMatcher(true, ForkJoinPool.commonPool(), Long.MAX_VALUE);
+
+    TemplateMatcher.Result result = matcher.find(button, other, WIDTH, HEIGHT, 0.9);
+
+    assertFalse(result.found());
+    assertTrue(result.score() < 0.9);
+  }
+
+  @Test
+  void rejectsFlatTemplate() {
+    int[] flat = new int[16 * 16];
+    Arrays.fill(flat, 0xFF808080);
+    assertThrows(IllegalArgumentException.class, () -> Template.of("flat", flat, 16, 16, 3));
+  }
+
+  private Template template(int levels) {
+    int[] pixels =
+        SampleImages.crop(
+            scene,
+            WIDTH,
+            BUTTON_X,
+            BUTTON_Y,
+            SampleImages.BUTTON_WIDTH,
+            SampleImages.BUTTON_HEIGHT);
+    return Template.of(
+        "button", pixels, SampleImages.BUTTON_WIDTH, SampleImages.BUTTON_HEIGHT, levels);
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.mirror;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.event.InputEvent;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.artale.artaletool.backend.simulated.RecordingInjector;
+import com.artale.artaletool.backend.simulated.RecordingInjector.InjectedInput;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.model.MirrorStatus.FollowerStatus;
+import com.artale.artaletool.model.MirrorStatus.LeaderStatus;
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.playback.SystemPlaybackClock;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** 在本機以 TCP 連接一個領導端與兩個模擬後端的跟隨端，確認事件依序注入、座標換算、序號與延遲統計 */
+class MirrorLoopbackTest {
+  private static final Logger logger = LoggerFactory.getLogger(MirrorLoopbackTest.class);
+  private static final PlaybackClock CLOCK = SystemPlaybackClock.INSTANCE;
+  private static final MirrorRect LEADER_WINDOW = new MirrorRect(100, 100, 1280, 720);
+  private static final int VK_A = 0x41;
+  private static final int VK_SPACE = 0x20;
+  private static final int TAPS = 200;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final Timer latencyTimer = Timer.builder("mirror").register(registry);
+
+  @Test
+  void mirrorsInputToEveryFollowerInOrder() throws Exception {
+    RecordingInjector half = new RecordingInjector(new VirtualDesktop(), CLOCK, 1000);
+    RecordingInjector shifted = new RecordingInjector(new VirtualDesktop(), CLOCK, 1000);
+    MirrorFollower halfFollower;
+    MirrorFollower shiftedFollower;
+    try (MirrorLeader leader = leader("secret")) {
+      int port = leader.address().getPort();
+      // 一個視窗縮小一半，一個視窗大小相同但在右邊的螢幕
+      halfFollower = follower(port, "secret", half, new MirrorRect(0, 0, 640, 360));
+      shiftedFollower = follower(port, "secret", shifted, new MirrorRect(2000, 0, 1280, 720));
+      waitFor(() -> leader.followerCount() == 2);
+
+      leader.keyDown(VK_A);
+      leader.mouseDown(1, 740, 460);
+      leader.mouseUp(1, 740, 460);
+      leader.keyUp(VK_A);
+      for (int i = 0; i < TAPS; i++) {
+        leader.keyDown(VK_SPACE);
+        leader.keyUp(VK_SPACE);
+      }
+      int total = 4 + 2 * TAPS;
+      waitFor(() -> halfFollower.status().injectedEvents() == total);
+      waitFor(() -> shiftedFollower.status().injectedEvents() == total);
+
+      assertInjected(half, 320, 180);
+      assertInjected(shifted, 2640, 360);
+
+      LeaderStatus leaderStatus = leader.status();
+      assertEquals(total, leaderStatus.sentEvents());
+      assertEquals(0, leaderStatus.lostEvents());
+      for (MirrorFollower follower : List.of(halfFollower, shiftedFollower)) {
+        FollowerStatus status = follower.status();
+        logger.info(
+            "鏡像延遲 平均 {} ms，p50 {} ms，p99 {} ms，最大 {} ms ({} 個批次，時鐘差 ±{} ms)",
+            String.format("%.3f", status.latencyMeanMs()),
+            String.format("%.3f", status.latencyP50Ms()),
+            String.format("%.3f", status.latencyP99Ms()),
+            String.format("%.3f", status.latencyMaxMs()),
+            status.receivedBatches(),
+            String.format("%.3f", status.clockUncertaintyMs()));
+        assertTrue(status.connected());
+        assertEquals(0, status.sequenceGaps());
+        assertEquals(total, status.latencySamples());
+        assertTrue(status.receivedBatches() < total, "連續的事件應合併成批次");
+        // 同一台機器的時鐘相同，估計的時鐘差不超過誤差上限
+        assertTrue(Math.abs(status.clockOffsetMs()) <= status.clockUncertaintyMs() + 0.001);
+        assertTrue(status.latencyP50Ms() <= status.latencyP99Ms());
+        assertTrue(status.latencyP99Ms() <= status.latencyMaxMs());
+        assertTrue(status.latencyP99Ms() < 100, "p99 " + status.latencyP99Ms() + " ms");
+      }
+      assertEquals(2L * total, latencyTimer.count());
+    }
+    // 領導端關閉後跟隨端隨之斷線
+    waitFor(() -> !halfFollower.isConnected() && !shiftedFollower.isConnected());
+  }
+
+  @Test
+  void rejectsFollowerWithWrongToken() throws Exception {
+    RecordingInjector injector = new RecordingInjector(new VirtualDesktop(), CLOCK, 10);
+    try (MirrorLeader leader = leader("secret")) {
+      IOException e =
+          assertThrows(
+              IOException.class,
+              () -> follower(leader.address().getPort(), "guess", injector, MirrorRect.NONE));
+      assertTrue(e.getMessage().contains("token"), e.getMessage());
+      assertEquals(0, leader.followerCount());
+    }
+  }
+
+  @Test
+  void releasesHeldInputOnSequenceGapAndDisconnect() throws Exception {
+    RecordingInjector injector = new RecordingInjector(new VirtualDesktop(), CLOCK, 100);
+    try (ServerSocket server = new ServerSocket()) {
+      server.bind(new InetSocketAddress("127.0.0.1", 0));
+      Thread fakeLeader =
+          new Thread(
+              () -> {
+                try (Socket socket = server.accept()) {
+                  DataInputStream in = new DataInputStream(socket.getInputStream());
+                  DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                  in.readInt();
+                  in.readUnsignedByte();
+                  MirrorProtocol.readString(in);
+                  while (in.readUnsignedByte() == MirrorProtocol.SYNC) {
+                    out.writeByte(MirrorProtocol.TIME);
+                    out.writeLong(CLOCK.nanoTime());
+                  }
+                  // 領導端沒有鎖定視窗，座標不換算
+                  out.writeByte(MirrorProtocol.HELLO);
+                  out.write(new byte[16]);
+                  batch(out, 0, MirrorProtocol.KEY_DOWN, VK_A);
+                  batch(out, 1, MirrorProtocol.MOUSE_DOWN, 1);
+                  // 序號 2 到 4 遺失
+                  batch(out, 5, MirrorProtocol.KEY_DOWN, VK_SPACE);
+                  out.flush();
+                  in.read();
+                } catch (IOException e) {
+                  logger.debug("模擬領導端結束: {}", e.getMessage());
+                }
+              });
+      fakeLeader.start();
+      MirrorFollower follower =
+          follower(server.getLocalPort(), "", injector, new MirrorRect(0, 0, 100, 100));
+      waitFor(() -> follower.status().injectedEvents() == 3);
+      follower.close();
+      fakeLeader.join(5000);
+
+      assertFalse(follower.isConnected());
+      assertEquals(3, follower.status().sequenceGaps());
+      assertEquals(
+          List.of(
+              "KEY_PRESS " + VK_A,
+              "MOUSE_MOVE 7,8",
+              "MOUSE_PRESS " + InputEvent.BUTTON1_DOWN_MASK,
+              "KEY_RELEASE " + VK_A,
+              "MOUSE_RELEASE " + InputEvent.BUTTON1_DOWN_MASK,
+              "KEY_PRESS " + VK_SPACE,
+              "KEY_RELEASE " + VK_SPACE),
+          describe(injector.recent(100)));
+    }
+  }
+
+  private MirrorLeader leader(String token) throws IOException {
+    MirrorLeader leader =
+        new MirrorLeader(
+            CLOCK,
+            new InetSocketAddress("127.0.0.1", 0),
+            token,
+            TimeUnit.MILLISECONDS.toNanos(1),
+            () -> LEADER_WINDOW);
+    leader.start();
+    return leader;
+  }
+
+  private MirrorFollower follower(
+      int port, String token, RecordingInjector injector, MirrorRect target) throws IOException {
+    MirrorFollower follower =
+        new MirrorFollower("127.0.0.1", port, token, injector, CLOCK, target, 8, latencyTimer);
+    follower.start();
+    return follower;
+  }
+
+  private static void batch(DataOutputStream out, int sequence, int kind, int code)
+      throws IOException {
+    out.writeByte(MirrorProtocol.BATCH);
+    out.writeInt(sequence);
+    out.writeLong(CLOCK.nanoTime());
+    out.writeShort(1);
+    out.writeByte(kind);
+    out.writeByte(code);
+    out.writeShort(0);
+    if (MirrorProtocol.isMouse(kind)) {
+      out.writeInt(7);
+      out.writeInt(8);
+    }
+  }
+
+  private static void assertInjected(RecordingInjector injector, int x, int y) {
+    List<String> expected = new ArrayList<>();
+    expected.add("KEY_PRESS " + VK_A);
+    expected.add("MOUSE_MOVE " + x + "," + y);
+    expected.add("MOUSE_PRESS " + InputEvent.BUTTON1_DOWN_MASK);
+    expected.add("MOUSE_MOVE " + x + "," + y);
+    expected.add("MOUSE_RELEASE " + InputEvent.BUTTON1_DOWN_MASK);
+    expected.add("KEY_RELEASE " + VK_A);
+    for (int i = 0; i < TAPS; i++) {
+      expected.add("KEY_PRESS " + VK_SPACE);
+      expected.add("KEY_RELEASE " + VK_SPACE);
+    }
+    assertEquals(expected, describe(injector.recent(1000)));
+  }
+
+  private static List<String> describe(List<InjectedInput> inputs) {
+    List<String> lines = new ArrayList<>();
+    for (InjectedInput input : inputs) {
+      lines.add(
+          input.type().equals("MOUSE_MOVE")
+              ? "MOUSE_MOVE " + input.x() + "," + input.y()
+              : input.type() + " " + input.code());
+    }
+    return lines;
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+}
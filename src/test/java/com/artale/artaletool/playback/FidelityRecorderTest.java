@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.artale.artaletool.model.FidelityReport;
+
+class FidelityRecorderTest {
+  private static final InputMapping<Integer> MAPPING =
+      new InputMapping<>() {
+        @Override
+        public int inputId(Integer event) {
+          return Math.abs(event) % 10;
+        }
+
+        @Override
+        public boolean isPress(Integer event) {
+          return event > 0;
+        }
+      };
+
+  @Test
+  void reportsLatenessDistributionAndDrift() {
+    // 事件 5 比預定晚 3 ms 才開始注入，其他準時
+    PlaybackTimeline<Integer> timeline = timeline(10, 1, -1, 2, -2, 3, -3);
+    LateClock clock = new LateClock(5, TimeUnit.MILLISECONDS.toNanos(3));
+    FidelityRecorder<Integer> recorder = new FidelityRecorder<>(timeline, clock, new NoopTarget());
+
+    long loops = new TimelinePlayer<>(timeline, clock, recorder).play(2);
+    FidelityReport report = recorder.report("sample", loops, String::valueOf);
+
+    assertEquals(2, report.getLoopsPlayed());
+    assertEquals(12, report.getInjectedEvents());
+    assertEquals(0, report.getDroppedEvents());
+    assertEquals(0, report.getReorderedEvents());
+    assertEquals(3.0, report.getLatenessMaxMs(), 1e-9);
+    assertEquals(3.0, report.getMaxDriftMs(), 1e-9);
+    assertEquals(0.0, report.getLatenessP50Ms(), 1e-9);
+    assertEquals(11L, report.getLatenessHistogram().get("<0.1ms"));
+    assertEquals(1L, report.getLatenessHistogram().get("<5ms"));
+    assertEquals(5, report.getWorstEvents().get(0).index());
+    assertTrue(report.getHeldAtEnd().isEmpty());
+  }
+
+  @Test
+  void detectsDroppedReorderedAndHeldInputs() {
+    PlaybackTimeline<Integer> timeline = timeline(10, 1, 2, -1, -2);
+    FidelityRecorder<Integer> recorder =
+        new FidelityRecorder<>(timeline, new VirtualPlaybackClock(), new NoopTarget());
+
+    // 模擬有問題的播放：跳過事件 1，事件 0 重複，第一個循環少了最後一個事件，按鍵 2 沒有放開
+    inject(recorder, timeline, 1, 0);
+    inject(recorder, timeline, 1, 2);
+    inject(recorder, timeline, 1, 0);
+    inject(recorder, timeline, 2, 0);
+    inject(recorder, timeline, 2, 1);
+
+    FidelityReport report = recorder.report("broken", 1, id -> "key" + id);
+
+    assertEquals(2, report.getDroppedEvents());
+    assertEquals(1, report.getReorderedEvents());
+    assertEquals(List.of("key1", "key2"), report.getHeldAtEnd());
+  }
+
+  @Test
+  void reportsKeyStillHeldWhenPlaybackEnds() {
+    // 腳本以按下按鍵 2 結束，播放器結束時會放開它，報告仍要列出
+    PlaybackTimeline<Integer> timeline = timeline(10, 1, -1, 2);
+    VirtualPlaybackClock clock = new VirtualPlaybackClock();
+    List<Integer> released = new ArrayList<>();
+    FidelityRecorder<Integer> recorder =
+        new FidelityRecorder<>(
+            timeline,
+            clock,
+            new NoopTarget() {
+              @Override
+              public void release(int inputId) {
+                released.add(inputId);
+              }
+            });
+
+    long loops = new TimelinePlayer<>(timeline, clock, recorder).play(2);
+    FidelityReport report = recorder.report("held", loops, id -> "key" + id);
+
+    assertEquals(2, loops);
+    assertEquals(0, report.getDroppedEvents());
+    assertEquals(List.of("key2"), report.getHeldAtEnd());
+    // 第一次循環結束與播放結束各放開一次
+    assertEquals(List.of(2, 2), released);
+  }
+
+  @Test
+  void seekIsNotCountedAsDropped() {
+    PlaybackTimeline<Integer> timeline = timeline(10, 1, -1, 2, -2);
+    VirtualPlaybackClock clock = new VirtualPlaybackClock();
+    FidelityRecorder<Integer> recorder = new FidelityRecorder<>(timeline, clock, new NoopTarget());
+    TimelinePlayer<Integer> player = new TimelinePlayer<>(timeline, clock, recorder);
+    player.seekToIndex(2);
+
+    long loops = player.play(1);
+    FidelityReport report = recorder.report("seek", loops, String::valueOf);
+
+    assertEquals(2, report.getInjectedEvents());
+    assertEquals(0, report.getDroppedEvents());
+    assertEquals(1, report.getPositionChanges());
+  }
+
+  private static void inject(
+      FidelityRecorder<Integer> recorder, PlaybackTimeline<Integer> timeline, long loop, int i) {
+    recorder.inject(timeline.event(i), timeline.inputId(i), timeline.isPress(i));
+    recorder.onEvent(loop, i, timeline.event(i), 0, 0);
+  }
+
+  /** 以固定間隔 (毫秒) 排列的事件，循環間隔相同；正數為按下、負數為放開 */
+  private static PlaybackTimeline<Integer> timeline(long gapMs, int... events) {
+    List<TimedEvent<Integer>> timed = new ArrayList<>();
+    for (int i = 0; i < events.length; i++) {
+      timed.add(new TimedEvent<>(events[i], i == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(gapMs)));
+    }
+    return PlaybackTimeline.build(timed.iterator(), MAPPING, TimeUnit.MILLISECONDS.toNanos(gapMs));
+  }
+
+  /** 虛擬時鐘，第 lateCall 次等待會超過期限 extraNanos */
+  private static final class LateClock implements PlaybackClock {
+    private final int lateCall;
+    private final long extraNanos;
+    private long now;
+    private int parks;
+
+    LateClock(int lateCall, long extraNanos) {
+      this.lateCall = lateCall;
+      this.extraNanos = extraNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+      return now;
+    }
+
+    @Override
+    public void parkUntil(long deadlineNanos) {
+      now = Math.max(now, deadlineNanos) + (++parks == lateCall ? extraNanos : 0);
+    }
+  }
+
+  private static class NoopTarget implements PlaybackTarget<Integer> {
+    @Override
+    public void inject(Integer event, int inputId, boolean press) {}
+
+    @Override
+    public void press(int inputId) {}
+
+    @Override
+    public void release(int inputId) {}
+  }
+}
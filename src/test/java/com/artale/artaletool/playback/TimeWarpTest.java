@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.MouseEvent;
+import com.artale.artaletool.model.TimeWarpOptions;
+import com.artale.artaletool.model.TimeWarpReport;
+
+class TimeWarpTest {
+
+  @Test
+  void identityKeepsRecordedTiming() {
+    List<KeyEvent> events = keyScript(1000, 1100, 1300, 6300);
+
+    List<KeyEvent> rewritten =
+        ScriptTimings.toKeyEvents(
+            TimeWarp.of(new TimeWarpOptions()).apply(ScriptTimings.keyEvents(events)), 1000);
+
+    assertEquals(timestamps(events), timestamps(rewritten));
+  }
+
+  @Test
+  void clampsIdleGapsBeforeApplyingSpeed() {
+    TimeWarpOptions options = new TimeWarpOptions();
+    options.setMaxIdleGapMs(1000L);
+    options.setSpeed(2.0);
+
+    List<KeyEvent> rewritten =
+        ScriptTimings.toKeyEvents(
+            TimeWarp.of(options).apply(ScriptTimings.keyEvents(keyScript(0, 100, 300, 5300))), 0);
+
+    // 間隔 100, 200, 5000 → 壓縮為 100, 200, 1000 → 兩倍速為 50, 100, 500
+    assertEquals(List.of(0L, 50L, 150L, 650L), timestamps(rewritten));
+  }
+
+  @Test
+  void trimLeadingRemovesIdleBeforeFirstMouseEvent() {
+    TimeWarpOptions options = new TimeWarpOptions();
+    options.setTrimLeading(true);
+
+    List<MouseEvent> rewritten =
+        ScriptTimings.toMouseEvents(
+            TimeWarp.of(options).apply(ScriptTimings.mouseEvents(mouseScript(4000, 120, 80))));
+
+    assertEquals(List.of(0L, 120L, 80L), delays(rewritten));
+  }
+
+  @Test
+  void fractionalSpeedDoesNotAccumulateRoundingError() {
+    List<KeyEvent> events = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      events.add(keyEvent(i * 10L));
+    }
+    TimeWarpOptions options = new TimeWarpOptions();
+    options.setSpeed(3.0);
+
+    List<KeyEvent> rewritten =
+        ScriptTimings.toKeyEvents(TimeWarp.of(options).apply(ScriptTimings.keyEvents(events)), 0);
+
+    // 每個間隔 3.33 ms，逐一捨入會累積到 330 ms 的誤差
+    assertEquals(3330, rewritten.get(999).getTimestamp());
+  }
+
+  @Test
+  void trimFlagsDropDefaultPreRollAndLoopGapUnlessGivenExplicitly() {
+    TimeWarpOptions options = new TimeWarpOptions();
+    assertEquals(3000, options.resolvePreRollMs(3000));
+    assertEquals(1000, options.resolveLoopGapMs(1000));
+
+    options.setTrimLeading(true);
+    options.setTrimTrailing(true);
+    assertEquals(0, options.resolvePreRollMs(3000));
+    assertEquals(0, options.resolveLoopGapMs(1000));
+
+    options.setLoopGapMs(250L);
+    assertEquals(250, options.resolveLoopGapMs(1000));
+  }
+
+  @Test
+  void reportsLoopsPerHour() {
+    TimeWarpReport report =
+        TimeWarp.report(
+            "farm",
+            "farm-fast",
+            10,
+            TimeUnit.SECONDS.toNanos(35),
+            1000,
+            TimeUnit.SECONDS.toNanos(9),
+            0);
+
+    assertEquals(36000, report.getOriginalLoopPeriodMs());
+    assertEquals(100.0, report.getOriginalLoopsPerHour(), 1e-9);
+    assertEquals(9000, report.getWarpedLoopPeriodMs());
+    assertEquals(400.0, report.getWarpedLoopsPerHour(), 1e-9);
+  }
+
+  @Test
+  void rejectsNonPositiveSpeed() {
+    TimeWarpOptions options = new TimeWarpOptions();
+    options.setSpeed(0);
+
+    assertThrows(IllegalArgumentException.class, () -> TimeWarp.of(options));
+  }
+
+  private static List<KeyEvent> keyScript(long... timestamps) {
+    List<KeyEvent> events = new ArrayList<>();
+    for (long timestamp : timestamps) {
+      events.add(keyEvent(timestamp));
+    }
+    return events;
+  }
+
+  private static KeyEvent keyEvent(long timestamp) {
+    KeyEvent event = new KeyEvent();
+    event.setTimestamp(timestamp);
+    event.setKey("A");
+    event.setAction("PRESS");
+    return event;
+  }
+
+  private static List<MouseEvent> mouseScript(long... delays) {
+    List<MouseEvent> events = new ArrayList<>();
+    long timestamp = 0;
+    for (long delay : delays) {
+      timestamp += delay;
+      MouseEvent event = new MouseEvent();
+      event.setAction("PRESS");
+      event.setButton(1);
+      event.setDelay(delay);
+      event.setTimestamp(timestamp);
+      events.add(event);
+    }
+    return events;
+  }
+
+  private static List<Long> timestamps(List<KeyEvent> events) {
+    List<Long> result = new ArrayList<>();
+    for (KeyEvent event : events) {
+      result.add(event.getTimestamp());
+    }
+    return result;
+  }
+
+  private static List<Long> delays(List<MouseEvent> events) {
+    List<Long> result = new ArrayList<>();
+    for (MouseEvent event : events) {
+      result.add(event.getDelay());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.playback;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+import org.junit.jupiter.api.Test;
+
+class TimelinePlayerTest {
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final int KEY_A = 'A';
+  private static final int KEY_B = 'B';
+
+  /** 測試用事件：輸入代碼與是否按下 */
+  record Input(int id, boolean press) {}
+
+  private static final InputMapping<Input> MAPPING =
+      new InputMapping<>() {
+        @Override
+        public int inputId(Input event) {
+          return event.id();
+        }
+
+        @Override
+        public boolean isPress(Input event) {
+          return event.press();
+        }
+      };
+
+  @Test
+  void tenThousandLoopsKeepErrorWithinPerEventJitter() {
+    long jitter = 2 * MS;
+    JitteryClock clock = new JitteryClock(jitter, 42);
+    PlaybackTimeline<Input> timeline =
+        PlaybackTimeline.build(
+            timed(
+                new long[] {0, 30 * MS, 45 * MS, 100 * MS},
+                new Input(KEY_A, true),
+                new Input(KEY_A, false),
+                new Input(KEY_B, true),
+                new Input(KEY_B, false)),
+            MAPPING,
+            20 * MS);
+    RecordingTarget target = new RecordingTarget(clock, 3 * MS);
+    long start = clock.nanoTime();
+
+    long completed = new TimelinePlayer<>(timeline, clock, target).play(10_000);
+
+    assertEquals(10_000, completed);
+    assertEquals(40_000, target.injections.size());
+    // 每次注入本身花 3 ms，若依相對時間等待誤差會逐次累積；絕對期限下誤差只來自當次的喚醒延遲
+    assertTrue(target.maxLatenessNanos <= jitter, "最大延遲 " + target.maxLatenessNanos);
+    long lastDeadline = start + 9_999 * timeline.periodNanos() + timeline.offset(3);
+    long lastInjection = target.injections.get(target.injections.size() - 1);
+    assertTrue(lastInjection - lastDeadline <= jitter);
+    assertTrue(lastInjection >= lastDeadline);
+  }
+
+  @Test
+  void warmUpRunsInsidePreRollAndFirstEventStartsOnTime() {
+    VirtualClock clock = new VirtualClock();
+    PlaybackTimeline<Input> timeline =
+        PlaybackTimeline.build(
+            timed(new long[] {5 * MS, 10 * MS}, new Input(KEY_A, true), new Input(KEY_A, false)),
+            MAPPING,
+            0);
+    RecordingTarget target = new RecordingTarget(clock, 0);
+    target.warmupCostNanos = 40 * MS;
+    TimelinePlayer<Input> player = new TimelinePlayer<>(timeline, clock, target);
+    long requested = clock.nanoTime();
+
+    player.play(1, 100 * MS);
+
+    assertEquals(1, target.warmups);
+    assertEquals(40 * MS, player.warmupNanos());
+    // 預熱用掉預備時間的一部分，第一個事件仍在呼叫後 100 ms + 5 ms 注入
+    assertEquals(requested + 105 * MS, target.injections.get(0));
+    assertEquals(0, player.firstEventLatenessNanos());
+  }
+
+  @Test
+  void warmUpLongerThanPreRollDelaysStartInsteadOfMakingEventsLate() {
+    VirtualClock clock = new VirtualClock();
+    PlaybackTimeline<Input> timeline =
+        PlaybackTimeline.build(
+            timed(new long[] {5 * MS, 10 * MS}, new Input(KEY_A, true), new Input(KEY_A, false)),
+            MAPPING,
+            0);
+    RecordingTarget target = new RecordingTarget(clock, 0);
+    target.warmupCostNanos = 40 * MS;
+    TimelinePlayer<Input> player = new TimelinePlayer<>(timeline, clock, target);
+    long requested = clock.nanoTime();
+
+    player.play(1, 0);
+
+    assertEquals(requested + 45 * MS, target.injections.get(0));
+    assertEquals(requested + 55 * MS, target.injections.get(1));
+    assertEquals(0, player.firstEventLatenessNanos());
+  }
+
+  @Test
+  void nextLoopStartsAtFixedOffsetFromPreviousLoopsLastEvent() {
+    VirtualClock clock = new VirtualClock();
+    PlaybackTimeline<Input> timeline =
+        PlaybackTimeline.build(
+            timed(new long[] {5 * MS, 10 * MS}, new Input(KEY_A, true), new Input(KEY_A, false)),
+            MAPPING,
+            50 * MS);
+    RecordingTarget target = new RecordingTarget(clock, 0);
+    long start = clock.nanoTime();
+
+    new TimelinePlayer<>(timeline, clock, target).play(3);
+
+    assertEquals(65 * MS, timeline.periodNanos());
+    assertEquals(
+        List.of(
+            start + 5 * MS,
+            start + 15 * MS,
+            start + 70 * MS,
+            start + 80 * MS,
+            start + 135 * MS,
+            start + 145 * MS),
+        target.injections);
+  }
+
+  @Test
+  void releasesKeysStillHeldAtLoopBoundary() {
+    VirtualClock clock = new VirtualClock();
+    // A 在循環結束時仍按住，B 在循環內放開
+    PlaybackTimeline<Input> timeline =
+        PlaybackTimeline.build(
+            timed(
+                new long[] {0, MS, MS},
+                new Input(KEY_A, true),
+                new Input(KEY_B, true),
+                new Input(KEY_B, false)),
+            MAPPING,
+            0);
+    RecordingTarget target = new RecordingTarget(clock, 0);
+
+    new TimelinePlayer<>(timeline, clock, target).play(2);
+
+    assertEquals(
+        List.of(
+            "press A",
+            "press B",
+            "release B",
+            "reconcile A",
+            "press A",
+            "press B",
+            "release B",
+            "reconcile A"),
+        target.log);
+  }
+
+  @Test
+  void stopReleasesHeldInputsFromUnboundedPlayback() throws InterruptedException {
+    PlaybackTimeline<Input> timeline =
+        PlaybackTimeline.build(
+            timed(new long[] {0, 0}, new Input(KEY_A, true), new Input(KEY_B, true)), MAPPING, MS);
+    RecordingTarget target = new RecordingTarget(SystemPlaybackClock.INSTANCE, 0);
+    TimelinePlayer<Input> player =
+        new TimelinePlayer<>(timeline, SystemPlaybackClock.INSTANCE, target);
+    long[] completed = new long[1];
+    Thread runner = new Thread(() -> completed[0] = player.play(0));
+    runner.start();
+
+    Thread.sleep(50);
+    player.stop();
+    runner.join(5_000);
+
+    assertFalse(runner.isAlive());
+    assertTrue(completed[0] > 0);
+    // 停止可能發生在同一時間的兩個事件之間，不論停在哪裡都不應留下按住的輸入
+    assertTrue(target.heldInputs().isEmpty(), "仍按住 " + target.heldInputs());
+    assertTrue(target.log.get(target.log.size() - 1).startsWith("reconcile"));
+  }
+
+  @Test
+  void checkpointedHeldStateMatchesFullReplay() {
+    Random random = new Random(7);
+    int size = 3 * PlaybackTimeline.CHECKPOINT_INTERVAL + 17;
+    Input[] inputs = new Input[size];
+    long[] gaps = new long[size];
+    for (int i = 0; i < size; i++) {
+      // 約四分之一的事件不影響按住狀態 (例如滑鼠移動)
+      int id = random.nextInt(4) == 0 ? -1 : random.nextInt(8);
+      inputs[i] = new Input(id, random.nextBoolean());
+      gaps[i] = random.nextInt(3) * MS;
+    }
+    PlaybackTimeline<Input> timeline = PlaybackTimeline.build(timed(gaps, inputs), MAPPING, 0);
+
+    boolean[] replayed = new boolean[PlaybackTimeline.MAX_INPUTS];
+    for (int i = 0; i <= size; i++) {
+      assertArrayEquals(replayed, timeline.heldBefore(i), "第 " + i + " 個事件之前");
+      if (i < size && inputs[i].id() >= 0) {
+        replayed[inputs[i].id()] = inputs[i].press();
+      }
+    }
+  }
+
+  @Test
+  void indexAtFindsFirstEventAtOrAfterOffset() {
+    PlaybackTimeline<Input> timeline =
+        PlaybackTimeline.build(
+            timed(
+                new long[] {0, 10 * MS, 0, 5 * MS},
+                new Input(-1, false),
+                new Input(-1, false),
+                new Input(-1, false),
+                new Input(-1, false)),
+            MAPPING,
+            0);
+
+    assertEquals(0, timeline.indexAt(0));
+    assertEquals(1, timeline.indexAt(MS));
+    assertEquals(1, timeline.indexAt(10 * MS));
+    assertEquals(3, timeline.indexAt(11 * MS));
+    assertEquals(4, timeline.indexAt(16 * MS));
+  }
+
+  @Test
+  void seekRebuildsHeldStateAndRealignsTimeline() {
+    VirtualClock clock = new VirtualClock();
+    int size = 1000;
+    Input[] inputs = new Input[size];
+    long[] gaps = new long[size];
+    for (int i = 0; i < size; i++) {
+      inputs[i] = new Input(-1, false);
+      gaps[i] = MS;
+    }
+    inputs[0] = new Input(KEY_A, true);
+    inputs[10] = new Input(KEY_B, true);
+    inputs[600] = new Input(KEY_A, false);
+    inputs[700] = new Input('C', true);
+    PlaybackTimeline<Input> timeline = PlaybackTimeline.build(timed(gaps, inputs), MAPPING, 0);
+    RecordingTarget target = new RecordingTarget(clock, 0);
+    TimelinePlayer<Input> player = new TimelinePlayer<>(timeline, clock, target);
+    target.afterEvent =
+        index -> {
+          if (index == 20) {
+            player.seekToIndex(800);
+          }
+        };
+
+    player.play(1);
+
+    // 跳轉前按住 A、B；第 800 個事件之前應按住 B、C
+    assertEquals(
+        List.of("press A", "press B", "reconcile A", "restore C", "reconcile B", "reconcile C"),
+        target.log);
+    assertEquals(21 + 200, target.injectedIndexes.size());
+    assertEquals(800, target.injectedIndexes.get(21));
+    // 第 800 個事件在跳轉當下注入，之後的事件依跳轉後的時間軸排程
+    long seekTime = target.injections.get(21);
+    assertEquals(seekTime + 199 * MS, target.injections.get(target.injections.size() - 1));
+  }
+
+  @Test
+  void pauseReleasesInputsAndResumeRestoresThemAtSamePosition() throws InterruptedException {
+    PlaybackTimeline<Input> timeline =
+        PlaybackTimeline.build(
+            timed(new long[] {0, 200 * MS}, new Input(KEY_A, true), new Input(KEY_A, false)),
+            MAPPING,
+            0);
+    RecordingTarget target = new RecordingTarget(SystemPlaybackClock.INSTANCE, 0);
+    TimelinePlayer<Input> player =
+        new TimelinePlayer<>(timeline, SystemPlaybackClock.INSTANCE, target);
+    Thread runner = new Thread(() -> player.play(1));
+    runner.start();
+
+    Thread.sleep(50);
+    player.pause();
+    waitFor(player::isPaused);
+    assertEquals(List.of("press A", "reconcile A"), target.log);
+
+    // 暫停超過原本的期限也不會注入放開 A 的事件
+    Thread.sleep(300);
+    assertEquals(List.of("press A", "reconcile A"), target.log);
+
+    long resumedAt = System.nanoTime();
+    player.resume();
+    runner.join(5_000);
+
+    assertFalse(runner.isAlive());
+    assertEquals(List.of("press A", "reconcile A", "restore A", "release A"), target.log);
+    assertTrue(target.injections.get(1) - resumedAt >= 100 * MS, "繼續後應等待剩餘的間隔");
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  private static Iterator<TimedEvent<Input>> timed(long[] gaps, Input... inputs) {
+    List<TimedEvent<Input>> events = new ArrayList<>();
+    for (int i = 0; i < inputs.length; i++) {
+      events.add(new TimedEvent<>(inputs[i], gaps[i]));
+    }
+    return events.iterator();
+  }
+
+  /** 虛擬時鐘：park 直接把時間推進到期限 */
+  private static class VirtualClock implements PlaybackClock {
+    long now = 1_000_000_000L;
+
+    @Override
+    public long nanoTime() {
+      return now;
+    }
+
+    @Override
+    public void parkUntil(long deadlineNanos) {
+      now = Math.max(now, deadlineNanos);
+    }
+
+    void advance(long nanos) {
+      now += nanos;
+    }
+  }
+
+  /** 每次喚醒都隨機晚 0 ~ jitter 奈秒，模擬作業系統排程延遲 */
+  private static final class JitteryClock extends VirtualClock {
+    private final long jitter;
+    private final Random random;
+
+    JitteryClock(long jitter, long seed) {
+      this.jitter = jitter;
+      this.random = new Random(seed);
+    }
+
+    @Override
+    public void parkUntil(long deadlineNanos) {
+      now = Math.max(now, deadlineNanos + (long) (random.nextDouble() * jitter));
+    }
+  }
+
+  private static final class RecordingTarget implements PlaybackTarget<Input> {
+    private final PlaybackClock clock;
+    private final long injectCostNanos;
+    private final List<Long> injections = new ArrayList<>();
+    private final List<String> log = new CopyOnWriteArrayList<>();
+    private final List<Integer> injectedIndexes = new ArrayList<>();
+    private long maxLatenessNanos = 0;
+    private long warmupCostNanos = 0;
+    private int warmups = 0;
+    private IntConsumer afterEvent = index -> {};
+
+    RecordingTarget(PlaybackClock clock, long injectCostNanos) {
+      this.clock = clock;
+      this.injectCostNanos = injectCostNanos;
+    }
+
+    @Override
+    public void warmUp(PlaybackTimeline<Input> timeline) {
+      warmups++;
+      if (clock instanceof VirtualClock virtual) {
+        virtual.advance(warmupCostNanos);
+      }
+    }
+
+    @Override
+    public void inject(Input event, int inputId, boolean press) {
+      injections.add(clock.nanoTime());
+      if (inputId >= 0) {
+        log.add((press ? "press " : "release ") + (char) inputId);
+      }
+      if (clock instanceof VirtualClock virtual) {
+        virtual.advance(injectCostNanos);
+      }
+    }
+
+    /** 依記錄重播出目前仍按住的輸入 */
+    Set<String> heldInputs() {
+      Set<String> held = new TreeSet<>();
+      for (String entry : log) {
+        String input = entry.substring(entry.indexOf(' ') + 1);
+        if (entry.startsWith("press") || entry.startsWith("restore")) {
+          held.add(input);
+        } else {
+          held.remove(input);
+        }
+      }
+      return held;
+    }
+
+    @Override
+    public void press(int inputId) {
+      log.add("restore " + (char) inputId);
+    }
+
+    @Override
+    public void release(int inputId) {
+      log.add("reconcile " + (char) inputId);
+    }
+
+    @Override
+    public void onEvent(long loop, int index, Input event, long latenessNanos, long injectNanos) {
+      maxLatenessNanos = Math.max(maxLatenessNanos, latenessNanos);
+      injectedIndexes.add(index);
+      afterEvent.accept(index);
+    }
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.scale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.backend.InputProbe;
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.MouseEvent;
+import com.artale.artaletool.playback.VirtualPlaybackClock;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.firefish.ArtaleTool.ArtaleToolSpringApplication;
+
+/**
+ * 端對端規模測試：透過 REST 控制器儲存、載入、列出與播放大型合成腳本。
+ *
+ * <p>原生輸入換成計數用的假實作，播放使用虛擬時鐘，因此可以在 Linux 無頭環境執行，數小時的循環也只需數秒。
+ *
+ * <p>預設規模很小，隨一般測試執行；{@code mvn test -Pscale} 以百萬事件、數千個腳本檔案與數小時的循環執行，並輸出吞吐量、延遲百分位數與堆積峰值。
+ */
+@SpringBootTest(
+    classes = {ArtaleToolSpringApplication.class, ScaleSuiteTest.HeadlessBackend.class},
+    properties = "artaletool.startup.lazy=true")
+@AutoConfigureMockMvc
+class ScaleSuiteTest {
+  private static final Logger logger = LoggerFactory.getLogger(ScaleSuiteTest.class);
+  private static final int EVENTS = Integer.getInteger("artaletool.scale.events", 10_000);
+  private static final int FILES = Integer.getInteger("artaletool.scale.files", 100);
+  private static final long LOOPS = Long.getLong("artaletool.scale.loops", 10);
+  private static final Path ROOT = createRoot();
+  private static final List<String> report = new ArrayList<>();
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private CountingInjector injector;
+  @Autowired private VirtualPlaybackClock clock;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @DynamicPropertySource
+  static void scriptDirs(DynamicPropertyRegistry registry) {
+    registry.add("artaletool.scripts.keyboard-dir", () -> ROOT.resolve("scripts").toString());
+    registry.add("artaletool.scripts.mouse-dir", () -> ROOT.resolve("mouse_scripts").toString());
+  }
+
+  @BeforeAll
+  static void resetPeakHeap() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  @AfterAll
+  static void printReport() {
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peakHeap += pool.getPeakUsage().getUsed();
+      }
+    }
+    report.add(String.format("堆積峰值: %d MB", peakHeap / (1024 * 1024)));
+    logger.info(
+        "規模測試報告 (事件 {}, 檔案 {}, 循環 {}):\n  {}", EVENTS, FILES, LOOPS, String.join("\n  ", report));
+  }
+
+  @Test
+  void keyboardScriptRoundTripsThroughRest() throws Exception {
+    List<KeyEvent> events = new SyntheticScriptGenerator(1).keyScript(EVENTS);
+    byte[] body = objectMapper.writeValueAsBytes(events);
+
+    long saveStart = System.nanoTime();
+    mockMvc
+        .perform(
+            post("/api/keyboard/save-script")
+                .param("name", "large")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+        .andExpect(status().isOk());
+    long saveNanos = System.nanoTime() - saveStart;
+
+    long loadStart = System.nanoTime();
+    MvcResult loaded =
+        mockMvc.perform(get("/api/keyboard/load-script").param("name", "large")).andReturn();
+    long loadNanos = System.nanoTime() - loadStart;
+
+    assertEquals(events.size(), json(loaded).size());
+    report.add(throughput("鍵盤腳本儲存", events.size(), saveNanos));
+    report.add(throughput("鍵盤腳本載入", events.size(), loadNanos));
+  }
+
+  @Test
+  void listsAndLoadsThousandsOfScripts() throws Exception {
+    SyntheticScriptGenerator generator = new SyntheticScriptGenerator(2);
+    Path dir = ROOT.resolve("scripts");
+    for (int i = 0; i < FILES; i++) {
+      generator.writeScript(dir, "bulk-" + i, generator.keyScript(200));
+    }
+
+    long[] listLatencies = new long[20];
+    for (int i = 0; i < listLatencies.length; i++) {
+      long start = System.nanoTime();
+      MvcResult result = mockMvc.perform(get("/api/keyboard/list-scripts")).andReturn();
+      listLatencies[i] = System.nanoTime() - start;
+      assertTrue(json(result).size() >= FILES);
+    }
+
+    Random random = new Random(3);
+    long[] loadLatencies = new long[Math.min(FILES, 500)];
+    for (int i = 0; i < loadLatencies.length; i++) {
+      String name = "bulk-" + random.nextInt(FILES);
+      long start = System.nanoTime();
+      mockMvc
+          .perform(get("/api/keyboard/load-script").param("name", name))
+          .andExpect(status().isOk());
+      loadLatencies[i] = System.nanoTime() - start;
+    }
+
+    report.add(percentiles("列出 " + FILES + " 個腳本", listLatencies));
+    report.add(percentiles("載入 200 事件腳本", loadLatencies));
+  }
+
+  @Test
+  void loopedKeyboardPlaybackRunsHoursInVirtualTime() throws Exception {
+    List<KeyEvent> events = new SyntheticScriptGenerator(4).keyScript(EVENTS);
+    long before = injector.keyEvents.get();
+    long virtualStart = clock.nanoTime();
+
+    long wallStart = System.nanoTime();
+    mockMvc
+        .perform(
+            post("/api/keyboard/play-script")
+                .param("loop", "true")
+                .param("count", String.valueOf(LOOPS))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(events)))
+        .andExpect(status().isOk());
+    awaitPlaybackFinished("/api/keyboard/playback-status");
+    long wallNanos = System.nanoTime() - wallStart;
+
+    long played = events.size() * LOOPS;
+    long scriptMs = events.get(events.size() - 1).getTimestamp() - events.get(0).getTimestamp();
+    long virtualMs = TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - virtualStart);
+    assertEquals(played, injector.keyEvents.get() - before);
+    assertTrue(virtualMs >= scriptMs * LOOPS, "虛擬時間 " + virtualMs + " ms");
+    report.add(throughput("鍵盤循環播放", played, wallNanos) + ", 虛擬時間 " + hours(virtualMs));
+  }
+
+  @Test
+  void mouseScriptSavesLoadsAndPlays() throws Exception {
+    List<MouseEvent> events = new SyntheticScriptGenerator(5).mouseScript(EVENTS);
+    mockMvc
+        .perform(
+            post("/api/mouse/save-script")
+                .param("name", "large")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(events)))
+        .andExpect(status().isOk());
+    MvcResult loaded =
+        mockMvc.perform(get("/api/mouse/load-script").param("name", "large")).andReturn();
+    byte[] script = loaded.getResponse().getContentAsByteArray();
+    assertEquals(events.size(), objectMapper.readTree(script).size());
+    long before = injector.mouseEvents.get();
+
+    long wallStart = System.nanoTime();
+    mockMvc
+        .perform(
+            post("/api/mouse/play-script")
+                .param("loop", "true")
+                .param("count", String.valueOf(LOOPS))
+                .param("loopGapMs", "0")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(script))
+        .andExpect(status().isOk());
+    awaitPlaybackFinished("/api/mouse/playback-status");
+    long wallNanos = System.nanoTime() - wallStart;
+
+    long played = events.size() * LOOPS;
+    assertEquals(played, injector.mouseEvents.get() - before);
+    report.add(throughput("滑鼠循環播放", played, wallNanos));
+  }
+
+  private void awaitPlaybackFinished(String statusPath) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(10);
+    while (System.nanoTime() < deadline) {
+      JsonNode status = json(mockMvc.perform(get(statusPath)).andReturn());
+      if (!status.get("isPlaying").asBoolean()) {
+        return;
+      }
+      Thread.sleep(5);
+    }
+    throw new AssertionError("播放沒有在時限內完成");
+  }
+
+  private JsonNode json(MvcResult result) throws IOException {
+    return objectMapper.readTree(result.getResponse().getContentAsByteArray());
+  }
+
+  private static String throughput(String label, long events, long nanos) {
+    double seconds = nanos / 1e9;
+    return String.format(
+        "%s: %d 個事件, %.0f ms, %.0f 事件/秒", label, events, nanos / 1e6, events / seconds);
+  }
+
+  private static String percentiles(String label, long[] nanos) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    return String.format(
+        "%s: p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, 最大 %.2f ms",
+        label,
+        percentile(sorted, 0.50) / 1e6,
+        percentile(sorted, 0.95) / 1e6,
+        percentile(sorted, 0.99) / 1e6,
+        sorted[sorted.length - 1] / 1e6);
+  }
+
+  private static long percentile(long[] sorted, double p) {
+    int index = (int) Math.ceil(p * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  private static String hours(long millis) {
+    return String.format("%.1f 小時", millis / 3_600_000.0);
+  }
+
+  private static Path createRoot() {
+    try {
+      return Files.createTempDirectory("artaletool-scale");
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** 無頭環境用的假原生後端與虛擬時鐘 */
+  @TestConfiguration
+  static class HeadlessBackend {
+    @Bean
+    @Primary
+    CountingInjector countingInjector() {
+      return new CountingInjector();
+    }
+
+    @Bean
+    @Primary
+    InputProbe idleInputProbe() {
+      return new IdleInputProbe();
+    }
+
+    @Bean
+    @Primary
+    VirtualPlaybackClock virtualPlaybackClock() {
+      return new VirtualPlaybackClock();
+    }
+  }
+
+  /** 只計數的輸入注入器 */
+  static final class CountingInjector implements InputInjector {
+    private final AtomicLong keyEvents = new AtomicLong();
+    private final AtomicLong mouseEvents = new AtomicLong();
+
+    @Override
+    public boolean isAvailable() {
+      return true;
+    }
+
+    @Override
+    public void keyPress(int keyCode) {
+      keyEvents.incrementAndGet();
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+      keyEvents.incrementAndGet();
+    }
+
+    @Override
+    public void mouseMove(int x, int y) {}
+
+    @Override
+    public void mousePress(int buttons) {
+      mouseEvents.incrementAndGet();
+    }
+
+    @Override
+    public void mouseRelease(int buttons) {
+      mouseEvents.incrementAndGet();
+    }
+  }
+
+  /** 沒有任何按鍵按下、也沒有視窗的輸入狀態 */
+  static final class IdleInputProbe implements InputProbe {
+    @Override
+    public short getAsyncKeyState(int vKey) {
+      return 0;
+    }
+
+    @Override
+    public boolean getCursorPos(int[] out) {
+      out[0] = 0;
+      out[1] = 0;
+      return true;
+    }
+
+    @Override
+    public long getForegroundWindow() {
+      return 0;
+    }
+
+    @Override
+    public boolean isWindow(long hWnd) {
+      return false;
+    }
+
+    @Override
+    public boolean getWindowRect(long hWnd, int[] out) {
+      return false;
+    }
+  }
+}
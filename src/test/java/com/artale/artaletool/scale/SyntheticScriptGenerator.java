@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.scale;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.model.MouseEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 產生擬真的合成鍵盤與滑鼠腳本，格式與錄製後儲存的 JSON 腳本相同。
+ *
+ * <p>按鍵依 Zipf 分布挑選 (少數技能鍵佔大多數)，每次按鍵都有成對的按下與放開；間隔與按住時間為指數分布，可能重疊成組合鍵。
+ *
+ * <p>滑鼠點擊集中在幾個熱點附近，左鍵為主。同一個種子產生的腳本完全相同。
+ */
+final class SyntheticScriptGenerator {
+  static final List<String> DEFAULT_KEYS =
+      List.of(
+          "Ctrl",
+          "Shift",
+          "Alt",
+          "Space",
+          "Left",
+          "Right",
+          "Up",
+          "Down",
+          "Z",
+          "X",
+          "C",
+          "A",
+          "S",
+          "D",
+          "F",
+          "Q",
+          "W",
+          "E",
+          "R",
+          "1",
+          "2",
+          "3",
+          "4",
+          "F1",
+          "F2",
+          "Enter",
+          "PageUp",
+          "PageDown",
+          "Home",
+          "End");
+  private static final long START_TIMESTAMP = 1_700_000_000_000L;
+
+  private final Random random;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private List<String> keys = DEFAULT_KEYS;
+  private double zipfExponent = 1.1;
+  private long meanGapMs = 120;
+  private long meanHoldMs = 80;
+  private long minHoldMs = 15;
+  private int screenWidth = 1920;
+  private int screenHeight = 1080;
+  private int hotspots = 6;
+
+  SyntheticScriptGenerator(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /** 可挑選的按鍵 (依出現頻率由高到低排列) */
+  SyntheticScriptGenerator keys(List<String> keys) {
+    this.keys = List.copyOf(keys);
+    return this;
+  }
+
+  /** 按鍵分布的偏斜程度，0 為均勻分布 */
+  SyntheticScriptGenerator zipfExponent(double zipfExponent) {
+    this.zipfExponent = zipfExponent;
+    return this;
+  }
+
+  /** 相鄰兩次按鍵或點擊開始時間的平均間隔 */
+  SyntheticScriptGenerator meanGapMs(long meanGapMs) {
+    this.meanGapMs = meanGapMs;
+    return this;
+  }
+
+  /** 平均按住時間 */
+  SyntheticScriptGenerator meanHoldMs(long meanHoldMs) {
+    this.meanHoldMs = meanHoldMs;
+    return this;
+  }
+
+  SyntheticScriptGenerator screen(int width, int height) {
+    this.screenWidth = width;
+    this.screenHeight = height;
+    return this;
+  }
+
+  /** 產生約 eventCount 個事件的鍵盤腳本 (按下與放開各算一個事件，數量為偶數) */
+  List<KeyEvent> keyScript(int eventCount) {
+    double[] cumulative = zipfCumulative(keys.size());
+    Map<String, Long> heldUntil = new HashMap<>();
+    List<KeyEvent> events = new ArrayList<>(eventCount);
+    long time = START_TIMESTAMP;
+    for (int stroke = 0; stroke < eventCount / 2; stroke++) {
+      time += exponential(meanGapMs, 1);
+      String key = keys.get(pick(cumulative));
+      // 同一個鍵還按著時不能再按一次，等到它放開之後
+      time = Math.max(time, heldUntil.getOrDefault(key, 0L) + 1);
+      long release = time + exponential(meanHoldMs, minHoldMs);
+      heldUntil.put(key, release);
+      events.add(keyEvent(time, key, "PRESS"));
+      events.add(keyEvent(release, key, "RELEASE"));
+    }
+    events.sort(Comparator.comparingLong(KeyEvent::getTimestamp));
+    return events;
+  }
+
+  /** 產生約 eventCount 個事件的滑鼠腳本 (每次點擊為按下與放開兩個事件) */
+  List<MouseEvent> mouseScript(int eventCount) {
+    int[][] spots = new int[hotspots][];
+    for (int i = 0; i < hotspots; i++) {
+      spots[i] = new int[] {random.nextInt(screenWidth), random.nextInt(screenHeight)};
+    }
+    double[] cumulative = zipfCumulative(hotspots);
+    List<MouseEvent> events = new ArrayList<>(eventCount);
+    long time = START_TIMESTAMP;
+    long previous = START_TIMESTAMP;
+    for (int click = 0; click < eventCount / 2; click++) {
+      time += exponential(meanGapMs, minHoldMs);
+      int[] spot = spots[pick(cumulative)];
+      int x = clamp(spot[0] + (int) (random.nextGaussian() * 25), screenWidth);
+      int y = clamp(spot[1] + (int) (random.nextGaussian() * 25), screenHeight);
+      double roll = random.nextDouble();
+      int button = roll < 0.85 ? 1 : roll < 0.97 ? 2 : 3;
+      // 放開一定早於下一次點擊，滑鼠腳本的事件依序排列
+      long release = time + Math.min(exponential(meanHoldMs, minHoldMs), meanGapMs);
+      events.add(mouseEvent("PRESS", button, x, y, time, time - previous));
+      events.add(mouseEvent("RELEASE", button, x, y, release, release - time));
+      previous = release;
+      time = release;
+    }
+    return events;
+  }
+
+  /** 以服務儲存腳本的相同格式寫入檔案 */
+  void writeScript(Path dir, String name, List<?> events) throws IOException {
+    Files.createDirectories(dir);
+    objectMapper.writeValue(dir.resolve(name + ".json").toFile(), events);
+  }
+
+  private long exponential(long mean, long min) {
+    return Math.max(min, Math.round(-Math.log(1 - random.nextDouble()) * mean));
+  }
+
+  private double[] zipfCumulative(int n) {
+    double[] cumulative = new double[n];
+    double sum = 0;
+    for (int rank = 0; rank < n; rank++) {
+      sum += 1 / Math.pow(rank + 1, zipfExponent);
+      cumulative[rank] = sum;
+    }
+    for (int rank = 0; rank < n; rank++) {
+      cumulative[rank] /= sum;
+    }
+    return cumulative;
+  }
+
+  private int pick(double[] cumulative) {
+    double roll = random.nextDouble();
+    for (int i = 0; i < cumulative.length; i++) {
+      if (roll < cumulative[i]) {
+        return i;
+      }
+    }
+    return cumulative.length - 1;
+  }
+
+  private static int clamp(int value, int limit) {
+    return Math.max(0, Math.min(limit - 1, value));
+  }
+
+  private static KeyEvent keyEvent(long timestamp, String key, String action) {
+    KeyEvent event = new KeyEvent();
+    event.setTimestamp(timestamp);
+    event.setKey(key);
+    event.setAction(action);
+    return event;
+  }
+
+  private static MouseEvent mouseEvent(
+      String action, int button, int x, int y, long timestamp, long delay) {
+    MouseEvent event = new MouseEvent();
+    event.setAction(action);
+    event.setButton(button);
+    event.setX(x);
+    event.setY(y);
+    event.setTimestamp(timestamp);
+    event.setDelay(delay);
+    return event;
+  }
+}
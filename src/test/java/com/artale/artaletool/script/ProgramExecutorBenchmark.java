@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.backend.KeyTable;
+import com.artale.artaletool.backend.simulated.SimulatedInputProbe;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.playback.VirtualPlaybackClock;
+
+/**
+ * 腳本程式執行方式的 JMH 基準測試：直譯器與編譯成類別，分別執行有分支的迴圈與 20000 個事件的錄製腳本。注入器不做任何事，時鐘為虛擬時鐘，量到的只有執行方式本身的成本。
+ *
+ * <p>執行: {@code mvn -Pbench test-compile exec:exec -Dbench=ProgramExecutorBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgramExecutorBenchmark {
+  @Param({"interpreter", "jit"})
+  public String backend;
+
+  @Param({"loop", "recording"})
+  public String shape;
+
+  private Program program;
+  private ProgramExecutor executor;
+  private final VirtualDesktop desktop = new VirtualDesktop();
+  private final TriggerBoard triggers = new TriggerBoard();
+  private final InputInjector injector = new DiscardingInjector();
+
+  @Setup
+  public void setUp() {
+    if (shape.equals("loop")) {
+      program =
+          new ScriptCompiler(KeyTable.STANDARD, name -> null)
+              .compile(
+                  "loop",
+                  """
+                  set n 0
+                  repeat 10000
+                    add n 1
+                    if n > 5
+                      tap A 1
+                    else
+                      tap B 1
+                    end
+                  end
+                  """);
+    } else {
+      List<KeyEvent> recording = new ArrayList<>();
+      for (int i = 0; i < 20_000; i++) {
+        KeyEvent event = new KeyEvent();
+        event.setTimestamp(i * 3L);
+        event.setKey(i % 4 < 2 ? "A" : "Shift");
+        event.setAction(i % 2 == 0 ? "PRESS" : "RELEASE");
+        recording.add(event);
+      }
+      program = Recordings.keyProgram("recording", recording, KeyTable.STANDARD);
+    }
+    executor =
+        backend.equals("jit")
+            ? new ProgramJit(1).compile(program)
+            : new ProgramInterpreter(program);
+  }
+
+  @Benchmark
+  public long run() {
+    ProgramRuntime runtime =
+        new ProgramRuntime(
+            program,
+            injector,
+            new SimulatedInputProbe(desktop),
+            new VirtualPlaybackClock(),
+            triggers);
+    executor.run(runtime, 0);
+    return runtime.injectedCount();
+  }
+
+  private static final class DiscardingInjector implements InputInjector {
+    @Override
+    public boolean isAvailable() {
+      return true;
+    }
+
+    @Override
+    public void keyPress(int keyCode) {}
+
+    @Override
+    public void keyRelease(int keyCode) {}
+
+    @Override
+    public void mouseMove(int x, int y) {}
+
+    @Override
+    public void mousePress(int buttons) {}
+
+    @Override
+    public void mouseRelease(int buttons) {}
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.backend.KeyTable;
+import com.artale.artaletool.backend.simulated.RecordingInjector;
+import com.artale.artaletool.backend.simulated.SimulatedInputProbe;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.playback.VirtualPlaybackClock;
+
+/** 以模擬後端與虛擬時鐘執行程式，確認注入的時間軸、條件、觸發訊號、停止與不配置物件 */
+class ProgramInterpreterTest {
+  private static final long MS = 1_000_000L;
+  private static final long START = 5 * MS;
+
+  private final VirtualDesktop desktop = new VirtualDesktop();
+  private final VirtualPlaybackClock clock = new VirtualPlaybackClock();
+  private final RecordingInjector injector = new RecordingInjector(desktop, clock, 1000);
+  private final TriggerBoard triggers = new TriggerBoard();
+  private final ScriptCompiler compiler = new ScriptCompiler(KeyTable.STANDARD, name -> null);
+  private long origin;
+
+  @Test
+  void repeatedWaitsFollowAbsoluteDeadlines() {
+    boolean completed =
+        run(
+            clock,
+            """
+            repeat 3
+              tap A 20
+              wait 80
+            end
+            """);
+
+    assertTrue(completed);
+    assertEquals(
+        List.of(
+            "KEY_PRESS 65 @0",
+            "KEY_RELEASE 65 @20",
+            "KEY_PRESS 65 @100",
+            "KEY_RELEASE 65 @120",
+            "KEY_PRESS 65 @200",
+            "KEY_RELEASE 65 @220"),
+        timeline());
+    // 結尾的等待也會完成
+    assertEquals(START + 300 * MS, clock.nanoTime());
+  }
+
+  @Test
+  void variablesAndHeldKeysSelectBranches() {
+    desktop.setKeyDown(KeyTable.STANDARD.code("Shift"), true);
+    run(
+        clock,
+        """
+        set n 2
+        add n 1
+        repeat n
+          if held shift
+            tap A 10
+          else
+            tap B 10
+          end
+        end
+        if n == 0
+          press B
+        end
+        if not held ctrl
+          click left 5
+        end
+        """);
+
+    assertEquals(
+        List.of(
+            "KEY_PRESS 65 @0",
+            "KEY_RELEASE 65 @10",
+            "KEY_PRESS 65 @10",
+            "KEY_RELEASE 65 @20",
+            "KEY_PRESS 65 @20",
+            "KEY_RELEASE 65 @30",
+            "MOUSE_PRESS 1024 @30",
+            "MOUSE_RELEASE 1024 @35"),
+        timeline());
+  }
+
+  @Test
+  void waitTriggerContinuesOnSignalOrTimesOut() {
+    String source =
+        """
+        wait-trigger potion 500
+        if triggered
+          press A
+        else
+          press B
+        end
+        wait 10
+        """;
+    run(clock, source);
+    assertEquals(List.of("KEY_PRESS 66 @500", "KEY_RELEASE 66 @510"), timeline());
+
+    // 第一次等待觸發訊號時由另一端送出訊號
+    injector.clear();
+    long begin = clock.nanoTime();
+    PlaybackClock signalling =
+        new PlaybackClock() {
+          private boolean signalled;
+
+          @Override
+          public long nanoTime() {
+            return clock.nanoTime();
+          }
+
+          @Override
+          public void parkUntil(long deadlineNanos) {
+            clock.parkUntil(Math.min(deadlineNanos, clock.nanoTime() + 30 * MS));
+            if (!signalled && clock.nanoTime() - begin >= 30 * MS) {
+              signalled = true;
+              triggers.signal("potion");
+            }
+          }
+        };
+    run(signalling, source);
+    // 開始後 5 ms 開始等待，每 10 ms 檢查一次，訊號在 30 ms 後送出
+    assertEquals(List.of("KEY_PRESS 65 @30", "KEY_RELEASE 65 @40"), timeline());
+    assertEquals(Map.of("potion", 1L), triggers.snapshot());
+  }
+
+  @Test
+  void stopReleasesHeldInputs() {
+    Program program =
+        compiler.compile("hold", "press A\nmouse-down right\nforever\n  wait 10\nend\n");
+    StoppingClock stopping = new StoppingClock(START + 100 * MS);
+    ProgramRuntime runtime =
+        new ProgramRuntime(program, injector, new SimulatedInputProbe(desktop), stopping, triggers);
+    stopping.target = runtime;
+
+    boolean completed = new ProgramInterpreter(program).run(runtime, START);
+    origin = START;
+
+    assertFalse(completed);
+    assertEquals(
+        List.of(
+            "KEY_PRESS 65 @0",
+            "MOUSE_PRESS 4096 @0",
+            "KEY_RELEASE 65 @100",
+            "MOUSE_RELEASE 4096 @100"),
+        timeline());
+    assertTrue(desktop.pressedKeys().isEmpty());
+  }
+
+  @Test
+  void interpreterDoesNotAllocatePerInstruction() {
+    Program program =
+        compiler.compile(
+            "busy",
+            """
+            set n 0
+            repeat 200000
+              add n 1
+              if n > 5
+                tap A 1
+              else
+                tap B 1
+              end
+            end
+            """);
+    InputInjector noop = new NoopInjector();
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    long best = Long.MAX_VALUE;
+    for (int round = 0; round < 5; round++) {
+      VirtualPlaybackClock virtual = new VirtualPlaybackClock();
+      ProgramRuntime runtime =
+          new ProgramRuntime(program, noop, new SimulatedInputProbe(desktop), virtual, triggers);
+      ProgramInterpreter interpreter = new ProgramInterpreter(program);
+      long before = threads.getThreadAllocatedBytes(threadId);
+      interpreter.run(runtime, 0);
+      best = Math.min(best, threads.getThreadAllocatedBytes(threadId) - before);
+      assertEquals(400_000, runtime.injectedCount());
+    }
+    // 只有開始時配置的呼叫堆疊
+    assertTrue(best < 256, "配置了 " + best + " 位元組");
+  }
+
+  private boolean run(PlaybackClock runClock, String source) {
+    Program program = compiler.compile("test", source);
+    ProgramRuntime runtime =
+        new ProgramRuntime(program, injector, new SimulatedInputProbe(desktop), runClock, triggers);
+    origin = clock.nanoTime() + START;
+    return new ProgramInterpreter(program).run(runtime, origin);
+  }
+
+  /** 注入紀錄，時間為相對於開始時間的毫秒 */
+  private List<String> timeline() {
+    return injector.recent(1000).stream()
+        .map(input -> input.type() + " " + input.code() + " @" + (input.nanoTime() - origin) / MS)
+        .toList();
+  }
+
+  /** 時間到達 stopAt 時停止目標程式 */
+  private final class StoppingClock implements PlaybackClock {
+    private final long stopAt;
+    private ProgramRuntime target;
+
+    private StoppingClock(long stopAt) {
+      this.stopAt = stopAt;
+    }
+
+    @Override
+    public long nanoTime() {
+      return clock.nanoTime();
+    }
+
+    @Override
+    public void parkUntil(long deadlineNanos) {
+      clock.parkUntil(deadlineNanos);
+      if (clock.nanoTime() >= stopAt) {
+        target.stop();
+      }
+    }
+  }
+
+  private static final class NoopInjector implements InputInjector {
+    @Override
+    public boolean isAvailable() {
+      return true;
+    }
+
+    @Override
+    public void keyPress(int keyCode) {}
+
+    @Override
+    public void keyRelease(int keyCode) {}
+
+    @Override
+    public void mouseMove(int x, int y) {}
+
+    @Override
+    public void mousePress(int buttons) {}
+
+    @Override
+    public void mouseRelease(int buttons) {}
+  }
+}
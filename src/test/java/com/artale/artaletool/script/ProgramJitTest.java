@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.artale.artaletool.backend.KeyTable;
+import com.artale.artaletool.backend.simulated.RecordingInjector;
+import com.artale.artaletool.backend.simulated.RecordingInjector.InjectedInput;
+import com.artale.artaletool.backend.simulated.SimulatedInputProbe;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.playback.PlaybackClock;
+import com.artale.artaletool.playback.VirtualPlaybackClock;
+
+/** 編譯成類別的程式與直譯器在模擬後端上產生相同的注入時間軸 */
+class ProgramJitTest {
+  private static final long MS = 1_000_000L;
+  private static final long START = 5 * MS;
+  private static final String[] KEYS = {"A", "B", "Shift", "Ctrl", "F1"};
+
+  private final ScriptCompiler compiler = new ScriptCompiler(KeyTable.STANDARD, name -> null);
+  private final ProgramJit jit = new ProgramJit(8);
+
+  @Test
+  void matchesInterpreterOnHandWrittenPrograms() {
+    List<String> sources =
+        List.of(
+            """
+            set n 2
+            add n 1
+            repeat n
+              if held shift
+                tap A 10
+              else
+                tap B 10
+              end
+              press shift
+            end
+            if n <= 0
+              press B
+            end
+            call combo
+            sub combo
+              repeat 3
+                click left 5
+                move 100 -20
+              end
+              wait n
+            end
+            """,
+            """
+            wait-trigger potion 40
+            if not triggered
+              tap F1
+            end
+            set d 30
+            repeat 0
+              tap A
+            end
+            repeat d
+              add d -1
+              if d == 20
+                wait d
+              end
+            end
+            """);
+    for (String source : sources) {
+      assertSameTimeline(compiler.compile("hand", source));
+    }
+  }
+
+  @Test
+  void matchesInterpreterOnRandomPrograms() {
+    Random random = new Random(48);
+    for (int i = 0; i < 200; i++) {
+      String source = randomSource(random);
+      assertSameTimeline(compiler.compile("random" + i, source));
+    }
+  }
+
+  @Test
+  void splitsLongRecordingsIntoSeveralMethods() {
+    List<KeyEvent> recording = new ArrayList<>();
+    for (int i = 0; i < 20_000; i++) {
+      recording.add(keyEvent(i * 3L, KEYS[i % KEYS.length], i % 2 == 0 ? "PRESS" : "RELEASE"));
+    }
+    Program program = Recordings.keyProgram("long", recording, KeyTable.STANDARD);
+
+    ProgramJit.CompiledProgram compiled = (ProgramJit.CompiledProgram) jit.compile(program);
+
+    // 主程式約 40000 個指令，每個片段方法不超過 6000 位元組
+    assertTrue(compiled.methodCount() > 40, "方法數 " + compiled.methodCount());
+    assertSameTimeline(program);
+  }
+
+  @Test
+  void cachesCompiledClassesByContent() {
+    Program first = compiler.compile("first", "repeat 3\n  tap A 20\nend\n");
+    Program renamed = compiler.compile("renamed", "repeat 3\n  tap A 20\nend\n");
+    Program other = compiler.compile("other", "repeat 4\n  tap A 20\nend\n");
+
+    ProgramExecutor executor = jit.compile(first);
+
+    assertEquals("jit", executor.backend());
+    assertEquals(first.contentHash(), renamed.contentHash());
+    assertSame(executor, jit.compile(renamed));
+    assertNotSame(executor, jit.compile(other));
+    assertEquals(1, jit.cacheHits());
+    assertEquals(2, jit.compiledCount());
+  }
+
+  @Test
+  void stopReleasesHeldInputs() {
+    Program program =
+        compiler.compile("hold", "press A\nmouse-down right\nforever\n  wait 10\nend\n");
+    VirtualDesktop desktop = new VirtualDesktop();
+    VirtualPlaybackClock clock = new VirtualPlaybackClock();
+    RecordingInjector injector = new RecordingInjector(desktop, clock, 100);
+    ProgramRuntime[] runtime = new ProgramRuntime[1];
+    PlaybackClock stopping =
+        new PlaybackClock() {
+          @Override
+          public long nanoTime() {
+            return clock.nanoTime();
+          }
+
+          @Override
+          public void parkUntil(long deadlineNanos) {
+            clock.parkUntil(deadlineNanos);
+            if (clock.nanoTime() >= START + 100 * MS) {
+              runtime[0].stop();
+            }
+          }
+        };
+    runtime[0] =
+        new ProgramRuntime(
+            program, injector, new SimulatedInputProbe(desktop), stopping, new TriggerBoard());
+
+    assertFalse(jit.compile(program).run(runtime[0], START));
+    assertEquals(4, injector.recent(100).size());
+    assertEquals(START + 100 * MS, injector.recent(100).get(3).nanoTime());
+    assertTrue(desktop.pressedKeys().isEmpty());
+  }
+
+  @Test
+  void rejectsMalformedCode() {
+    assertRejected("跳躍目標超出範圍", new int[] {Op.JUMP, 7, Op.HALT}, 0);
+    assertRejected("跳躍目標 1 不是指令開頭", new int[] {Op.JUMP, 1, Op.HALT}, 0);
+    assertRejected("暫存器超出範圍", new int[] {Op.SET, 1, 5, Op.HALT}, 1);
+    assertRejected("按鍵代碼超出範圍", new int[] {Op.KEY_DOWN, 300, Op.HALT}, 0);
+    assertRejected("主程式必須以 HALT 結束", new int[] {Op.KEY_DOWN, 65}, 0);
+    assertRejected("RET 只能是程序的最後一個指令", new int[] {Op.RET, Op.HALT}, 0);
+    assertRejected("子腳本不可遞迴呼叫", new int[] {Op.CALL, 3, Op.HALT, Op.CALL, 3, Op.RET}, 0);
+  }
+
+  private void assertRejected(String message, int[] code, int registers) {
+    Program program = new Program("bad", code, registers, 4, new String[0], Map.of());
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> jit.compile(program));
+    assertTrue(e.getMessage().contains(message), e.getMessage());
+  }
+
+  /** 分別以直譯器與編譯結果執行，比較注入紀錄、結束時間與暫存器 */
+  private void assertSameTimeline(Program program) {
+    Run expected = run(program, new ProgramInterpreter(program));
+    Run actual = run(program, jit.compile(program));
+    assertEquals(expected.inputs(), actual.inputs(), program.getName());
+    assertEquals(expected.endNanos(), actual.endNanos(), program.getName());
+    assertArrayEquals(expected.registers(), actual.registers(), program.getName());
+    assertEquals(expected.completed(), actual.completed(), program.getName());
+  }
+
+  private static Run run(Program program, ProgramExecutor executor) {
+    VirtualDesktop desktop = new VirtualDesktop();
+    VirtualPlaybackClock clock = new VirtualPlaybackClock();
+    RecordingInjector injector = new RecordingInjector(desktop, clock, 100_000);
+    ProgramRuntime runtime =
+        new ProgramRuntime(
+            program, injector, new SimulatedInputProbe(desktop), clock, new TriggerBoard());
+    boolean completed = executor.run(runtime, START);
+    return new Run(injector.recent(100_000), clock.nanoTime(), runtime.registers, completed);
+  }
+
+  /** 隨機產生的巢狀程式：迴圈、條件、變數、等待、觸發訊號逾時與子腳本 */
+  private static String randomSource(Random random) {
+    StringBuilder source = new StringBuilder("set a ").append(random.nextInt(4)).append('\n');
+    source.append("set b ").append(random.nextInt(7) - 2).append('\n');
+    block(random, source, 0, true);
+    source.append("sub one\n");
+    block(random, source, 2, false);
+    source.append("end\nsub two\n  call one\n");
+    block(random, source, 2, false);
+    return source.append("end\n").toString();
+  }
+
+  private static void block(Random random, StringBuilder source, int depth, boolean main) {
+    int statements = 1 + random.nextInt(5);
+    for (int i = 0; i < statements; i++) {
+      String key = KEYS[random.nextInt(KEYS.length)];
+      String variable = random.nextBoolean() ? "a" : "b";
+      switch (random.nextInt(depth < 3 ? 14 : 10)) {
+        case 0 -> source.append("tap ").append(key).append(' ').append(random.nextInt(30));
+        case 1 -> source.append("press ").append(key);
+        case 2 -> source.append("release ").append(key);
+        case 3 ->
+            source.append("wait ").append(random.nextBoolean() ? variable : random.nextInt(50));
+        case 4 -> source.append("add ").append(variable).append(' ').append(random.nextInt(5) - 2);
+        case 5 -> source.append("set ").append(variable).append(' ').append(random.nextInt(6) - 1);
+        case 6 ->
+            source
+                .append("move ")
+                .append(random.nextInt(800))
+                .append(' ')
+                .append(random.nextInt(600));
+        case 7 -> source.append("click ").append(random.nextBoolean() ? "left" : "right");
+        case 8 -> source.append("wait-trigger buff ").append(random.nextInt(40));
+        case 9 -> source.append(main ? "call two" : "tap Z");
+        case 10, 11 -> {
+          source
+              .append("repeat ")
+              .append(random.nextBoolean() ? variable : random.nextInt(4))
+              .append('\n');
+          block(random, source, depth + 1, main);
+          source.append("end");
+        }
+        default -> {
+          source.append("if ").append(condition(random, key, variable)).append('\n');
+          block(random, source, depth + 1, main);
+          if (random.nextBoolean()) {
+            source.append("else\n");
+            block(random, source, depth + 1, main);
+          }
+          source.append("end");
+        }
+      }
+      source.append('\n');
+    }
+  }
+
+  private static String condition(Random random, String key, String variable) {
+    String[] operators = {"==", "!=", "<", ">=", ">", "<="};
+    return switch (random.nextInt(3)) {
+      case 0 -> (random.nextBoolean() ? "held " : "not held ") + key;
+      case 1 -> random.nextBoolean() ? "triggered" : "not triggered";
+      default ->
+          variable
+              + " "
+              + operators[random.nextInt(operators.length)]
+              + " "
+              + (random.nextInt(5) - 1);
+    };
+  }
+
+  private static KeyEvent keyEvent(long timestamp, String key, String action) {
+    KeyEvent event = new KeyEvent();
+    event.setTimestamp(timestamp);
+    event.setKey(key);
+    event.setAction(action);
+    return event;
+  }
+
+  private record Run(
+      List<InjectedInput> inputs, long endNanos, int[] registers, boolean completed) {}
+}
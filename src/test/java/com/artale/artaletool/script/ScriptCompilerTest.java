@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.script;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.artale.artaletool.backend.KeyTable;
+import com.artale.artaletool.model.KeyEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** 編譯結果的大小、錄製腳本的轉換、子腳本解析與錯誤訊息 */
+class ScriptCompilerTest {
+  private static final KeyTable KEYS = KeyTable.STANDARD;
+
+  private final Map<String, String> files = new HashMap<>();
+  private final ScriptCompiler compiler = new ScriptCompiler(KEYS, files::get);
+
+  @Test
+  void loopsShrinkRepeatedRecordingsByOrdersOfMagnitude() throws Exception {
+    String source =
+        """
+        # 連續攻擊 1000 次
+        repeat 1000
+          tap ctrl 40
+          wait 160
+        end
+        """;
+    Program program = compiler.compile("attack", source);
+
+    List<KeyEvent> recording = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      recording.add(keyEvent(i * 200L, "Ctrl", "PRESS"));
+      recording.add(keyEvent(i * 200L + 40, "Ctrl", "RELEASE"));
+    }
+    Program expanded = Recordings.keyProgram("attack", recording, KEYS);
+    int jsonBytes = new ObjectMapper().writeValueAsBytes(recording).length;
+
+    assertEquals(7, program.getInstructionCount());
+    assertTrue(expanded.getCodeBytes() > 100 * program.getCodeBytes());
+    assertTrue(jsonBytes > 100 * source.length());
+  }
+
+  @Test
+  void recordingSourceCompilesToTheSameStraightLineCode() {
+    List<KeyEvent> recording =
+        List.of(
+            keyEvent(1000, "Shift", "PRESS"),
+            keyEvent(1000, "A", "PRESS"),
+            keyEvent(1120, "A", "RELEASE"),
+            keyEvent(1300, "Shift", "RELEASE"),
+            keyEvent(1350, "NoSuchKey", "PRESS"));
+
+    Program direct = Recordings.keyProgram("rec", recording, KEYS);
+    Program compiled = compiler.compile("rec", Recordings.keySource(recording, KEYS));
+
+    assertArrayEquals(direct.code(), compiled.code());
+    int[] code = direct.code();
+    for (int pc = 0; pc < code.length; pc += Op.length(code[pc])) {
+      int op = code[pc];
+      assertTrue(op != Op.JUMP && op != Op.LOOP && op != Op.BRANCH_FALSE && op != Op.CALL);
+    }
+    assertEquals(
+        List.of(
+            "    0  KEY_DOWN 16",
+            "    2  KEY_DOWN 65",
+            "    4  WAIT 120",
+            "    6  KEY_UP 65",
+            "    8  WAIT 180",
+            "   10  KEY_UP 16",
+            "   12  WAIT 50",
+            "   14  HALT"),
+        direct.disassemble());
+  }
+
+  @Test
+  void resolvesLocalSubsBeforeOtherScripts() {
+    files.put("buff", "tap F1\ncall heal\nsub heal\n  tap F2\nend\n");
+    String source =
+        """
+        call buff
+        call heal
+        sub heal
+          tap Z
+        end
+        """;
+
+    Program program = compiler.compile("main", source);
+
+    // main -> buff -> buff/heal
+    assertEquals(2, program.getCallDepth());
+    String listing = String.join("\n", program.disassemble());
+    assertTrue(listing.contains("KEY_DOWN " + KEYS.code("F2")));
+    assertTrue(listing.contains("KEY_DOWN " + KEYS.code("Z")));
+  }
+
+  @Test
+  void rejectsRecursiveCalls() {
+    files.put("a", "call b\n");
+    files.put("b", "call a\n");
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile("a", files.get("a")));
+    assertTrue(e.getMessage().contains("a -> b -> a"), e.getMessage());
+  }
+
+  @Test
+  void reportsErrorsWithLineNumbers() {
+    assertError("main 第 2 行: 未知的按鍵: NoSuchKey", "wait 10\npress NoSuchKey\n");
+    assertError("main 第 1 行: repeat 區塊缺少 end", "repeat 3\n  tap A\n");
+    assertError("main 第 2 行: 變數 n 沒有以 set 設定過", "tap A\nrepeat n\nend\n");
+    assertError("main 第 3 行: else 只能用在 if 區塊", "repeat 2\ntap A\nelse\nend\n");
+    assertError("main 第 1 行: 找不到子腳本: missing", "call missing\n");
+    assertError("main 第 1 行: 不可為負數: -5", "wait -5\n");
+  }
+
+  private void assertError(String message, String source) {
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile("main", source));
+    assertEquals(message, e.getMessage());
+  }
+
+  private static KeyEvent keyEvent(long timestamp, String key, String action) {
+    KeyEvent event = new KeyEvent();
+    event.setTimestamp(timestamp);
+    event.setKey(key);
+    event.setAction(action);
+    return event;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.artale.artaletool.backend.simulated.SimulatedInputProbe;
+import com.artale.artaletool.backend.simulated.SimulatedScreen;
+import com.artale.artaletool.backend.simulated.SimulatedWindowManager;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.capture.Frame;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.CaptureRegion;
+import com.artale.artaletool.model.CaptureStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** 以虛擬螢幕驅動擷取服務，確認分塊雜湊、視窗相對座標與畫面池重複使用 */
+class CaptureServiceTest {
+  private static final int RED = 0xFFFF0000;
+
+  private final VirtualDesktop desktop = new VirtualDesktop();
+  private final SimulatedScreen screen = new SimulatedScreen(640, 480);
+  private WindowService windowService;
+  private CaptureService service;
+
+  @BeforeEach
+  void setUp() {
+    ToolMetrics metrics = new ToolMetrics(new SimpleMeterRegistry());
+    windowService =
+        new WindowService(
+            metrics, new SimulatedInputProbe(desktop), new SimulatedWindowManager(desktop));
+    ReflectionTestUtils.setField(
+        windowService, "statusPublisher", new StatusPublisher(null, null, null));
+    service = new CaptureService(metrics, windowService, screen, 10, 4);
+  }
+
+  @Test
+  void firstFrameMarksEveryTileDirtyAndUnchangedFrameNone() {
+    service.setRegions(List.of(region("hp", 0, 0, 100, 64)));
+
+    service.captureOnce();
+    Frame first = service.acquireLatest("hp");
+    assertEquals(8, first.getDirtyTileCount());
+    assertTrue(first.isChanged());
+    long hash = first.getContentHash();
+    first.release();
+
+    service.captureOnce();
+    Frame second = service.acquireLatest("hp");
+    assertFalse(second.isChanged());
+    assertEquals(2, second.getSequence());
+    assertEquals(hash, second.getContentHash());
+    second.release();
+
+    CaptureStatus status = service.getStatus();
+    assertEquals(1, status.framesChanged());
+    assertEquals(1, status.framesUnchanged());
+  }
+
+  @Test
+  void singlePixelChangeMarksOnlyItsTile() {
+    service.setRegions(List.of(region("hp", 0, 0, 100, 64)));
+    service.captureOnce();
+
+    screen.setPixel(40, 33, RED);
+    service.captureOnce();
+
+    Frame frame = service.acquireLatest("hp");
+    try {
+      assertEquals(1, frame.getDirtyTileCount());
+      assertTrue(frame.isTileDirty(1, 1));
+      assertFalse(frame.isTileDirty(0, 0));
+      assertTrue(frame.isAreaDirty(35, 30, 10, 10));
+      assertFalse(frame.isAreaDirty(70, 0, 30, 30));
+      assertEquals(RED, frame.pixel(40, 33));
+    } finally {
+      frame.release();
+    }
+  }
+
+  @Test
+  void regionIsRelativeToLockedWindow() {
+    long handle = desktop.openWindow("Artale", "UnityWndClass", 100, 50, 400, 300);
+    assertTrue(windowService.lockWindow(handle));
+    screen.fill(110, 70, 1, 1, RED);
+    service.setRegions(List.of(region("mp", 10, 20, 8, 8)));
+
+    service.captureOnce();
+
+    Frame frame = service.acquireLatest("mp");
+    try {
+      assertEquals(110, frame.getScreenX());
+      assertEquals(70, frame.getScreenY());
+      assertEquals(RED, frame.pixel(0, 0));
+      assertEquals(0xFF000000, frame.pixel(1, 0));
+    } finally {
+      frame.release();
+    }
+  }
+
+  @Test
+  void closedWindowCountsAsFailedCapture() {
+    long handle = desktop.openWindow("Artale", "UnityWndClass", 100, 50, 400, 300);
+    CaptureRegion region = region("mp", 0, 0, 8, 8);
+    region.setWindowHandle(handle);
+    service.setRegions(List.of(region));
+    desktop.closeWindow(handle);
+
+    service.captureOnce();
+
+    assertNull(service.acquireLatest("mp"));
+    assertEquals(1, service.getStatus().framesFailed());
+  }
+
+  @Test
+  void framesAreRecycledThroughThePool() {
+    service.setRegions(List.of(region("hp", 0, 0, 64, 64)));
+    List<int[]> buffers = new ArrayList<>();
+    service.addListener(frame -> buffers.add(frame.pixels()));
+
+    for (int i = 0; i < 20; i++) {
+      screen.setPixel(0, 0, i);
+      service.captureOnce();
+    }
+
+    // 最新畫面與正在擷取的畫面交替使用，不會建立新的緩衝區
+    assertSame(buffers.get(0), buffers.get(2));
+    assertSame(buffers.get(1), buffers.get(19));
+    assertEquals(20, service.getStatus().framesChanged());
+  }
+
+  @Test
+  void exhaustedPoolSkipsCapture() {
+    service.setRegions(List.of(region("hp", 0, 0, 16, 16)));
+    List<Frame> held = new ArrayList<>();
+    service.addListener(frame -> held.add(frame.retain()));
+
+    for (int i = 0; i < 6; i++) {
+      service.captureOnce();
+    }
+
+    assertEquals(4, held.size());
+    assertEquals(2, service.getStatus().framesSkipped());
+    held.forEach(Frame::release);
+    service.captureOnce();
+    assertEquals(5, held.size());
+  }
+
+  @Test
+  void keptRegionReusesTileHashes() {
+    service.setRegions(List.of(region("hp", 0, 0, 64, 64)));
+    service.captureOnce();
+
+    service.setRegions(List.of(region("hp", 0, 0, 64, 64), region("exp", 0, 0, 32, 32)));
+    service.captureOnce();
+
+    Frame hp = service.acquireLatest("hp");
+    Frame exp = service.acquireLatest("exp");
+    assertNotNull(hp);
+    assertFalse(hp.isChanged());
+    assertTrue(exp.isChanged());
+    hp.release();
+    exp.release();
+  }
+
+  @Test
+  void rejectsInvalidRegionsAndFps() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> service.setRegions(List.of(region("a", 0, 0, 8, 8), region("a", 8, 8, 8, 8))));
+    assertThrows(
+        IllegalArgumentException.class, () -> service.setRegions(List.of(region("a", 0, 0, 0, 8))));
+    assertThrows(IllegalArgumentException.class, () -> service.setFps(0));
+    assertThrows(IllegalArgumentException.class, () -> service.setFps(1000));
+  }
+
+  private static CaptureRegion region(String name, int x, int y, int width, int height) {
+    CaptureRegion region = new CaptureRegion();
+    region.setName(name);
+    region.setX(x);
+    region.setY(y);
+    region.setWidth(width);
+    region.setHeight(height);
+    return region;
+  }
+}
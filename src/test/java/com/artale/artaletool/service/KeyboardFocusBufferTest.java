@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.backend.simulated.RecordingInjector;
+import com.artale.artaletool.backend.simulated.SimulatedInputProbe;
+import com.artale.artaletool.backend.simulated.SimulatedWindowManager;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.KeyEvent;
+import com.artale.artaletool.playback.SystemPlaybackClock;
+import com.artale.artaletool.trace.TraceSink;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** 焦點遺失期間暫存的按鍵被丟棄時，焦點遺失前按下的按鍵仍要錄製放開 */
+class KeyboardFocusBufferTest {
+  private static final int VK_A = 0x41;
+  private static final int VK_B = 0x42;
+
+  private final VirtualDesktop desktop = new VirtualDesktop();
+  private final SimulatedInputProbe probe = new SimulatedInputProbe(desktop);
+  private ToolMetrics metrics;
+  private WindowService windowService;
+
+  @TempDir Path scriptsDir;
+
+  @BeforeEach
+  void setUp() {
+    metrics = new ToolMetrics(new SimpleMeterRegistry());
+    windowService = new WindowService(metrics, probe, new SimulatedWindowManager(desktop));
+  }
+
+  @Test
+  void dropPolicyKeepsReleaseOfKeyPressedBeforeFocusLoss() {
+    SwitchableFocus focus = new SwitchableFocus("drop", 2000);
+    KeyboardService service = newKeyboardService(focus);
+
+    desktop.setKeyDown(VK_A, true);
+    service.pollKeyTick();
+
+    // 焦點遺失期間按下 B，放開 A，再放開 B
+    focus.lost = true;
+    desktop.setKeyDown(VK_B, true);
+    service.pollKeyTick();
+    desktop.setKeyDown(VK_A, false);
+    service.pollKeyTick();
+    desktop.setKeyDown(VK_B, false);
+    service.pollKeyTick();
+
+    focus.lost = false;
+    service.pollKeyTick();
+
+    assertEquals(List.of("PRESS A", "RELEASE A"), describe(service.stopRecording()));
+    assertTrue(service.getCurrentPressedKeys().isEmpty());
+  }
+
+  @Test
+  void timeoutKeepsReleaseOfKeyPressedBeforeFocusLoss() throws InterruptedException {
+    SwitchableFocus focus = new SwitchableFocus("replay", 0);
+    KeyboardService service = newKeyboardService(focus);
+
+    desktop.setKeyDown(VK_A, true);
+    service.pollKeyTick();
+
+    // B 在焦點遺失期間按下後放開，A 的放開排在 B 的按下之後
+    focus.lost = true;
+    desktop.setKeyDown(VK_B, true);
+    service.pollKeyTick();
+    desktop.setKeyDown(VK_B, false);
+    desktop.setKeyDown(VK_A, false);
+    service.pollKeyTick();
+
+    // 焦點一直沒有恢復，暫存逾時後丟棄
+    Thread.sleep(1);
+    service.pollKeyTick();
+
+    assertEquals(List.of("PRESS A", "RELEASE A"), describe(service.stopRecording()));
+    assertTrue(service.getCurrentPressedKeys().isEmpty());
+  }
+
+  private KeyboardService newKeyboardService(FocusRestorer focus) {
+    InputInjector injector = new RecordingInjector(desktop, SystemPlaybackClock.INSTANCE, 10);
+    KeyboardService service =
+        new KeyboardService(
+            metrics,
+            injector,
+            probe,
+            SystemPlaybackClock.INSTANCE,
+            TraceSink.disabled(),
+            focus,
+            true,
+            0,
+            scriptsDir.toString());
+    ReflectionTestUtils.setField(service, "statusPublisher", new StatusPublisher(null, null, null));
+    ReflectionTestUtils.setField(service, "isRecording", true);
+    return service;
+  }
+
+  private static List<String> describe(List<KeyEvent> events) {
+    List<String> lines = new ArrayList<>();
+    for (KeyEvent event : events) {
+      lines.add(event.getAction() + " " + event.getKey());
+    }
+    return lines;
+  }
+
+  /** 由測試切換焦點狀態，不實際把視窗帶到前台 */
+  private final class SwitchableFocus extends FocusRestorer {
+    private boolean lost;
+
+    SwitchableFocus(String bufferPolicy, long bufferTimeoutMs) {
+      super(metrics, windowService, 0, bufferPolicy, bufferTimeoutMs, 64);
+    }
+
+    @Override
+    public boolean isFocusLost() {
+      return lost;
+    }
+
+    @Override
+    public boolean request() {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.artale.artaletool.backend.InputInjector;
+import com.artale.artaletool.backend.InputProbe;
+import com.artale.artaletool.backend.simulated.SimulatedWindowManager;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.MouseEvent;
+import com.artale.artaletool.playback.SystemPlaybackClock;
+import com.artale.artaletool.trace.TraceSink;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** 以執行緒配置位元組計數確認滑鼠與視窗監控迴圈在狀態沒有變化時不配置物件 */
+class MonitorAllocationTest {
+  private static final int WARMUP_TICKS = 20_000;
+  private static final int MEASURED_TICKS = 10_000;
+  private static final int MEASURED_ROUNDS = 5;
+  private static final int VK_LBUTTON = 0x01;
+
+  private final FakeInputProbe probe = new FakeInputProbe();
+  private ToolMetrics metrics;
+
+  @BeforeEach
+  void setUp() {
+    metrics = new ToolMetrics(new SimpleMeterRegistry());
+  }
+
+  @Test
+  void idleMouseTickDoesNotAllocate() {
+    MouseService service = newMouseService();
+
+    assertEquals(0, allocatedBytes(service::pollMonitorTick));
+  }
+
+  @Test
+  void heldButtonRecordsOneEventAndThenDoesNotAllocate() {
+    MouseService service = newMouseService();
+    ReflectionTestUtils.setField(service, "isRecording", true);
+
+    probe.keyStates[VK_LBUTTON] = (short) 0x8000;
+    assertEquals(0, allocatedBytes(service::pollMonitorTick));
+    assertEquals(1, service.getRecordedEvents().size());
+
+    probe.keyStates[VK_LBUTTON] = 0;
+    service.pollMonitorTick();
+    assertEquals(2, service.getRecordedEvents().size());
+    MouseEvent press = service.getRecordedEvents().get(0);
+    MouseEvent release = service.getRecordedEvents().get(1);
+    assertEquals("PRESS", press.getAction());
+    assertEquals("RELEASE", release.getAction());
+    assertEquals(probe.cursor[0], press.getX());
+    assertEquals(probe.cursor[1], press.getY());
+  }
+
+  @Test
+  void unchangedLockedWindowTickDoesNotAllocate() {
+    WindowService service =
+        new WindowService(metrics, probe, new SimulatedWindowManager(new VirtualDesktop()));
+    int[] lockedRect = probe.rect.clone();
+    int[] currentRect = new int[4];
+
+    assertEquals(0, allocatedBytes(() -> service.enforceLockedRect(1L, lockedRect, currentRect)));
+    assertTrue(service.enforceLockedRect(1L, lockedRect, currentRect));
+
+    probe.windowAlive = false;
+    assertFalse(service.enforceLockedRect(1L, lockedRect, currentRect));
+  }
+
+  private MouseService newMouseService() {
+    MouseService service =
+        new MouseService(
+            metrics,
+            new NoopInjector(),
+            probe,
+            SystemPlaybackClock.INSTANCE,
+            TraceSink.disabled(),
+            true,
+            0,
+            "mouse_scripts");
+    ReflectionTestUtils.setField(service, "statusPublisher", new StatusPublisher(null, null, null));
+    return service;
+  }
+
+  /**
+   * 暖機後量測目前執行緒在輪詢中配置的位元組數。
+   *
+   * <p>JIT 編譯期間偶爾會有一次性的配置，因此量測多輪取最小值作為穩定狀態的結果。
+   */
+  private static long allocatedBytes(Runnable tick) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    for (int i = 0; i < WARMUP_TICKS; i++) {
+      tick.run();
+    }
+    long best = Long.MAX_VALUE;
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      long before = threads.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < MEASURED_TICKS; i++) {
+        tick.run();
+      }
+      best = Math.min(best, threads.getThreadAllocatedBytes(threadId) - before);
+    }
+    return best;
+  }
+
+  private static final class FakeInputProbe implements InputProbe {
+    private final short[] keyStates = new short[256];
+    private final int[] cursor = {320, 240};
+    private final int[] rect = {10, 20, 810, 620};
+    private boolean windowAlive = true;
+
+    @Override
+    public short getAsyncKeyState(int vKey) {
+      return keyStates[vKey];
+    }
+
+    @Override
+    public boolean getCursorPos(int[] out) {
+      out[0] = cursor[0];
+      out[1] = cursor[1];
+      return true;
+    }
+
+    @Override
+    public long getForegroundWindow() {
+      return 1L;
+    }
+
+    @Override
+    public boolean isWindow(long hWnd) {
+      return windowAlive;
+    }
+
+    @Override
+    public boolean getWindowRect(long hWnd, int[] out) {
+      System.arraycopy(rect, 0, out, 0, 4);
+      return true;
+    }
+  }
+
+  private static final class NoopInjector implements InputInjector {
+    @Override
+    public boolean isAvailable() {
+      return false;
+    }
+
+    @Override
+    public void keyPress(int keyCode) {}
+
+    @Override
+    public void keyRelease(int keyCode) {}
+
+    @Override
+    public void mouseMove(int x, int y) {}
+
+    @Override
+    public void mousePress(int buttons) {}
+
+    @Override
+    public void mouseRelease(int buttons) {}
+  }
+}
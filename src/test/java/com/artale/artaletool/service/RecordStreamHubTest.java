@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** 閒置的串流在客戶端離線後必須結束，否則每個離開的訂閱者都會佔住一個回應執行緒 */
+class RecordStreamHubTest {
+
+  @Test
+  void idleStreamEndsAfterClientDisconnects() throws Exception {
+    RecordStreamHub<String> hub = new RecordStreamHub<>("測試", new ObjectMapper());
+    ClientOutput client = new ClientOutput();
+    StreamingResponseBody body = hub.openStream();
+    Thread writer =
+        new Thread(
+            () -> {
+              try {
+                body.writeTo(client);
+              } catch (IOException e) {
+                // 客戶端離線
+              }
+            });
+    writer.start();
+
+    hub.publish("PRESS");
+    waitFor(() -> client.text().startsWith("\"PRESS\"\n"));
+    assertTrue(hub.hasSubscribers());
+
+    // 之後不再有事件，只能靠保持連線的空行發現客戶端已離開
+    client.disconnect();
+    writer.join(TimeUnit.SECONDS.toMillis(5));
+    assertFalse(writer.isAlive());
+    assertFalse(hub.hasSubscribers());
+    assertEquals("\"PRESS\"\n", client.text().replaceAll("\n+$", "\n"));
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  /** 斷線後寫出會失敗的回應串流 */
+  private static final class ClientOutput extends OutputStream {
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private volatile boolean disconnected;
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+      check();
+      received.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+      check();
+      received.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      check();
+    }
+
+    private void check() throws IOException {
+      if (disconnected) {
+        throw new IOException("Broken pipe");
+      }
+    }
+
+    private void disconnect() {
+      disconnected = true;
+    }
+
+    private synchronized String text() {
+      return received.toString(StandardCharsets.UTF_8);
+    }
+  }
+}
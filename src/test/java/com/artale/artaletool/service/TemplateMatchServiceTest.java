@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.artale.artaletool.backend.simulated.SimulatedInputProbe;
+import com.artale.artaletool.backend.simulated.SimulatedScreen;
+import com.artale.artaletool.backend.simulated.SimulatedWindowManager;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.CaptureRegion;
+import com.artale.artaletool.model.TemplateMatch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** 以虛擬螢幕確認樣板比對回傳螢幕座標，並在區域內容沒有變化時沿用快取 */
+class TemplateMatchServiceTest {
+  @TempDir Path templateDir;
+
+  private final VirtualDesktop desktop = new VirtualDesktop();
+  private final SimulatedScreen screen = new SimulatedScreen(640, 480);
+  private CaptureService captureService;
+  private TemplateMatchService service;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ToolMetrics metrics = new ToolMetrics(new SimpleMeterRegistry());
+    WindowService windowService =
+        new WindowService(
+            metrics, new SimulatedInputProbe(desktop), new SimulatedWindowManager(desktop));
+    captureService = new CaptureService(metrics, windowService, screen, 10, 4);
+    service =
+        new TemplateMatchService(
+            metrics, captureService, templateDir.toString(), 0.9, 3, true, Long.MAX_VALUE);
+
+    BufferedImage icon = icon();
+    screen.fill(0, 0, 640, 480, 0xFF303030);
+    screen.draw(icon, 250, 140);
+    service.saveTemplate("icon", icon);
+
+    CaptureRegion region = new CaptureRegion();
+    region.setName("minimap");
+    region.setX(200);
+    region.setY(100);
+    region.setWidth(200);
+    region.setHeight(150);
+    captureService.setRegions(List.of(region));
+    captureService.captureOnce();
+  }
+
+  @Test
+  void returnsScreenCenterAndCachesUntilContentChanges() {
+    TemplateMatch first = service.find("icon", "minimap", null);
+    assertTrue(first.found());
+    assertFalse(first.cached());
+    assertEquals(50, first.x());
+    assertEquals(40, first.y());
+    assertEquals(250 + 16, first.screenX());
+    assertEquals(140 + 12, first.screenY());
+
+    captureService.captureOnce();
+    TemplateMatch second = service.find("icon", "minimap", null);
+    assertTrue(second.cached());
+    assertEquals(first.screenX(), second.screenX());
+
+    screen.fill(250, 140, 32, 24, 0xFF303030);
+    screen.draw(icon(), 300, 180);
+    captureService.captureOnce();
+    TemplateMatch moved = service.find("icon", "minimap", null);
+    assertFalse(moved.cached());
+    assertEquals(300 + 16, moved.screenX());
+    assertEquals(180 + 12, moved.screenY());
+  }
+
+  @Test
+  void cachedResultFollowsMovedWindow() {
+    long handle = desktop.openWindow("Artale", "UnityWndClass", 100, 50, 400, 300);
+    CaptureRegion region = new CaptureRegion();
+    region.setName("window");
+    region.setWindowHandle(handle);
+    region.setX(100);
+    region.setY(50);
+    region.setWidth(200);
+    region.setHeight(150);
+    captureService.setRegions(List.of(region));
+    captureService.captureOnce();
+
+    TemplateMatch first = service.find("icon", "window", null);
+    assertFalse(first.cached());
+    assertEquals(250 + 16, first.screenX());
+    assertEquals(140 + 12, first.screenY());
+
+    // 視窗連同圖示一起移動，區域內容不變
+    desktop.moveWindow(handle, 180, 130, 400, 300);
+    screen.fill(250, 140, 32, 24, 0xFF303030);
+    screen.draw(icon(), 330, 220);
+    captureService.captureOnce();
+    TemplateMatch moved = service.find("icon", "window", null);
+    assertTrue(moved.cached());
+    assertEquals(first.x(), moved.x());
+    assertEquals(330 + 16, moved.screenX());
+    assertEquals(220 + 12, moved.screenY());
+    assertEquals(first.frameSequence() + 1, moved.frameSequence());
+  }
+
+  @Test
+  void templatesAreReloadedFromDirectory() {
+    TemplateMatchService reloaded =
+        new TemplateMatchService(
+            new ToolMetrics(new SimpleMeterRegistry()),
+            captureService,
+            templateDir.toString(),
+            0.9,
+            3,
+            false,
+            Long.MAX_VALUE);
+
+    assertEquals(List.of("icon"), reloaded.listTemplates());
+    assertTrue(reloaded.find("icon", "minimap", null).found());
+    assertThrows(IllegalArgumentException.class, () -> reloaded.find("missing", "minimap", null));
+  }
+
+  /** 32×24 的圖示：外框、對角線與中心點 */
+  private static BufferedImage icon() {
+    BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < 24; y++) {
+      for (int x = 0; x < 32; x++) {
+        boolean border = x < 2 || y < 2 || x >= 30 || y >= 22;
+        boolean diagonal = Math.abs(x * 24 / 32 - y) < 2;
+        int color = border ? 0xFFE0E040 : diagonal ? 0xFF2060F0 : 0xFF101010;
+        image.setRGB(x, y, color);
+      }
+    }
+    image.setRGB(16, 12, 0xFFFFFFFF);
+    return image;
+  }
+}
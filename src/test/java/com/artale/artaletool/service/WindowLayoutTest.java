@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.artale.artaletool.backend.simulated.SimulatedInputProbe;
+import com.artale.artaletool.backend.simulated.SimulatedWindowManager;
+import com.artale.artaletool.backend.simulated.VirtualDesktop;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.WindowInfo;
+import com.artale.artaletool.model.WindowLayoutEntry;
+import com.artale.artaletool.model.WindowLayoutResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** 以虛擬桌面套用版面配置，確認快取跳過未變更的視窗，且不修改已回傳給呼叫端的視窗資訊 */
+class WindowLayoutTest {
+  private final VirtualDesktop desktop = new VirtualDesktop();
+  private final WindowService service =
+      new WindowService(
+          new ToolMetrics(new SimpleMeterRegistry()),
+          new SimulatedInputProbe(desktop),
+          new SimulatedWindowManager(desktop));
+
+  @Test
+  void applyUpdatesCacheWithoutTouchingReturnedWindows() {
+    long handle = desktop.openWindow("Artale", "UnityWndClass", 100, 50, 400, 300);
+    List<WindowInfo> listed = service.enumerateWindows();
+    WindowInfo returned = listed.get(0);
+
+    WindowLayoutResult first = service.applyWindowLayout("grid", List.of(entry(handle)));
+    assertTrue(first.isSuccess());
+    assertEquals(1, first.getApplied());
+    assertEquals(100, returned.getX());
+    assertEquals(400, returned.getWidth());
+
+    // 快取已是套用後的位置，同一個版面配置不再移動視窗
+    WindowLayoutResult second = service.applyWindowLayout("grid", List.of(entry(handle)));
+    assertEquals(0, second.getApplied());
+    assertEquals(1, second.getSkipped());
+  }
+
+  private static WindowLayoutEntry entry(long handle) {
+    WindowLayoutEntry entry = new WindowLayoutEntry();
+    entry.setHandle(handle);
+    entry.setX(0);
+    entry.setY(0);
+    entry.setWidth(640);
+    entry.setHeight(480);
+    return entry;
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.artale.artaletool.metrics.ToolMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TraceSinkTest {
+  @TempDir Path dir;
+
+  @Test
+  void ringKeepsOrderAndRejectsWhenFull() {
+    TraceRing ring = new TraceRing(4);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer(i, TraceType.KEY_PRESS, i, 0, 0, 0));
+    }
+    assertFalse(ring.offer(4, TraceType.KEY_PRESS, 4, 0, 0, 0));
+
+    TraceRing.Entry entry = new TraceRing.Entry();
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.poll(entry));
+      assertEquals(i, entry.code);
+    }
+    assertFalse(ring.poll(entry));
+    assertTrue(ring.offer(5, TraceType.KEY_RELEASE, 5, 0, 0, 0));
+  }
+
+  @Test
+  void concurrentProducersLoseNothingButCountedDrops() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    TraceSink sink =
+        new TraceSink(new ToolMetrics(registry), true, dir.toString(), 1024, 1 << 30, 2);
+    int producers = 4;
+    int perProducer = 50_000;
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                  sink.trace(TraceType.PLAY_KEY_PRESS, producer, i, 0, 1);
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(sink.flush(10_000));
+    sink.close();
+
+    List<String> lines = Files.readAllLines(dir.resolve("trace.ndjson"));
+    long events = lines.stream().filter(line -> line.contains("\"e\":\"pkp\"")).count();
+    long dropMarkers =
+        lines.stream()
+            .filter(line -> line.contains("\"e\":\"drop\""))
+            .mapToLong(line -> Long.parseLong(line.replaceAll(".*\"n\":(\\d+).*", "$1")))
+            .sum();
+    assertEquals((long) producers * perProducer, events + sink.droppedEvents());
+    assertEquals(sink.droppedEvents(), dropMarkers);
+    assertEquals(
+        events, (long) registry.counter("artaletool.trace.events", "result", "written").count());
+  }
+
+  @Test
+  void rotatesAndKeepsNewestFiles() throws IOException {
+    TraceSink sink =
+        new TraceSink(
+            new ToolMetrics(new SimpleMeterRegistry()), true, dir.toString(), 1 << 16, 4096, 3);
+    for (int i = 0; i < 2000; i++) {
+      sink.trace(TraceType.MOUSE_PRESS, 1, i, i, 0);
+      if (i % 500 == 0) {
+        assertTrue(sink.flush(10_000));
+      }
+    }
+    assertTrue(sink.flush(10_000));
+    sink.close();
+
+    try (Stream<Path> files = Files.list(dir)) {
+      List<String> names = files.map(path -> path.getFileName().toString()).sorted().toList();
+      assertEquals(List.of("trace.1.ndjson", "trace.2.ndjson", "trace.ndjson"), names);
+    }
+    assertTrue(Files.size(dir.resolve("trace.1.ndjson")) <= 4096);
+    assertTrue(Files.readAllLines(dir.resolve("trace.ndjson")).get(0).contains("\"e\":\"open\""));
+  }
+
+  @Test
+  void disabledSinkIgnoresEvents() {
+    TraceSink sink = TraceSink.disabled();
+    sink.trace(TraceType.KEY_PRESS, 65);
+
+    assertFalse(sink.isEnabled());
+    assertEquals(0, sink.droppedEvents());
+    assertTrue(sink.flush(0));
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.artale.artaletool.watch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.artale.artaletool.capture.Frame;
+import com.artale.artaletool.capture.FramePool;
+import com.artale.artaletool.metrics.ToolMetrics;
+import com.artale.artaletool.model.WatchRule;
+import com.artale.artaletool.model.WatchRuleStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** 以合成畫面驅動監看規則，確認邊緣觸發、冷卻時間與未變化分塊的略過 */
+class WatchEngineTest {
+  private static final int SIZE = 64;
+  private static final int RED = 0xFFFF0000;
+  private static final int GRAY = 0xFF404040;
+
+  private final FramePool pool = new FramePool(SIZE, SIZE, 2);
+  private final long[] tileHashes = new long[4];
+  private final int[] screen = new int[SIZE * SIZE];
+  private final List<String> fired = new ArrayList<>();
+  private boolean first = true;
+  private long sequence;
+  private WatchEngine engine;
+
+  @BeforeEach
+  void setUp() {
+    ToolMetrics metrics = new ToolMetrics(new SimpleMeterRegistry());
+    engine =
+        new WatchEngine(
+            (rule, captureNanos) -> fired.add(rule.getId()),
+            metrics.watchEvaluation(),
+            metrics.watchRules("evaluated"),
+            metrics.watchRules("skipped"));
+    Arrays.fill(screen, GRAY);
+  }
+
+  @Test
+  void pixelRuleFiresOnceWhenColorAppears() {
+    engine.setRules(List.of(pixelRule("low-hp", 40, 40, "FF0000", 10)));
+
+    deliver();
+    assertTrue(fired.isEmpty());
+
+    screen[40 * SIZE + 40] = 0xFFF80505;
+    deliver();
+    deliver();
+    assertEquals(List.of("low-hp"), fired);
+
+    screen[40 * SIZE + 40] = GRAY;
+    deliver();
+    screen[40 * SIZE + 40] = RED;
+    deliver();
+    assertEquals(List.of("low-hp", "low-hp"), fired);
+  }
+
+  @Test
+  void averageRuleSkipsUnchangedTiles() {
+    WatchRule rule = rule("dark", WatchRule.Condition.AVERAGE_BELOW);
+    rule.setWidth(32);
+    rule.setHeight(32);
+    rule.setThreshold(32);
+    engine.setRules(List.of(rule));
+
+    deliver();
+    // 範圍外的分塊變化不會重新評估
+    screen[50 * SIZE + 50] = 0xFF000000;
+    deliver();
+    WatchRuleStatus status = engine.getStatus().get(0);
+    assertEquals(1, status.evaluations());
+    assertEquals(1, status.skipped());
+
+    for (int y = 0; y < 32; y++) {
+      Arrays.fill(screen, y * SIZE, y * SIZE + 32, 0xFF101010);
+    }
+    deliver();
+    assertEquals(List.of("dark"), fired);
+    assertEquals(2, engine.getStatus().get(0).evaluations());
+  }
+
+  @Test
+  void changedRuleIgnoresFirstFrameAndRespectsCooldown() {
+    WatchRule rule = rule("moved", WatchRule.Condition.CHANGED);
+    rule.setCooldownMs(60_000);
+    WatchRule eager = rule("moved-eager", WatchRule.Condition.CHANGED);
+    eager.setCooldownMs(0);
+    engine.setRules(List.of(rule, eager));
+
+    deliver();
+    assertTrue(fired.isEmpty());
+
+    screen[0] = RED;
+    deliver();
+    screen[0] = GRAY;
+    deliver();
+    assertEquals(List.of("moved", "moved-eager", "moved-eager"), fired);
+  }
+
+  @Test
+  void rulesForOtherRegionsAreIgnored() {
+    WatchRule rule = pixelRule("other", 0, 0, "404040", 0);
+    rule.setRegion("mp");
+    engine.setRules(List.of(rule));
+
+    deliver();
+
+    assertTrue(fired.isEmpty());
+    assertEquals(0, engine.getStatus().get(0).evaluations());
+  }
+
+  @Test
+  void rejectsInvalidRules() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> engine.setRules(List.of(pixelRule("a", 0, 0, "red", 0))));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            engine.setRules(
+                List.of(pixelRule("a", 0, 0, "FF0000", 0), pixelRule("a", 1, 1, "FF0000", 0))));
+    WatchRule noTask = rule("b", WatchRule.Condition.CHANGED);
+    noTask.setAction(WatchRule.Action.START_SCHEDULED_KEY);
+    assertThrows(IllegalArgumentException.class, () -> engine.setRules(List.of(noTask)));
+  }
+
+  private void deliver() {
+    Frame frame = pool.acquire();
+    System.arraycopy(screen, 0, frame.pixels(), 0, screen.length);
+    frame.hashTiles(tileHashes, first);
+    first = false;
+    frame.stamp("hp", ++sequence, 0, 0, System.nanoTime());
+    try {
+      engine.onFrame(frame);
+    } finally {
+      frame.release();
+    }
+  }
+
+  private static WatchRule pixelRule(String id, int x, int y, String color, int tolerance) {
+    WatchRule rule = rule(id, WatchRule.Condition.PIXEL_COLOR);
+    rule.setX(x);
+    rule.setY(y);
+    rule.setColor(color);
+    rule.setTolerance(tolerance);
+    return rule;
+  }
+
+  private static WatchRule rule(String id, WatchRule.Condition condition) {
+    WatchRule rule = new WatchRule();
+    rule.setId(id);
+    rule.setRegion("hp");
+    rule.setCondition(condition);
+    rule.setAction(WatchRule.Action.STOP_PLAYBACK);
+    rule.setCooldownMs(0);
+    return rule;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2024 ArtaleTool
+ * All rights reserved.
+ */
+package com.firefish.ArtaleTool;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.artale.artaletool.backend.win32.NativeBindings;
+
+/** 追蹤快速啟動模式的啟動時間與常駐記憶體 (RSS)，並確認啟動時沒有載入原生函式庫或啟動監聽執行緒 */
+class StartupFootprintTest {
+  private static final Logger logger = LoggerFactory.getLogger(StartupFootprintTest.class);
+  // 預算刻意放寬，只用來抓出明顯的退化
+  private static final long STARTUP_BUDGET_MS = 20_000;
+  private static final long RSS_BUDGET_KB = 1024 * 1024;
+
+  @Test
+  void lazyStartupDefersNativeBindingAndMonitors() throws IOException {
+    boolean user32LoadedBefore = NativeBindings.isUser32Loaded();
+    int monitorsBefore = countMonitorThreads();
+    long rssBefore = readRssKb();
+
+    long start = System.nanoTime();
+    try (ConfigurableApplicationContext context =
+        // 以命令列參數指定，優先於 application.properties 的設定；指定 win32 後端才會建立需要原生函式庫的 bean
+        new SpringApplicationBuilder(ArtaleToolSpringApplication.class)
+            .run(
+                "--artaletool.startup.lazy=true",
+                "--artaletool.backend=win32",
+                "--server.port=0")) {
+      long startupMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      long rssAfter = readRssKb();
+      logger.info("快速啟動: 啟動時間 {} ms, RSS {} KB (啟動前 {} KB)", startupMs, rssAfter, rssBefore);
+
+      assertTrue(context.isRunning());
+      assertTrue(startupMs < STARTUP_BUDGET_MS, "啟動時間 " + startupMs + " ms 超過預算");
+      if (rssAfter > 0) {
+        assertTrue(rssAfter < RSS_BUDGET_KB, "RSS " + rssAfter + " KB 超過預算");
+      }
+      if (!user32LoadedBefore) {
+        assertFalse(NativeBindings.isUser32Loaded(), "快速啟動時不應載入 user32");
+      }
+      assertTrue(countMonitorThreads() <= monitorsBefore, "快速啟動時不應啟動監聽執行緒");
+    }
+  }
+
+  private static int countMonitorThreads() {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      String name = thread.getName();
+      if (thread.isAlive()
+          && (name.equals("KeyMonitorThread") || name.equals("MouseMonitorThread"))) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** 讀取 /proc/self/status 的 VmRSS，非 Linux 平台回傳 -1 */
+  private static long readRssKb() throws IOException {
+    Path status = Paths.get("/proc/self/status");
+    if (!Files.exists(status)) {
+      return -1;
+    }
+    for (String line : Files.readAllLines(status)) {
+      if (line.startsWith("VmRSS:")) {
+        return Long.parseLong(line.replaceAll("[^0-9]", ""));
+      }
+    }
+    return -1;
+  }
+}